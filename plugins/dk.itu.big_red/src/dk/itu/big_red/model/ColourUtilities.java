@@ -33,6 +33,10 @@ public abstract class ColourUtilities {
 		}
 		
 		private static final class ColourHandler extends Handler {
+			private ColourHandler() {
+				super(ChangeColourDescriptor.class);
+			}
+			
 			@Override
 			public boolean tryValidateChange(Process context,
 					IChangeDescriptor change) throws ChangeCreationException {
@@ -197,6 +197,10 @@ public abstract class ControlUtilities {
 		}
 		
 		private static final class LabelHandler extends Handler {
+			private LabelHandler() {
+				super(ChangeLabelDescriptor.class);
+			}
+			
 			@Override
 			public boolean tryValidateChange(Process context,
 					IChangeDescriptor change) throws ChangeCreationException {
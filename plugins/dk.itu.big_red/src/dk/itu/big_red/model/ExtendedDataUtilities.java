@@ -34,6 +34,10 @@ public abstract class ExtendedDataUtilities {
 		}
 		
 		private static final class CommentHandler extends Handler {
+			private CommentHandler() {
+				super(ChangeCommentDescriptor.class);
+			}
+			
 			@Override
 			public boolean tryValidateChange(Process context,
 					IChangeDescriptor change) throws ChangeCreationException {
@@ -110,6 +114,10 @@ public abstract class ExtendedDataUtilities {
 				new BoundedIntegerNamePolicy(0);
 		
 		private static final class AliasHandler extends Handler {
+			private AliasHandler() {
+				super(ChangeAliasDescriptor.class);
+			}
+			
 			@Override
 			public boolean tryValidateChange(Process context,
 					IChangeDescriptor change) throws ChangeCreationException {
@@ -116,6 +116,10 @@ public abstract class LayoutUtilities {
 		}
 		
 		private static final class LayoutHandler extends Handler {
+			private LayoutHandler() {
+				super(ChangeLayoutDescriptor.class);
+			}
+			
 			@Override
 			public boolean tryValidateChange(Process context,
 					IChangeDescriptor change) throws ChangeCreationException {
@@ -63,7 +63,7 @@ public final class ChangeCompatibilityLoader
 	
 	private Bigraph getReactum() {
 		if (reactum == null)
-			reactum = rr.getRedex().clone();
+			reactum = rr.getRedex().clone(rr.getRedex().getSignature());
 		return reactum;
 	}
 	
@@ -61,6 +61,11 @@ public class EclipseFileWrapper extends EclipseResourceWrapper
 		}
 	}
 	
+	@Override
+	public long getModificationStamp() {
+		return getResource().getModificationStamp();
+	}
+	
 	@Override
 	public InputStream getContents() throws LoadFailedException {
 		try {
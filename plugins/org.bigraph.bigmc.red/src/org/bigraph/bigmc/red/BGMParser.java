@@ -122,7 +122,7 @@ public class BGMParser {
 		ChangeDescriptorGroup cdg = rr.getEdit().getDescriptors();
 		PropertyScratchpad scratch = new PropertyScratchpad();
 		
-		Bigraph reactum = rr.getRedex().clone();
+		Bigraph reactum = lhs.clone(lhs.getSignature());
 		
 		for (Root i : reactum.getRoots())
 			BigraphOperations.removeObject(cdg, scratch, i);
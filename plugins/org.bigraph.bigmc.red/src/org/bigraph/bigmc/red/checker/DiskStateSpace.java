@@ -0,0 +1,214 @@
+package org.bigraph.bigmc.red.checker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Model;
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Property;
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Rule;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerState;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerTransition;
+import org.bigraph.model.CanonicalForm;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.Signature;
+import org.bigraph.model.match.CompiledRule;
+import org.bigraph.model.match.Match;
+
+/**
+ * A <strong>DiskStateSpace</strong> is a {@link StateSpace} that keeps its
+ * states in a {@link StateStore}, and so can grow beyond the size of the
+ * heap.
+ * <p>State handles are {@link StateStore} identifiers. Only the transition
+ * through which each state was first reached is stored; the rest of the
+ * reaction graph is worked out again, by reapplying the rules, when the
+ * successors of a state are asked for. For the same reason, the precursors
+ * of a state only ever include that first transition.
+ */
+final class DiskStateSpace extends StateSpace<Long> {
+	private final StateStore store;
+	private final List<Rule> rules;
+	
+	DiskStateSpace(File directory, Signature signature, List<Rule> rules,
+			int cacheSize) throws IOException {
+		store = new StateStore(directory, signature, cacheSize);
+		this.rules = new ArrayList<Rule>(rules);
+	}
+	
+	private StateStore.Record getRecord(long id) {
+		try {
+			return store.get(id);
+		} catch (IOException e) {
+			throw new RuntimeException("Couldn't read state " + id, e);
+		}
+	}
+	
+	private Long store(CanonicalForm cf, FrozenBigraph b,
+			long precursor, int rule) {
+		try {
+			long id = store.add(cf, b, precursor, rule);
+			return (id != -1 ? id : null);
+		} catch (IOException e) {
+			throw new RuntimeException("Couldn't write a new state", e);
+		}
+	}
+	
+	@Override
+	Long addStart(CanonicalForm cf, FrozenBigraph b) {
+		return store(cf, b, -1, -1);
+	}
+	
+	@Override
+	Long find(CanonicalForm cf) {
+		try {
+			long id = store.find(cf);
+			return (id != -1 ? id : null);
+		} catch (IOException e) {
+			throw new RuntimeException("Couldn't look up a state", e);
+		}
+	}
+	
+	@Override
+	Long add(CanonicalForm cf, FrozenBigraph b, Long precursor, Rule rule) {
+		return store(cf, b, precursor, rules.indexOf(rule));
+	}
+	
+	@Override
+	void link(Long from, Rule rule, Long to) {
+		/* do nothing */
+	}
+	
+	@Override
+	FrozenBigraph getBigraph(Long state) {
+		return getRecord(state).getBigraph();
+	}
+	
+	@Override
+	StoredState getState(Long state) {
+		return new StoredState(state);
+	}
+	
+	@Override
+	Violation createViolation(Property property, Long state) {
+		ArrayList<IModelCheckerTransition> trace =
+				new ArrayList<IModelCheckerTransition>();
+		StoredTransition t;
+		while ((t = new StoredState(state).getFirstPrecursor()) != null) {
+			trace.add(t);
+			state = t.getPreState().id;
+		}
+		Collections.reverse(trace);
+		return new Violation(property,
+				trace.toArray(new IModelCheckerTransition[0]));
+	}
+	
+	@Override
+	void dispose() {
+		store.close();
+	}
+	
+	/**
+	 * A <strong>StoredState</strong> is an {@link IModelCheckerState} view
+	 * of a state in a {@link DiskStateSpace}.
+	 */
+	private final class StoredState implements IModelCheckerState {
+		private final long id;
+		
+		private StoredState(long id) {
+			this.id = id;
+		}
+		
+		private StoredTransition getFirstPrecursor() {
+			StateStore.Record r = getRecord(id);
+			if (r.getPrecursor() != -1) {
+				return new StoredTransition(rules.get(r.getRule()),
+						new StoredState(r.getPrecursor()), this);
+			} else return null;
+		}
+		
+		@Override
+		public Model getModel() {
+			return new Model(getBigraph(id));
+		}
+		
+		@Override
+		public IModelCheckerTransition[] getPrecursors() {
+			StoredTransition t = getFirstPrecursor();
+			return (t != null ?
+					new IModelCheckerTransition[] { t } :
+					new IModelCheckerTransition[0]);
+		}
+		
+		@Override
+		public IModelCheckerTransition[] getSuccessors() {
+			FrozenBigraph agent = getBigraph(id);
+			ArrayList<StoredTransition> successors =
+					new ArrayList<StoredTransition>();
+			for (Rule r : rules) {
+				CompiledRule cr = r.getRule();
+				successors: for (Match m : cr.match(agent)) {
+					Long to = find(new CanonicalForm(cr.apply(m)));
+					if (to == null)
+						continue;
+					for (StoredTransition t : successors)
+						if (t.rule == r && t.postState.id == to)
+							continue successors;
+					successors.add(new StoredTransition(
+							r, this, new StoredState(to)));
+				}
+			}
+			return successors.toArray(new IModelCheckerTransition[0]);
+		}
+		
+		private DiskStateSpace getSpace() {
+			return DiskStateSpace.this;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof StoredState) {
+				StoredState s = (StoredState)obj;
+				return getSpace() == s.getSpace() && id == s.id;
+			} else return false;
+		}
+		
+		@Override
+		public int hashCode() {
+			return (int)(id ^ (id >>> 32));
+		}
+	}
+	
+	/**
+	 * A <strong>StoredTransition</strong> is an {@link
+	 * IModelCheckerTransition} between two {@link StoredState}s.
+	 */
+	private static final class StoredTransition
+			implements IModelCheckerTransition {
+		private final Rule rule;
+		private final StoredState preState, postState;
+		
+		private StoredTransition(
+				Rule rule, StoredState preState, StoredState postState) {
+			this.rule = rule;
+			this.preState = preState;
+			this.postState = postState;
+		}
+		
+		@Override
+		public Rule getRule() {
+			return rule;
+		}
+		
+		@Override
+		public StoredState getPreState() {
+			return preState;
+		}
+		
+		@Override
+		public StoredState getPostState() {
+			return postState;
+		}
+	}
+}
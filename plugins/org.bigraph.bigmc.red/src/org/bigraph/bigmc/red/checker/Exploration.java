@@ -0,0 +1,283 @@
+package org.bigraph.bigmc.red.checker;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Property;
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Rule;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerMonitor;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerResult.Outcome;
+import org.bigraph.model.CanonicalForm;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.changes.descriptors.ChangeDescriptorGroup;
+import org.bigraph.model.match.CompiledRule;
+import org.bigraph.model.match.Match;
+import org.bigraph.model.match.Summary;
+
+/**
+ * An <strong>Exploration</strong> holds the working state of a single call
+ * to {@link NativeModelChecker#run(IModelCheckerMonitor)}.
+ * <p>The state space is explored by a number of {@link Worker}s, each of
+ * which has its own frontier: new states go to the back of the frontier of
+ * the worker that found them, and a worker whose frontier is empty steals
+ * states from the others. Visited states are recorded in a {@link
+ * StateSpace}, keyed by their {@link CanonicalForm}s.
+ * <p>Each state waits in the frontier with its {@link Summary}, which is
+ * worked out from that of the state that it was found from and the changes
+ * made by the reaction, rather than from scratch.
+ * <p>The calling thread doesn't explore anything itself; it passes
+ * progress information to the {@link IModelCheckerMonitor} and watches for
+ * cancellation requests, so that the monitor is only ever used by one
+ * thread.
+ * @param <H> the type of the {@link StateSpace}'s state handles
+ */
+final class Exploration<H> {
+	private static final long IDLE_NANOS = 50000L, POLL_MILLIS = 100L;
+	
+	private final StateSpace<H> space;
+	private final List<Rule> rules;
+	private final List<Property> properties;
+	private final int maximumStates;
+	private final List<Worker> workers;
+	
+	/* The number of states that have been (or are about to be) added to
+	 * the visited set, and the number that are waiting to be explored or
+	 * are being explored */
+	private final AtomicInteger
+		stateCount = new AtomicInteger(), pending = new AtomicInteger();
+	private final AtomicReference<Violation> violation =
+			new AtomicReference<Violation>();
+	private final AtomicReference<RuntimeException> failure =
+			new AtomicReference<RuntimeException>();
+	private volatile boolean stopped = false, limited = false;
+	private Thread[] threads;
+	
+	@SuppressWarnings("unchecked")
+	Exploration(StateSpace<H> space, List<Rule> rules,
+			List<Property> properties, int maximumStates, int threadCount) {
+		this.space = space;
+		this.rules = rules;
+		this.properties = properties;
+		this.maximumStates = maximumStates;
+		Worker[] w = (Worker[])new Exploration<?>.Worker[threadCount];
+		for (int i = 0; i < threadCount; i++)
+			w[i] = new Worker(i);
+		workers = Arrays.asList(w);
+	}
+	
+	private Property check(FrozenBigraph state) {
+		for (Property p : properties)
+			if (!p.holds(state))
+				return p;
+		return null;
+	}
+	
+	/**
+	 * Explores the state space from the given model.
+	 * <p>If this method returns normally, then the {@link StateSpace} is
+	 * owned by the returned {@link Result}; if it throws an exception, then
+	 * the state space will already have been disposed.
+	 * @param model the start state
+	 * @param monitor an {@link IModelCheckerMonitor}
+	 * @return a {@link Result}
+	 */
+	Result run(FrozenBigraph model, IModelCheckerMonitor monitor) {
+		try {
+			return explore(model, monitor);
+		} catch (RuntimeException e) {
+			abandon();
+			throw e;
+		} catch (Error e) {
+			abandon();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Stops any workers that are still running and disposes of the {@link
+	 * StateSpace}, which no {@link Result} will now own.
+	 */
+	private void abandon() {
+		stopped = true;
+		boolean interrupted = false;
+		if (threads != null) {
+			for (Thread t : threads) {
+				while (t.isAlive()) {
+					try {
+						t.join();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+		}
+		space.dispose();
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+	
+	private Result explore(FrozenBigraph model, IModelCheckerMonitor monitor) {
+		H start = space.addStart(new CanonicalForm(model), model);
+		stateCount.set(1);
+		monitor.worked(1);
+		
+		Property violated = check(model);
+		if (violated != null)
+			return new Result(Outcome.PROPERTY_VIOLATION,
+					space.getState(start),
+					space.createViolation(violated, start), space);
+		
+		pending.set(1);
+		workers.get(0).frontier.add(new Task(start, new Summary(model)));
+		
+		threads = new Thread[workers.size()];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(workers.get(i),
+					"NativeModelChecker worker " + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+		
+		boolean canceled = false;
+		int reported = 1;
+		for (Thread t : threads) {
+			while (t.isAlive()) {
+				try {
+					t.join(POLL_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					canceled = stopped = true;
+				}
+				int count = Math.min(stateCount.get(), maximumStates);
+				if (count > reported) {
+					monitor.worked(count - reported);
+					reported = count;
+				}
+				if (!canceled && monitor.isCanceled())
+					canceled = stopped = true;
+			}
+		}
+		
+		if (failure.get() != null)
+			throw failure.get();
+		Outcome outcome;
+		if (violation.get() != null) {
+			outcome = Outcome.PROPERTY_VIOLATION;
+		} else if (canceled || limited) {
+			outcome = Outcome.INCOMPLETE;
+		} else outcome = Outcome.COMPLETE;
+		return new Result(
+				outcome, space.getState(start), violation.get(), space);
+	}
+	
+	/**
+	 * A <strong>Task</strong> is a state waiting to be explored, together
+	 * with its {@link Summary}.
+	 */
+	private final class Task {
+		private final H state;
+		private final Summary summary;
+		
+		private Task(H state, Summary summary) {
+			this.state = state;
+			this.summary = summary;
+		}
+	}
+	
+	/**
+	 * A <strong>Worker</strong> explores states from its own frontier,
+	 * stealing from other workers' frontiers when its own is empty, until
+	 * there are no more states to explore or the exploration is stopped.
+	 */
+	private final class Worker implements Runnable {
+		private final int index;
+		private final LinkedBlockingDeque<Task> frontier =
+				new LinkedBlockingDeque<Task>();
+		
+		private Worker(int index) {
+			this.index = index;
+		}
+		
+		private Task steal() {
+			int size = workers.size();
+			for (int i = 1; i < size; i++) {
+				Task t = workers.get((index + i) % size).frontier.pollFirst();
+				if (t != null)
+					return t;
+			}
+			return null;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				while (!stopped) {
+					Task t = frontier.pollFirst();
+					if (t == null)
+						t = steal();
+					if (t != null) {
+						explore(t);
+						pending.decrementAndGet();
+					} else if (pending.get() == 0) {
+						break;
+					} else LockSupport.parkNanos(IDLE_NANOS);
+				}
+			} catch (RuntimeException e) {
+				failure.compareAndSet(null, e);
+				stopped = true;
+			}
+		}
+		
+		private void explore(Task task) {
+			H s = task.state;
+			FrozenBigraph agent = space.getBigraph(s);
+			Summary summary = task.summary;
+			for (Rule r : rules) {
+				CompiledRule cr = r.getRule();
+				if (!summary.admits(cr.getMatcher().getSummary()))
+					continue;
+				for (Match m : cr.match(agent)) {
+					if (stopped)
+						return;
+					ChangeDescriptorGroup changes = new ChangeDescriptorGroup();
+					FrozenBigraph b = cr.apply(m, changes);
+					CanonicalForm cf = new CanonicalForm(b);
+					H t = space.find(cf);
+					if (t == null) {
+						/* Reserve a place for the new state before trying to
+						 * add it, so that the limit can't be overshot */
+						if (stateCount.incrementAndGet() > maximumStates) {
+							limited = stopped = true;
+							return;
+						}
+						H u = space.add(cf, b, s, r);
+						if (u != null) {
+							discovered(u, b,
+									summary.derive(agent, changes, b));
+							continue;
+						}
+						stateCount.decrementAndGet();
+						t = space.find(cf);
+					}
+					space.link(s, r, t);
+				}
+			}
+		}
+		
+		private void discovered(H u, FrozenBigraph b, Summary summary) {
+			Property violated = check(b);
+			if (violated != null) {
+				violation.compareAndSet(null,
+						space.createViolation(violated, u));
+				stopped = true;
+			} else {
+				pending.incrementAndGet();
+				frontier.addLast(new Task(u, summary));
+			}
+		}
+	}
+}
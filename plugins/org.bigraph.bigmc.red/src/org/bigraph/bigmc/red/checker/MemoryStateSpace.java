@@ -0,0 +1,92 @@
+package org.bigraph.bigmc.red.checker;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Property;
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Rule;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerTransition;
+import org.bigraph.model.CanonicalForm;
+import org.bigraph.model.FrozenBigraph;
+
+/**
+ * A <strong>MemoryStateSpace</strong> is a {@link StateSpace} that keeps
+ * every {@link State}, and the whole reaction graph, on the heap.
+ * <p>States are identified by their {@link CanonicalForm}s in a {@link
+ * ConcurrentHashMap}, whose segments (one of which is selected by each
+ * form's structural hash) act as the shards of the visited set. The hash
+ * only selects a bucket; {@link CanonicalForm#equals(Object)} compares the
+ * whole description, so states whose hashes collide are still kept apart.
+ */
+final class MemoryStateSpace extends StateSpace<State> {
+	private final ConcurrentHashMap<CanonicalForm, State> states;
+	private State start;
+	
+	MemoryStateSpace(int maximumStates, int threadCount) {
+		states = new ConcurrentHashMap<CanonicalForm, State>(
+				Math.min(maximumStates, 1 << 16), 0.75f, threadCount * 4);
+	}
+	
+	@Override
+	State addStart(CanonicalForm cf, FrozenBigraph b) {
+		start = new State(b);
+		states.put(cf, start);
+		return start;
+	}
+	
+	@Override
+	State find(CanonicalForm cf) {
+		return states.get(cf);
+	}
+	
+	@Override
+	State add(CanonicalForm cf, FrozenBigraph b, State precursor, Rule rule) {
+		State u = new State(b, rule, precursor);
+		if (states.putIfAbsent(cf, u) == null) {
+			u.attach();
+			return u;
+		} else return null;
+	}
+	
+	@Override
+	void link(State from, Rule rule, State to) {
+		from.addSuccessor(rule, to);
+	}
+	
+	@Override
+	FrozenBigraph getBigraph(State state) {
+		return state.getBigraph();
+	}
+	
+	@Override
+	State getState(State state) {
+		return state;
+	}
+	
+	@Override
+	Violation createViolation(Property property, State state) {
+		return new Violation(property, state);
+	}
+	
+	@Override
+	void dispose() {
+		states.clear();
+		if (start == null)
+			return;
+		HashSet<State> seen = new HashSet<State>();
+		ArrayDeque<State> queue = new ArrayDeque<State>();
+		queue.add(start);
+		seen.add(start);
+		while (!queue.isEmpty()) {
+			State s = queue.poll();
+			for (IModelCheckerTransition t : s.getSuccessors()) {
+				State u = (State)t.getPostState();
+				if (seen.add(u))
+					queue.add(u);
+			}
+			s.dispose();
+		}
+		start = null;
+	}
+}
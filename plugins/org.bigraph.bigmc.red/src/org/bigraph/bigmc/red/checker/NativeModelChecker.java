@@ -0,0 +1,419 @@
+package org.bigraph.bigmc.red.checker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bigraph.bigmc.red.interfaces.IModelChecker;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerMonitor;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerResult;
+import org.bigraph.model.Bigraph;
+import org.bigraph.model.CanonicalForm;
+import org.bigraph.model.Container;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.Layoutable;
+import org.bigraph.model.Node;
+import org.bigraph.model.ReactionRule;
+import org.bigraph.model.Signature;
+import org.bigraph.model.SimulationSpec;
+import org.bigraph.model.Site;
+import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.match.CompiledRule;
+import org.bigraph.model.match.Matcher;
+
+import dk.itu.big_red.model.ExtendedDataUtilities;
+import org.bigraph.extensions.param.ParameterUtilities;
+
+/**
+ * The <strong>NativeModelChecker</strong> is an {@link IModelChecker} that
+ * explores the state space of a reactive system itself, in the current
+ * JVM, rather than by running an external tool.
+ * <p>States are identified by their {@link CanonicalForm}s, so two states
+ * that differ only in the names of their nodes and edges are treated as the
+ * same state. The state space is explored by several worker threads at
+ * once (see {@link #setThreadCount(int)}); with a single worker thread, it
+ * is explored breadth first.
+ * @see org.bigraph.bigmc.red.interfaces.ModelCheckerFactory
+ */
+public class NativeModelChecker implements IModelChecker {
+	/**
+	 * The identifier which {@link
+	 * org.bigraph.bigmc.red.interfaces.ModelCheckerFactory
+	 * ModelCheckerFactory} associates with this model checker.
+	 */
+	public static final String IDENTIFIER = "org.bigraph.bigmc.red.native";
+	
+	/**
+	 * A <strong>Model</strong> is an {@link IBigraph} for use with a {@link
+	 * NativeModelChecker}.
+	 */
+	public static final class Model implements IBigraph {
+		private final FrozenBigraph bigraph;
+		
+		public Model(Bigraph bigraph) {
+			this(new FrozenBigraph(bigraph));
+		}
+		
+		public Model(FrozenBigraph bigraph) {
+			this.bigraph = bigraph;
+		}
+		
+		public FrozenBigraph getBigraph() {
+			return bigraph;
+		}
+		
+		@Override
+		public String toString() {
+			return "Model(" + bigraph + ")";
+		}
+	}
+	
+	/**
+	 * A <strong>Rule</strong> is an {@link IReactionRule} for use with a
+	 * {@link NativeModelChecker}.
+	 */
+	public static final class Rule implements IReactionRule {
+		private final CompiledRule rule;
+		
+		/**
+		 * Creates a new {@link Rule}.
+		 * @param rule a {@link ReactionRule}
+		 * @throws ChangeCreationException if the rule's reactum could not be
+		 * created, or if the rule uses site aliases or node parameters
+		 * (which {@link CompiledRule}s can't represent)
+		 */
+		public Rule(ReactionRule rule) throws ChangeCreationException {
+			this(new CompiledRule(checkRule(rule)));
+		}
+		
+		public Rule(CompiledRule rule) {
+			this.rule = rule;
+		}
+		
+		public CompiledRule getRule() {
+			return rule;
+		}
+		
+		@Override
+		public String toString() {
+			return "Rule(" + rule.getRule() + ")";
+		}
+	}
+	
+	/**
+	 * A <strong>SignatureWrapper</strong> is an {@link ISignature} for use
+	 * with a {@link NativeModelChecker}. (As {@link FrozenBigraph}s carry
+	 * their own {@link Signature}s, the model checker doesn't actually need
+	 * it.)
+	 */
+	public static final class SignatureWrapper implements ISignature {
+		private final Signature signature;
+		
+		public SignatureWrapper(Signature signature) {
+			this.signature = signature;
+		}
+		
+		public Signature getSignature() {
+			return signature;
+		}
+	}
+	
+	/**
+	 * A <strong>Property</strong> is an {@link IProperty} that must hold in
+	 * every state reached by a {@link NativeModelChecker}.
+	 */
+	public static abstract class Property implements IProperty {
+		private final String name;
+		
+		public Property(String name) {
+			this.name = name;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * Checks this property against a state.
+		 * @param state a {@link FrozenBigraph}
+		 * @return <code>true</code> if the property holds, or
+		 * <code>false</code> if it has been violated
+		 */
+		public abstract boolean holds(FrozenBigraph state);
+		
+		@Override
+		public String toString() {
+			return "Property(" + name + ")";
+		}
+	}
+	
+	/**
+	 * A <strong>MatchProperty</strong> is a {@link Property} that holds when
+	 * a pattern does (or doesn't) occur in a state.
+	 */
+	public static class MatchProperty extends Property {
+		private final Matcher matcher;
+		private final boolean expected;
+		
+		/**
+		 * Creates a new {@link MatchProperty}.
+		 * @param name the name of the property
+		 * @param pattern a {@link Bigraph} to look for in each state
+		 * @param expected <code>true</code> if the property holds when
+		 * <code>pattern</code> occurs, or <code>false</code> if it holds
+		 * when it doesn't
+		 */
+		public MatchProperty(String name, Bigraph pattern, boolean expected) {
+			super(name);
+			matcher = new Matcher(pattern);
+			this.expected = expected;
+		}
+		
+		@Override
+		public boolean holds(FrozenBigraph state) {
+			return matcher.matches(state) == expected;
+		}
+	}
+	
+	/**
+	 * Checks that a {@link Bigraph} doesn't use any of the Big Red
+	 * extensions that change the meaning of a rule. {@link CompiledRule}s
+	 * pair up sites by name and nodes by control alone, so a site alias
+	 * (which names the redex site that a reactum site copies) or a node
+	 * parameter (which is effectively part of the node's control) would
+	 * silently be ignored.
+	 * @param b a {@link Bigraph}
+	 * @throws ChangeCreationException if <code>b</code> uses site aliases
+	 * or node parameters
+	 */
+	private static void checkBigraph(Bigraph b)
+			throws ChangeCreationException {
+		checkChildren(b);
+	}
+	
+	private static void checkChildren(Container c)
+			throws ChangeCreationException {
+		for (Layoutable l : c.getChildren()) {
+			if (l instanceof Site) {
+				String alias = ExtendedDataUtilities.getAlias((Site)l);
+				if (alias != null && !alias.equals(l.getName()))
+					throw new ChangeCreationException(null,
+							"The site " + l.getName() + " has an alias, " +
+							"which the native model checker does not " +
+							"support");
+			} else if (l instanceof Node) {
+				if (ParameterUtilities.getParameter((Node)l) != null)
+					throw new ChangeCreationException(null,
+							"The node " + l.getName() + " has a " +
+							"parameter, which the native model checker " +
+							"does not support");
+			}
+			if (l instanceof Container)
+				checkChildren((Container)l);
+		}
+	}
+	
+	/**
+	 * Checks that a {@link ReactionRule} can be used by the native model
+	 * checker. As well as the checks made by {@link #checkBigraph(Bigraph)},
+	 * the redex must not have any inner names, which {@link Matcher}s don't
+	 * support.
+	 * @param rule a {@link ReactionRule}
+	 * @return <code>rule</code>
+	 * @throws ChangeCreationException if <code>rule</code> can't be used
+	 */
+	private static ReactionRule checkRule(ReactionRule rule)
+			throws ChangeCreationException {
+		if (!rule.getRedex().getInnerNames().isEmpty())
+			throw new ChangeCreationException(null,
+					"The redex has inner names, which the native model " +
+					"checker does not support");
+		checkBigraph(rule.getRedex());
+		Bigraph reactum = rule.createReactum();
+		try {
+			checkBigraph(reactum);
+		} finally {
+			reactum.dispose();
+		}
+		return rule;
+	}
+	
+	private Model model;
+	private final List<Rule> rules = new ArrayList<Rule>();
+	private final List<Property> properties = new ArrayList<Property>();
+	private int maximumStates = 1000;
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private File stateDirectory = null;
+	private int cacheSize = 10000;
+	
+	@Override
+	public void reset() {
+		model = null;
+		rules.clear();
+		properties.clear();
+	}
+	
+	@Override
+	public void setModel(IBigraph bigraph) {
+		model = (Model)bigraph;
+	}
+	
+	@Override
+	public void addProperty(IProperty property) {
+		properties.add((Property)property);
+	}
+	
+	@Override
+	public void setSignature(ISignature signature) {
+		/* do nothing */
+	}
+	
+	@Override
+	public void addReactionRule(IReactionRule rule) {
+		rules.add((Rule)rule);
+	}
+	
+	/**
+	 * Replaces the model, signature and rules of this model checker with
+	 * those of a {@link SimulationSpec}. (Properties are left alone.)
+	 * @param spec a {@link SimulationSpec}
+	 * @throws ChangeCreationException if the reactum of one of the spec's
+	 * rules could not be created, or if the spec uses site aliases or node
+	 * parameters
+	 */
+	public void setSimulationSpec(SimulationSpec spec)
+			throws ChangeCreationException {
+		checkBigraph(spec.getModel());
+		setSignature(new SignatureWrapper(spec.getSignature()));
+		setModel(new Model(spec.getModel()));
+		rules.clear();
+		for (ReactionRule r : spec.getRules())
+			addReactionRule(new Rule(r));
+	}
+	
+	/**
+	 * Sets the maximum number of states that will be explored before giving
+	 * up. (The default is 1000.)
+	 * @param maximumStates a positive integer
+	 */
+	public void setMaximumStates(int maximumStates) {
+		this.maximumStates = maximumStates;
+	}
+	
+	public int getMaximumStates() {
+		return maximumStates;
+	}
+	
+	/**
+	 * Sets the number of worker threads that will be used to explore the
+	 * state space. (The default is the number of available processors.)
+	 * @param threadCount a positive integer
+	 */
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1)
+			throw new IllegalArgumentException(
+					"" + threadCount + " is not a positive integer");
+		this.threadCount = threadCount;
+	}
+	
+	public int getThreadCount() {
+		return threadCount;
+	}
+	
+	/**
+	 * Sets the directory in which visited states will be stored. If this is
+	 * <code>null</code> (the default), states will be kept in memory
+	 * instead.
+	 * <p>Storing states on disk lets the state space grow beyond the size
+	 * of the heap, at the cost of recomputing the successors of each state
+	 * when they're asked for; only the transition through which each state
+	 * was first reached is kept. The files are deleted when the {@link
+	 * IModelCheckerResult} is disposed.
+	 * @param stateDirectory a directory, or <code>null</code>
+	 * @see #setCacheSize(int)
+	 */
+	public void setStateDirectory(File stateDirectory) {
+		this.stateDirectory = stateDirectory;
+	}
+	
+	public File getStateDirectory() {
+		return stateDirectory;
+	}
+	
+	/**
+	 * Sets the number of states that will be kept on the heap when states
+	 * are stored on disk. (The default is 10000.)
+	 * @param cacheSize a positive integer
+	 * @see #setStateDirectory(File)
+	 */
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+	
+	public int getCacheSize() {
+		return cacheSize;
+	}
+	
+	private StateSpace<?> createStateSpace() {
+		if (stateDirectory != null) {
+			try {
+				return new DiskStateSpace(stateDirectory,
+						model.getBigraph().getSignature(), rules, cacheSize);
+			} catch (IOException e) {
+				throw new RuntimeException(
+						"Couldn't create a state store in " + stateDirectory, e);
+			}
+		} else return new MemoryStateSpace(maximumStates, threadCount);
+	}
+	
+	private <H> IModelCheckerResult run(
+			StateSpace<H> space, IModelCheckerMonitor monitor) {
+		return new Exploration<H>(space, rules, properties,
+				maximumStates, threadCount).run(model.getBigraph(), monitor);
+	}
+	
+	@Override
+	public IModelCheckerResult run(IModelCheckerMonitor monitor) {
+		if (model == null)
+			throw new IllegalStateException("No model has been set");
+		if (monitor == null)
+			monitor = new NullMonitor();
+		monitor.start("Exploring state space", maximumStates);
+		try {
+			return run(createStateSpace(), monitor);
+		} finally {
+			monitor.end();
+		}
+	}
+	
+	private static final class NullMonitor implements IModelCheckerMonitor {
+		private boolean canceled;
+		
+		@Override
+		public void start(String name, int totalWork) {
+		}
+		
+		@Override
+		public void worked(int units) {
+		}
+		
+		@Override
+		public void subtask(String name) {
+		}
+		
+		@Override
+		public void end() {
+		}
+		
+		@Override
+		public boolean isCanceled() {
+			return canceled;
+		}
+		
+		@Override
+		public void setCanceled(boolean canceled) {
+			this.canceled = canceled;
+		}
+	}
+}
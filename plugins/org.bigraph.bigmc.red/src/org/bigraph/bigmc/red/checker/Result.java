@@ -0,0 +1,43 @@
+package org.bigraph.bigmc.red.checker;
+
+import org.bigraph.bigmc.red.interfaces.IModelCheckerResult;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerState;
+
+final class Result implements IModelCheckerResult {
+	private final Outcome outcome;
+	private IModelCheckerState start;
+	private final Violation violation;
+	private StateSpace<?> space;
+	
+	Result(Outcome outcome, IModelCheckerState start, Violation violation,
+			StateSpace<?> space) {
+		this.outcome = outcome;
+		this.start = start;
+		this.violation = violation;
+		this.space = space;
+	}
+	
+	@Override
+	public Outcome getOutcome() {
+		return outcome;
+	}
+	
+	@Override
+	public IModelCheckerState getStartState() {
+		return start;
+	}
+	
+	@Override
+	public Violation getViolation() {
+		return violation;
+	}
+	
+	@Override
+	public void dispose() {
+		if (space == null)
+			return;
+		space.dispose();
+		space = null;
+		start = null;
+	}
+}
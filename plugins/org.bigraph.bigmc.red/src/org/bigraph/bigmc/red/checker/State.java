@@ -0,0 +1,111 @@
+package org.bigraph.bigmc.red.checker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Model;
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Rule;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerState;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerTransition;
+import org.bigraph.model.FrozenBigraph;
+
+/**
+ * A <strong>State</strong> is a node in the reaction graph built by a
+ * {@link NativeModelChecker}.
+ * <p>Only the worker exploring a state adds successors to it, but any worker
+ * can add precursors to it, so its precursor list is guarded by its own
+ * lock. (The transition through which a state was first reached is fixed
+ * when it's created, before any other worker can see it.)
+ */
+final class State implements IModelCheckerState {
+	private final FrozenBigraph bigraph;
+	private final Transition origin;
+	private final List<Transition>
+		precursors = new ArrayList<Transition>(1),
+		successors = new ArrayList<Transition>();
+	
+	/**
+	 * Creates a new start {@link State}.
+	 * @param bigraph a {@link FrozenBigraph}
+	 */
+	State(FrozenBigraph bigraph) {
+		this.bigraph = bigraph;
+		origin = null;
+	}
+	
+	/**
+	 * Creates a new {@link State} reached from another one. The new state
+	 * isn't added to its precursor's successors until {@link #attach()} is
+	 * called.
+	 * @param bigraph a {@link FrozenBigraph}
+	 * @param rule the {@link Rule} that was applied
+	 * @param precursor the {@link State} it was applied to
+	 */
+	State(FrozenBigraph bigraph, Rule rule, State precursor) {
+		this.bigraph = bigraph;
+		origin = new Transition(rule, precursor, this);
+		precursors.add(origin);
+	}
+	
+	FrozenBigraph getBigraph() {
+		return bigraph;
+	}
+	
+	/**
+	 * Adds the transition through which this state was first reached to
+	 * its precursor's successors.
+	 */
+	void attach() {
+		origin.getPreState().successors.add(origin);
+	}
+	
+	/**
+	 * Records a transition from this state to another one, unless an
+	 * identical transition has already been recorded.
+	 * @param rule the {@link Rule} that was applied
+	 * @param target the resulting {@link State}
+	 */
+	void addSuccessor(Rule rule, State target) {
+		for (Transition t : successors)
+			if (t.getRule() == rule && t.getPostState() == target)
+				return;
+		Transition t = new Transition(rule, this, target);
+		successors.add(t);
+		synchronized (target.precursors) {
+			target.precursors.add(t);
+		}
+	}
+	
+	/**
+	 * Returns the transition through which this state was first reached.
+	 * @return a {@link Transition}, or <code>null</code> if this is the start
+	 * state
+	 */
+	Transition getFirstPrecursor() {
+		return origin;
+	}
+	
+	@Override
+	public Model getModel() {
+		return new Model(bigraph);
+	}
+	
+	@Override
+	public IModelCheckerTransition[] getPrecursors() {
+		synchronized (precursors) {
+			return precursors.toArray(new IModelCheckerTransition[0]);
+		}
+	}
+	
+	@Override
+	public IModelCheckerTransition[] getSuccessors() {
+		return successors.toArray(new IModelCheckerTransition[0]);
+	}
+	
+	void dispose() {
+		synchronized (precursors) {
+			precursors.clear();
+		}
+		successors.clear();
+	}
+}
@@ -0,0 +1,140 @@
+package org.bigraph.bigmc.red.checker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import org.bigraph.model.Control;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.Signature;
+
+/**
+ * A <strong>StateCodec</strong> converts {@link FrozenBigraph}s to and from
+ * a compact binary form.
+ * <p>{@link Control}s are written as indices into a table kept by the
+ * codec itself, so an encoded state can only be decoded by the codec that
+ * encoded it; every decoded state is given the codec's {@link Signature}.
+ * Places are written in order, each one after its parent, and links are
+ * written with their points in order, so decoding a state gives back
+ * exactly the same numbering.
+ */
+final class StateCodec {
+	private final Signature signature;
+	private final ArrayList<Control> controls = new ArrayList<Control>();
+	private final IdentityHashMap<Control, Integer> controlIndices =
+			new IdentityHashMap<Control, Integer>();
+	
+	StateCodec(Signature signature) {
+		this.signature = signature;
+	}
+	
+	private synchronized int getControlIndex(Control c) {
+		Integer i = controlIndices.get(c);
+		if (i == null) {
+			controlIndices.put(c, i = controls.size());
+			controls.add(c);
+		}
+		return i;
+	}
+	
+	private synchronized Control getControl(int i) {
+		return controls.get(i);
+	}
+	
+	/**
+	 * Encodes a state.
+	 * @param b a {@link FrozenBigraph}
+	 * @return a new byte array
+	 */
+	byte[] encode(FrozenBigraph b) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			int placeCount = b.getPlaceCount();
+			out.writeInt(placeCount);
+			for (int i = 0; i < placeCount; i++) {
+				byte kind = b.getKind(i);
+				out.writeByte(kind);
+				out.writeInt(b.getParent(i));
+				out.writeUTF(b.getPlaceName(i));
+				if (kind == FrozenBigraph.NODE)
+					out.writeInt(getControlIndex(
+							b.getControl(b.getPlaceControl(i))));
+			}
+			
+			int innerNameCount = b.getInnerNameCount();
+			out.writeInt(innerNameCount);
+			for (int i = 0; i < innerNameCount; i++)
+				out.writeUTF(b.getInnerNameName(i));
+			
+			int linkCount = b.getLinkCount(), portCount = b.getPortCount();
+			out.writeInt(linkCount);
+			out.writeInt(b.getOuterNameCount());
+			for (int i = 0; i < linkCount; i++) {
+				out.writeUTF(b.getLinkName(i));
+				int pointCount = b.getLinkPointCount(i);
+				out.writeInt(pointCount);
+				for (int j = 0; j < pointCount; j++) {
+					int point = b.getLinkPoint(i, j);
+					if (point < portCount) {
+						int place = b.getPortPlace(point);
+						out.writeInt(place);
+						out.writeInt(point - b.getPort(place, 0));
+					} else {
+						out.writeInt(-1);
+						out.writeInt(point - portCount);
+					}
+				}
+			}
+			out.flush();
+		} catch (IOException e) {
+			/* ByteArrayOutputStreams don't throw IOExceptions */
+			throw new RuntimeException(e);
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Decodes a state.
+	 * @param in a {@link DataInput} positioned at the start of a state
+	 * encoded by this codec
+	 * @return a new {@link FrozenBigraph}
+	 * @throws IOException if <code>in</code> couldn't be read
+	 */
+	FrozenBigraph decode(DataInput in) throws IOException {
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		int placeCount = in.readInt();
+		for (int i = 0; i < placeCount; i++) {
+			byte kind = in.readByte();
+			int parent = in.readInt();
+			String name = in.readUTF();
+			if (kind == FrozenBigraph.ROOT) {
+				fb.addRoot(name);
+			} else if (kind == FrozenBigraph.NODE) {
+				fb.addNode(parent, name, getControl(in.readInt()));
+			} else fb.addSite(parent, name);
+		}
+		
+		int innerNameCount = in.readInt();
+		for (int i = 0; i < innerNameCount; i++)
+			fb.addInnerName(in.readUTF());
+		
+		int linkCount = in.readInt(), outerNameCount = in.readInt();
+		for (int i = 0; i < linkCount; i++) {
+			String name = in.readUTF();
+			int link = (i < outerNameCount ?
+					fb.addOuterName(name) : fb.addEdge(name));
+			int pointCount = in.readInt();
+			for (int j = 0; j < pointCount; j++) {
+				int place = in.readInt(), point = in.readInt();
+				if (place != -1) {
+					fb.connectPort(place, point, link);
+				} else fb.connectInnerName(point, link);
+			}
+		}
+		return fb.build();
+	}
+}
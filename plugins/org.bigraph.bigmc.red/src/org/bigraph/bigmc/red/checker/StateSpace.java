@@ -0,0 +1,81 @@
+package org.bigraph.bigmc.red.checker;
+
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Property;
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Rule;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerState;
+import org.bigraph.model.CanonicalForm;
+import org.bigraph.model.FrozenBigraph;
+
+/**
+ * A <strong>StateSpace</strong> records the states visited by an {@link
+ * Exploration}, and the transitions between them.
+ * <p>States are referred to by handles, whose type depends on the
+ * implementation. All of the methods apart from {@link #dispose()} may be
+ * called by several threads at once.
+ * @param <H> the type of state handles
+ */
+abstract class StateSpace<H> {
+	/**
+	 * Adds the start state.
+	 * @param cf the start state's {@link CanonicalForm}
+	 * @param b the start state
+	 * @return a state handle
+	 */
+	abstract H addStart(CanonicalForm cf, FrozenBigraph b);
+	
+	/**
+	 * Finds a state that has already been added.
+	 * @param cf a {@link CanonicalForm}
+	 * @return a state handle, or <code>null</code> if no state with the
+	 * given {@link CanonicalForm} has been added
+	 */
+	abstract H find(CanonicalForm cf);
+	
+	/**
+	 * Adds a new state, together with the transition through which it was
+	 * first reached, unless a state with the same {@link CanonicalForm} has
+	 * already been added.
+	 * @param cf the new state's {@link CanonicalForm}
+	 * @param b the new state
+	 * @param precursor the handle of the state that <code>rule</code> was
+	 * applied to
+	 * @param rule the {@link Rule} that was applied
+	 * @return the new state's handle, or <code>null</code> if it was already
+	 * present (in which case {@link #find(CanonicalForm)} will return it)
+	 */
+	abstract H add(CanonicalForm cf, FrozenBigraph b, H precursor, Rule rule);
+	
+	/**
+	 * Records a transition between two states that have already been added.
+	 * @param from the handle of the state that <code>rule</code> was applied
+	 * to
+	 * @param rule the {@link Rule} that was applied
+	 * @param to the handle of the resulting state
+	 */
+	abstract void link(H from, Rule rule, H to);
+	
+	abstract FrozenBigraph getBigraph(H state);
+	
+	/**
+	 * Returns an {@link IModelCheckerState} for a state, suitable for
+	 * returning from a {@link Result}.
+	 * @param state a state handle
+	 * @return an {@link IModelCheckerState}
+	 */
+	abstract IModelCheckerState getState(H state);
+	
+	/**
+	 * Creates a {@link Violation} whose trace leads from the start state to
+	 * the given state.
+	 * @param property the violated {@link Property}
+	 * @param state the handle of the state in which it was violated
+	 * @return a new {@link Violation}
+	 */
+	abstract Violation createViolation(Property property, H state);
+	
+	/**
+	 * Releases the resources used by this state space. (This is called when
+	 * the {@link Result} that it backs is disposed.)
+	 */
+	abstract void dispose();
+}
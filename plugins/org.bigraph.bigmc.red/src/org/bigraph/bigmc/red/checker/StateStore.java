@@ -0,0 +1,422 @@
+package org.bigraph.bigmc.red.checker;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bigraph.model.CanonicalForm;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.Signature;
+
+/**
+ * A <strong>StateStore</strong> keeps states on disk rather than on the
+ * heap, so that the number of states that can be visited is limited by
+ * disk space rather than by memory.
+ * <p>States are indexed by 128-bit fingerprints (the structural hashes of
+ * their {@link CanonicalForm}s). The fingerprints are kept in a
+ * memory-mapped, open-addressing hash index, split into shards that can be
+ * searched and grown independently; the states themselves, together with
+ * their canonical descriptions and the transitions through which they were
+ * first reached, are appended to a series of segment files and read back
+ * on demand. A bounded cache of recently-used states sits in front of the
+ * segment files.
+ * <p>A matching fingerprint is only a candidate: the state's canonical
+ * description is also compared, so two different states that happen to
+ * have the same fingerprint are still kept apart.
+ * <p>All of the methods apart from {@link #close()} may be called by
+ * several threads at once.
+ * <p>Java can't unmap a {@link MappedByteBuffer} on demand; a mapping only
+ * goes away when the buffer is garbage collected. On platforms that won't
+ * delete a file while it's mapped, such as Windows, the index files
+ * replaced when a shard grows (and those closed by {@link #close()}) may
+ * not be deletable straight away. {@link #close()} tries again to delete
+ * them, and if that fails, they're deleted when the virtual machine exits.
+ */
+final class StateStore {
+	private static final int SHARD_BITS = 6;
+	private static final int SLOT_SIZE = 24;
+	private static final int INITIAL_CAPACITY = 1 << 12,
+		MAXIMUM_CAPACITY = 1 << 26;
+	private static final long SEGMENT_SIZE = 1L << 28;
+	private static final int HEADER_SIZE = 20;
+	
+	/**
+	 * A <strong>Record</strong> is a state read back from (or about to be
+	 * written to) a segment file.
+	 */
+	static final class Record {
+		private final FrozenBigraph bigraph;
+		private final byte[] description;
+		private final long precursor;
+		private final int rule;
+		
+		private Record(FrozenBigraph bigraph, byte[] description,
+				long precursor, int rule) {
+			this.bigraph = bigraph;
+			this.description = description;
+			this.precursor = precursor;
+			this.rule = rule;
+		}
+		
+		FrozenBigraph getBigraph() {
+			return bigraph;
+		}
+		
+		/**
+		 * Returns the identifier of the state through which this state was
+		 * first reached.
+		 * @return a state identifier, or <code>-1</code> for the start state
+		 */
+		long getPrecursor() {
+			return precursor;
+		}
+		
+		/**
+		 * Returns the index of the rule through which this state was first
+		 * reached.
+		 * @return a rule index, or <code>-1</code> for the start state
+		 */
+		int getRule() {
+			return rule;
+		}
+	}
+	
+	/**
+	 * A <strong>Shard</strong> is one part of the fingerprint index. Each
+	 * slot holds a fingerprint and the identifier of its state plus one (so
+	 * that zero, the contents of a new mapping, marks an empty slot); states
+	 * with the same fingerprint occupy separate slots.
+	 */
+	private final class Shard {
+		private final int index;
+		private int generation = 0;
+		private File file;
+		private RandomAccessFile raf;
+		private MappedByteBuffer map;
+		private int capacity, size = 0;
+		
+		private Shard(int index) throws IOException {
+			this.index = index;
+			open(INITIAL_CAPACITY);
+		}
+		
+		private void open(int capacity) throws IOException {
+			file = new File(directory,
+					String.format("index-%02d-%d", index, generation++));
+			raf = new RandomAccessFile(file, "rw");
+			map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE,
+					0, (long)capacity * SLOT_SIZE);
+			this.capacity = capacity;
+		}
+		
+		private synchronized long find(long hi, long lo, byte[] description)
+				throws IOException {
+			int mask = capacity - 1;
+			for (int i = (int)lo & mask; ; i = (i + 1) & mask) {
+				int p = i * SLOT_SIZE;
+				long id = map.getLong(p + 16) - 1;
+				if (id == -1) {
+					return -1;
+				} else if (map.getLong(p) == hi && map.getLong(p + 8) == lo &&
+						Arrays.equals(getDescription(id), description))
+					return id;
+			}
+		}
+		
+		private void insert(long hi, long lo, long id) {
+			int mask = capacity - 1, i = (int)lo & mask;
+			while (map.getLong(i * SLOT_SIZE + 16) != 0)
+				i = (i + 1) & mask;
+			int p = i * SLOT_SIZE;
+			map.putLong(p, hi);
+			map.putLong(p + 8, lo);
+			map.putLong(p + 16, id + 1);
+		}
+		
+		private void put(long hi, long lo, long id) throws IOException {
+			if ((size + 1) * 2 > capacity)
+				grow();
+			insert(hi, lo, id);
+			size++;
+		}
+		
+		private void grow() throws IOException {
+			if (capacity == MAXIMUM_CAPACITY)
+				throw new IOException("The state index is full");
+			File oldFile = file;
+			RandomAccessFile oldRaf = raf;
+			MappedByteBuffer oldMap = map;
+			int oldCapacity = capacity;
+			open(capacity * 2);
+			for (int i = 0; i < oldCapacity; i++) {
+				int p = i * SLOT_SIZE;
+				long id = oldMap.getLong(p + 16);
+				if (id != 0)
+					insert(oldMap.getLong(p), oldMap.getLong(p + 8), id - 1);
+			}
+			oldRaf.close();
+			delete(oldFile);
+		}
+		
+		private synchronized void close() throws IOException {
+			raf.close();
+			map = null;
+			delete(file);
+		}
+	}
+	
+	private final File directory;
+	private final StateCodec codec;
+	private final Shard[] shards = new Shard[1 << SHARD_BITS];
+	private final Map<Long, Record> cache;
+	
+	/* Files that couldn't be deleted, probably because they're still
+	 * mapped; see close() */
+	private final List<File> undeleted = new ArrayList<File>();
+	
+	/* The segment files are only ever added to, so readers can use whatever
+	 * array is current without locking */
+	private volatile FileChannel[] segments = new FileChannel[0];
+	private long position = SEGMENT_SIZE;
+	
+	/**
+	 * Creates a new, empty {@link StateStore} in a new subdirectory.
+	 * @param parent the directory in which to create the store's own
+	 * directory
+	 * @param signature the {@link Signature} that decoded states should be
+	 * given
+	 * @param cacheSize the maximum number of states to keep on the heap
+	 * @throws IOException if the store's files couldn't be created
+	 */
+	StateStore(File parent, Signature signature, final int cacheSize)
+			throws IOException {
+		directory = File.createTempFile("states", "", parent);
+		if (!directory.delete() || !directory.mkdir())
+			throw new IOException(
+					"Couldn't create the directory " + directory);
+		codec = new StateCodec(signature);
+		cache = new LinkedHashMap<Long, Record>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Long, Record> eldest) {
+				return size() > cacheSize;
+			}
+		};
+		try {
+			for (int i = 0; i < shards.length; i++)
+				shards[i] = new Shard(i);
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+	
+	private void delete(File f) {
+		if (!f.delete()) {
+			synchronized (undeleted) {
+				undeleted.add(f);
+			}
+		}
+	}
+	
+	private Shard getShard(long hi) {
+		return shards[(int)(hi >>> (64 - SHARD_BITS))];
+	}
+	
+	private static byte[] encode(CanonicalForm cf) {
+		try {
+			return cf.getDescription().getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new Error(e);
+		}
+	}
+	
+	/**
+	 * Looks up a state.
+	 * @param cf a {@link CanonicalForm}
+	 * @return a state identifier, or <code>-1</code> if there is no state
+	 * with the given {@link CanonicalForm}
+	 * @throws IOException if a candidate state couldn't be read from disk
+	 */
+	long find(CanonicalForm cf) throws IOException {
+		long hi = cf.getHashHigh(), lo = cf.getHashLow();
+		return getShard(hi).find(hi, lo, encode(cf));
+	}
+	
+	/**
+	 * Adds a state, unless a state with the same {@link CanonicalForm} is
+	 * already present.
+	 * @param cf the new state's {@link CanonicalForm}
+	 * @param b the new state
+	 * @param precursor the identifier of the state through which it was
+	 * first reached, or <code>-1</code>
+	 * @param rule the index of the rule through which it was first
+	 * reached, or <code>-1</code>
+	 * @return the new state's identifier, or <code>-1</code> if a state with
+	 * the given {@link CanonicalForm} was already present
+	 * @throws IOException if the state couldn't be written to disk
+	 */
+	long add(CanonicalForm cf, FrozenBigraph b, long precursor, int rule)
+			throws IOException {
+		long hi = cf.getHashHigh(), lo = cf.getHashLow();
+		byte[] description = encode(cf), payload = codec.encode(b);
+		ByteBuffer record = ByteBuffer.allocate(
+				HEADER_SIZE + description.length + payload.length);
+		record.putInt(payload.length).putInt(description.length).putLong(
+				precursor).putInt(rule).put(description).put(payload).flip();
+		
+		Shard s = getShard(hi);
+		long id;
+		synchronized (s) {
+			if (s.find(hi, lo, description) != -1)
+				return -1;
+			id = append(record);
+			s.put(hi, lo, id);
+		}
+		synchronized (cache) {
+			cache.put(id, new Record(b, description, precursor, rule));
+		}
+		return id;
+	}
+	
+	private synchronized long append(ByteBuffer record) throws IOException {
+		int length = record.remaining();
+		if (length > SEGMENT_SIZE)
+			throw new IOException("A state of " + length +
+					" bytes is too large to be stored");
+		if (position + length > SEGMENT_SIZE) {
+			FileChannel[] s = Arrays.copyOf(segments, segments.length + 1);
+			s[s.length - 1] = new RandomAccessFile(new File(directory,
+					String.format("segment-%04d", segments.length)),
+					"rw").getChannel();
+			segments = s;
+			position = 0;
+		}
+		FileChannel segment = segments[segments.length - 1];
+		long offset = position;
+		while (record.hasRemaining())
+			segment.write(record, offset + record.position());
+		position += length;
+		return (segments.length - 1) * SEGMENT_SIZE + offset;
+	}
+	
+	private void read(ByteBuffer buffer, long id) throws IOException {
+		FileChannel segment = segments[(int)(id / SEGMENT_SIZE)];
+		long offset = id % SEGMENT_SIZE;
+		while (buffer.hasRemaining())
+			if (segment.read(buffer, offset + buffer.position()) == -1)
+				throw new IOException("State " + id + " is truncated");
+		buffer.flip();
+	}
+	
+	/**
+	 * Retrieves the canonical description of a state, without decoding the
+	 * state itself if it isn't in the cache.
+	 * @param id a state identifier
+	 * @return the UTF-8 encoding of the state's canonical description
+	 * @throws IOException if the description couldn't be read from disk
+	 */
+	private byte[] getDescription(long id) throws IOException {
+		synchronized (cache) {
+			Record r = cache.get(id);
+			if (r != null)
+				return r.description;
+		}
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		read(header, id);
+		header.getInt();
+		ByteBuffer description = ByteBuffer.allocate(header.getInt());
+		read(description, id + HEADER_SIZE);
+		return description.array();
+	}
+	
+	/**
+	 * Retrieves a state, from the cache if possible and from disk
+	 * otherwise.
+	 * @param id a state identifier returned by {@link #find(CanonicalForm)}
+	 * or {@link #add(CanonicalForm, FrozenBigraph, long, int)}
+	 * @return a {@link Record}
+	 * @throws IOException if the state couldn't be read from disk
+	 */
+	Record get(long id) throws IOException {
+		Long key = id;
+		synchronized (cache) {
+			Record r = cache.get(key);
+			if (r != null)
+				return r;
+		}
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		read(header, id);
+		int length = header.getInt();
+		ByteBuffer description = ByteBuffer.allocate(header.getInt());
+		long precursor = header.getLong();
+		int rule = header.getInt();
+		read(description, id + HEADER_SIZE);
+		ByteBuffer payload = ByteBuffer.allocate(length);
+		read(payload, id + HEADER_SIZE + description.capacity());
+		Record r = new Record(codec.decode(new DataInputStream(
+				new ByteArrayInputStream(payload.array()))),
+				description.array(), precursor, rule);
+		synchronized (cache) {
+			cache.put(key, r);
+		}
+		return r;
+	}
+	
+	/**
+	 * Closes this {@link StateStore} and deletes all of its files.
+	 */
+	synchronized void close() {
+		for (Shard s : shards) {
+			if (s != null) {
+				try {
+					s.close();
+				} catch (IOException e) {
+					/* do nothing */
+				}
+			}
+		}
+		for (int i = 0; i < segments.length; i++) {
+			try {
+				segments[i].close();
+			} catch (IOException e) {
+				/* do nothing */
+			}
+			new File(directory, String.format("segment-%04d", i)).delete();
+		}
+		segments = new FileChannel[0];
+		synchronized (cache) {
+			cache.clear();
+		}
+		
+		List<File> remaining = new ArrayList<File>();
+		synchronized (undeleted) {
+			for (File f : undeleted)
+				if (!f.delete())
+					remaining.add(f);
+			undeleted.clear();
+		}
+		if (!remaining.isEmpty()) {
+			/* Files are deleted at exit in the reverse of the order in which
+			 * they were registered, so the directory has to come first */
+			directory.deleteOnExit();
+			for (File f : remaining)
+				f.deleteOnExit();
+		} else directory.delete();
+	}
+}
@@ -0,0 +1,30 @@
+package org.bigraph.bigmc.red.checker;
+
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Rule;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerTransition;
+
+final class Transition implements IModelCheckerTransition {
+	private final Rule rule;
+	private final State preState, postState;
+	
+	Transition(Rule rule, State preState, State postState) {
+		this.rule = rule;
+		this.preState = preState;
+		this.postState = postState;
+	}
+	
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+	
+	@Override
+	public State getPreState() {
+		return preState;
+	}
+	
+	@Override
+	public State getPostState() {
+		return postState;
+	}
+}
@@ -0,0 +1,55 @@
+package org.bigraph.bigmc.red.checker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Property;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerTransition;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerViolation;
+
+final class Violation implements IModelCheckerViolation {
+	private final Property property;
+	private final IModelCheckerTransition[] trace;
+	
+	/**
+	 * Creates a new {@link Violation}, working out the trace by following
+	 * each state's first precursor back to the start state. (When only one
+	 * worker thread is used, states are explored breadth first, and so this
+	 * is a shortest trace.)
+	 * @param property the violated {@link Property}
+	 * @param state the {@link State} in which it was violated
+	 */
+	Violation(Property property, State state) {
+		this.property = property;
+		ArrayList<Transition> trace = new ArrayList<Transition>();
+		Transition t;
+		while ((t = state.getFirstPrecursor()) != null) {
+			trace.add(t);
+			state = t.getPreState();
+		}
+		Collections.reverse(trace);
+		this.trace = trace.toArray(new IModelCheckerTransition[0]);
+	}
+	
+	/**
+	 * Creates a new {@link Violation} with a trace that has already been
+	 * worked out.
+	 * @param property the violated {@link Property}
+	 * @param trace the transitions leading from the start state to the
+	 * state in which <code>property</code> was violated
+	 */
+	Violation(Property property, IModelCheckerTransition[] trace) {
+		this.property = property;
+		this.trace = trace;
+	}
+	
+	@Override
+	public Property getProperty() {
+		return property;
+	}
+	
+	@Override
+	public IModelCheckerTransition[] getTrace() {
+		return trace.clone();
+	}
+}
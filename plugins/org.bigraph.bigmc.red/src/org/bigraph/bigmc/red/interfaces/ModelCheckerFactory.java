@@ -1,5 +1,7 @@
 package org.bigraph.bigmc.red.interfaces;
 
+import org.bigraph.bigmc.red.checker.NativeModelChecker;
+
 public class ModelCheckerFactory {
 	private ModelCheckerFactory() {}
 	
@@ -12,7 +14,16 @@ public class ModelCheckerFactory {
 		return Wrapper.INSTANCE;
 	}
 	
+	/**
+	 * Creates a new {@link IModelChecker}.
+	 * @param identifier the identifier of a model checker, such as {@link
+	 * NativeModelChecker#IDENTIFIER}
+	 * @return a new {@link IModelChecker}, or <code>null</code> if the
+	 * identifier wasn't recognised
+	 */
 	public static IModelChecker getModelChecker(String identifier) {
-		return null;
+		if (NativeModelChecker.IDENTIFIER.equals(identifier)) {
+			return new NativeModelChecker();
+		} else return null;
 	}
 }
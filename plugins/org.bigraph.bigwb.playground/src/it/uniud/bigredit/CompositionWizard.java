@@ -44,10 +44,10 @@ public class CompositionWizard extends Wizard {
 		@Override
 		public void createControl( Composite parent )
 		{
-			ArrayList< Site > sites = (ArrayList<Site>) outer.getSites();
-			ArrayList< Root > roots = (ArrayList<Root>) inner.getRoots();
-			ArrayList< InnerName > innerNames = (ArrayList<InnerName>) outer.getInnerNames();
-			ArrayList< OuterName > outerNames = (ArrayList<OuterName>) inner.getOuterNames();
+			ArrayList< Site > sites = new ArrayList<Site>(outer.getSites());
+			ArrayList< Root > roots = new ArrayList<Root>(inner.getRoots());
+			ArrayList< InnerName > innerNames = new ArrayList<InnerName>(outer.getInnerNames());
+			ArrayList< OuterName > outerNames = new ArrayList<OuterName>(inner.getOuterNames());
 			
 			String s = "These graphs cannot be composed. Their interfaces do not match.\n";
 			if ( sites.size() != roots.size() )
@@ -122,7 +122,7 @@ public class CompositionWizard extends Wizard {
 				placeLabel.setAlignment( SWT.CENTER );
 				rootList = new List( comp, SWT.BORDER | SWT.SINGLE );
 				
-				ArrayList< Site > sites = (ArrayList<Site>) outer.getSites();
+				ArrayList< Site > sites = new ArrayList<Site>(outer.getSites());
 				for ( int i = 0; i < sites.size(); i++ )
 					siteList.add( sites.get( i ).getName() );
 				rootPermutation = new ArrayList< Integer >();
@@ -220,7 +220,7 @@ public class CompositionWizard extends Wizard {
 				linkLabel.setAlignment( SWT.CENTER );
 				outerNameList = new List( comp, SWT.BORDER | SWT.SINGLE );
 				
-				ArrayList< InnerName > innerNames = (ArrayList<InnerName>) outer.getInnerNames();
+				ArrayList< InnerName > innerNames = new ArrayList<InnerName>(outer.getInnerNames());
 				for ( int i = 0; i < innerNames.size(); i++ )
 					innerNameList.add( innerNames.get( i ).getName() );
 				namePermutation = new ArrayList< Integer >();
@@ -302,7 +302,7 @@ public class CompositionWizard extends Wizard {
 		{
 			if ( rootList != null ) {
 				rootList.setItems( new String[ 0 ] );
-				ArrayList< Root > roots = (ArrayList<Root>) inner.getRoots();
+				ArrayList< Root > roots = new ArrayList<Root>(inner.getRoots());
 				for ( int i = 0; i < roots.size(); i++ )
 					rootList.add( roots.get( rootPermutation.indexOf( new Integer( i ) ) ).getName() );
 				if ( rootSelect < 0 || roots.size() <= 1 )
@@ -313,7 +313,7 @@ public class CompositionWizard extends Wizard {
 			
 			if ( outerNameList != null ) {
 				outerNameList.setItems( new String[ 0 ] );
-				ArrayList< OuterName > outerNames = (ArrayList<OuterName>) inner.getOuterNames();
+				ArrayList< OuterName > outerNames = new ArrayList<OuterName>(inner.getOuterNames());
 				for ( int i = 0; i < outerNames.size(); i++ )
 					outerNameList.add( outerNames.get( namePermutation.indexOf( new Integer( i ) ) ).getName() );
 				if ( nameSelect < 0 || outerNames.size() <= 1 )
@@ -353,10 +353,10 @@ public class CompositionWizard extends Wizard {
 		//testing matching
 		//PlaceMatch.match(reorder.outer, reorder.inner);
 		
-		ArrayList< Site > sites = (ArrayList<Site>) reorder.outer.getSites();
-		ArrayList< Root > roots = (ArrayList<Root>) reorder.inner.getRoots();
-		ArrayList< InnerName > innerNames = (ArrayList<InnerName>) reorder.outer.getInnerNames();
-		ArrayList< OuterName > outerNames = (ArrayList<OuterName>) reorder.inner.getOuterNames();
+		ArrayList< Site > sites = new ArrayList<Site>(reorder.outer.getSites());
+		ArrayList< Root > roots = new ArrayList<Root>(reorder.inner.getRoots());
+		ArrayList< InnerName > innerNames = new ArrayList<InnerName>(reorder.outer.getInnerNames());
+		ArrayList< OuterName > outerNames = new ArrayList<OuterName>(reorder.inner.getOuterNames());
 		
 		for ( int i = 0; i < sites.size(); i++ )
 			placeMap.put( sites.get( i ), roots.get( reorder.rootPermutation.indexOf( new Integer( i ) ) ) );
@@ -537,7 +537,7 @@ public class ReactionWizard extends Wizard {
 		{			
 			if ( reactumList != null ) {
 				reactumList.setItems( new String[ 0 ] );
-				ArrayList< OuterName > names = (ArrayList<OuterName>) reactum.getOuterNames();
+				ArrayList< OuterName > names = new ArrayList<OuterName>(reactum.getOuterNames());
 				for ( int i = 0; i < names.size(); i++ )
 					reactumList.add( names.get( permutation.indexOf( new Integer( i ) ) ).getName() );
 				if ( select < 0 || names.size() <= 1 )
@@ -548,7 +548,7 @@ public class ReactionWizard extends Wizard {
 			
 			if ( reactumSiteList != null ) {
 				reactumSiteList.setItems( new String[ 0 ] );
-				ArrayList< Site > sites = (ArrayList<Site>) reactum.getSites();
+				ArrayList< Site > sites = new ArrayList<Site>(reactum.getSites());
 				for ( int i = 0; i < redex.getSites().size(); i++ ) {
 					int index = sitePermutation.indexOf( new Integer( i ) );
 					if ( index < sites.size() )
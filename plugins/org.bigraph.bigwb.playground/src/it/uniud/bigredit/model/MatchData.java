@@ -29,7 +29,8 @@ public class MatchData {
 	}
 	
 	public ArrayList<ModelObject> getSiteMapping(ModelObject siteR){
-		return mapSites.get(siteR);
+		ArrayList<ModelObject> mapping = mapSites.get(siteR);
+		return (mapping != null ? mapping : new ArrayList<ModelObject>());
 	}
 
 	public HashMap<ModelObject, ModelObject> getMappingData() {
@@ -17,11 +17,11 @@ import org.bigraph.model.interfaces.SignatureBuilder;
 
 public class BigraphMatchWB {
 	
-	private static Bigraph agent;
-	private static Bigraph redex;
+	private Bigraph agent;
+	private Bigraph redex;
 	
 	
-	public static void match(){//Bigraph agent, Bigraph redex){
+	public void match(){//Bigraph agent, Bigraph redex){
 		//fillBigraphExampleAgent4();
 		//fillBigraphExampleRedex4();
 //		fillBigraphAgent2();
@@ -33,11 +33,11 @@ public class BigraphMatchWB {
 	}
 	
 	public static void main(String[] args){
-		match();
+		new BigraphMatchWB().match();
 	}
 	
 	
-	public static void fillAgent2(){
+	public void fillAgent2(){
 		
 		SignatureBuilder sb = new SignatureBuilder();
 		IControl c1 = sb.newControl("C1");
@@ -56,7 +56,7 @@ public class BigraphMatchWB {
 		
 	}
 	
-	public static void fillRedex2(){
+	public void fillRedex2(){
 		
 		SignatureBuilder sb = new SignatureBuilder();
 		IControl c1 = sb.newControl("C1");
@@ -73,7 +73,7 @@ public class BigraphMatchWB {
 	
 	
 	
-	public static void fillAgent(){
+	public void fillAgent(){
 		Control.Identifier cid = new Control.Identifier("c1");
 		Signature s = new Signature();
 		try {
@@ -122,7 +122,7 @@ public class BigraphMatchWB {
 		
 	}
 	
-	public static void fillRedex(){
+	public void fillRedex(){
 		Control.Identifier cid = new Control.Identifier("c1");
 		Signature s = new Signature();
 		try {
@@ -1,562 +1,255 @@
 package org.bigraph.uniud.bigraph.match;
 
-/**
- * Algorithm
- * 
- * matrix:
- *  fill with 0 or 1, 1 if match
- * 
- *                               row control in redex
- *     column control in agent   0 0 0 0               sum of row<=1
- *                                          
- * 								 sum of column = 1
- * 
- * 
- * second part matching links
- * 
- * matrix:
- * 							row edge/outer
- * column control selected  first part linkAgent, second part linkRedex, Column matching complex (e^2)*c   
- * 
- * 
- * 
- * @author Carlo Maiero
- */
+import it.uniud.bigredit.model.MatchData;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bigraph.model.Bigraph;
-import org.bigraph.model.Container;
-import org.bigraph.model.Edge;
+import org.bigraph.model.FrozenBigraph;
 import org.bigraph.model.Layoutable;
 import org.bigraph.model.Link;
 import org.bigraph.model.Node;
-import org.bigraph.model.OuterName;
-import org.bigraph.model.Port;
+import org.bigraph.model.ReactionRule;
 import org.bigraph.model.Root;
 import org.bigraph.model.Site;
-import it.uniud.bigredit.model.MatchData;
-
-import java.text.MessageFormat;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-
-import choco.Choco;
-import choco.cp.model.CPModel;
-import choco.cp.solver.CPSolver;
-import choco.kernel.model.Model;
-import choco.kernel.model.variables.integer.IntegerVariable;
+import org.bigraph.model.match.Match;
+import org.bigraph.model.match.Matcher;
+import org.bigraph.model.match.Summary;
 
+/**
+ * A <strong>PlaceMatch</strong> finds the occurrences of a redex in agents.
+ * <p>The search itself is done by the model's {@link Matcher}, which embeds
+ * the redex's place graph into the agent's one subtree at a time, pruning
+ * candidate nodes by control, arity and number of children, and extends
+ * the link mapping as each node is placed; this class just translates its
+ * results back into {@link MatchData} objects that refer to the original
+ * {@link Bigraph}s.
+ * <p>In each {@link MatchData}, redex roots are mapped onto the agent
+ * places that contain them, redex nodes onto agent nodes, and redex sites
+ * onto the first agent place of their parameter (if it isn't empty); the
+ * whole parameter of each site is available from {@link
+ * MatchData#getSiteMapping(org.bigraph.model.ModelObject)}, and every redex
+ * link with points is mapped onto an agent link. When a redex place contains
+ * more than one site, there is a separate {@link MatchData} for every way
+ * of dividing the agent's children between them.
+ * <p>Like {@link Matcher}s, PlaceMatches don't support redexes with inner
+ * names, and will never find any occurrences of them.
+ * <p>PlaceMatches keep all of the working state of a search in local
+ * variables, and so can safely be used by several threads at once (as long
+ * as nobody modifies the {@link Bigraph}s involved).
+ * @author Carlo Maiero
+ */
 public class PlaceMatch {
-
-	public static BidiMap<Integer, Layoutable> listAgent = new BidiMap<Integer, Layoutable>();
-	public static BidiMap<Integer, Layoutable> listRedex = new BidiMap<Integer, Layoutable>();
-	public static HashMap<Integer, Integer[]> succListAgent = new HashMap<Integer, Integer[]>();
-	public static HashMap<Integer, Integer[]> succListRedex = new HashMap<Integer, Integer[]>();
-	public static List<Integer> listRootRedex = new ArrayList<Integer>();
-	public static int numRootRedex;
-	private static BidiMap<Link, Link> maplinkAgent_Redex;
-
-	public static ArrayList<MatchData> match(Bigraph agent, Bigraph redex) {
-
-		listAgent = new BidiMap<Integer, Layoutable>();
-		listRedex = new BidiMap<Integer, Layoutable>();
-		succListAgent = new HashMap<Integer, Integer[]>();
-		succListRedex = new HashMap<Integer, Integer[]>();
-		listRootRedex = new ArrayList<Integer>();
-		numRootRedex = 0;
-		maplinkAgent_Redex = new BidiMap<Link, Link>();
-
-		/** Place graph Matching */
-
-		// successors List int list of successors
-		addBigraphAgent(agent, succListAgent, listAgent);
-		printHash(succListAgent);
-		// printMapGraph(listAgent);
-
-		addBigraphAgent(redex, succListRedex, listRedex);
-		printHash(succListRedex);
-
-		fillRootRedex();
-		// printMapGraph(listRedex);
-
-		// printHash(succListRedex);
-		// Control Site are mapped into an Integer value
-		HashMap<Integer, Integer> Control_Site_mapAgent = new HashMap<Integer, Integer>();
-		HashMap<Integer, Integer> Control_Site_mapRedex = new HashMap<Integer, Integer>();
-		int matrixValue = 1;
-
-		// 1-create the Model
-		Model m = new CPModel();
-		int numberCSinA = succListAgent.size(); // 6; //number of Control/Site
-												// in Agent
-		int numberCSinR = succListRedex.size(); // 3; //number of Control/Site
-												// in Redex
-		numRootRedex = listRootRedex.size();
-		// 2-create the variables
-		IntegerVariable[][] matrix = new IntegerVariable[numberCSinA][numberCSinR];
-
-		for (int i = 0; i < numberCSinA; i++) {
-			for (int j = 0; j < numberCSinR; j++) {
-				matrix[i][j] = Choco.makeIntVar("var_" + i + "_" + j, 0, 1, "");
-				m.addVariable(matrix[i][j]);
-			}
-		}
-		// 3-constraints
-
-		// row constraints: (row without roots) <=1
-
-		IntegerVariable[][] varRow = new IntegerVariable[numberCSinA][numberCSinR
-				- listRootRedex.size()];
-		IntegerVariable[][] varRoot = new IntegerVariable[numberCSinA][listRootRedex
-				.size()];
-		for (int i = 0; i < numberCSinA; i++) {
-			int k = 0;
-			int r = 0;
-
-			for (int j = 0; j < numberCSinR; j++) {
-				// if j not Root
-				if (!(listRootRedex.contains(j))) {
-					varRow[i][k] = matrix[i][j];
-					k++;
-				} else {
-					varRoot[i][r] = matrix[i][j];
-					r++;
-				}
-			}
-			for (int t = 0; t < varRoot[i].length; t++) {
-				m.addConstraint(Choco.leq(Choco.sum(varRow[i]),
-						Choco.minus(1, varRoot[i][t])));
-			}
-			System.out.println(Choco.sum(varRow[i]) + " <= 1");
+	/**
+	 * A <strong>Target</strong> is an agent prepared for matching: a {@link
+	 * FrozenBigraph} of it, together with the model objects corresponding
+	 * to each of its places and links.
+	 */
+	private static final class Target {
+		private final FrozenBigraph frozen;
+		private final Layoutable[] places;
+		private final Link[] links;
+
+		private Target(Bigraph bigraph) {
+			frozen = new FrozenBigraph(bigraph);
+			places = getPlaces(bigraph, frozen);
+			links = getLinks(bigraph, frozen);
 		}
-
-		// for column number we keep a separate matrix
-		IntegerVariable[][] varCol = new IntegerVariable[numberCSinR][numberCSinA];
-
-		for (int i = 0; i < numberCSinR; i++) {
-			// site can take lot of
-
-			for (int j = 0; j < numberCSinA; j++) {
-				// Copy of var in the column order
-				varCol[i][j] = matrix[j][i];
-			}
-
-			if (!(listRedex.get(i) instanceof Site)) {
-				m.addConstraint(Choco.eq(Choco.sum(varCol[i]), 1));
-				System.out.println(Choco.sum(varCol[i]) + " = 1");
-			} else {
-				m.addConstraint(Choco.gt(Choco.sum(varCol[i]), 0));
-				System.out.println(Choco.sum(varCol[i]) + " > 0");
-
-			}
-		}
-
-		/**
-		 * constraint successors: for each( nodeA, nodeB){ //1 in matrix
-		 * foreach(i : succ(nodeA)){ 1= sum(matrix(i,j)) where j (appartiene ai)
-		 * succ(nodeB) } }
-		 */
-
-		for (int i = 0; i < numberCSinA; i++) {
-
-			for (int j = 0; j < numberCSinR; j++) {
-				// rule has parent !(listRedex.get(j) instanceof Site))
-				if (!(listRedex.get(j) instanceof Root)) {
-
-					/** Selected node in Redex is not an instance of Root */
-
-					/**
-					 * so if one of the selected node don't have parent is a
-					 * root or something else and cant be selected in the matrix
-					 * so the value it's put to 0
-					 */
-					if (getParentRedex(j) == -1 || getParentAgent(i) == -1) {
-						matrix[i][j].setUppB(0);
-						System.out.println(matrix[i][j] + " = 0   UUUSEED");
-
-					} else {
-						/**
-						 * if is not a root, the parent of the selected node
-						 * (i,j) must be selected so we put parent(i,j)>=(i,j).
-						 * because if the node is selected and is not a root the
-						 * parent must be 1. Is not true otherwise.
-						 */
-
-						m.addConstraint(Choco.geq(
-								matrix[getParentAgent(i)][getParentRedex(j)],
-								matrix[i][j]));
-						System.out
-								.println(matrix[getParentAgent(i)][getParentRedex(j)]
-										+ " >= " + matrix[i][j]);
-
-						/**
-						 * new contraint to verify
-						 * 
-						 * for each node if != from site father <= son
-						 * 
-						 * */
-
-						if (!(listRedex.get(j) instanceof Site)) {
-							for (int son = 0; son < succListAgent.get(i).length; son++) {
-								m.addConstraint(Choco.leq(matrix[i][j], Choco
-										.sum(matrix[succListAgent.get(i)[son]])));
-							}
-						}
-
-					}
-
-					/**
-					 * if not instance of Site and don't have successors in
-					 * Redex and selected node in Agent have sons, it can't
-					 * match. so upperbound of matrix(0)
-					 */
-					if ((!(listRedex.get(j) instanceof Site) && (succListRedex
-							.get(j).length == 0))
-							|| (succListRedex.get(j) == null)) {
-
-						System.out.println(i + " , " + j
-								+ " deve essere 0: matrice ");
-						if (succListAgent.get(i).length > 0) {
-							System.out.println(matrix[i][j] + " = 0");
-							matrix[i][j].setUppB(0);
-						}
-					}
-
-				} else {
-					/**
-					 * Selected node in Redex is instance of Root
-					 * 
-					 * so for each anchestor of selected node (i,j)
-					 * 
-					 * the sumRow(anchestor(i)) + (i,j) <=1
-					 */
-
-					int anchestor = getParentAgent(i);
-					while (anchestor != -1) {
-						if (!(listAgent.get(anchestor) instanceof Root)) {
-
-							m.addConstraint(Choco.leq(Choco.sum(
-									Choco.sum(matrix[anchestor]),
-									Choco.mult(numRootRedex, matrix[i][j])),
-									numRootRedex));
-						}
-						anchestor = getParentAgent(anchestor);
-
-					}
-
-				}
-
-			}
-		}
-
-		// 4-solve the model
-		CPSolver s = new CPSolver();
-
-		s.read(m);
-
-		// Solve the model
-
-		// ChocoLogging.toVerbose();
-
-		s.solve();
-		// s.solveAll();
-		System.out.println("solution count: " + s.getSolutionCount());
-		// s.solveAll();
-
-		ArrayList<MatchData> matchList = new ArrayList<MatchData>();
-
-		int[][] input = new int[numberCSinA][numberCSinR];
-		/* READ SOLUTIONS */
-		do {
-			// if (s.getSolutionCount()) {
-			// if (s.isCompletelyInstantiated()){
-			if (s.checkSolution()) {
-
-				// if(s.isConsistent()){
-				for (int i = 0; i < numberCSinA; i++) {
-
-					for (int j = 0; j < numberCSinR; j++) {
-						System.out.print(MessageFormat.format("{0} ",
-								s.getVar(matrix[i][j]).getVal()));
-						input[i][j] = s.getVar(matrix[i][j]).getVal();
-					}
-					System.out.println("");
-				}
-				System.out.println("-------------------- solution number: "
-						+ s.getSolutionCount());
-
-				if (linkMatch(input)) {
-					System.out.println("link matches!");
-					matchList.add(getSolution(input));
-				} else {
-					System.out.println("link DON'T match!");
-				}
-				// s.checkSolution();
-			}
-			// }
-
-		} while (s.nextSolution());
-
-		return matchList;
-
-		/** TODO check signature of agent and redex */
-
-		/**
-		 * Second part:
-		 * 
-		 * link graph matrix for node matched
-		 * 
-		 * AL(agent linkgraph) and RL(redex linkgraph) row edges column (node,
-		 * ports) (O,1)
-		 * 
-		 * 
-		 * first step solve AL * P = RL where P are permutation matrix on the
-		 * column
-		 * 
-		 * second step
-		 * 
-		 * create two more matrix
-		 * 
-		 * ALO(agent linkgraph) row edges/outer column (node, ports) (O,1)
-		 * 
-		 * RO(agent linkgraph) row outer column (node, ports) (O,1)
-		 * 
-		 * solve ALO * P = RO where P are permutation matrix on the column
-		 * 
-		 */
-
 	}
 
-	private static int explorei = 0;
-	private static int exploremax = 0;
-
-	private static void addBigraphAgent(Bigraph bigraph,
-			HashMap<Integer, Integer[]> succList,
-			BidiMap<Integer, Layoutable> mapGraph) {
-		explorei = 0;
-		exploremax = 0;
-		if (bigraph == null) {
-			System.out.println("Bigraph == null");
-		}
-		for (Layoutable r : bigraph.getChildren()) { // ).getRoots()) {
-
-			if (r instanceof Container) {
-				explore((Container) r, succList, mapGraph);
-			} else {
-				if (!(r instanceof Edge || r instanceof OuterName)) {
-					succList.put(explorei, new Integer[] {});
-					mapGraph.put(explorei, (Layoutable) r);
-					explorei++;
-					exploremax++;
-				} else {
-					System.out.println("edge || outer");
-				}
-
-			}
-		}
+	private final Bigraph redex;
+	private final Matcher matcher;
+	private final Layoutable[] redexPlaces;
+	private final Link[] redexLinks;
+
+	/**
+	 * Creates a new {@link PlaceMatch}.
+	 * @param redex a {@link Bigraph}, which should not be modified
+	 * afterwards
+	 */
+	public PlaceMatch(Bigraph redex) {
+		this.redex = redex;
+		FrozenBigraph frozen = new FrozenBigraph(redex);
+		matcher = new Matcher(frozen);
+		redexPlaces = getPlaces(redex, frozen);
+		redexLinks = getLinks(redex, frozen);
 	}
 
-	private static int getParentRedex(int index) {
-		Layoutable iLay = listRedex.get(index);
-		if (!(iLay.getParent() instanceof Bigraph)) {
-			return listRedex.getKey(iLay.getParent());
-		}
-		return -1;
+	public Bigraph getRedex() {
+		return redex;
 	}
 
-	private static int getParentAgent(int index) {
-		Layoutable iLay = listAgent.get(index);
-		if (!(iLay.getParent() instanceof Bigraph)) {
-			return listAgent.getKey(iLay.getParent());
-		}
-		return -1;
+	/**
+	 * Finds all of the occurrences of the redex in an agent.
+	 * @param agent a {@link Bigraph}
+	 * @return a list of {@link MatchData} objects, which may be empty
+	 */
+	public ArrayList<MatchData> match(Bigraph agent) {
+		return match(new Target(agent));
 	}
 
-	private static void addBigraphRedex(Bigraph bigraph,
-			HashMap<Integer, Integer[]> succList,
-			BidiMap<Integer, Layoutable> mapGraph) {
-		explorei = 0;
-		exploremax = 0;
-		for (Layoutable r : bigraph.getChildren()) {// getRoots()) {
-
-			for (Layoutable l : ((Container) r).getChildren()) {
-
-				if (l instanceof Container) {
-					explore((Container) l, succList, mapGraph);
-				} else {
-					succList.put(explorei, new Integer[] {});
-					mapGraph.put(explorei, l);
-					explorei++;
-					exploremax++;
-				}
-			}
-		}
+	private ArrayList<MatchData> match(Target agent) {
+		ArrayList<MatchData> matchList = new ArrayList<MatchData>();
+		for (Match m : matcher.match(agent.frozen))
+			matchList.add(getSolution(m, agent));
+		return matchList;
 	}
 
-	private static void explore(Container container,
-			HashMap<Integer, Integer[]> list,
-			BidiMap<Integer, Layoutable> mapGraph) {
-		int max = 0;
-		// if(container instanceof Bigraph){
-		// max=((Bigraph)container).getRoots().size();
-
-		// }else{
-		max = container.getChildren().size();
-		// }
-		System.out.println("max: " + max);
-		Integer[] array = new Integer[max];
-		list.put(explorei, array);
-		mapGraph.put(explorei, container);
-		explorei++;
-		exploremax++;
-		int j = 0;
-		for (Layoutable l : container.getChildren()) {
-			if (l instanceof Edge || l instanceof OuterName) {
-				System.out.println("super fist");
-			}
-
-			array[j] = exploremax;
-			j++;
-			if (l instanceof Site) {
-				System.out.println("site expl-i: " + explorei + " exp-max: "
-						+ exploremax + " j: " + j);
-				exploremax++;
-			}
-			if (l instanceof Container) {
-				explore((Container) l, list, mapGraph);
-			} else {
-				list.put(explorei, new Integer[] {});
-				mapGraph.put(explorei, l);
-				explorei++;
-			}
-		}
+	/**
+	 * Finds all of the occurrences of a redex in an agent.
+	 * @param agent a {@link Bigraph}
+	 * @param redex a {@link Bigraph}
+	 * @return a list of {@link MatchData} objects, which may be empty
+	 * @see #match(Bigraph)
+	 */
+	public static ArrayList<MatchData> match(Bigraph agent, Bigraph redex) {
+		return new PlaceMatch(redex).match(agent);
 	}
 
-	private static void printHash(HashMap<Integer, Integer[]> list) {
-		int size = list.size();
-		for (int i = 0; i < size; i++) {
-			System.out.print(i + "  ->  ");
-			for (int j = 0; j < list.get(i).length; j++) {
-				System.out.print(list.get(i)[j] + " ");
-			}
-			System.out.println("");
+	/**
+	 * Finds all of the occurrences of the redexes of several {@link
+	 * ReactionRule}s in an agent at once, using a new thread pool with one
+	 * thread for each available processor.
+	 * @param agent a {@link Bigraph}
+	 * @param rules a list of {@link ReactionRule}s
+	 * @return a map from each of the <code>rules</code>, in order, to a
+	 * list of {@link MatchData} objects
+	 * @throws InterruptedException if the calling thread was interrupted
+	 * while waiting for the results
+	 * @see #matchAll(Bigraph, List, ExecutorService)
+	 */
+	public static LinkedHashMap<ReactionRule, ArrayList<MatchData>> matchAll(
+			Bigraph agent, List<? extends ReactionRule> rules)
+			throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Runtime.getRuntime().availableProcessors());
+		try {
+			return matchAll(agent, rules, executor);
+		} finally {
+			executor.shutdown();
 		}
 	}
 
-	private static void printMapGraph(HashMap<Integer, Layoutable> list) {
-
-		int size = list.size();
-		for (int i = 0; i < size; i++) {
-			if (list.get(i) instanceof Node) {
-				System.out.println(i + " " + ((Node) list.get(i)).getName());
-			}
-		}
+	/**
+	 * Finds all of the occurrences of the redexes of several {@link
+	 * ReactionRule}s in an agent at once. The agent is only prepared once,
+	 * and each redex is then matched against it by a separate task; redexes
+	 * that the agent's {@link Summary} doesn't admit aren't searched for at
+	 * all.
+	 * @param agent a {@link Bigraph}
+	 * @param rules a list of {@link ReactionRule}s
+	 * @param executor the {@link ExecutorService} that should run the
+	 * tasks
+	 * @return a map from each of the <code>rules</code>, in order, to a
+	 * list of {@link MatchData} objects
+	 * @throws InterruptedException if the calling thread was interrupted
+	 * while waiting for the results
+	 */
+	public static LinkedHashMap<ReactionRule, ArrayList<MatchData>> matchAll(
+			Bigraph agent, List<? extends ReactionRule> rules,
+			ExecutorService executor) throws InterruptedException {
+		final Target target = new Target(agent);
+		final Summary summary = new Summary(target.frozen);
+		ArrayList<Future<ArrayList<MatchData>>> futures =
+				new ArrayList<Future<ArrayList<MatchData>>>(rules.size());
+		for (final ReactionRule r : rules) {
+			futures.add(executor.submit(new Callable<ArrayList<MatchData>>() {
+				@Override
+				public ArrayList<MatchData> call() {
+					PlaceMatch pm = new PlaceMatch(r.getRedex());
+					if (summary.admits(pm.matcher.getSummary())) {
+						return pm.match(target);
+					} else return new ArrayList<MatchData>();
+				}
+			}));
+		}
+
+		LinkedHashMap<ReactionRule, ArrayList<MatchData>> results =
+				new LinkedHashMap<ReactionRule, ArrayList<MatchData>>();
+		try {
+			for (int i = 0; i < rules.size(); i++)
+				results.put(rules.get(i), futures.get(i).get());
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			} else throw new RuntimeException(cause);
+		} finally {
+			for (Future<ArrayList<MatchData>> f : futures)
+				f.cancel(true);
+		}
+		return results;
 	}
 
-	private static int getMatchingAgent(int[][] input, int column) {
-
-		for (int i = 0; i < input.length; i++) {
-			if (input[i][column] == 1) {
-				return i;
-			}
-		}
-		return -1;
+	/**
+	 * Finds the model objects that correspond to the places of a {@link
+	 * FrozenBigraph}.
+	 * @param bigraph a {@link Bigraph}
+	 * @param frozen a {@link FrozenBigraph} created from <code>bigraph</code>
+	 * @return an array of {@link Layoutable}s, indexed by place
+	 */
+	private static Layoutable[] getPlaces(
+			Bigraph bigraph, FrozenBigraph frozen) {
+		Layoutable[] places = new Layoutable[frozen.getPlaceCount()];
+		for (int i = 0; i < places.length; i++) {
+			Class<? extends Layoutable> nsi;
+			byte kind = frozen.getKind(i);
+			if (kind == FrozenBigraph.ROOT) {
+				nsi = Root.class;
+			} else if (kind == FrozenBigraph.NODE) {
+				nsi = Node.class;
+			} else nsi = Site.class;
+			places[i] = bigraph.getNamespace(nsi).get(
+					frozen.getPlaceName(i));
+		}
+		return places;
 	}
 
-	private static void fillRootRedex() {
-		for (int i = 0; i < succListRedex.size(); i++) {
-
-			if (listRedex.get(i) instanceof Root) {
-				listRootRedex.add(i);
-			}
-		}
+	/**
+	 * Finds the model objects that correspond to the links of a {@link
+	 * FrozenBigraph}.
+	 * @param bigraph a {@link Bigraph}
+	 * @param frozen a {@link FrozenBigraph} created from <code>bigraph</code>
+	 * @return an array of {@link Link}s, indexed by link
+	 */
+	private static Link[] getLinks(Bigraph bigraph, FrozenBigraph frozen) {
+		Link[] links = new Link[frozen.getLinkCount()];
+		for (int i = 0; i < links.length; i++)
+			links[i] = (Link)bigraph.getNamespace(Link.class).get(
+					frozen.getLinkName(i));
+		return links;
 	}
 
-	private static MatchData getSolution(int[][] input) {
+	private MatchData getSolution(Match m, Target agent) {
 		MatchData data = new MatchData();
-		for (int redexColumn = 0; redexColumn < succListRedex.size(); redexColumn++) {
-			int agentRow = getMatchingAgent(input, redexColumn);
-			Layoutable agentMatch = listAgent.get(agentRow);
-			Layoutable redexMatch = listRedex.get(redexColumn);
-
+		for (int i = 0; i < redexPlaces.length; i++) {
+			Layoutable redexMatch = redexPlaces[i];
 			if (redexMatch instanceof Site) {
-				for (int i = 0; i < input.length; i++) {
-					if (input[i][redexColumn] == 1) {
-						data.addSiteMatch(redexMatch, listAgent.get(i));
-					}
-				}
-			}
-
-			data.addRootMatch(redexMatch, agentMatch);
-		}
-		data.setLinkMap(maplinkAgent_Redex);
+				int[] parameter = m.getParameter(i);
+				for (int q : parameter)
+					data.addSiteMatch(redexMatch, agent.places[q]);
+				if (parameter.length > 0)
+					data.addRootMatch(redexMatch, agent.places[parameter[0]]);
+			} else data.addRootMatch(
+					redexMatch, agent.places[m.getPlaceImage(i)]);
+		}
+
+		BidiMap<Link, Link> linkMap = new BidiMap<Link, Link>();
+		for (int i = 0; i < redexLinks.length; i++) {
+			int image = m.getLinkImage(i);
+			if (image != -1)
+				linkMap.put(redexLinks[i], agent.links[image]);
+		}
+		data.setLinkMap(linkMap);
 		return data;
-
 	}
-
-	private static boolean linkMatch(int[][] input) {
-
-		maplinkAgent_Redex = new BidiMap<Link, Link>();
-
-		for (int redexColumn = 0; redexColumn < succListRedex.size(); redexColumn++) {
-			int agentRow = getMatchingAgent(input, redexColumn);
-			Layoutable agentMatch = listAgent.get(agentRow);
-			Layoutable redexMatch = listRedex.get(redexColumn);
-			// System.out.println("match A: " + agentRow +
-			// " "+agentMatch.getType()+" " +agentMatch.getName() + ", R:" +
-			// redexColumn +" "+ redexMatch.getType()+" "+ redexMatch.getName()
-			// );
-
-			if (agentMatch instanceof Node && redexMatch instanceof Node) {
-				if (!(((Node) agentMatch).getControl().getName()
-						.equals(((Node) redexMatch).getControl().getName()))) {
-
-					System.out.println("Type of Control is different"
-							+ ((Node) agentMatch).getControl() + " "
-							+ ((Node) redexMatch).getControl());
-					return false;
-				}
-
-				for (Port portRedex : ((Node) redexMatch).getPorts()) {
-					Port portAgent = ((Node) agentMatch).getPort(portRedex
-							.getName());
-
-					// System.out.println("for each port");
-
-					if (portRedex.getLink() instanceof Edge) {
-						if (!(portAgent.getLink() instanceof Edge)) {
-							/** edge redex -> outer agent return false */
-							return false;
-						} else {
-							/*
-							 * check that every edge has the same number of
-							 * connections
-							 */
-							if (portRedex.getLink().getPoints().size() != portAgent
-									.getLink().getPoints().size()) {
-								return false;
-							}
-
-						}
-					}
-
-					if (maplinkAgent_Redex.containsKey(portRedex.getLink())) {
-						System.out.println("contains key");
-						if (!(maplinkAgent_Redex.get(portRedex.getLink())
-								.equals(portAgent.getLink()))) {
-							return false;
-						}
-					} else {
-						maplinkAgent_Redex.put(portRedex.getLink(),
-								portAgent.getLink());
-					}
-
-				}
-
-			}
-		}
-
-		return true;
-	}
-
 }
@@ -30,6 +30,10 @@ public abstract class ParameterUtilities {
 		}
 		
 		private static final class ParameterHandler extends Handler {
+			private ParameterHandler() {
+				super(ChangeParameterDescriptor.class);
+			}
+			
 			@Override
 			public boolean tryValidateChange(Process context,
 					IChangeDescriptor change) throws ChangeCreationException {
@@ -103,6 +107,10 @@ public abstract class ParameterUtilities {
 		}
 		
 		private static final class ParameterPolicyHandler extends Handler {
+			private ParameterPolicyHandler() {
+				super(ChangeParameterPolicyDescriptor.class);
+			}
+			
 			@Override
 			public boolean tryValidateChange(Process context,
 					IChangeDescriptor change) throws ChangeCreationException {
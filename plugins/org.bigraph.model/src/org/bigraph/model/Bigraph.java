@@ -1,8 +1,10 @@
 package org.bigraph.model;
 
-import java.util.ArrayDeque;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Locale;
 
 import org.bigraph.model.assistants.IObjectIdentifier;
@@ -12,6 +14,7 @@ import org.bigraph.model.names.HashMapNamespace;
 import org.bigraph.model.names.Namespace;
 import org.bigraph.model.names.policies.BoundedIntegerNamePolicy;
 import org.bigraph.model.names.policies.StringNamePolicy;
+import org.bigraph.model.utilities.SnapshotCollection;
 
 /**
  * The Bigraph is the root of any agent, and contains {@link Root}s, {@link
@@ -58,9 +61,31 @@ public class Bigraph extends Container
 		} else return null;
 	}
 	
+	/**
+	 * Returns the <i>namespace identifier</i> for the object identified by a
+	 * {@link Layoutable.Identifier}, without needing the object itself.
+	 * @param id a {@link Layoutable.Identifier}
+	 * @return the scope within which the identified object's name must be
+	 * unique, or <code>null</code> if there are no restrictions on its name
+	 * @see #getNSI(String)
+	 */
+	public static Class<? extends Layoutable> getNSI(Layoutable.Identifier id) {
+		if (id instanceof Link.Identifier) {
+			return Link.class;
+		} else if (id instanceof InnerName.Identifier) {
+			return InnerName.class;
+		} else if (id instanceof Root.Identifier) {
+			return Root.class;
+		} else if (id instanceof Site.Identifier) {
+			return Site.class;
+		} else if (id instanceof Node.Identifier) {
+			return Node.class;
+		} else return null;
+	}
+	
 	/**
 	 * Gets the namespace with the given namespace identifier.
-	 * @param nsi a value returned from a call to {@link #getNSI(Layoutable)},
+	 * @param nsi a value returned from a call to {@link #getNSI(String)},
 	 * unless you're <i>very</i> sure you know what you're doing
 	 * @return the specified namespace
 	 */
@@ -83,6 +108,10 @@ public class Bigraph extends Container
 		return getNamespace(getNSI(l.getType()));
 	}
 	
+	public Namespace<Layoutable> getNamespace(Layoutable.Identifier id) {
+		return getNamespace(getNSI(id));
+	}
+	
 	/**
 	 * Gets the first unused name suitable for the given {@link Layoutable}.
 	 * @param l a {@link Layoutable}
@@ -94,17 +123,39 @@ public class Bigraph extends Container
 
 	public static final String CONTENT_TYPE = "dk.itu.big_red.bigraph";
 	
+	/**
+	 * Indicates whether or not {@link #signature} is shared with another
+	 * {@link Bigraph}, in which case {@link #dispose()} will leave it alone.
+	 */
+	private boolean sharedSignature = false;
+	
 	/**
 	 * Creates and returns a complete copy of this {@link Bigraph}, complete
 	 * with {@link Point}s and {@link Link} connections.
-	 * @param m a {@link CloneMap}; can be <code>null</code>
 	 * @return an exact copy of this {@link Bigraph}
 	 */
 	@Override
 	public Bigraph clone() {
+		return clone(getSignature().clone());
+	}
+	
+	/**
+	 * Creates and returns a complete copy of this {@link Bigraph} whose
+	 * {@link Node}s use the {@link Control}s of the given {@link Signature}.
+	 * <p>Passing this {@link Bigraph}'s own {@link Signature} makes the copy
+	 * share it instead of copying it, which is much cheaper (and is safe as
+	 * long as neither {@link Bigraph} is used to modify the {@link
+	 * Signature}); disposing of the copy will not dispose of the shared
+	 * {@link Signature}.
+	 * @param signature a {@link Signature} containing {@link Control}s
+	 * with the same names as those of this {@link Bigraph}'s
+	 * @return a copy of this {@link Bigraph}
+	 */
+	public Bigraph clone(Signature signature) {
 		Bigraph b = (Bigraph)newInstance();
 		
-		b.setSignature(getSignature().clone());
+		b.setSignature(signature);
+		b.sharedSignature = (signature == getSignature());
 		
 		/* ModelObject.clone */
 		b.setExtendedDataFrom(this);
@@ -113,22 +164,65 @@ public class Bigraph extends Container
 		for (Layoutable child : getChildren())
 			b.addChild(child.clone(b));
 		
-		for (Link i : only(null, Link.class)) {
-			Link iClone = i.getIdentifier().lookup(null, b);
-			for (Point p : i.getPoints())
-				iClone.addPoint(p.getIdentifier().lookup(null, b));
+		/* The copy has exactly the same names as this Bigraph, so there's no
+		 * need to go through identifiers to find the copied points */
+		for (Link i : only(Link.class)) {
+			Link iClone = (Link)b.linkNS.get(i.getName());
+			for (Point p : i.getPoints()) {
+				Point pClone;
+				if (p instanceof Port) {
+					Node nClone = (Node)b.nodeNS.get(
+							((Port)p).getParent().getName());
+					pClone = nClone.getPort(p.getName());
+				} else pClone = (Point)b.innerNameNS.get(p.getName());
+				iClone.addPoint(pClone);
+			}
 		}
 		
 		return b;
 	}
 	
+	/**
+	 * Computes the {@link CanonicalForm} of this {@link Bigraph}. (This
+	 * isn't cached; callers that need it repeatedly should hold on to it.)
+	 * @return a new {@link CanonicalForm}
+	 */
+	public CanonicalForm getCanonicalForm() {
+		return new CanonicalForm(this);
+	}
+	
 	@Override
 	public Bigraph getBigraph(PropertyScratchpad context) {
 		return this;
 	}
 	
 	public void setSignature(Signature signature) {
+		setSignature(signature, false);
+	}
+	
+	/**
+	 * Sets this {@link Bigraph}'s {@link Signature}.
+	 * @param signature a {@link Signature}
+	 * @param shared whether or not <code>signature</code> is also used by
+	 * other objects, in which case {@link #dispose()} will leave it alone
+	 */
+	public void setSignature(Signature signature, boolean shared) {
 		this.signature = signature;
+		sharedSignature = shared;
+		incrementGeneration();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Changes made through a {@link Bigraph} can also depend on its
+	 * {@link Signature}, so its generation counter is included.
+	 */
+	@Override
+	public long[] getGenerations() {
+		long[] own = super.getGenerations();
+		return new long[] {
+			own[0], (signature != null ? signature.getGenerations()[0] : -1)
+		};
 	}
 	
 	@Override
@@ -148,51 +242,96 @@ public class Bigraph extends Container
 
 	@Override
 	public Collection<? extends Edge> getEdges() {
-		return only(null, Edge.class);
+		return only(Edge.class);
 	}
 
 	@Override
 	public Collection<? extends Root> getRoots() {
-		return only(null, Root.class);
+		return only(Root.class);
 	}
 
 	@Override
 	public Collection<? extends InnerName> getInnerNames() {
-		return only(null, InnerName.class);
+		return only(InnerName.class);
 	}
 	
-	@Override
-	public Collection<? extends Site> getSites() {
-		ArrayList<Site> sites = new ArrayList<Site>();
-		ArrayDeque<Container> queue = new ArrayDeque<Container>();
-		queue.add(this);
-		
-		while (!queue.isEmpty()) {
-			for (Layoutable l : queue.remove().getChildren()) {
-				if (l instanceof Site) {
-					sites.add((Site)l);
-				} else if (l instanceof Container) {
-					queue.add((Container)l);
+	/**
+	 * Every {@link Site} in this {@link Bigraph}, no matter how deeply nested.
+	 * Moving a {@link Site} keeps this up to date; moving a {@link
+	 * Container} with children just marks it as stale, and it's rebuilt the
+	 * next time it's needed.
+	 */
+	private final HashSet<Site> sites = new HashSet<Site>();
+	private boolean sitesStale = false;
+	private final Collection<Site> sitesView =
+			new SnapshotCollection<Site>(new AbstractCollection<Site>() {
+				@Override
+				public Iterator<Site> iterator() {
+					return getSiteIndex().iterator();
+				}
+				
+				@Override
+				public int size() {
+					return getSiteIndex().size();
+				}
+				
+				@Override
+				public boolean contains(Object o) {
+					return getSiteIndex().contains(o);
+				}
+			});
+	
+	void addSite(Site s) {
+		sites.add(s);
+	}
+	
+	void removeSite(Site s) {
+		sites.remove(s);
+	}
+	
+	void invalidateSites() {
+		sitesStale = true;
+	}
+	
+	private HashSet<Site> getSiteIndex() {
+		if (sitesStale) {
+			sites.clear();
+			ArrayList<Container> stack = new ArrayList<Container>();
+			stack.add(this);
+			while (!stack.isEmpty()) {
+				for (Layoutable l : stack.remove(stack.size() - 1).children) {
+					if (l instanceof Site) {
+						sites.add((Site)l);
+					} else if (l instanceof Container)
+						stack.add((Container)l);
 				}
 			}
+			sitesStale = false;
 		}
-		
 		return sites;
 	}
 	
+	@Override
+	public Collection<? extends Site> getSites() {
+		return sitesView;
+	}
+	
 	@Override
 	public Collection<? extends OuterName> getOuterNames() {
-		return only(null, OuterName.class);
+		return only(OuterName.class);
 	}
 	
 	@Override
 	public void dispose() {
 		if (signature != null) {
-			signature.dispose();
+			if (!sharedSignature)
+				signature.dispose();
 			signature = null;
 		}
 		
 		super.dispose();
+		sites.clear();
+		sitesStale = false;
 	}
 	
 	public static final class Identifier extends Container.Identifier {
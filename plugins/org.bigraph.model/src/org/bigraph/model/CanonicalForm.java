@@ -0,0 +1,683 @@
+package org.bigraph.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+
+import org.bigraph.model.utilities.comparators.IntegerStringComparator;
+
+/**
+ * A <strong>CanonicalForm</strong> is a description of the structure of a
+ * {@link Bigraph} that doesn't depend on the names of its {@link Node}s and
+ * {@link Edge}s or on the order in which its objects happen to be stored.
+ * Two bigraphs have equal CanonicalForms if, and only if, they're isomorphic
+ * (that is, they differ only in the names of their nodes and edges).
+ * <p>The canonical ordering is computed by colour refinement: every place
+ * is labelled with a hash of its subtree and of the links its ports are
+ * connected to, every link with a hash of the places connected to it, and
+ * the two are refined against each other until no more distinctions
+ * appear. Places are then ordered depth-first from the roots, siblings
+ * being sorted by label. Where symmetric link structures leave siblings
+ * with identical labels, each of them is individualised in turn and the
+ * labels refined again, and the ordering with the smallest description is
+ * chosen; for most bigraphs, no such search is needed.
+ * <p>The form also provides a 128-bit structural hash, which is stable
+ * across runs and JVMs.
+ * @see Bigraph#getCanonicalForm()
+ */
+public final class CanonicalForm {
+	private final FrozenBigraph fb;
+	private final int[] placeOrder, linkOrder, innerNameOrder;
+	private final String description;
+	private final long hashHigh, hashLow;
+	
+	public CanonicalForm(Bigraph b) {
+		this(new FrozenBigraph(b));
+	}
+	
+	public CanonicalForm(FrozenBigraph fb) {
+		this.fb = fb;
+		
+		Search s = new Search();
+		s.search(s.getInitialLabels(), 0);
+		placeOrder = s.best.placeOrder;
+		linkOrder = s.best.linkOrder;
+		description = s.best.description;
+		innerNameOrder = s.innerNames;
+		
+		long h1 = 0xcbf29ce484222325L, h2 = 0x84222325cbf29ce4L;
+		for (int i = 0; i < description.length(); i++) {
+			char c = description.charAt(i);
+			h1 = (h1 ^ c) * 0x100000001b3L;
+			h2 = (h2 + c) * 0x9e3779b97f4a7c15L;
+		}
+		hashHigh = mix(h1 ^ description.length());
+		hashLow = mix(h2 ^ hashHigh);
+	}
+	
+	/**
+	 * A <strong>Layout</strong> is a candidate for the canonical form: an
+	 * ordering of the places and links, the description that it gives rise
+	 * to, and the places that were individualised to produce it.
+	 */
+	private static final class Layout {
+		private final int[] placeOrder, linkOrder, path;
+		private final String description;
+		
+		private Layout(int[] placeOrder, int[] linkOrder, int[] path,
+				String description) {
+			this.placeOrder = placeOrder;
+			this.linkOrder = linkOrder;
+			this.path = path;
+			this.description = description;
+		}
+	}
+	
+	/**
+	 * A <strong>Search</strong> holds the working state of the search for
+	 * the canonical {@link Layout}.
+	 * <p>Colour refinement alone can leave siblings with identical labels
+	 * even though they can't be exchanged, and then the order in which they
+	 * happen to be stored would change the numbering of the edges. When
+	 * that happens, each of the tied siblings is <i>individualised</i> in
+	 * turn (given a label of its own) and the labels are refined again; of
+	 * all of the layouts produced, the one with the smallest description
+	 * wins. Ties between siblings which an automorphism of the bigraph can
+	 * exchange don't matter, and branches which are images of ones already
+	 * explored under a known automorphism are skipped.
+	 */
+	private final class Search {
+		private final int placeCount = fb.getPlaceCount(),
+			linkCount = fb.getLinkCount(),
+			outerNameCount = fb.getOuterNameCount();
+		private final int[] portPlaces = new int[fb.getPortCount()];
+		private final long[] innerNameLabels =
+				new long[fb.getInnerNameCount()];
+		private final boolean[] touchesEdges = new boolean[placeCount];
+		private final int[] roots = sortedRoots(),
+			outerNames = sortedNames(outerNameCount, true),
+			innerNames = sortedNames(fb.getInnerNameCount(), false);
+		
+		private final int[] path = new int[placeCount], swap;
+		private final ArrayList<int[]> automorphisms = new ArrayList<int[]>();
+		private Layout first = null, best = null;
+		
+		private Search() {
+			for (int i = 0; i < placeCount; i++)
+				for (int j = 0; j < fb.getPortCount(i); j++)
+					portPlaces[fb.getPort(i, j)] = i;
+			for (int i = 0; i < innerNameLabels.length; i++)
+				innerNameLabels[i] =
+						combine(6, hash(fb.getInnerNameName(i)));
+			
+			/* Places are numbered breadth-first, so walking backwards visits
+			 * children before their parents */
+			for (int i = placeCount - 1; i >= 0; i--) {
+				for (int j = 0; j < fb.getPortCount(i); j++)
+					if (fb.getLink(fb.getPort(i, j)) >= outerNameCount)
+						touchesEdges[i] = true;
+				int p = fb.getParent(i);
+				if (p != -1 && touchesEdges[i])
+					touchesEdges[p] = true;
+			}
+			
+			swap = new int[placeCount];
+			Arrays.fill(swap, -1);
+		}
+		
+		private long[] getInitialLabels() {
+			long[] placeLabels = new long[placeCount];
+			for (int i = 0; i < placeCount; i++) {
+				switch (fb.getKind(i)) {
+				case FrozenBigraph.ROOT:
+					placeLabels[i] =
+							combine(1, hash(fb.getPlaceName(i)));
+					break;
+				case FrozenBigraph.SITE:
+					placeLabels[i] =
+							combine(2, hash(fb.getPlaceName(i)));
+					break;
+				default:
+					placeLabels[i] = combine(3, hash(
+							fb.getControl(fb.getPlaceControl(i)).getName()));
+				}
+			}
+			return placeLabels;
+		}
+		
+		/**
+		 * Refines the place and link labels against each other until the
+		 * number of distinct labels stops growing.
+		 * @param placeLabels the initial place labels
+		 * @return the refined label of each place's subtree
+		 */
+		private long[] refine(long[] placeLabels) {
+			long[] linkLabels = new long[linkCount];
+			for (int i = 0; i < linkCount; i++)
+				linkLabels[i] = (i < outerNameCount ?
+						combine(4, hash(fb.getLinkName(i))) : 5);
+			
+			long[] codes = new long[placeCount],
+				contexts = new long[placeCount];
+			int distinct = -1;
+			for (int round = 0; round <= placeCount + linkCount; round++) {
+				for (int i = placeCount - 1; i >= 0; i--) {
+					long h = placeLabels[i];
+					for (int j = 0; j < fb.getPortCount(i); j++) {
+						int l = fb.getLink(fb.getPort(i, j));
+						h = combine(h, (l != -1 ? linkLabels[l] : 7));
+					}
+					long[] children = new long[countChildren(i)];
+					for (int j = fb.getFirstChild(i), k = 0; j != -1;
+							j = fb.getNextSibling(j))
+						children[k++] = codes[j];
+					Arrays.sort(children);
+					for (long c : children)
+						h = combine(h, c);
+					codes[i] = h;
+				}
+				for (int i = 0; i < placeCount; i++) {
+					int p = fb.getParent(i);
+					contexts[i] = (p != -1 ?
+							combine(contexts[p], codes[i]) : codes[i]);
+				}
+				
+				long[] newLinkLabels = new long[linkCount];
+				for (int i = 0; i < linkCount; i++) {
+					long[] points = new long[fb.getLinkPointCount(i)];
+					for (int j = 0; j < points.length; j++) {
+						int pt = fb.getLinkPoint(i, j);
+						if (pt < portPlaces.length) {
+							int pl = portPlaces[pt];
+							points[j] = combine(
+									contexts[pl], pt - fb.getPort(pl, 0));
+						} else points[j] =
+								innerNameLabels[pt - portPlaces.length];
+					}
+					Arrays.sort(points);
+					long h = linkLabels[i];
+					for (long p : points)
+						h = combine(h, p);
+					newLinkLabels[i] = h;
+				}
+				linkLabels = newLinkLabels;
+				
+				HashSet<Long> labels = new HashSet<Long>();
+				for (long c : contexts)
+					labels.add(c);
+				for (long l : linkLabels)
+					labels.add(l);
+				if (labels.size() == distinct)
+					break;
+				distinct = labels.size();
+			}
+			return codes;
+		}
+		
+		/**
+		 * Searches for the canonical {@link Layout} below a node of the
+		 * search tree.
+		 * @param placeLabels the place labels at this node
+		 * @param depth the number of places that have been individualised
+		 * @return the depth to which the search should go back (which will
+		 * be less than <code>depth</code> if an automorphism has shown the
+		 * rest of the branch to be redundant)
+		 */
+		private int search(long[] placeLabels, int depth) {
+			long[] codes = refine(placeLabels);
+			int[] cell = findTiedSiblings(codes);
+			if (cell == null)
+				return record(layout(codes, depth), depth);
+			
+			ArrayList<Integer> tried = new ArrayList<Integer>();
+			int[] orbits = null;
+			int generators = -1;
+			for (int v : cell) {
+				if (!tried.isEmpty() && automorphisms.size() > 0) {
+					if (generators != automorphisms.size()) {
+						orbits = getOrbits(depth);
+						generators = automorphisms.size();
+					}
+					boolean redundant = false;
+					for (int u : tried)
+						if (find(orbits, u) == find(orbits, v))
+							redundant = true;
+					if (redundant)
+						continue;
+				}
+				tried.add(v);
+				path[depth] = v;
+				long[] labels = placeLabels.clone();
+				labels[v] = combine(labels[v], combine(8, depth));
+				int back = search(labels, depth + 1);
+				if (back < depth)
+					return back;
+			}
+			return depth;
+		}
+		
+		/**
+		 * Considers a complete {@link Layout}, keeping it if it's the best
+		 * one so far and recording an automorphism if it's equivalent to
+		 * one that has already been seen.
+		 * @param l a {@link Layout}
+		 * @param depth the depth of <code>l</code> in the search tree
+		 * @return the depth to which the search should go back
+		 */
+		private int record(Layout l, int depth) {
+			if (first == null) {
+				first = best = l;
+				return depth;
+			} else if (l.description.equals(first.description)) {
+				return recordAutomorphism(first, l, depth);
+			}
+			int c = l.description.compareTo(best.description);
+			if (c == 0) {
+				return recordAutomorphism(best, l, depth);
+			} else if (c < 0)
+				best = l;
+			return depth;
+		}
+		
+		private int recordAutomorphism(Layout a, Layout b, int depth) {
+			int[] g = new int[placeCount];
+			for (int i = 0; i < placeCount; i++)
+				g[a.placeOrder[i]] = b.placeOrder[i];
+			automorphisms.add(g);
+			/* b's branch is the image of a's under g from the point at
+			 * which they diverged, so nothing more can be learned from it */
+			for (int i = 0; i < Math.min(a.path.length, b.path.length); i++)
+				if (a.path[i] != b.path[i])
+					return i;
+			return depth;
+		}
+		
+		/**
+		 * Computes the orbits of the places under the known automorphisms
+		 * that fix all of the places individualised so far.
+		 * @param depth the number of places that have been individualised
+		 * @return a union-find array; see {@link #find(int[], int)}
+		 */
+		private int[] getOrbits(int depth) {
+			int[] orbits = new int[placeCount];
+			for (int i = 0; i < placeCount; i++)
+				orbits[i] = i;
+			outer: for (int[] g : automorphisms) {
+				for (int i = 0; i < depth; i++)
+					if (g[path[i]] != path[i])
+						continue outer;
+				for (int i = 0; i < placeCount; i++) {
+					int a = find(orbits, i), b = find(orbits, g[i]);
+					if (a != b)
+						orbits[Math.max(a, b)] = Math.min(a, b);
+				}
+			}
+			return orbits;
+		}
+		
+		/**
+		 * Finds the first group of siblings, in depth-first order, which
+		 * colour refinement couldn't tell apart and whose order could
+		 * change the description.
+		 * @param codes the refined place labels
+		 * @return an array of place indices, or <code>null</code> if the
+		 * order of every group of tied siblings is irrelevant
+		 */
+		private int[] findTiedSiblings(long[] codes) {
+			int[] stack = new int[placeCount];
+			int top = 0;
+			for (int i = roots.length - 1; i >= 0; i--)
+				stack[top++] = roots[i];
+			while (top > 0) {
+				int[] children = sortedChildren(stack[--top], codes);
+				for (int i = 0, j; i < children.length; i = j) {
+					for (j = i + 1; j < children.length &&
+							codes[children[j]] == codes[children[i]]; j++);
+					if (j - i > 1 && touchesEdges[children[i]] &&
+							!interchangeable(children, i, j, codes))
+						return Arrays.copyOfRange(children, i, j);
+				}
+				for (int i = children.length - 1; i >= 0; i--)
+					stack[top++] = children[i];
+			}
+			return null;
+		}
+		
+		/**
+		 * Indicates whether or not every one of a group of tied siblings can
+		 * be exchanged, along with its subtree, with the first of them
+		 * without changing anything else.
+		 */
+		private boolean interchangeable(
+				int[] children, int from, int to, long[] codes) {
+			int[] a = getSubtree(children[from], codes);
+			for (int i = from + 1; i < to; i++)
+				if (!isSwapAutomorphism(
+						a, getSubtree(children[i], codes)))
+					return false;
+			return true;
+		}
+		
+		private boolean isSwapAutomorphism(int[] a, int[] b) {
+			if (a.length != b.length)
+				return false;
+			try {
+				for (int i = 0; i < a.length; i++) {
+					if (fb.getPortCount(a[i]) != fb.getPortCount(b[i]))
+						return false;
+					swap[a[i]] = b[i];
+					swap[b[i]] = a[i];
+				}
+				for (int i = 0; i < a.length; i++)
+					if (!preservesLinks(a[i]) || !preservesLinks(b[i]))
+						return false;
+				return true;
+			} finally {
+				for (int i = 0; i < a.length; i++)
+					swap[a[i]] = swap[b[i]] = -1;
+			}
+		}
+		
+		private int swapPoint(int point) {
+			if (point >= portPlaces.length)
+				return point;
+			int place = portPlaces[point], image = swap[place];
+			return (image != -1 ?
+					fb.getPort(image, point - fb.getPort(place, 0)) : point);
+		}
+		
+		private boolean preservesLinks(int place) {
+			for (int j = 0; j < fb.getPortCount(place); j++) {
+				int point = fb.getPort(place, j),
+					l = fb.getLink(point),
+					m = fb.getLink(swapPoint(point));
+				if (l == -1 || m == -1) {
+					if (l != m)
+						return false;
+				} else if (l < outerNameCount || m < outerNameCount) {
+					if (l != m)
+						return false;
+				} else {
+					if (fb.getLinkPointCount(l) != fb.getLinkPointCount(m))
+						return false;
+					for (int k = 0; k < fb.getLinkPointCount(l); k++)
+						if (fb.getLink(swapPoint(
+								fb.getLinkPoint(l, k))) != m)
+							return false;
+				}
+			}
+			return true;
+		}
+		
+		private int[] getSubtree(int place, long[] codes) {
+			ArrayList<Integer> order = new ArrayList<Integer>();
+			ArrayList<Integer> stack = new ArrayList<Integer>();
+			stack.add(place);
+			while (!stack.isEmpty()) {
+				int p = stack.remove(stack.size() - 1);
+				order.add(p);
+				int[] children = sortedChildren(p, codes);
+				for (int i = children.length - 1; i >= 0; i--)
+					stack.add(children[i]);
+			}
+			int[] r = new int[order.size()];
+			for (int i = 0; i < r.length; i++)
+				r[i] = order.get(i);
+			return r;
+		}
+		
+		/**
+		 * Lays out the places depth-first, in label order, and numbers the
+		 * links: outer names by name, then edges in order of first
+		 * appearance.
+		 * @param codes the refined place labels
+		 * @param depth the number of places that have been individualised
+		 * @return a {@link Layout}
+		 */
+		private Layout layout(long[] codes, int depth) {
+			int[] placeOrder = new int[placeCount];
+			int[] stack = new int[placeCount], depths = new int[placeCount];
+			int top = 0, next = 0;
+			for (int i = roots.length - 1; i >= 0; i--)
+				stack[top++] = roots[i];
+			while (top > 0) {
+				int p = stack[--top];
+				placeOrder[next++] = p;
+				int[] children = sortedChildren(p, codes);
+				for (int i = children.length - 1; i >= 0; i--) {
+					depths[children[i]] = depths[p] + 1;
+					stack[top++] = children[i];
+				}
+			}
+			
+			int[] linkNumbers = new int[linkCount];
+			Arrays.fill(linkNumbers, -1);
+			int[] linkOrder = new int[linkCount];
+			int linkNext = 0;
+			for (int i : outerNames) {
+				linkNumbers[i] = linkNext;
+				linkOrder[linkNext++] = i;
+			}
+			
+			StringBuilder sb = new StringBuilder();
+			for (int p : placeOrder) {
+				sb.append(depths[p]).append(' ');
+				switch (fb.getKind(p)) {
+				case FrozenBigraph.ROOT:
+					appendName(sb.append('R'), fb.getPlaceName(p));
+					break;
+				case FrozenBigraph.SITE:
+					appendName(sb.append('S'), fb.getPlaceName(p));
+					break;
+				default:
+					appendName(sb.append('N'),
+							fb.getControl(fb.getPlaceControl(p)).getName());
+					for (int j = 0; j < fb.getPortCount(p); j++) {
+						int l = fb.getLink(fb.getPort(p, j));
+						if (l != -1) {
+							if (linkNumbers[l] == -1) {
+								linkNumbers[l] = linkNext;
+								linkOrder[linkNext++] = l;
+							}
+							sb.append(' ').append(linkNumbers[l]);
+						} else sb.append(" -");
+					}
+				}
+				sb.append('\n');
+			}
+			for (int i : innerNames) {
+				int l = fb.getLink(fb.getInnerName(i));
+				appendName(sb.append('I'), fb.getInnerNameName(i));
+				if (l != -1) {
+					if (linkNumbers[l] == -1) {
+						linkNumbers[l] = linkNext;
+						linkOrder[linkNext++] = l;
+					}
+					sb.append(' ').append(linkNumbers[l]);
+				} else sb.append(" -");
+				sb.append('\n');
+			}
+			for (int i : outerNames)
+				appendName(sb.append('O'), fb.getLinkName(i)).append('\n');
+			for (int i = 0; i < linkCount; i++)
+				if (linkNumbers[i] == -1)
+					linkOrder[linkNext++] = i;
+			sb.append('E').append(linkCount - outerNames.length);
+			
+			return new Layout(placeOrder, linkOrder,
+					Arrays.copyOf(path, depth), sb.toString());
+		}
+	}
+	
+	private static int find(int[] orbits, int i) {
+		while (orbits[i] != i)
+			i = orbits[i] = orbits[orbits[i]];
+		return i;
+	}
+	
+	private int[] sortedRoots() {
+		Integer[] roots = new Integer[fb.getRootCount()];
+		for (int i = 0; i < roots.length; i++)
+			roots[i] = i;
+		Arrays.sort(roots, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return IntegerStringComparator.INSTANCE.compare(
+						fb.getPlaceName(a), fb.getPlaceName(b));
+			}
+		});
+		int[] r = new int[roots.length];
+		for (int i = 0; i < r.length; i++)
+			r[i] = roots[i];
+		return r;
+	}
+	
+	private int countChildren(int place) {
+		int count = 0;
+		for (int j = fb.getFirstChild(place); j != -1;
+				j = fb.getNextSibling(j))
+			count++;
+		return count;
+	}
+	
+	private int[] sortedChildren(int place, final long[] codes) {
+		Integer[] children = new Integer[countChildren(place)];
+		for (int j = fb.getFirstChild(place), k = 0; j != -1;
+				j = fb.getNextSibling(j))
+			children[k++] = j;
+		Arrays.sort(children, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				long ca = codes[a], cb = codes[b];
+				return (ca < cb ? -1 : (ca > cb ? 1 : 0));
+			}
+		});
+		int[] r = new int[children.length];
+		for (int i = 0; i < r.length; i++)
+			r[i] = children[i];
+		return r;
+	}
+	
+	private int[] sortedNames(int count, final boolean links) {
+		Integer[] names = new Integer[count];
+		for (int i = 0; i < count; i++)
+			names[i] = i;
+		Arrays.sort(names, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return (links ?
+					fb.getLinkName(a).compareTo(fb.getLinkName(b)) :
+					fb.getInnerNameName(a).compareTo(fb.getInnerNameName(b)));
+			}
+		});
+		int[] r = new int[count];
+		for (int i = 0; i < count; i++)
+			r[i] = names[i];
+		return r;
+	}
+	
+	private static StringBuilder appendName(StringBuilder sb, String name) {
+		return sb.append(name.length()).append(':').append(name);
+	}
+	
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	private static long combine(long h, long v) {
+		return mix(h * 0x9e3779b97f4a7c15L + v);
+	}
+	
+	private static long hash(String s) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < s.length(); i++)
+			h = (h ^ s.charAt(i)) * 0x100000001b3L;
+		return mix(h);
+	}
+	
+	/**
+	 * Returns the {@link FrozenBigraph} from which this form was computed;
+	 * the indices returned by this object's other methods refer to it.
+	 * @return a {@link FrozenBigraph}
+	 */
+	public FrozenBigraph getFrozenBigraph() {
+		return fb;
+	}
+	
+	/**
+	 * Returns the places of the bigraph in canonical order: each root (in
+	 * name order) followed, depth-first, by its descendants.
+	 * @return an array of place indices
+	 */
+	public int[] getPlaceOrder() {
+		return placeOrder.clone();
+	}
+	
+	/**
+	 * Returns the links of the bigraph in canonical order: the outer names
+	 * (in name order), followed by the edges.
+	 * @return an array of link indices
+	 */
+	public int[] getLinkOrder() {
+		return linkOrder.clone();
+	}
+	
+	/**
+	 * Returns the inner names of the bigraph in name order.
+	 * @return an array of inner name positions
+	 */
+	public int[] getInnerNameOrder() {
+		return innerNameOrder.clone();
+	}
+	
+	/**
+	 * Returns the textual description of the bigraph from which this form's
+	 * structural hash is computed. Two forms are equal if, and only if,
+	 * their descriptions are.
+	 * @return a {@link String}
+	 */
+	public String getDescription() {
+		return description;
+	}
+	
+	/**
+	 * Returns the most significant 64 bits of this form's structural hash.
+	 * @return a hash value
+	 */
+	public long getHashHigh() {
+		return hashHigh;
+	}
+	
+	/**
+	 * Returns the least significant 64 bits of this form's structural hash.
+	 * @return a hash value
+	 */
+	public long getHashLow() {
+		return hashLow;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof CanonicalForm) {
+			CanonicalForm cf = (CanonicalForm)obj;
+			return hashHigh == cf.hashHigh && hashLow == cf.hashLow &&
+					description.equals(cf.description);
+		} else return false;
+	}
+	
+	@Override
+	public int hashCode() {
+		return (int)hashLow;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("CanonicalForm(%016x%016x)", hashHigh, hashLow);
+	}
+}
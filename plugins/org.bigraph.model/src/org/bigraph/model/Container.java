@@ -2,6 +2,7 @@ package org.bigraph.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -12,6 +13,7 @@ import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
 import org.bigraph.model.changes.IChange;
 import org.bigraph.model.changes.descriptors.DescriptorExecutorManager;
 import org.bigraph.model.utilities.FilteringIterable;
+import org.bigraph.model.utilities.SnapshotCollection;
 
 /**
  * The <code>Container</code> is the superclass of anything which can contain
@@ -66,8 +68,7 @@ public abstract class Container extends Layoutable {
 			Set<Layoutable> children = context.<Layoutable>getModifiableSet(
 					getCreator(), Container.PROPERTY_CHILD, getChildren());
 			children.add(child);
-			context.setProperty(child,
-					Layoutable.PROPERTY_PARENT, getCreator());
+			child.setParent(context, getCreator());
 			
 			getCreator().getBigraph(context).getNamespace(child).
 					put(context, name, child);
@@ -81,14 +82,43 @@ public abstract class Container extends Layoutable {
 	
 	protected HashSet<Layoutable> children = new HashSet<Layoutable>();
 	
+	/**
+	 * A <strong>Bucket</strong> holds those children of a {@link Container}
+	 * which are instances of a particular class, along with an unmodifiable
+	 * view of them.
+	 */
+	private static final class Bucket {
+		private final Class<?> klass;
+		private final HashSet<Layoutable> contents = new HashSet<Layoutable>();
+		private final Collection<Layoutable> view =
+				new SnapshotCollection<Layoutable>(contents);
+		
+		private Bucket(Class<?> klass) {
+			this.klass = klass;
+		}
+	}
+	
+	/**
+	 * This {@link Container}'s {@link Bucket}s, created on demand by {@link
+	 * #only(Class)} and kept up to date by {@link #addChild(Layoutable)} and
+	 * {@link #removeChild(Layoutable)}.
+	 */
+	private HashMap<Class<?>, Bucket> buckets = null;
+	
 	protected void addChild(Layoutable child) {
-		children.add(child);
+		if (children.add(child) && buckets != null)
+			for (Bucket b : buckets.values())
+				if (b.klass.isInstance(child))
+					b.contents.add(child);
 		child.setParent(this);
 		firePropertyChange(PROPERTY_CHILD, null, child);
 	}
 	
 	protected void removeChild(Layoutable child) {
 		if (children.remove(child)) {
+			if (buckets != null)
+				for (Bucket b : buckets.values())
+					b.contents.remove(child);
 			child.setParent(null);
 			firePropertyChange(PROPERTY_CHILD, child, null);
 		}
@@ -97,6 +127,21 @@ public abstract class Container extends Layoutable {
 	public Collection<? extends Layoutable> getChildren() {
 		return children;
 	}
+	
+	@Override
+	void ancestryChanged(Bigraph oldBigraph) {
+		super.ancestryChanged(oldBigraph);
+		if (!children.isEmpty()) {
+			invalidateAncestries();
+			Bigraph newBigraph = getBigraph();
+			if (oldBigraph != newBigraph) {
+				if (oldBigraph != null)
+					oldBigraph.invalidateSites();
+				if (newBigraph != null)
+					newBigraph.invalidateSites();
+			}
+		}
+	}
 
 	@SuppressWarnings("unchecked")
 	public Collection<? extends Layoutable> getChildren(
@@ -135,6 +180,7 @@ public abstract class Container extends Layoutable {
 	
 	@Override
 	public void dispose() {
+		buckets = null;
 		if (children != null) {
 			for (Layoutable i : children)
 				i.dispose();
@@ -160,6 +206,30 @@ public abstract class Container extends Layoutable {
 		return r;
 	}
 	
+	/**
+	 * Returns a live, unmodifiable view of the children of this {@link
+	 * Container} which are instances of the given {@link Class}.
+	 * <p>The first call for a particular {@link Class} takes time
+	 * proportional to the number of children; subsequent calls take
+	 * constant time. The view's iterators work on a copy of its contents,
+	 * so the model can be changed while iterating over it.
+	 * @param klass the {@link Class} to filter by
+	 * @return a {@link Collection} of children of the given {@link Class}
+	 */
+	@SuppressWarnings("unchecked")
+	protected <V> Collection<V> only(Class<V> klass) {
+		if (buckets == null)
+			buckets = new HashMap<Class<?>, Bucket>();
+		Bucket b = buckets.get(klass);
+		if (b == null) {
+			buckets.put(klass, b = new Bucket(klass));
+			for (Layoutable l : children)
+				if (klass.isInstance(l))
+					b.contents.add(l);
+		}
+		return (Collection<V>)b.view;
+	}
+	
 	public static abstract class Identifier extends Layoutable.Identifier {
 		public Identifier(String name) {
 			super(name);
@@ -233,10 +303,10 @@ public abstract class Container extends Layoutable {
 			Set<Layoutable> children = context.<Layoutable>getModifiableSet(
 					self, Container.PROPERTY_CHILD, self.getChildren());
 			children.add(child);
-			context.setProperty(child, Layoutable.PROPERTY_PARENT, self);
+			child.setParent(context, self);
 			
 			String name = getChild().getName();
-			self.getBigraph(context).getNamespace(child).
+			self.getBigraph(context).getNamespace(getChild()).
 					put(context, name, child);
 			context.setProperty(child, Layoutable.PROPERTY_NAME, name);
 		}
@@ -295,7 +365,7 @@ public abstract class Container extends Layoutable {
 			
 			context.<Layoutable>getModifiableSet(
 					self, PROPERTY_CHILD, self.getChildren()).remove(child);
-			context.setProperty(child, Layoutable.PROPERTY_PARENT, null);
+			child.setParent(context, null);
 			
 			self.getBigraph(context).getNamespace(child).
 					remove(context, getChild().getName());
@@ -12,6 +12,11 @@ import org.bigraph.model.names.Namespace;
 
 final class ContainerDescriptorHandler
 		extends HandlerUtilities.DescriptorHandlerImpl {
+	ContainerDescriptorHandler() {
+		super(ChangeAddChildDescriptor.class,
+				ChangeRemoveChildDescriptor.class);
+	}
+	
 	@Override
 	public boolean tryValidateChange(Process context, IChangeDescriptor change)
 			throws ChangeCreationException {
@@ -33,10 +38,10 @@ final class ContainerDescriptorHandler
 							" is an atomic control");
 			}
 			
-			Layoutable tmp = instantiate(childI, scratch, resolver);
 			Namespace<Layoutable> ns =
-					parent.getBigraph(scratch).getNamespace(tmp);
-			HandlerUtilities.checkName(scratch, cd, tmp, ns, childI.getName());
+					parent.getBigraph(scratch).getNamespace(childI);
+			HandlerUtilities.checkName(
+					scratch, cd, childI, ns, childI.getName());
 			
 			if (childI instanceof Node.Identifier)
 				tryLookup(cd, ((Node.Identifier)childI).getControl(),
@@ -130,7 +135,8 @@ final class ContainerDescriptorHandler
 			Container parent = parentI.lookup(null, resolver);
 			Layoutable l = instantiate(childI, null, parent.getBigraph());
 			
-			Namespace<Layoutable> ns = parent.getBigraph().getNamespace(l);
+			Namespace<Layoutable> ns =
+					parent.getBigraph().getNamespace(childI);
 			l.setName(ns.put(childI.getName(), l));
 			parent.addChild(l);
 		} else if (change instanceof ChangeRemoveChildDescriptor) {
@@ -8,6 +8,10 @@ import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 import org.bigraph.model.names.Namespace;
 
 final class ContainerHandler extends HandlerUtilities.HandlerImpl {
+	ContainerHandler() {
+		super(Container.ChangeAddChild.class);
+	}
+	
 	@Override
 	public boolean executeChange(Resolver resolver, IChangeDescriptor b) {
 		if (b instanceof Container.ChangeAddChild) {
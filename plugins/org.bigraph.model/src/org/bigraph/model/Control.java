@@ -243,6 +243,11 @@ public class Control extends NamedModelObject implements IControl {
 		return signature;
 	}
 	
+	@Override
+	protected ModelObject getGenerationOwner() {
+		return (signature != null ? signature.getGenerationOwner() : this);
+	}
+	
 	public Signature getSignature(PropertyScratchpad context) {
 		return getProperty(context, PROPERTY_SIGNATURE, Signature.class);
 	}
@@ -10,6 +10,11 @@ import org.bigraph.model.changes.descriptors.ChangeCreationException;
 import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 
 final class ControlDescriptorHandler extends DescriptorHandlerImpl {
+	ControlDescriptorHandler() {
+		super(ChangeKindDescriptor.class, ChangeAddPortSpecDescriptor.class,
+				ChangeRemovePortSpecDescriptor.class);
+	}
+	
 	@Override
 	public boolean tryValidateChange(Process context, IChangeDescriptor change)
 			throws ChangeCreationException {
@@ -17,12 +22,15 @@ final class ControlDescriptorHandler extends DescriptorHandlerImpl {
 		final Resolver resolver = context.getResolver();
 		if (change instanceof ChangeKindDescriptor) {
 			ChangeKindDescriptor cd = (ChangeKindDescriptor)change;
-			tryLookup(cd, cd.getTarget(), scratch, resolver, Control.class);
+			Control c = tryLookup(
+					cd, cd.getTarget(), scratch, resolver, Control.class);
+			HandlerUtilities.checkWritable(cd, c);
 		} else if (change instanceof ChangeAddPortSpecDescriptor) {
 			ChangeAddPortSpecDescriptor cd =
 					(ChangeAddPortSpecDescriptor)change;
 			Control c = tryLookup(cd, cd.getSpec().getControl(),
 					scratch, resolver, Control.class);
+			HandlerUtilities.checkWritable(cd, c);
 			
 			HandlerUtilities.checkName(scratch, cd,
 					cd.getSpec(), c.getNamespace(), cd.getSpec().getName());
@@ -31,6 +39,7 @@ final class ControlDescriptorHandler extends DescriptorHandlerImpl {
 					(ChangeRemovePortSpecDescriptor)change;
 			PortSpec p = tryLookup(cd,
 					cd.getSpec(), scratch, resolver, PortSpec.class);
+			HandlerUtilities.checkWritable(cd, p);
 			
 			if (p.getExtendedDataMap(scratch).size() != 0)
 				throw new ChangeCreationException(cd,
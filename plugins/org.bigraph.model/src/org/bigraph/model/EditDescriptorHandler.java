@@ -9,6 +9,11 @@ import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 
 final class EditDescriptorHandler
 		extends HandlerUtilities.DescriptorHandlerImpl {
+	EditDescriptorHandler() {
+		super(ChangeDescriptorAddDescriptor.class,
+				ChangeDescriptorRemoveDescriptor.class);
+	}
+	
 	@Override
 	public boolean tryValidateChange(Process context, IChangeDescriptor change)
 			throws ChangeCreationException {
@@ -0,0 +1,1012 @@
+package org.bigraph.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bigraph.model.assistants.ExtendedDataUtilities.ChangeExtendedDataDescriptor;
+import org.bigraph.model.changes.descriptors.BoundDescriptor;
+import org.bigraph.model.changes.descriptors.IChangeDescriptor;
+
+/**
+ * A <strong>FrozenBigraph</strong> is a compact, immutable snapshot of the
+ * structure of a {@link Bigraph}, stored in flat arrays rather than as a
+ * graph of model objects.
+ * <p>Places (that is, {@link Root}s, {@link Node}s and {@link Site}s) are
+ * numbered in breadth-first order, so the roots come first and every place
+ * is numbered after its parent. The place graph is stored as parent,
+ * first-child and next-sibling arrays, and {@link Control}s are stored as
+ * indices into a table of the {@link Control}s actually used.
+ * <p>Points are numbered with the ports of each node first (in place order
+ * and then in port order), followed by the inner names; links are numbered
+ * with the outer names first, followed by the edges. The link graph is
+ * stored both as an array from points to links and as compressed sparse
+ * rows from links to points, the latter preserving the order in which
+ * points were connected.
+ * <p>Only structure and names are captured; extended data (layout
+ * information, colours, comments and so on) is not.
+ * @see #toBigraph()
+ */
+public final class FrozenBigraph {
+	public static final byte ROOT = 0, NODE = 1, SITE = 2;
+	
+	private final Signature signature;
+	private final Control[] controls;
+	
+	private final int rootCount;
+	private final byte[] kind;
+	private final String[] placeNames;
+	private final int[] parent, firstChild, nextSibling, control;
+	private final int[] portStart;
+	
+	private final String[] innerNames;
+	
+	private final int outerNameCount;
+	private final String[] linkNames;
+	private final int[] pointLink, linkStart, linkPoints;
+	
+	/**
+	 * Creates a new {@link FrozenBigraph} from the current state of a
+	 * {@link Bigraph}.
+	 * @param b a {@link Bigraph}, which will not be modified
+	 */
+	public FrozenBigraph(Bigraph b) {
+		signature = b.getSignature();
+		
+		/* Number the places, breadth first */
+		ArrayList<Layoutable> places = new ArrayList<Layoutable>();
+		places.addAll(b.getRoots());
+		rootCount = places.size();
+		IdentityHashMap<Layoutable, Integer> placeIndices =
+				new IdentityHashMap<Layoutable, Integer>();
+		for (int i = 0; i < places.size(); i++) {
+			Layoutable l = places.get(i);
+			placeIndices.put(l, i);
+			if (l instanceof Container)
+				for (Layoutable ch : ((Container)l).getChildren())
+					if (ch instanceof Node || ch instanceof Site)
+						places.add(ch);
+		}
+		
+		int placeCount = places.size();
+		kind = new byte[placeCount];
+		placeNames = new String[placeCount];
+		parent = new int[placeCount];
+		firstChild = new int[placeCount];
+		nextSibling = new int[placeCount];
+		control = new int[placeCount];
+		portStart = new int[placeCount + 1];
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(nextSibling, -1);
+		
+		HashMap<Control, Integer> controlIndices =
+				new HashMap<Control, Integer>();
+		ArrayList<Control> controlList = new ArrayList<Control>();
+		int[] lastChild = new int[placeCount];
+		int portCount = 0;
+		for (int i = 0; i < placeCount; i++) {
+			Layoutable l = places.get(i);
+			placeNames[i] = l.getName();
+			control[i] = -1;
+			portStart[i] = portCount;
+			
+			Container p = l.getParent();
+			if (!(p instanceof Bigraph)) {
+				int pi = placeIndices.get(p);
+				parent[i] = pi;
+				if (firstChild[pi] == -1) {
+					firstChild[pi] = i;
+				} else nextSibling[lastChild[pi]] = i;
+				lastChild[pi] = i;
+			} else {
+				parent[i] = -1;
+				if (i + 1 < rootCount)
+					nextSibling[i] = i + 1;
+			}
+			
+			if (l instanceof Root) {
+				kind[i] = ROOT;
+			} else if (l instanceof Site) {
+				kind[i] = SITE;
+			} else {
+				Node n = (Node)l;
+				kind[i] = NODE;
+				Integer ci = controlIndices.get(n.getControl());
+				if (ci == null) {
+					controlIndices.put(n.getControl(),
+							ci = controlList.size());
+					controlList.add(n.getControl());
+				}
+				control[i] = ci;
+				portCount += n.getPorts().size();
+			}
+		}
+		portStart[placeCount] = portCount;
+		controls = controlList.toArray(new Control[controlList.size()]);
+		
+		/* Number the inner names */
+		IdentityHashMap<InnerName, Integer> innerNameIndices =
+				new IdentityHashMap<InnerName, Integer>();
+		innerNames = new String[b.getInnerNames().size()];
+		for (InnerName i : b.getInnerNames()) {
+			innerNames[innerNameIndices.size()] = i.getName();
+			innerNameIndices.put(i, portCount + innerNameIndices.size());
+		}
+		
+		/* Number the links and build the compressed link-to-point rows */
+		ArrayList<Link> links = new ArrayList<Link>();
+		links.addAll(b.getOuterNames());
+		outerNameCount = links.size();
+		links.addAll(b.getEdges());
+		
+		int linkCount = links.size(), connections = 0;
+		linkNames = new String[linkCount];
+		linkStart = new int[linkCount + 1];
+		for (int i = 0; i < linkCount; i++) {
+			linkNames[i] = links.get(i).getName();
+			linkStart[i] = connections;
+			connections += links.get(i).getPoints().size();
+		}
+		linkStart[linkCount] = connections;
+		
+		linkPoints = new int[connections];
+		pointLink = new int[portCount + innerNames.length];
+		Arrays.fill(pointLink, -1);
+		for (int i = 0, j = 0; i < linkCount; i++) {
+			for (Point p : links.get(i).getPoints()) {
+				int pi;
+				if (p instanceof Port) {
+					Node n = ((Port)p).getParent();
+					pi = portStart[placeIndices.get(n)] +
+							n.getPorts().indexOf(p);
+				} else pi = innerNameIndices.get(p);
+				linkPoints[j++] = pi;
+				pointLink[pi] = i;
+			}
+		}
+	}
+	
+	private FrozenBigraph(Signature signature, Control[] controls,
+			int rootCount, byte[] kind, String[] placeNames, int[] parent,
+			int[] control, int[] portStart, String[] innerNames,
+			int outerNameCount, String[] linkNames, int[] pointLink,
+			int[] linkStart, int[] linkPoints) {
+		this.signature = signature;
+		this.controls = controls;
+		this.rootCount = rootCount;
+		this.kind = kind;
+		this.placeNames = placeNames;
+		this.parent = parent;
+		this.control = control;
+		this.portStart = portStart;
+		this.innerNames = innerNames;
+		this.outerNameCount = outerNameCount;
+		this.linkNames = linkNames;
+		this.pointLink = pointLink;
+		this.linkStart = linkStart;
+		this.linkPoints = linkPoints;
+		
+		int placeCount = kind.length;
+		firstChild = new int[placeCount];
+		nextSibling = new int[placeCount];
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(nextSibling, -1);
+		int[] lastChild = new int[placeCount];
+		for (int i = 0; i < placeCount; i++) {
+			int pi = parent[i];
+			if (pi != -1) {
+				if (firstChild[pi] == -1) {
+					firstChild[pi] = i;
+				} else nextSibling[lastChild[pi]] = i;
+				lastChild[pi] = i;
+			} else if (i + 1 < rootCount)
+				nextSibling[i] = i + 1;
+		}
+	}
+	
+	/**
+	 * A <strong>Builder</strong> assembles a {@link FrozenBigraph} directly,
+	 * without going through a {@link Bigraph}.
+	 * <p>Objects can be added in any order, as long as every place is added
+	 * after its parent; {@link #build()} takes care of numbering them. No
+	 * checks are made on names, so callers must make sure that they're
+	 * unique within each namespace.
+	 */
+	public static final class Builder {
+		private final Signature signature;
+		
+		private int placeCount = 0;
+		private byte[] kind = new byte[16];
+		private String[] placeNames = new String[16];
+		private int[] parent = new int[16];
+		private Control[] control = new Control[16];
+		private int[] firstChild = new int[16], lastChild = new int[16],
+			nextSibling = new int[16];
+		private int rootCount = 0;
+		private int rootHead = -1, rootTail = -1;
+		
+		private final ArrayList<String> innerNames = new ArrayList<String>();
+		
+		private final ArrayList<String>
+			outerNames = new ArrayList<String>(),
+			edges = new ArrayList<String>();
+		
+		/* Connections, in the order they were made: the node (or -1 for an
+		 * inner name), the port (or inner name) and the link handle */
+		private int connectionCount = 0;
+		private int[] connections = new int[48];
+		
+		public Builder(Signature signature) {
+			this.signature = signature;
+		}
+		
+		private int addPlace(byte k, int p, String name, Control c) {
+			if (placeCount == kind.length) {
+				int size = placeCount * 2;
+				kind = Arrays.copyOf(kind, size);
+				placeNames = Arrays.copyOf(placeNames, size);
+				parent = Arrays.copyOf(parent, size);
+				control = Arrays.copyOf(control, size);
+				firstChild = Arrays.copyOf(firstChild, size);
+				lastChild = Arrays.copyOf(lastChild, size);
+				nextSibling = Arrays.copyOf(nextSibling, size);
+			}
+			int i = placeCount++;
+			kind[i] = k;
+			placeNames[i] = name;
+			parent[i] = p;
+			control[i] = c;
+			firstChild[i] = lastChild[i] = nextSibling[i] = -1;
+			if (p != -1) {
+				if (firstChild[p] == -1) {
+					firstChild[p] = i;
+				} else nextSibling[lastChild[p]] = i;
+				lastChild[p] = i;
+			} else {
+				if (rootHead == -1) {
+					rootHead = i;
+				} else nextSibling[rootTail] = i;
+				rootTail = i;
+				rootCount++;
+			}
+			return i;
+		}
+		
+		/**
+		 * Adds a new {@link Root}.
+		 * @param name the root's name
+		 * @return a place handle
+		 */
+		public int addRoot(String name) {
+			return addPlace(ROOT, -1, name, null);
+		}
+		
+		/**
+		 * Adds a new {@link Node}.
+		 * @param parent the handle of a root or node already added to this
+		 * {@link Builder}
+		 * @param name the node's name
+		 * @param control the node's {@link Control}
+		 * @return a place handle
+		 */
+		public int addNode(int parent, String name, Control control) {
+			return addPlace(NODE, parent, name, control);
+		}
+		
+		/**
+		 * Adds a new {@link Site}.
+		 * @param parent the handle of a root or node already added to this
+		 * {@link Builder}
+		 * @param name the site's name
+		 * @return a place handle
+		 */
+		public int addSite(int parent, String name) {
+			return addPlace(SITE, parent, name, null);
+		}
+		
+		/**
+		 * Adds a new {@link InnerName}.
+		 * @param name the inner name's name
+		 * @return an inner name handle
+		 */
+		public int addInnerName(String name) {
+			innerNames.add(name);
+			return innerNames.size() - 1;
+		}
+		
+		/**
+		 * Adds a new {@link OuterName}.
+		 * @param name the outer name's name
+		 * @return a link handle
+		 */
+		public int addOuterName(String name) {
+			outerNames.add(name);
+			return (outerNames.size() - 1) * 2;
+		}
+		
+		/**
+		 * Adds a new {@link Edge}.
+		 * @param name the edge's name
+		 * @return a link handle
+		 */
+		public int addEdge(String name) {
+			edges.add(name);
+			return (edges.size() - 1) * 2 + 1;
+		}
+		
+		private void addConnection(int node, int point, int link) {
+			if (connectionCount * 3 == connections.length)
+				connections = Arrays.copyOf(
+						connections, connections.length * 2);
+			connections[connectionCount * 3] = node;
+			connections[connectionCount * 3 + 1] = point;
+			connections[connectionCount * 3 + 2] = link;
+			connectionCount++;
+		}
+		
+		/**
+		 * Connects one of a node's ports to a link. (Each point should be
+		 * connected at most once.)
+		 * @param node a place handle for a node
+		 * @param port the position of a port of that node's {@link Control}
+		 * @param link a link handle
+		 */
+		public void connectPort(int node, int port, int link) {
+			addConnection(node, port, link);
+		}
+		
+		/**
+		 * Connects an inner name to a link. (Each point should be connected
+		 * at most once.)
+		 * @param innerName an inner name handle
+		 * @param link a link handle
+		 */
+		public void connectInnerName(int innerName, int link) {
+			addConnection(-1, innerName, link);
+		}
+		
+		/**
+		 * Creates a {@link FrozenBigraph} from the objects added to this
+		 * {@link Builder}.
+		 * @return a new {@link FrozenBigraph}
+		 */
+		public FrozenBigraph build() {
+			/* Number the places breadth first, roots first */
+			int[] order = new int[placeCount], index = new int[placeCount];
+			int next = 0;
+			for (int i = rootHead; i != -1; i = nextSibling[i])
+				order[next++] = i;
+			for (int j = 0; j < next; j++)
+				for (int i = firstChild[order[j]]; i != -1;
+						i = nextSibling[i])
+					order[next++] = i;
+			
+			HashMap<Control, Integer> controlIndices =
+					new HashMap<Control, Integer>();
+			ArrayList<Control> controlList = new ArrayList<Control>();
+			byte[] fKind = new byte[placeCount];
+			String[] fPlaceNames = new String[placeCount];
+			int[] fParent = new int[placeCount], fControl = new int[placeCount],
+				fPortStart = new int[placeCount + 1];
+			int portCount = 0;
+			for (int j = 0; j < placeCount; j++) {
+				int i = order[j];
+				index[i] = j;
+				fKind[j] = kind[i];
+				fPlaceNames[j] = placeNames[i];
+				fParent[j] = (parent[i] != -1 ? index[parent[i]] : -1);
+				fPortStart[j] = portCount;
+				if (control[i] != null) {
+					Integer ci = controlIndices.get(control[i]);
+					if (ci == null) {
+						controlIndices.put(control[i],
+								ci = controlList.size());
+						controlList.add(control[i]);
+					}
+					fControl[j] = ci;
+					portCount += control[i].getPorts().size();
+				} else fControl[j] = -1;
+			}
+			fPortStart[placeCount] = portCount;
+			
+			int outerNameCount = outerNames.size(),
+				linkCount = outerNameCount + edges.size();
+			String[] linkNames = new String[linkCount];
+			for (int i = 0; i < outerNameCount; i++)
+				linkNames[i] = outerNames.get(i);
+			for (int i = 0; i < edges.size(); i++)
+				linkNames[outerNameCount + i] = edges.get(i);
+			
+			int[] pointLink = new int[portCount + innerNames.size()],
+				connectionPoints = new int[connectionCount],
+				linkStart = new int[linkCount + 1];
+			Arrays.fill(pointLink, -1);
+			for (int c = 0; c < connectionCount; c++) {
+				int node = connections[c * 3],
+					point = connections[c * 3 + 1],
+					handle = connections[c * 3 + 2],
+					link = ((handle & 1) == 0 ?
+							handle / 2 : outerNameCount + handle / 2);
+				point = (node != -1 ?
+						fPortStart[index[node]] + point : portCount + point);
+				pointLink[point] = link;
+				connectionPoints[c] = point;
+				linkStart[link + 1]++;
+			}
+			for (int i = 0; i < linkCount; i++)
+				linkStart[i + 1] += linkStart[i];
+			int[] linkPoints = new int[connectionCount],
+				fill = Arrays.copyOf(linkStart, linkCount);
+			for (int c = 0; c < connectionCount; c++) {
+				int point = connectionPoints[c];
+				linkPoints[fill[pointLink[point]]++] = point;
+			}
+			
+			return new FrozenBigraph(signature,
+					controlList.toArray(new Control[controlList.size()]),
+					rootCount, fKind, fPlaceNames, fParent, fControl,
+					fPortStart, innerNames.toArray(new String[0]),
+					outerNameCount, linkNames, pointLink, linkStart,
+					linkPoints);
+		}
+	}
+	
+	/**
+	 * Creates a new {@link Bigraph} with the structure recorded in this
+	 * {@link FrozenBigraph}, using the {@link Signature} of the {@link
+	 * Bigraph} it was created from.
+	 * @return a new {@link Bigraph}
+	 */
+	public Bigraph toBigraph() {
+		Bigraph b = new Bigraph();
+		b.setSignature(signature);
+		
+		Point[] points = new Point[getPointCount()];
+		Layoutable[] places = new Layoutable[kind.length];
+		for (int i = 0; i < kind.length; i++) {
+			Layoutable l;
+			if (kind[i] == ROOT) {
+				l = new Root();
+			} else if (kind[i] == SITE) {
+				l = new Site();
+			} else {
+				Node n = new Node(controls[control[i]]);
+				int j = portStart[i];
+				for (Port p : n.getPorts())
+					points[j++] = p;
+				l = n;
+			}
+			add(b, (parent[i] != -1 ? (Container)places[parent[i]] : b),
+					l, placeNames[i]);
+			places[i] = l;
+		}
+		
+		int portCount = getPortCount();
+		for (int i = 0; i < innerNames.length; i++)
+			add(b, b, points[portCount + i] = new InnerName(), innerNames[i]);
+		
+		for (int i = 0; i < linkNames.length; i++) {
+			Link l = (i < outerNameCount ? new OuterName() : new Edge());
+			add(b, b, l, linkNames[i]);
+			for (int j = linkStart[i]; j < linkStart[i + 1]; j++)
+				l.addPoint(points[linkPoints[j]]);
+		}
+		
+		return b;
+	}
+	
+	private static void add(
+			Bigraph b, Container parent, Layoutable l, String name) {
+		l.setName(name);
+		b.getNamespace(l).put(name, l);
+		parent.addChild(l);
+	}
+	
+	/**
+	 * Applies a change to this {@link FrozenBigraph}, without going back to
+	 * a {@link Bigraph}.
+	 * <p>Only structural changes to places, links and inner names are
+	 * understood; changes to extended data are ignored, as extended data
+	 * isn't captured anyway. The result has the same structure and names as
+	 * a {@link FrozenBigraph} of the changed {@link Bigraph} would have,
+	 * although its places, points and links may be numbered differently.
+	 * @param change an {@link IChangeDescriptor} (or a group of them) that
+	 * has been applied to a {@link Bigraph} with the structure of this one
+	 * @return a new {@link FrozenBigraph}, or <code>null</code> if the
+	 * change wasn't understood
+	 */
+	public FrozenBigraph update(IChangeDescriptor change) {
+		Editor e = new Editor(this);
+		return (e.apply(change) ? e.build() : null);
+	}
+	
+	/**
+	 * An <strong>Editor</strong> holds a {@link FrozenBigraph} while it's
+	 * being changed by {@link FrozenBigraph#update(IChangeDescriptor)}.
+	 * <p>Places, inner names and links are given handles in the order in
+	 * which they were created, the existing ones first; removing one just
+	 * clears its name. As every place is created after its parent, building
+	 * the result in handle order keeps children in the order that {@link
+	 * Container}s keep them.
+	 */
+	private static final class Editor {
+		private final Signature signature;
+		
+		private final ArrayList<Byte> kinds = new ArrayList<Byte>();
+		private final ArrayList<String> placeNames = new ArrayList<String>();
+		private final ArrayList<Integer> parents = new ArrayList<Integer>();
+		private final ArrayList<Control> controls = new ArrayList<Control>();
+		/* Place names are only unique within each kind of place */
+		private final List<HashMap<String, Integer>> places =
+				new ArrayList<HashMap<String, Integer>>();
+		
+		private final ArrayList<String> innerNames = new ArrayList<String>();
+		private final HashMap<String, Integer> innerNameHandles =
+				new HashMap<String, Integer>();
+		
+		private final ArrayList<String> linkNames = new ArrayList<String>();
+		private final ArrayList<Boolean> outerNames = new ArrayList<Boolean>();
+		private final HashMap<String, Integer> linkHandles =
+				new HashMap<String, Integer>();
+		
+		/* Connections, in the order that they were made, from points to
+		 * link handles. A port is keyed by its place handle (in the upper
+		 * half) and its position; an inner name by -1 and its handle */
+		private final LinkedHashMap<Long, Integer> connections =
+				new LinkedHashMap<Long, Integer>();
+		
+		private Editor(FrozenBigraph b) {
+			signature = b.signature;
+			for (int i = 0; i <= SITE; i++)
+				places.add(new HashMap<String, Integer>());
+			for (int i = 0; i < b.kind.length; i++)
+				addPlace(b.kind[i], b.parent[i], b.placeNames[i],
+						(b.control[i] != -1 ? b.controls[b.control[i]] : null));
+			for (String name : b.innerNames)
+				addInnerName(name);
+			for (int i = 0; i < b.linkNames.length; i++)
+				addLink(b.linkNames[i], i < b.outerNameCount);
+			
+			int portCount = b.getPortCount();
+			for (int i = 0; i < b.linkPoints.length; i++) {
+				int point = b.linkPoints[i], place = b.getPortPlace(point);
+				connections.put(place != -1 ?
+						key(place, point - b.portStart[place]) :
+						key(-1, point - portCount), b.pointLink[point]);
+			}
+		}
+		
+		private static long key(int place, int point) {
+			return ((long)place << 32) | point;
+		}
+		
+		private void addPlace(byte kind, int parent, String name, Control c) {
+			places.get(kind).put(name, placeNames.size());
+			kinds.add(kind);
+			placeNames.add(name);
+			parents.add(parent);
+			controls.add(c);
+		}
+		
+		private void addInnerName(String name) {
+			innerNameHandles.put(name, innerNames.size());
+			innerNames.add(name);
+		}
+		
+		private void addLink(String name, boolean outerName) {
+			linkHandles.put(name, linkNames.size());
+			linkNames.add(name);
+			outerNames.add(outerName);
+		}
+		
+		private HashMap<String, Integer> getPlaces(Layoutable.Identifier id) {
+			if (id instanceof Root.Identifier) {
+				return places.get(ROOT);
+			} else if (id instanceof Node.Identifier) {
+				return places.get(NODE);
+			} else if (id instanceof Site.Identifier) {
+				return places.get(SITE);
+			} else return null;
+		}
+		
+		private HashMap<String, Integer> getNamespace(
+				Layoutable.Identifier id) {
+			if (id instanceof Link.Identifier) {
+				return linkHandles;
+			} else if (id instanceof InnerName.Identifier) {
+				return innerNameHandles;
+			} else return getPlaces(id);
+		}
+		
+		private int getPlace(Container.Identifier id) {
+			HashMap<String, Integer> ns = getPlaces(id);
+			Integer i = (ns != null ? ns.get(id.getName()) : null);
+			return (i != null ? i : -1);
+		}
+		
+		/**
+		 * Works out the connection key of a point.
+		 * @param id a {@link Point.Identifier}
+		 * @return a key, or <code>null</code> if there's no such point
+		 */
+		private Long getPoint(Point.Identifier id) {
+			if (id instanceof InnerName.Identifier) {
+				Integer i = innerNameHandles.get(id.getName());
+				return (i != null ? key(-1, i) : null);
+			} else if (id instanceof Port.Identifier) {
+				int place = getPlace(((Port.Identifier)id).getNode());
+				if (place == -1)
+					return null;
+				List<? extends PortSpec> ports =
+						controls.get(place).getPorts();
+				for (int i = 0; i < ports.size(); i++)
+					if (ports.get(i).getName().equals(id.getName()))
+						return key(place, i);
+			}
+			return null;
+		}
+		
+		private boolean apply(IChangeDescriptor cd) {
+			if (cd == null) {
+				return true;
+			} else if (cd instanceof IChangeDescriptor.Group) {
+				for (IChangeDescriptor i : (IChangeDescriptor.Group)cd)
+					if (!apply(i))
+						return false;
+				return true;
+			} else if (cd instanceof BoundDescriptor) {
+				return apply(((BoundDescriptor)cd).getDescriptor());
+			} else if (cd instanceof Container.ChangeAddChildDescriptor) {
+				Container.ChangeAddChildDescriptor co =
+						(Container.ChangeAddChildDescriptor)cd;
+				return addChild(co.getParent(), co.getChild());
+			} else if (cd instanceof Container.ChangeRemoveChildDescriptor) {
+				Layoutable.Identifier child =
+						((Container.ChangeRemoveChildDescriptor)cd).getChild();
+				HashMap<String, Integer> ns = getNamespace(child);
+				Integer i = (ns != null ? ns.remove(child.getName()) : null);
+				if (i == null) {
+					return false;
+				} else if (ns == linkHandles) {
+					linkNames.set(i, null);
+				} else if (ns == innerNameHandles) {
+					innerNames.set(i, null);
+				} else placeNames.set(i, null);
+				return true;
+			} else if (cd instanceof Point.ChangeConnectDescriptor) {
+				Point.ChangeConnectDescriptor co =
+						(Point.ChangeConnectDescriptor)cd;
+				Long point = getPoint(co.getPoint());
+				Integer link = linkHandles.get(co.getLink().getName());
+				if (point == null || link == null)
+					return false;
+				connections.remove(point);
+				connections.put(point, link);
+				return true;
+			} else if (cd instanceof Point.ChangeDisconnectDescriptor) {
+				Long point =
+						getPoint(((Point.ChangeDisconnectDescriptor)cd).
+								getPoint());
+				return (point != null && connections.remove(point) != null);
+			} else if (cd instanceof NamedModelObject.ChangeNameDescriptor) {
+				NamedModelObject.ChangeNameDescriptor co =
+						(NamedModelObject.ChangeNameDescriptor)cd;
+				if (!(co.getTarget() instanceof Layoutable.Identifier))
+					return false;
+				return rename((Layoutable.Identifier)co.getTarget(),
+						co.getNewName());
+			} else return (cd instanceof ChangeExtendedDataDescriptor);
+		}
+		
+		private boolean addChild(
+				Container.Identifier parentI, Layoutable.Identifier child) {
+			HashMap<String, Integer> ns = getNamespace(child);
+			String name = child.getName();
+			if (ns == null || ns.containsKey(name))
+				return false;
+			
+			if (parentI instanceof Bigraph.Identifier) {
+				if (child instanceof Root.Identifier) {
+					addPlace(ROOT, -1, name, null);
+				} else if (child instanceof Link.Identifier) {
+					addLink(name, !(child instanceof Edge.Identifier));
+				} else if (child instanceof InnerName.Identifier) {
+					addInnerName(name);
+				} else return false;
+				return true;
+			}
+			
+			int parent = getPlace(parentI);
+			if (parent == -1) {
+				return false;
+			} else if (child instanceof Node.Identifier) {
+				Control c = signature.getControl(
+						((Node.Identifier)child).getControl().getName());
+				if (c == null)
+					return false;
+				addPlace(NODE, parent, name, c);
+			} else if (child instanceof Site.Identifier) {
+				addPlace(SITE, parent, name, null);
+			} else return false;
+			return true;
+		}
+		
+		private boolean rename(Layoutable.Identifier id, String newName) {
+			HashMap<String, Integer> ns = getNamespace(id);
+			if (ns == null || ns.containsKey(newName))
+				return false;
+			Integer i = ns.remove(id.getName());
+			if (i == null)
+				return false;
+			ns.put(newName, i);
+			if (ns == linkHandles) {
+				linkNames.set(i, newName);
+			} else if (ns == innerNameHandles) {
+				innerNames.set(i, newName);
+			} else placeNames.set(i, newName);
+			return true;
+		}
+		
+		private FrozenBigraph build() {
+			Builder b = new Builder(signature);
+			
+			int[] placeHandles = new int[placeNames.size()];
+			for (int i = 0; i < placeHandles.length; i++) {
+				String name = placeNames.get(i);
+				int parent = parents.get(i);
+				if (name == null) {
+					continue;
+				} else if (parent == -1) {
+					placeHandles[i] = b.addRoot(name);
+				} else if (placeNames.get(parent) == null) {
+					/* The parent was removed before its children */
+					return null;
+				} else if (kinds.get(i) == NODE) {
+					placeHandles[i] = b.addNode(
+							placeHandles[parent], name, controls.get(i));
+				} else placeHandles[i] = b.addSite(placeHandles[parent], name);
+			}
+			
+			int[] innerNameHandles = new int[innerNames.size()];
+			for (int i = 0; i < innerNameHandles.length; i++)
+				if (innerNames.get(i) != null)
+					innerNameHandles[i] = b.addInnerName(innerNames.get(i));
+			
+			/* Outer names come before edges */
+			int[] linkHandles = new int[linkNames.size()];
+			for (int i = 0; i < linkHandles.length; i++)
+				if (linkNames.get(i) != null && outerNames.get(i))
+					linkHandles[i] = b.addOuterName(linkNames.get(i));
+			for (int i = 0; i < linkHandles.length; i++)
+				if (linkNames.get(i) != null && !outerNames.get(i))
+					linkHandles[i] = b.addEdge(linkNames.get(i));
+			
+			for (Map.Entry<Long, Integer> e : connections.entrySet()) {
+				int place = (int)(e.getKey() >> 32),
+					point = (int)e.getKey().longValue(),
+					link = e.getValue();
+				if (linkNames.get(link) == null ||
+						(place != -1 ? placeNames.get(place) :
+							innerNames.get(point)) == null) {
+					/* Something was removed while still connected */
+					return null;
+				} else if (place != -1) {
+					b.connectPort(
+							placeHandles[place], point, linkHandles[link]);
+				} else b.connectInnerName(
+						innerNameHandles[point], linkHandles[link]);
+			}
+			
+			return b.build();
+		}
+	}
+	
+	public Signature getSignature() {
+		return signature;
+	}
+	
+	/**
+	 * Returns the number of distinct {@link Control}s used by this {@link
+	 * FrozenBigraph}'s nodes.
+	 * @return a count of {@link Control}s
+	 */
+	public int getControlCount() {
+		return controls.length;
+	}
+	
+	/**
+	 * Returns the {@link Control} with the given index.
+	 * @param id a control index, as returned by {@link
+	 * #getPlaceControl(int)}
+	 * @return a {@link Control}
+	 */
+	public Control getControl(int id) {
+		return controls[id];
+	}
+	
+	public List<Control> getControls() {
+		return Arrays.asList(controls.clone());
+	}
+	
+	public int getPlaceCount() {
+		return kind.length;
+	}
+	
+	/**
+	 * Returns the number of roots; these are always places
+	 * <code>0</code> to <code>getRootCount() - 1</code>.
+	 * @return a count of roots
+	 */
+	public int getRootCount() {
+		return rootCount;
+	}
+	
+	/**
+	 * Returns the kind of a place.
+	 * @param place a place index
+	 * @return one of {@link #ROOT}, {@link #NODE} or {@link #SITE}
+	 */
+	public byte getKind(int place) {
+		return kind[place];
+	}
+	
+	public String getPlaceName(int place) {
+		return placeNames[place];
+	}
+	
+	/**
+	 * Returns the parent of a place.
+	 * @param place a place index
+	 * @return a place index, or <code>-1</code> if <code>place</code> is a
+	 * root
+	 */
+	public int getParent(int place) {
+		return parent[place];
+	}
+	
+	/**
+	 * Returns the first child of a place.
+	 * @param place a place index
+	 * @return a place index, or <code>-1</code> if <code>place</code> has
+	 * no children
+	 * @see #getNextSibling(int)
+	 */
+	public int getFirstChild(int place) {
+		return firstChild[place];
+	}
+	
+	/**
+	 * Returns the next child of the parent of a place.
+	 * @param place a place index
+	 * @return a place index, or <code>-1</code> if <code>place</code> is
+	 * its parent's last child (or the last root)
+	 */
+	public int getNextSibling(int place) {
+		return nextSibling[place];
+	}
+	
+	/**
+	 * Returns the index of the {@link Control} of a place.
+	 * @param place a place index
+	 * @return a control index, or <code>-1</code> if <code>place</code> is
+	 * not a node
+	 * @see #getControl(int)
+	 */
+	public int getPlaceControl(int place) {
+		return control[place];
+	}
+	
+	/**
+	 * Returns the number of ports on a place.
+	 * @param place a place index
+	 * @return a count of ports (always <code>0</code> for roots and sites)
+	 */
+	public int getPortCount(int place) {
+		return portStart[place + 1] - portStart[place];
+	}
+	
+	/**
+	 * Returns the point index of one of the ports of a place.
+	 * @param place a place index
+	 * @param port a port position, less than {@link #getPortCount(int)}
+	 * @return a point index
+	 */
+	public int getPort(int place, int port) {
+		return portStart[place] + port;
+	}
+	
+	/**
+	 * Returns the place to which a point belongs.
+	 * @param point a point index
+	 * @return a place index, or <code>-1</code> if <code>point</code> is an
+	 * inner name
+	 */
+	public int getPortPlace(int point) {
+		if (point >= getPortCount())
+			return -1;
+		/* Find the last place whose ports start at or before point */
+		int low = 0, high = kind.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (portStart[mid] <= point) {
+				low = mid;
+			} else high = mid - 1;
+		}
+		return low;
+	}
+	
+	/**
+	 * Returns the total number of ports.
+	 * @return a count of ports
+	 */
+	public int getPortCount() {
+		return portStart[kind.length];
+	}
+	
+	public int getPointCount() {
+		return pointLink.length;
+	}
+	
+	public int getInnerNameCount() {
+		return innerNames.length;
+	}
+	
+	/**
+	 * Returns the point index of an inner name.
+	 * @param innerName an inner name position, less than {@link
+	 * #getInnerNameCount()}
+	 * @return a point index
+	 */
+	public int getInnerName(int innerName) {
+		return getPortCount() + innerName;
+	}
+	
+	public String getInnerNameName(int innerName) {
+		return innerNames[innerName];
+	}
+	
+	public int getLinkCount() {
+		return linkNames.length;
+	}
+	
+	/**
+	 * Returns the number of outer names; these are always links
+	 * <code>0</code> to <code>getOuterNameCount() - 1</code>.
+	 * @return a count of outer names
+	 */
+	public int getOuterNameCount() {
+		return outerNameCount;
+	}
+	
+	public String getLinkName(int link) {
+		return linkNames[link];
+	}
+	
+	/**
+	 * Returns the link to which a point is connected.
+	 * @param point a point index
+	 * @return a link index, or <code>-1</code> if <code>point</code> is not
+	 * connected
+	 */
+	public int getLink(int point) {
+		return pointLink[point];
+	}
+	
+	public int getLinkPointCount(int link) {
+		return linkStart[link + 1] - linkStart[link];
+	}
+	
+	/**
+	 * Returns one of the points connected to a link.
+	 * @param link a link index
+	 * @param i a position, less than {@link #getLinkPointCount(int)}
+	 * @return a point index
+	 */
+	public int getLinkPoint(int link, int i) {
+		return linkPoints[linkStart[link] + i];
+	}
+}
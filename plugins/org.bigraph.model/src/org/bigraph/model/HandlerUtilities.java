@@ -8,6 +8,7 @@ import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
 import org.bigraph.model.changes.descriptors.ChangeCreationException;
 import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 import org.bigraph.model.changes.descriptors.IDescriptorStepExecutor;
+import org.bigraph.model.changes.descriptors.IDescriptorStepFilter;
 import org.bigraph.model.changes.descriptors.IDescriptorStepValidator;
 import org.bigraph.model.names.Namespace;
 import org.bigraph.model.names.policies.INamePolicy;
@@ -17,15 +18,30 @@ abstract class HandlerUtilities {
 	private HandlerUtilities() {}
 	
 	abstract static class HandlerImpl extends DescriptorHandlerImpl {
+		HandlerImpl(Class<?>... descriptorClasses) {
+			super(descriptorClasses);
+		}
 	}
 	
 	abstract static class DescriptorHandlerImpl
-			implements IDescriptorStepExecutor, IDescriptorStepValidator {
+			implements IDescriptorStepExecutor, IDescriptorStepValidator,
+			IDescriptorStepFilter {
+		private final Class<?>[] descriptorClasses;
+		
+		DescriptorHandlerImpl(Class<?>... descriptorClasses) {
+			this.descriptorClasses = descriptorClasses;
+		}
+		
 		@Override
 		public void setHost(IParticipantHost host) {
 			/* do nothing */
 		}
 		
+		@Override
+		public Class<?>[] getDescriptorClasses() {
+			return descriptorClasses.clone();
+		}
+		
 		protected static <T> T tryLookup(IChangeDescriptor cd, Identifier id,
 				PropertyScratchpad scratch, Resolver resolver, Class<T> klass)
 				throws ChangeCreationException {
@@ -38,6 +54,13 @@ abstract class HandlerUtilities {
 		}
 	}
 	
+	static void checkWritable(IChangeDescriptor cd, ModelObject mo)
+			throws ChangeCreationException {
+		if (mo != null && mo.isReadOnly())
+			throw new ChangeCreationException(cd,
+					"" + mo + " is shared and read-only");
+	}
+	
 	static void checkAddBounds(
 			IChangeDescriptor cd, List<?> l, int position)
 			throws ChangeCreationException {
@@ -1,5 +1,8 @@
 package org.bigraph.model;
 
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.bigraph.model.ModelObject;
 import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
 import org.bigraph.model.assistants.PropertyScratchpad;
@@ -59,7 +62,7 @@ public abstract class Layoutable extends NamedModelObject {
 			context.<Layoutable>getModifiableSet(
 					c, Container.PROPERTY_CHILD, c.getChildren()).
 				remove(l);
-			context.setProperty(l, Layoutable.PROPERTY_PARENT, null);
+			l.setParent(context, null);
 			
 			c.getBigraph(context).getNamespace(l).
 					remove(context, l.getName(context));
@@ -71,8 +74,64 @@ public abstract class Layoutable extends NamedModelObject {
 		DescriptorExecutorManager.getInstance().addParticipant(new LayoutableHandler());
 	}
 	
+	/**
+	 * Incremented whenever an object with descendants changes its parent,
+	 * which makes every cached ancestry stale.
+	 */
+	private static final AtomicLong ANCESTRY = new AtomicLong();
+	
 	private Container parent = null;
 	
+	/**
+	 * The {@link Bigraph} that ultimately contains this object, and the
+	 * number of ancestors this object has, as they were when {@link #ANCESTRY}
+	 * had the value {@link #ancestry}; both are recalculated on demand by
+	 * {@link #validateAncestry()}.
+	 */
+	private Bigraph bigraph = null;
+	private int depth = 0;
+	private long ancestry = -1;
+	
+	/**
+	 * Makes the cached ancestry of every {@link Layoutable} stale.
+	 */
+	static void invalidateAncestries() {
+		ANCESTRY.incrementAndGet();
+	}
+	
+	/**
+	 * Brings this object's cached ancestry up to date, walking up the
+	 * hierarchy only as far as the first ancestor whose cache is current.
+	 */
+	private void validateAncestry() {
+		long current = ANCESTRY.get();
+		if (ancestry == current)
+			return;
+		ArrayList<Layoutable> stale = new ArrayList<Layoutable>();
+		Layoutable l = this;
+		do {
+			stale.add(l);
+			l = l.getParent();
+		} while (l != null && !(l instanceof Bigraph) &&
+				l.ancestry != current);
+		
+		Bigraph b = null;
+		int d = -1;
+		if (l instanceof Bigraph) {
+			b = (Bigraph)l;
+			d = 0;
+		} else if (l != null) {
+			b = l.bigraph;
+			d = l.depth;
+		}
+		for (int i = stale.size() - 1; i >= 0; i--) {
+			l = stale.get(i);
+			l.bigraph = b;
+			l.depth = ++d;
+			l.ancestry = current;
+		}
+	}
+	
 	/**
 	 * Returns the {@link Bigraph} that ultimately contains this object.
 	 * @return a Bigraph
@@ -82,9 +141,42 @@ public abstract class Layoutable extends NamedModelObject {
 	}
 
 	public Bigraph getBigraph(PropertyScratchpad context) {
-		if (getParent(context) == null) {
-			return null;
-		} else return getParent(context).getBigraph(context);
+		if (context == null) {
+			validateAncestry();
+			return bigraph;
+		}
+		Layoutable l = this;
+		Container p;
+		while ((p = l.getParent(context)) != null)
+			l = p;
+		return (l instanceof Bigraph ? (Bigraph)l : null);
+	}
+	
+	@Override
+	protected ModelObject getGenerationOwner() {
+		Bigraph b = getBigraph();
+		return (b != null ? b : this);
+	}
+	
+	/**
+	 * Returns the number of ancestors this object has. (A {@link Bigraph}'s
+	 * depth is zero, a {@link Root}'s is one, and so on.)
+	 * @return a depth
+	 */
+	public int getDepth() {
+		return getDepth(null);
+	}
+	
+	public int getDepth(PropertyScratchpad context) {
+		if (context == null) {
+			validateAncestry();
+			return depth;
+		}
+		int d = 0;
+		for (Container p = getParent(context); p != null;
+				p = p.getParent(context))
+			d++;
+		return d;
 	}
 	
 	/**
@@ -105,10 +197,26 @@ public abstract class Layoutable extends NamedModelObject {
 	 */
 	void setParent(Container parent) {
 		Container oldParent = this.parent;
+		Bigraph oldBigraph = getBigraph();
 		this.parent = parent;
+		ancestryChanged(oldBigraph);
 		firePropertyChange(PROPERTY_PARENT, oldParent, parent);
 	}
 	
+	void setParent(PropertyScratchpad context, Container parent) {
+		context.setProperty(this, PROPERTY_PARENT, parent);
+	}
+	
+	/**
+	 * Discards the cached ancestry of this object (and, in subclasses, of
+	 * the objects beneath it) after its parent has changed.
+	 * @param oldBigraph the {@link Bigraph} that contained this object
+	 * before the change
+	 */
+	void ancestryChanged(Bigraph oldBigraph) {
+		ancestry = -1;
+	}
+	
 	protected Layoutable clone(Bigraph m) {
 		Layoutable l = (Layoutable)super.clone();
 		m.getNamespace(l).put(getName(), l);
@@ -129,6 +237,8 @@ public abstract class Layoutable extends NamedModelObject {
 	@Override
 	public void dispose() {
 		parent = null;
+		bigraph = null;
+		ancestry = -1;
 		
 		super.dispose();
 	}
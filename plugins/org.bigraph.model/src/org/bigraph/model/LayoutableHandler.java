@@ -7,6 +7,10 @@ import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 import org.bigraph.model.names.Namespace;
 
 final class LayoutableHandler extends HandlerUtilities.HandlerImpl {
+	LayoutableHandler() {
+		super(Layoutable.ChangeRemove.class);
+	}
+	
 	@Override
 	public boolean executeChange(Resolver resolver, IChangeDescriptor b) {
 		if (b instanceof Layoutable.ChangeRemove) {
@@ -1,11 +1,12 @@
 package org.bigraph.model;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.bigraph.model.assistants.PropertyScratchpad;
 import org.bigraph.model.assistants.RedProperty;
 import org.bigraph.model.interfaces.ILink;
+import org.bigraph.model.utilities.LinkedSetList;
 
 /**
  * A Link is the superclass of {@link Edge}s and {@link OuterName}s &mdash;
@@ -21,9 +22,10 @@ public abstract class Link extends Layoutable implements ILink {
 	public static final String PROPERTY_POINT = "LinkPoint";
 	
 	/**
-	 * The {@link Point}s connected to this Link on the bigraph.
+	 * The {@link Point}s connected to this Link on the bigraph, in the order
+	 * in which they were connected.
 	 */
-	private ArrayList<Point> points = new ArrayList<Point>();
+	private LinkedSetList<Point> points = new LinkedSetList<Point>();
 	
 	/**
 	 * Adds the given {@link Point} to this Link's set of points.
@@ -58,6 +60,29 @@ public abstract class Link extends Layoutable implements ILink {
 		return getProperty(context, PROPERTY_POINT, List.class);
 	}
 	
+	private static final class PointsHelper implements
+			PropertyScratchpad.Helper<Collection<? extends Point>, List<Point>> {
+		private final boolean sharing;
+		
+		private PointsHelper(PropertyScratchpad context) {
+			sharing = context.isSharing();
+		}
+		
+		@Override
+		public List<Point> newInstance(Collection<? extends Point> in) {
+			if (!sharing) {
+				LinkedSetList<Point> l = new LinkedSetList<Point>();
+				l.addAll(in);
+				return l;
+			} else return new LinkedSetList<Point>(in);
+		}
+	}
+	
+	List<Point> getModifiablePoints(PropertyScratchpad context) {
+		return context.getModifiableComplexObject(
+				new PointsHelper(context), this, PROPERTY_POINT, points);
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 * <p><strong>Special notes for {@link Link}:</strong>
@@ -4,6 +4,7 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import org.bigraph.model.assistants.IObjectIdentifier;
 import org.bigraph.model.assistants.PropertyScratchpad;
@@ -55,9 +56,60 @@ public abstract class ModelObject {
 	 */
 	protected void firePropertyChange(String propertyName, Object oldValue,
 			Object newValue) {
+		incrementGeneration();
 		listeners.firePropertyChange(propertyName, oldValue, newValue);
 	}
 	
+	private static final AtomicLongFieldUpdater<ModelObject> GENERATION =
+			AtomicLongFieldUpdater.newUpdater(ModelObject.class, "generation");
+	
+	private volatile long generation = 0;
+	
+	/**
+	 * Returns the object whose generation counter records changes to this
+	 * one. By default, this is the object itself; objects that are part of
+	 * a larger structure, like the {@link Layoutable}s in a {@link Bigraph},
+	 * share the counter of that structure.
+	 * @return a {@link ModelObject}
+	 */
+	protected ModelObject getGenerationOwner() {
+		return this;
+	}
+	
+	/**
+	 * Records that this object has changed, so that {@link
+	 * org.bigraph.model.changes.descriptors.ValidatedChange ValidatedChange}s
+	 * that depend on it will be validated again before being committed.
+	 * <p>{@link #firePropertyChange(String, Object, Object)} calls this
+	 * method automatically.
+	 */
+	public final void incrementGeneration() {
+		GENERATION.incrementAndGet(getGenerationOwner());
+	}
+	
+	/**
+	 * Returns the values of the generation counters of this object and of
+	 * everything that changes made through it could depend on. If any of
+	 * them changes, the returned array will be different.
+	 * @return an array of generation counter values
+	 */
+	public long[] getGenerations() {
+		return new long[] { getGenerationOwner().generation };
+	}
+	
+	/**
+	 * Indicates whether or not this object is read-only, in which case the
+	 * validator will reject changes to it. By default, objects are
+	 * read-only if their {@link #getGenerationOwner() generation owner} is.
+	 * @return <code>true</code> if this object must not be modified, or
+	 * <code>false</code> otherwise
+	 * @see Signature#setReadOnly(boolean)
+	 */
+	public boolean isReadOnly() {
+		ModelObject owner = getGenerationOwner();
+		return (owner != this && owner.isReadOnly());
+	}
+	
 	/**
 	 * Returns a new instance of this {@link ModelObject}'s class,
 	 * created as though by <code>this.getClass().newInstance()</code>.
@@ -8,6 +8,10 @@ import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 
 final class NamedModelObjectDescriptorHandler
 		extends HandlerUtilities.DescriptorHandlerImpl {
+	NamedModelObjectDescriptorHandler() {
+		super(ChangeNameDescriptor.class);
+	}
+	
 	@Override
 	public boolean tryValidateChange(Process context, IChangeDescriptor change)
 			throws ChangeCreationException {
@@ -18,6 +22,7 @@ final class NamedModelObjectDescriptorHandler
 			
 			NamedModelObject object = tryLookup(cd,
 					cd.getTarget(), scratch, resolver, NamedModelObject.class);
+			HandlerUtilities.checkWritable(cd, object);
 			
 			HandlerUtilities.checkName(scratch, cd, cd.getTarget(),
 					object.getGoverningNamespace(scratch), cd.getNewName());
@@ -35,7 +35,12 @@ public class Node extends Container implements INode {
 	@Override
 	protected Node clone(Bigraph m) {
 		Node n = (Node)super.clone(m);
-		n.setControl(getControl().getIdentifier().lookup(null, m));
+		Control c = (m.getSignature() == getBigraph().getSignature() ?
+				getControl() : getControl().getIdentifier().lookup(null, m));
+		/* newInstance() has already given n this Node's Control and created
+		 * its ports, so only replace them if they're different */
+		if (c != n.getControl())
+			n.setControl(c);
 		return n;
 	}
 	
@@ -65,6 +70,14 @@ public class Node extends Container implements INode {
 		return ports;
 	}
 	
+	@Override
+	void ancestryChanged(Bigraph oldBigraph) {
+		super.ancestryChanged(oldBigraph);
+		if (ports != null)
+			for (Port p : ports)
+				p.ancestryChanged(oldBigraph);
+	}
+	
 	public Port getPort(String name) {
 		for (Port p : getPorts())
 			if (p.getName().equals(name))
@@ -79,17 +92,17 @@ public class Node extends Container implements INode {
 
 	@Override
 	public Collection<? extends Node> getNodes() {
-		return only(null, Node.class);
+		return only(Node.class);
 	}
 
 	@Override
 	public Collection<? extends Site> getSites() {
-		return only(null, Site.class);
+		return only(Site.class);
 	}
 	
 	@Override
 	public Collection<? extends IChild> getIChildren() {
-		return only(null, IChild.class);
+		return only(IChild.class);
 	}
 	
 	public static final class Identifier extends Container.Identifier {
@@ -117,8 +117,7 @@ public abstract class Point extends Layoutable implements IPoint {
 		public void simulate(PropertyScratchpad context, Resolver r) {
 			Point p = getPoint().lookup(context, r);
 			Link l = getLink().lookup(context, r);
-			context.<Point>getModifiableList(
-					l, Link.PROPERTY_POINT, l.getPoints()).add(p);
+			l.getModifiablePoints(context).add(p);
 			context.setProperty(p, Point.PROPERTY_LINK, l);
 		}
 		
@@ -174,8 +173,7 @@ public abstract class Point extends Layoutable implements IPoint {
 			Point p = getPoint().lookup(context, r);
 			Link l = getLink().lookup(context, r);
 			
-			context.<Point>getModifiableList(
-					l, Link.PROPERTY_POINT, l.getPoints()).remove(p);
+			l.getModifiablePoints(context).remove(p);
 			context.setProperty(p, Point.PROPERTY_LINK, null);
 		}
 		
@@ -9,6 +9,10 @@ import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 
 final class PointDescriptorHandler
 		extends HandlerUtilities.DescriptorHandlerImpl {
+	PointDescriptorHandler() {
+		super(ChangeConnectDescriptor.class, ChangeDisconnectDescriptor.class);
+	}
+	
 	@Override
 	public boolean tryValidateChange(Process context, IChangeDescriptor change)
 			throws ChangeCreationException {
@@ -29,6 +29,11 @@ public class PortSpec extends NamedModelObject implements IPort {
 		return control;
 	}
 	
+	@Override
+	protected ModelObject getGenerationOwner() {
+		return (control != null ? control.getGenerationOwner() : this);
+	}
+	
 	public Control getControl(PropertyScratchpad context) {
 		return getProperty(context, PROPERTY_CONTROL, Control.class);
 	}
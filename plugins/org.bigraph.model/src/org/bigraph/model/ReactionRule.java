@@ -1,7 +1,18 @@
 package org.bigraph.model;
 
-import java.util.Iterator;
-import org.bigraph.model.ModelObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.bigraph.model.Container.ChangeAddChildDescriptor;
+import org.bigraph.model.Container.ChangeRemoveChildDescriptor;
+import org.bigraph.model.NamedModelObject.ChangeNameDescriptor;
+import org.bigraph.model.Point.ChangeConnectDescriptor;
+import org.bigraph.model.Point.ChangeDisconnectDescriptor;
 import org.bigraph.model.assistants.DescriptorConflicts;
 import org.bigraph.model.assistants.DescriptorConflicts.IConflict;
 import org.bigraph.model.changes.descriptors.ChangeCreationException;
@@ -23,73 +34,12 @@ public class ReactionRule extends ModelObject {
 	}
 	
 	public Bigraph createReactum() throws ChangeCreationException {
-		Bigraph reactum = redex.clone();
+		Bigraph reactum = redex.clone(redex.getSignature());
 		DescriptorExecutorManager.getInstance().tryApplyChange(
 				reactum, getEdit());
 		return reactum;
 	}
 	
-	protected static abstract class OperationRunner {
-		protected abstract ChangeDescriptorGroup runStepActual(
-				IChangeDescriptor redexCD, ChangeDescriptorGroup reactumCDs,
-				IChangeDescriptor reactumCD);
-		
-		protected final ChangeDescriptorGroup runStep(
-				IChangeDescriptor redexCD, ChangeDescriptorGroup reactumCDs) {
-			for (int i = 0; i < reactumCDs.size(); i++) {
-				IChangeDescriptor c = reactumCDs.get(i);
-				ChangeDescriptorGroup cdg = null;
-				if (c instanceof ChangeDescriptorGroup) {
-					cdg = runStep(redexCD, (ChangeDescriptorGroup)c);
-					if (cdg != null) {
-						/* c is a subgroup, so move cdg into a copy of c and
-						 * return that */
-						reactumCDs = reactumCDs.clone();
-						if (cdg.size() != 0) {
-							reactumCDs.set(i, cdg);
-						} else reactumCDs.remove(i);
-						return reactumCDs;
-					}
-				} else {
-					cdg = runStepActual(redexCD, reactumCDs, c);
-					if (cdg != null)
-						/* c isn't a subgroup, so just return cdg directly */
-						return cdg;
-				}
-			}
-			return null;
-		}
-		
-		public final ChangeDescriptorGroup run(
-				ChangeDescriptorGroup linearisedRedexCDs,
-				ChangeDescriptorGroup reactumCDs) {
-			ChangeDescriptorGroup cdg;
-			Iterator<IChangeDescriptor> it = linearisedRedexCDs.iterator();
-			while (it.hasNext()) {
-				IChangeDescriptor ice = it.next();
-				cdg = runStep(ice, reactumCDs);
-				if (cdg != null) {
-					reactumCDs = cdg;
-					it.remove();
-				}
-			}
-			return reactumCDs;
-		}
-	}
-	
-	protected static class Operation2Runner extends OperationRunner {
-		@Override
-		protected ChangeDescriptorGroup runStepActual(
-				IChangeDescriptor redexCD, ChangeDescriptorGroup reactumCDs,
-				IChangeDescriptor reactumCD) {
-			if (redexCD.equals(reactumCD)) {
-				reactumCDs = reactumCDs.clone();
-				reactumCDs.remove(reactumCD);
-				return reactumCDs;
-			} else return null;
-		}
-	}
-	
 	private static final IConflict dcs[] = {
 		DescriptorConflicts.ADD_ADD,
 		DescriptorConflicts.ADD_REM,
@@ -103,32 +53,320 @@ public class ReactionRule extends ModelObject {
 		DescriptorConflicts.REN_REN
 	};
 	
-	protected static class Operation3PrimeRunner extends OperationRunner {
-		private static boolean conflicts(
-				IChangeDescriptor redexCD, IChangeDescriptor reactumCD) {
-			for (IConflict i : dcs)
-				if (i.run(redexCD, reactumCD))
-					return true;
-			return false;
+	private static boolean conflicts(
+			IChangeDescriptor redexCD, IChangeDescriptor reactumCD) {
+		for (IConflict i : dcs)
+			if (i.run(redexCD, reactumCD))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * A <strong>Fixups</strong> object holds the working state of a single
+	 * call to {@link ReactionRule#performFixups(ChangeDescriptorGroup,
+	 * ChangeDescriptorGroup)}.
+	 * <p>The reactum's change descriptors are flattened into a list of
+	 * {@link Entry Entries}, ordered as a depth-first walk of the group
+	 * would visit them, and indexed by the identifiers that the {@link
+	 * DescriptorConflicts} compare; each fixup then only needs to look at
+	 * the descriptors that share an identifier with it, rather than at the
+	 * whole group. Only the groups that were actually changed are copied.
+	 */
+	private static final class Fixups {
+		/* The identifier roles that conflicts are detected between */
+		private static final int
+			ADD_CHILD = 0, ADD_PARENT = 1, REM_CHILD = 2, REM_PARENT = 3,
+			CON_POINT = 4, CON_NODE = 5, CON_LINK = 6, DIS_POINT = 7,
+			REN_TARGET = 8, ROLES = 9;
+		
+		private static final Comparator<Entry> ORDER =
+				new Comparator<Entry>() {
+			@Override
+			public int compare(Entry a, Entry b) {
+				int[] p = a.position, q = b.position;
+				for (int i = 0; i < p.length && i < q.length; i++)
+					if (p[i] != q[i])
+						return (p[i] < q[i] ? -1 : 1);
+				return p.length - q.length;
+			}
+		};
+		
+		/**
+		 * A <strong>Group</strong> is a {@link ChangeDescriptorGroup} in the
+		 * reactum, together with the descriptors that have been inserted at
+		 * its start.
+		 */
+		private static final class Group {
+			private final ChangeDescriptorGroup original;
+			private final Group parent;
+			private final int[] position;
+			private final ArrayList<Object> items = new ArrayList<Object>();
+			private final LinkedList<IChangeDescriptor> inserted =
+					new LinkedList<IChangeDescriptor>();
+			private boolean changed = false;
+			
+			private Group(ChangeDescriptorGroup original, Group parent,
+					int[] position) {
+				this.original = original;
+				this.parent = parent;
+				this.position = position;
+			}
+			
+			private void markChanged() {
+				for (Group g = this; g != null && !g.changed; g = g.parent)
+					g.changed = true;
+			}
 		}
 		
-		@Override
-		protected ChangeDescriptorGroup runStepActual(
-				IChangeDescriptor redexCD, ChangeDescriptorGroup reactumCDs,
-				IChangeDescriptor reactumCD) {
-			if (conflicts(redexCD, reactumCD)) {
-				reactumCDs = reactumCDs.clone();
-				reactumCDs.add(0, redexCD.inverse());
-				return reactumCDs;
-			} else return null;
+		/**
+		 * An <strong>Entry</strong> is a single (non-group) descriptor in
+		 * the reactum. Its position is the list of indices that lead to it
+		 * from the top of the reactum; descriptors inserted at the start of
+		 * a group are given negative indices.
+		 */
+		private static final class Entry {
+			private final IChangeDescriptor descriptor;
+			private final Group group;
+			private final int[] position;
+			private boolean removed = false;
+			
+			private Entry(IChangeDescriptor descriptor, Group group,
+					int[] position) {
+				this.descriptor = descriptor;
+				this.group = group;
+				this.position = position;
+			}
+		}
+		
+		private final Group top;
+		private final ArrayList<Entry> entries = new ArrayList<Entry>();
+		private final List<HashMap<Object, TreeSet<Entry>>> roles =
+				new ArrayList<HashMap<Object, TreeSet<Entry>>>(ROLES);
+		
+		private Fixups(ChangeDescriptorGroup reactumCDs) {
+			top = new Group(reactumCDs, null, new int[0]);
+			flatten(top);
+			for (int i = 0; i < ROLES; i++)
+				roles.add(new HashMap<Object, TreeSet<Entry>>());
+		}
+		
+		private void flatten(Group g) {
+			for (int i = 0; i < g.original.size(); i++) {
+				IChangeDescriptor c = g.original.get(i);
+				int[] position = Arrays.copyOf(
+						g.position, g.position.length + 1);
+				position[g.position.length] = i;
+				if (c instanceof ChangeDescriptorGroup) {
+					Group h = new Group((ChangeDescriptorGroup)c, g, position);
+					g.items.add(h);
+					flatten(h);
+				} else {
+					Entry e = new Entry(c, g, position);
+					g.items.add(e);
+					entries.add(e);
+				}
+			}
+		}
+		
+		private static void put(
+				HashMap<Object, TreeSet<Entry>> index, Object key, Entry e) {
+			if (key == null)
+				return;
+			TreeSet<Entry> s = index.get(key);
+			if (s == null)
+				index.put(key, s = new TreeSet<Entry>(ORDER));
+			s.add(e);
+		}
+		
+		private static Object getNode(Point.Identifier point) {
+			return (point instanceof Port.Identifier ?
+					((Port.Identifier)point).getNode() : point);
+		}
+		
+		private void index(Entry e) {
+			IChangeDescriptor c = e.descriptor;
+			if (c instanceof ChangeAddChildDescriptor) {
+				ChangeAddChildDescriptor cd = (ChangeAddChildDescriptor)c;
+				put(roles.get(ADD_CHILD), cd.getChild(), e);
+				put(roles.get(ADD_PARENT), cd.getParent(), e);
+			} else if (c instanceof ChangeRemoveChildDescriptor) {
+				ChangeRemoveChildDescriptor cd = (ChangeRemoveChildDescriptor)c;
+				put(roles.get(REM_CHILD), cd.getChild(), e);
+				put(roles.get(REM_PARENT), cd.getParent(), e);
+			} else if (c instanceof ChangeConnectDescriptor) {
+				ChangeConnectDescriptor cd = (ChangeConnectDescriptor)c;
+				put(roles.get(CON_POINT), cd.getPoint(), e);
+				put(roles.get(CON_NODE), getNode(cd.getPoint()), e);
+				put(roles.get(CON_LINK), cd.getLink(), e);
+			} else if (c instanceof ChangeDisconnectDescriptor) {
+				put(roles.get(DIS_POINT),
+						((ChangeDisconnectDescriptor)c).getPoint(), e);
+			} else if (c instanceof ChangeNameDescriptor) {
+				put(roles.get(REN_TARGET),
+						((ChangeNameDescriptor)c).getTarget(), e);
+			}
+		}
+		
+		/**
+		 * Operation 2: removes from the reactum the first descriptor equal
+		 * to each redex descriptor, and removes those redex descriptors.
+		 */
+		private void removeEqual(ChangeDescriptorGroup lRedexCDs) {
+			HashMap<IChangeDescriptor, TreeSet<Entry>> equal =
+					new HashMap<IChangeDescriptor, TreeSet<Entry>>();
+			for (Entry e : entries) {
+				if (e.descriptor == null)
+					continue;
+				TreeSet<Entry> s = equal.get(e.descriptor);
+				if (s == null)
+					equal.put(e.descriptor, s = new TreeSet<Entry>(ORDER));
+				s.add(e);
+			}
+			
+			ChangeDescriptorGroup remaining = new ChangeDescriptorGroup();
+			for (IChangeDescriptor redexCD : lRedexCDs) {
+				TreeSet<Entry> s =
+						(redexCD != null ? equal.get(redexCD) : null);
+				if (s != null && !s.isEmpty()) {
+					Entry e = s.pollFirst();
+					e.removed = true;
+					e.group.markChanged();
+				} else remaining.add(redexCD);
+			}
+			if (remaining.size() != lRedexCDs.size()) {
+				lRedexCDs.clear();
+				lRedexCDs.addAll(remaining);
+			}
+		}
+		
+		private Entry findFirst(int role, Object key, IChangeDescriptor redexCD,
+				Entry best) {
+			if (key == null)
+				return best;
+			TreeSet<Entry> s = roles.get(role).get(key);
+			if (s == null)
+				return best;
+			for (Entry e : s) {
+				if (best != null && ORDER.compare(e, best) >= 0)
+					break;
+				if (conflicts(redexCD, e.descriptor))
+					return e;
+			}
+			return best;
+		}
+		
+		/**
+		 * Finds the first reactum descriptor that conflicts with a redex
+		 * descriptor.
+		 * @param c a redex descriptor
+		 * @return an {@link Entry}, or <code>null</code> if nothing conflicts
+		 */
+		private Entry findConflict(IChangeDescriptor c) {
+			Entry e = null;
+			if (c instanceof ChangeAddChildDescriptor) {
+				ChangeAddChildDescriptor cd = (ChangeAddChildDescriptor)c;
+				e = findFirst(ADD_CHILD, cd.getChild(), c, e);
+				e = findFirst(REM_CHILD, cd.getParent(), c, e);
+				e = findFirst(REN_TARGET, cd.getChild(), c, e);
+				e = findFirst(REN_TARGET, cd.getParent(), c, e);
+			} else if (c instanceof ChangeRemoveChildDescriptor) {
+				ChangeRemoveChildDescriptor cd = (ChangeRemoveChildDescriptor)c;
+				e = findFirst(ADD_PARENT, cd.getChild(), c, e);
+				e = findFirst(REM_PARENT, cd.getChild(), c, e);
+				e = findFirst(REM_CHILD, cd.getParent(), c, e);
+				e = findFirst(CON_NODE, cd.getChild(), c, e);
+				e = findFirst(REN_TARGET, cd.getChild(), c, e);
+			} else if (c instanceof ChangeConnectDescriptor) {
+				ChangeConnectDescriptor cd = (ChangeConnectDescriptor)c;
+				e = findFirst(REM_CHILD, getNode(cd.getPoint()), c, e);
+				e = findFirst(CON_POINT, cd.getPoint(), c, e);
+				e = findFirst(REN_TARGET, cd.getLink(), c, e);
+				e = findFirst(REN_TARGET, cd.getPoint(), c, e);
+			} else if (c instanceof ChangeDisconnectDescriptor) {
+				e = findFirst(REN_TARGET,
+						((ChangeDisconnectDescriptor)c).getPoint(), c, e);
+			} else if (c instanceof ChangeNameDescriptor) {
+				Object target = ((ChangeNameDescriptor)c).getTarget();
+				e = findFirst(ADD_CHILD, target, c, e);
+				e = findFirst(ADD_PARENT, target, c, e);
+				e = findFirst(REM_CHILD, target, c, e);
+				e = findFirst(CON_LINK, target, c, e);
+				e = findFirst(CON_POINT, target, c, e);
+				e = findFirst(DIS_POINT, target, c, e);
+				e = findFirst(REN_TARGET, target, c, e);
+			}
+			return e;
+		}
+		
+		/**
+		 * Operation 3': for each redex descriptor that conflicts with a
+		 * reactum descriptor, inserts its inverse at the start of the group
+		 * containing the first such reactum descriptor, and removes it.
+		 */
+		private void insertInverses(ChangeDescriptorGroup lRedexCDs) {
+			for (Entry e : entries)
+				if (!e.removed)
+					index(e);
+			
+			ChangeDescriptorGroup remaining = new ChangeDescriptorGroup();
+			for (IChangeDescriptor redexCD : lRedexCDs) {
+				Entry e = findConflict(redexCD);
+				if (e != null) {
+					Group g = e.group;
+					IChangeDescriptor inverse = redexCD.inverse();
+					g.inserted.addFirst(inverse);
+					int[] position = Arrays.copyOf(
+							g.position, g.position.length + 1);
+					position[g.position.length] = -g.inserted.size();
+					index(new Entry(inverse, g, position));
+					g.markChanged();
+				} else remaining.add(redexCD);
+			}
+			if (remaining.size() != lRedexCDs.size()) {
+				lRedexCDs.clear();
+				lRedexCDs.addAll(remaining);
+			}
+		}
+		
+		private ChangeDescriptorGroup build(Group g) {
+			if (!g.changed)
+				return g.original;
+			ChangeDescriptorGroup cdg = new ChangeDescriptorGroup(g.inserted);
+			for (Object i : g.items) {
+				if (i instanceof Group) {
+					Group h = (Group)i;
+					ChangeDescriptorGroup sub = build(h);
+					/* Groups emptied by operation 2 disappear */
+					if (!h.changed || sub.size() != 0)
+						cdg.add(sub);
+				} else if (!((Entry)i).removed)
+					cdg.add(((Entry)i).descriptor);
+			}
+			return cdg;
 		}
 	}
 	
+	/**
+	 * Adjusts the reactum's change descriptors after the redex has been
+	 * changed.
+	 * <p>Reactum descriptors equal to redex descriptors are removed (as the
+	 * redex now does the same thing), and then the inverse of each redex
+	 * descriptor that conflicts with a reactum descriptor is inserted before
+	 * it. Both steps consume the redex descriptors that they use.
+	 * @param lRedexCDs a linearised group of redex descriptors, which will
+	 * be modified
+	 * @param reactumCDs the reactum's descriptors, which will not be
+	 * modified
+	 * @return a new {@link ChangeDescriptorGroup}, or
+	 * <code>reactumCDs</code> if no changes were necessary
+	 */
 	public static ChangeDescriptorGroup performFixups(
 			ChangeDescriptorGroup lRedexCDs,
 			ChangeDescriptorGroup reactumCDs) {
-		return new Operation3PrimeRunner().run(lRedexCDs,
-				new Operation2Runner().run(lRedexCDs, reactumCDs));
+		Fixups f = new Fixups(reactumCDs);
+		f.removeEqual(lRedexCDs);
+		f.insertInverses(lRedexCDs);
+		return f.build(f.top);
 	}
 	
 	@Override
@@ -13,17 +13,17 @@ import org.bigraph.model.interfaces.IRoot;
 public class Root extends Container implements IRoot {
 	@Override
 	public Collection<? extends Node> getNodes() {
-		return only(null, Node.class);
+		return only(Node.class);
 	}
 
 	@Override
 	public Collection<? extends Site> getSites() {
-		return only(null, Site.class);
+		return only(Site.class);
 	}
 
 	@Override
 	public Collection<? extends IChild> getIChildren() {
-		return only(null, IChild.class);
+		return only(IChild.class);
 	}
 	
 	public static final class Identifier extends Container.Identifier {
@@ -154,6 +154,31 @@ public class Signature extends ModelObject
 		return parent;
 	}
 	
+	@Override
+	protected ModelObject getGenerationOwner() {
+		return (parent != null ? parent.getGenerationOwner() : this);
+	}
+	
+	private boolean readOnly = false;
+	
+	/**
+	 * Marks this {@link Signature}, and everything in it, as read-only.
+	 * Signatures loaded from a {@link
+	 * org.bigraph.model.loaders.DocumentCache DocumentCache} are shared by
+	 * every {@link Bigraph} that refers to their document, and so are
+	 * always read-only; {@link #clone() copy} them to get a modifiable
+	 * Signature.
+	 * @param readOnly whether or not this {@link Signature} is read-only
+	 */
+	public void setReadOnly(boolean readOnly) {
+		this.readOnly = readOnly;
+	}
+	
+	@Override
+	public boolean isReadOnly() {
+		return (readOnly || super.isReadOnly());
+	}
+	
 	public Signature getParent(PropertyScratchpad context) {
 		return getProperty(context, PROPERTY_PARENT, Signature.class);
 	}
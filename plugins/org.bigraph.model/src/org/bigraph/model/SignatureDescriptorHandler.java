@@ -11,6 +11,13 @@ import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 
 final class SignatureDescriptorHandler
 		extends HandlerUtilities.DescriptorHandlerImpl {
+	SignatureDescriptorHandler() {
+		super(ChangeAddControlDescriptor.class,
+				ChangeRemoveControlDescriptor.class,
+				ChangeAddSignatureDescriptor.class,
+				ChangeRemoveSignatureDescriptor.class);
+	}
+	
 	@Override
 	public boolean tryValidateChange(Process context, IChangeDescriptor change)
 			throws ChangeCreationException {
@@ -20,6 +27,7 @@ final class SignatureDescriptorHandler
 			ChangeAddControlDescriptor cd = (ChangeAddControlDescriptor)change;
 			Signature s = tryLookup(cd,
 					cd.getTarget(), scratch, resolver, Signature.class);
+			HandlerUtilities.checkWritable(cd, s);
 			
 			HandlerUtilities.checkName(scratch, cd,
 					cd.getControl(), s.getNamespace(),
@@ -27,7 +35,9 @@ final class SignatureDescriptorHandler
 		} else if (change instanceof ChangeRemoveControlDescriptor) {
 			ChangeRemoveControlDescriptor cd =
 					(ChangeRemoveControlDescriptor)change;
-			tryLookup(cd, cd.getTarget(), scratch, resolver, Signature.class);
+			Signature s = tryLookup(cd,
+					cd.getTarget(), scratch, resolver, Signature.class);
+			HandlerUtilities.checkWritable(cd, s);
 			Control c = tryLookup(
 					cd, cd.getControl(), scratch, resolver, Control.class);
 			
@@ -46,10 +56,13 @@ final class SignatureDescriptorHandler
 			Signature s = tryLookup(cd,
 					cd.getTarget(), scratch, resolver, Signature.class);
 			
+			HandlerUtilities.checkWritable(cd, s);
+			
 			Signature ch = cd.getSignature();
 			if (ch == null)
 				throw new ChangeCreationException(cd,
 						"Can't insert a null signature");
+			HandlerUtilities.checkWritable(cd, ch);
 			
 			HandlerUtilities.checkAddBounds(cd,
 					s.getSignatures(scratch), cd.getPosition());
@@ -58,6 +71,7 @@ final class SignatureDescriptorHandler
 					(ChangeRemoveSignatureDescriptor)change;
 			Signature s = tryLookup(cd,
 					cd.getTarget(), scratch, resolver, Signature.class);
+			HandlerUtilities.checkWritable(cd, s);
 			
 			HandlerUtilities.checkRemove(cd,
 					s.getSignatures(scratch),
@@ -11,6 +11,13 @@ import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 
 final class SimulationSpecDescriptorHandler
 		extends HandlerUtilities.DescriptorHandlerImpl {
+	SimulationSpecDescriptorHandler() {
+		super(ChangeSetModelDescriptor.class,
+				ChangeSetSignatureDescriptor.class,
+				ChangeAddRuleDescriptor.class,
+				ChangeRemoveRuleDescriptor.class);
+	}
+	
 	@Override
 	public boolean tryValidateChange(Process context, IChangeDescriptor change)
 			throws ChangeCreationException {
@@ -14,6 +14,18 @@ public class Site extends Layoutable implements ISite {
 		return (IParent)getParent();
 	}
 	
+	@Override
+	void ancestryChanged(Bigraph oldBigraph) {
+		super.ancestryChanged(oldBigraph);
+		Bigraph newBigraph = getBigraph();
+		if (oldBigraph != newBigraph) {
+			if (oldBigraph != null)
+				oldBigraph.removeSite(this);
+			if (newBigraph != null)
+				newBigraph.addSite(this);
+		}
+	}
+	
 	public static final class Identifier extends Layoutable.Identifier {
 		public Identifier(String name) {
 			super(name);
@@ -12,6 +12,10 @@ import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 
 final class StoreDescriptorHandler
 		extends HandlerUtilities.DescriptorHandlerImpl {
+	StoreDescriptorHandler() {
+		super(StoreChangeDescriptor.class);
+	}
+	
 	@Override
 	public boolean tryValidateChange(Process context, IChangeDescriptor change)
 			throws ChangeCreationException {
@@ -29,10 +33,13 @@ final class StoreDescriptorHandler
 				targetI = cd.getEntryID();
 			} else return false;
 			
-			tryLookup(cd, sourceI, scratch, resolver, ModelObject.class);
 			ModelObject
+				source = tryLookup(cd,
+						sourceI, scratch, resolver, ModelObject.class),
 				target = tryLookup(cd,
 						targetI, scratch, resolver, ModelObject.class);
+			HandlerUtilities.checkWritable(cd, source);
+			HandlerUtilities.checkWritable(cd, target);
 			
 			if (!target.getExtendedDataMap(scratch).isEmpty())
 				throw new ChangeCreationException(cd,
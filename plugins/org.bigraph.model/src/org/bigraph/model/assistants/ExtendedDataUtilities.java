@@ -5,6 +5,7 @@ import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
 import org.bigraph.model.changes.descriptors.ChangeCreationException;
 import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 import org.bigraph.model.changes.descriptors.IDescriptorStepExecutor;
+import org.bigraph.model.changes.descriptors.IDescriptorStepFilter;
 import org.bigraph.model.changes.descriptors.IDescriptorStepValidator;
 import org.bigraph.model.process.IParticipantHost;
 
@@ -13,11 +14,38 @@ public abstract class ExtendedDataUtilities {
 			T extends ModelObject.Identifier, V>
 			extends ModelObject.ModelObjectChangeDescriptor {
 		public static abstract class Handler
-				implements IDescriptorStepExecutor, IDescriptorStepValidator {
+				implements IDescriptorStepExecutor, IDescriptorStepValidator,
+				IDescriptorStepFilter {
+			private final Class<?>[] descriptorClasses;
+			
+			/**
+			 * Creates a new {@link Handler} that will be offered every
+			 * change descriptor.
+			 */
+			protected Handler() {
+				this((Class<?>[])null);
+			}
+			
+			/**
+			 * Creates a new {@link Handler} that will only be offered
+			 * instances of the given classes.
+			 * @param descriptorClasses the classes of change descriptor
+			 * handled by this {@link Handler}
+			 */
+			protected Handler(Class<?>... descriptorClasses) {
+				this.descriptorClasses = descriptorClasses;
+			}
+			
 			@Override
 			public void setHost(IParticipantHost host) {
 				/* do nothing */
 			}
+			
+			@Override
+			public Class<?>[] getDescriptorClasses() {
+				return (descriptorClasses != null ?
+						descriptorClasses.clone() : null);
+			}
 		}
 		
 		private final String key;
@@ -68,6 +96,7 @@ public abstract class ExtendedDataUtilities {
 		
 		public SimpleHandler(
 				Class<? extends ChangeExtendedDataDescriptor<?, ?>> klass) {
+			super(klass);
 			this.klass = klass;
 		}
 		
@@ -79,9 +108,12 @@ public abstract class ExtendedDataUtilities {
 			if (klass.isInstance(change)) {
 				ChangeExtendedDataDescriptor<?, ?> cd = klass.cast(change);
 				ModelObject mo = cd.getTarget().lookup(scratch, resolver);
-				if (mo == null)
+				if (mo == null) {
 					throw new ChangeCreationException(cd,
 							"" + cd.getTarget() + ": lookup failed");
+				} else if (mo.isReadOnly())
+					throw new ChangeCreationException(cd,
+							"" + cd.getTarget() + " is shared and read-only");
 			} else return false;
 			return true;
 		}
@@ -8,6 +8,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.bigraph.model.utilities.OverlayList;
+import org.bigraph.model.utilities.OverlayMap;
+import org.bigraph.model.utilities.OverlaySet;
+
 /**
  * The <strong>PropertyScratchpad</strong> is used to track simulated updates
  * to the model.
@@ -60,6 +64,41 @@ public class PropertyScratchpad {
 	 */
 	public PropertyScratchpad(PropertyScratchpad parent) {
 		this.parent = parent;
+		if (parent != null)
+			sharing = parent.isSharing();
+	}
+	
+	private boolean sharing = false;
+	
+	/**
+	 * Indicates whether or not this {@link PropertyScratchpad} shares
+	 * structure with the collections it modifies.
+	 * @return <code>true</code> if structure sharing is enabled, or
+	 * <code>false</code> otherwise
+	 * @see #setSharing(boolean)
+	 */
+	public boolean isSharing() {
+		return sharing;
+	}
+	
+	/**
+	 * Enables or disables structure sharing for this {@link
+	 * PropertyScratchpad}. (New child scratchpads inherit this setting.)
+	 * <p>When structure sharing is enabled, the modifiable collections
+	 * returned by {@link #getModifiableList(Object, String, Collection)},
+	 * {@link #getModifiableSet(Object, String, Collection)} and {@link
+	 * #getModifiableMap(Object, String, Map)} don't copy their original
+	 * collections, but record only the changes made to them; their memory
+	 * use is therefore proportional to the size of the change rather than to
+	 * the size of the model.
+	 * <p>As the original collections are not copied, they must not be
+	 * modified while this {@link PropertyScratchpad} is in use.
+	 * @param sharing whether or not structure sharing should be enabled
+	 * @return {@code this}, for convenience
+	 */
+	public PropertyScratchpad setSharing(boolean sharing) {
+		this.sharing = sharing;
+		return this;
 	}
 	
 	private Map<NNPair, Object> changes = new HashMap<NNPair, Object>();
@@ -141,7 +180,9 @@ public class PropertyScratchpad {
 	class ListHelper<T> implements Helper<Collection<? extends T>, List<T>> {
 		@Override
 		public List<T> newInstance(Collection<? extends T> in) {
-			return new ArrayList<T>(in);
+			if (isSharing() && in instanceof List<?>) {
+				return new OverlayList<T>((List<? extends T>)in);
+			} else return new ArrayList<T>(in);
 		}
 	}
 	
@@ -149,14 +190,18 @@ public class PropertyScratchpad {
 			implements Helper<Map<? extends T, ? extends V>, Map<T, V>> {
 		@Override
 		public Map<T, V> newInstance(Map<? extends T, ? extends V> in) {
-			return new HashMap<T, V>(in);
+			if (isSharing()) {
+				return new OverlayMap<T, V>(in);
+			} else return new HashMap<T, V>(in);
 		}
 	}
 	
 	class SetHelper<T> implements Helper<Collection<? extends T>, Set<T>> {
 		@Override
 		public Set<T> newInstance(Collection<? extends T> in) {
-			return new HashSet<T>(in);
+			if (isSharing() && in instanceof Set<?>) {
+				return new OverlaySet<T>(in);
+			} else return new HashSet<T>(in);
 		}
 	}
 	
@@ -38,13 +38,18 @@ public class BoundDescriptor implements IChangeDescriptor {
 		}
 	}
 	
-	private static final class Handler
-			implements IDescriptorStepValidator, IDescriptorStepExecutor {
+	private static final class Handler implements IDescriptorStepValidator,
+			IDescriptorStepExecutor, IDescriptorStepFilter {
 		@Override
 		public void setHost(IParticipantHost host) {
 			/* do nothing */
 		}
 		
+		@Override
+		public Class<?>[] getDescriptorClasses() {
+			return new Class<?>[] { BoundDescriptor.class };
+		}
+		
 		private static final Handler INSTANCE = new Handler();
 		
 		@Override
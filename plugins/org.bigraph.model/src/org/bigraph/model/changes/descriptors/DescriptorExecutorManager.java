@@ -1,5 +1,10 @@
 package org.bigraph.model.changes.descriptors;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bigraph.model.ModelObject;
+import org.bigraph.model.assistants.PropertyScratchpad;
 import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
 import org.bigraph.model.process.IParticipant;
 import org.bigraph.model.process.IParticipantHost;
@@ -24,7 +29,98 @@ public class DescriptorExecutorManager extends DescriptorValidatorManager {
 	
 	public void tryApplyChange(Resolver resolver, IChangeDescriptor change)
 			throws ChangeCreationException {
+		commit(validate(resolver, change));
+	}
+	
+	/**
+	 * Incremented every time a change is executed against a {@link Resolver}
+	 * that isn't a {@link ModelObject}, and so has no generation counter of
+	 * its own. {@link ValidatedChange}s created before the most recent such
+	 * change was executed must be validated again.
+	 */
+	private static final AtomicLong generation = new AtomicLong();
+	
+	private static long[] getGenerations(Resolver resolver) {
+		return (resolver instanceof ModelObject ?
+				((ModelObject)resolver).getGenerations() : null);
+	}
+	
+	/**
+	 * Creates a new, empty {@link ValidatedChange} for the current state of
+	 * the given {@link Resolver}.
+	 * @param resolver a {@link Resolver}
+	 * @return a new {@link ValidatedChange}
+	 * @see #tryValidateChange(ValidatedChange, PropertyScratchpad,
+	 * IChangeDescriptor)
+	 */
+	public ValidatedChange createValidatedChange(Resolver resolver) {
+		return new ValidatedChange(resolver,
+				generation.get(), getGenerations(resolver));
+	}
+	
+	/**
+	 * Indicates whether or not changes have been executed against the {@link
+	 * Resolver} of a {@link ValidatedChange} (or against anything that it
+	 * depends on) since it was created.
+	 * @param vc a {@link ValidatedChange}
+	 * @return <code>true</code> if {@code vc} must be validated again before
+	 * being committed, or <code>false</code> otherwise
+	 */
+	public boolean isStale(ValidatedChange vc) {
+		return (vc.getGeneration() != generation.get() ||
+				!Arrays.equals(vc.getGenerations(),
+						getGenerations(vc.getResolver())));
+	}
+	
+	/**
+	 * Validates an {@link IChangeDescriptor}, returning a token that can later
+	 * be {@link #commit(ValidatedChange) committed}.
+	 * @param resolver a {@link Resolver}
+	 * @param change an {@link IChangeDescriptor}
+	 * @return a {@link ValidatedChange}
+	 * @throws ChangeCreationException if validation failed
+	 */
+	public ValidatedChange validate(
+			Resolver resolver, IChangeDescriptor change)
+			throws ChangeCreationException {
+		ValidatedChange vc = createValidatedChange(resolver);
 		tryValidateChange(resolver, change);
+		vc.add(change);
+		return vc;
+	}
+	
+	/**
+	 * Validates an {@link IChangeDescriptor} as though it were to be executed
+	 * after the changes already in a {@link ValidatedChange} and, if it
+	 * passes validation, adds it to that ValidatedChange.
+	 * @param vc a {@link ValidatedChange}
+	 * @param context a {@link PropertyScratchpad} in which the changes
+	 * already in {@code vc} have been simulated
+	 * @param change an {@link IChangeDescriptor}
+	 * @throws ChangeCreationException if validation failed (in which case
+	 * {@code vc} will not be modified)
+	 */
+	public void tryValidateChange(ValidatedChange vc,
+			PropertyScratchpad context, IChangeDescriptor change)
+			throws ChangeCreationException {
+		tryValidateChange(context, vc.getResolver(), change);
+		vc.add(change);
+	}
+	
+	/**
+	 * Executes the changes in a {@link ValidatedChange}. If other changes have
+	 * been executed against its {@link Resolver} since it was validated, then
+	 * it will be validated again first.
+	 * @see #isStale(ValidatedChange)
+	 * @param vc a {@link ValidatedChange}
+	 * @throws ChangeCreationException if {@code vc} had to be validated again
+	 * and failed
+	 */
+	public void commit(ValidatedChange vc) throws ChangeCreationException {
+		Resolver resolver = vc.getResolver();
+		IChangeDescriptor change = vc.getChange();
+		if (isStale(vc))
+			tryValidateChange(resolver, change);
 		
 		IChangeDescriptor ch = run(resolver, change);
 		if (ch != null)
@@ -33,10 +129,24 @@ public class DescriptorExecutorManager extends DescriptorValidatorManager {
 					"be executed");
 	}
 	
+	private final DispatchTable<IDescriptorStepExecutor> executors =
+			new DispatchTable<IDescriptorStepExecutor>(
+					IDescriptorStepExecutor.class);
+	
+	@Override
+	void invalidateDispatchTables() {
+		super.invalidateDispatchTables();
+		executors.clear();
+	}
+	
 	private IChangeDescriptor step(Resolver r, IChangeDescriptor c) {
+		/* Not every change fires a property change event, so record it
+		 * explicitly */
+		if (r instanceof ModelObject) {
+			((ModelObject)r).incrementGeneration();
+		} else generation.incrementAndGet();
 		boolean passes = false;
-		for (IDescriptorStepExecutor i :
-				getParticipants(IDescriptorStepExecutor.class))
+		for (IDescriptorStepExecutor i : executors.get(c.getClass()))
 			passes |= i.executeChange(r, c);
 		return (passes ? null : c);
 	}
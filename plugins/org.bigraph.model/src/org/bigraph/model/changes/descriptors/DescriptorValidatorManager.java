@@ -2,6 +2,7 @@ package org.bigraph.model.changes.descriptors;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bigraph.model.assistants.PropertyScratchpad;
 import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
@@ -16,9 +17,81 @@ public class DescriptorValidatorManager
 		/* do nothing */
 	}
 	
+	@Override
+	public void addParticipant(IParticipant participant) {
+		super.addParticipant(participant);
+		invalidateDispatchTables();
+	}
+	
 	@Override
 	public void removeParticipant(IParticipant participant) {
 		super.removeParticipant(participant);
+		invalidateDispatchTables();
+	}
+	
+	/**
+	 * A <strong>DispatchTable</strong> maps concrete {@link
+	 * IChangeDescriptor} classes to the participants that should be offered
+	 * their instances.
+	 * @param <T> the type of participant
+	 * @see IDescriptorStepFilter
+	 */
+	final class DispatchTable<T extends IParticipant> {
+		private final Class<T> klass;
+		private volatile ConcurrentHashMap<Class<?>, List<T>> table =
+				new ConcurrentHashMap<Class<?>, List<T>>();
+		
+		DispatchTable(Class<T> klass) {
+			this.klass = klass;
+		}
+		
+		void clear() {
+			table = new ConcurrentHashMap<Class<?>, List<T>>();
+		}
+		
+		List<T> get(Class<?> descriptorClass) {
+			/* Take a reference to the current table: if the participants
+			 * change while we're working, then our result will end up in a
+			 * table that's already been discarded */
+			ConcurrentHashMap<Class<?>, List<T>> table = this.table;
+			List<T> r = table.get(descriptorClass);
+			if (r == null) {
+				ArrayList<T> l = new ArrayList<T>();
+				for (T i : getParticipants(klass))
+					if (accepts(i, descriptorClass))
+						l.add(i);
+				l.trimToSize();
+				List<T> existing = table.putIfAbsent(descriptorClass, l);
+				r = (existing != null ? existing : l);
+			}
+			return r;
+		}
+	}
+	
+	private static boolean accepts(
+			IParticipant participant, Class<?> descriptorClass) {
+		if (participant instanceof IDescriptorStepFilter) {
+			Class<?>[] classes =
+					((IDescriptorStepFilter)participant).getDescriptorClasses();
+			if (classes == null)
+				return true;
+			for (Class<?> i : classes)
+				if (i.isAssignableFrom(descriptorClass))
+					return true;
+			return false;
+		} else return true;
+	}
+	
+	private final DispatchTable<IDescriptorStepValidator> validators =
+			new DispatchTable<IDescriptorStepValidator>(
+					IDescriptorStepValidator.class);
+	
+	/**
+	 * Discards all of the cached dispatch information. (This method is
+	 * called whenever a participant is added or removed.)
+	 */
+	void invalidateDispatchTables() {
+		validators.clear();
 	}
 	
 	public boolean tryValidateChange(Resolver r, IChangeDescriptor change)
@@ -29,8 +102,10 @@ public class DescriptorValidatorManager
 	public boolean tryValidateChange(
 			PropertyScratchpad context, Resolver r, IChangeDescriptor change)
 			throws ChangeCreationException {
-		StandaloneProcess p =
-				new StandaloneProcess(new PropertyScratchpad(context), r);
+		/* This scratchpad is thrown away as soon as validation is finished,
+		 * so it's safe for it to share structure with the model */
+		StandaloneProcess p = new StandaloneProcess(
+				new PropertyScratchpad(context).setSharing(true), r);
 		IChangeDescriptor ch = p.run(change);
 		if (ch != null) {
 			throw new ChangeCreationException(ch,
@@ -48,8 +123,7 @@ public class DescriptorValidatorManager
 		protected IChangeDescriptor step(
 				IChangeDescriptor c) throws ChangeCreationException {
 			boolean passes = false;
-			for (IDescriptorStepValidator i :
-					getParticipants(IDescriptorStepValidator.class))
+			for (IDescriptorStepValidator i : validators.get(c.getClass()))
 				passes |= i.tryValidateChange(this, c);
 			return (passes ? null : c);
 		}
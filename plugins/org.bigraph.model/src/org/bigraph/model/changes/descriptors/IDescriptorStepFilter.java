@@ -0,0 +1,25 @@
+package org.bigraph.model.changes.descriptors;
+
+import org.bigraph.model.process.IParticipant;
+
+/**
+ * {@link IDescriptorStepValidator}s and {@link IDescriptorStepExecutor}s
+ * implementing <strong>IDescriptorStepFilter</strong> declare the classes of
+ * {@link IChangeDescriptor} that they can handle. {@link
+ * DescriptorValidatorManager}s and {@link DescriptorExecutorManager}s will
+ * only offer them instances of those classes (or of their subclasses).
+ * <p>Participants that don't implement this interface will be offered every
+ * change descriptor.
+ */
+public interface IDescriptorStepFilter extends IParticipant {
+	/**
+	 * Returns the classes of {@link IChangeDescriptor} that this participant
+	 * can handle.
+	 * <p>(This method will ordinarily only be called once for each distinct
+	 * class of change descriptor, and so should always return the same
+	 * value.)
+	 * @return an array of {@link Class}es, or {@code null} if this
+	 * participant should be offered every change descriptor
+	 */
+	Class<?>[] getDescriptorClasses();
+}
@@ -0,0 +1,61 @@
+package org.bigraph.model.changes.descriptors;
+
+import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
+
+/**
+ * A <strong>ValidatedChange</strong> is a sequence of {@link
+ * IChangeDescriptor}s that has passed validation against the current state
+ * of a {@link Resolver}.
+ * <p>As long as no other change has been executed against its {@link
+ * Resolver} in the meantime, {@link
+ * DescriptorExecutorManager#commit(ValidatedChange) committing} a
+ * ValidatedChange will execute its changes without validating them again.
+ * @see DescriptorExecutorManager#validate(Resolver, IChangeDescriptor)
+ */
+public final class ValidatedChange {
+	private final Resolver resolver;
+	private final ChangeDescriptorGroup change = new ChangeDescriptorGroup();
+	private final long generation;
+	private final long[] generations;
+	
+	ValidatedChange(Resolver resolver, long generation, long[] generations) {
+		this.resolver = resolver;
+		this.generation = generation;
+		this.generations = generations;
+	}
+	
+	void add(IChangeDescriptor c) {
+		change.add(c);
+	}
+	
+	long getGeneration() {
+		return generation;
+	}
+	
+	long[] getGenerations() {
+		return generations;
+	}
+	
+	/**
+	 * Returns the {@link Resolver} against which this {@link ValidatedChange}
+	 * was validated.
+	 * @return a {@link Resolver}
+	 */
+	public Resolver getResolver() {
+		return resolver;
+	}
+	
+	/**
+	 * Returns the changes that have been validated. (The returned group must
+	 * not be modified.)
+	 * @return a {@link ChangeDescriptorGroup}
+	 */
+	public ChangeDescriptorGroup getChange() {
+		return change;
+	}
+	
+	@Override
+	public String toString() {
+		return "ValidatedChange(" + getResolver() + ", " + getChange() + ")";
+	}
+}
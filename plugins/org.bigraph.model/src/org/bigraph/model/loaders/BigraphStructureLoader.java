@@ -0,0 +1,305 @@
+package org.bigraph.model.loaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import org.bigraph.model.Bigraph;
+import org.bigraph.model.Container;
+import org.bigraph.model.Control;
+import org.bigraph.model.Control.Kind;
+import org.bigraph.model.Edge;
+import org.bigraph.model.InnerName;
+import org.bigraph.model.Layoutable;
+import org.bigraph.model.Link;
+import org.bigraph.model.Node;
+import org.bigraph.model.OuterName;
+import org.bigraph.model.Point;
+import org.bigraph.model.Port;
+import org.bigraph.model.PortSpec;
+import org.bigraph.model.Root;
+import org.bigraph.model.Signature;
+import org.bigraph.model.Site;
+import org.bigraph.model.assistants.FileData;
+import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
+import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.changes.descriptors.DescriptorExecutorManager;
+import org.bigraph.model.changes.descriptors.IChangeDescriptor;
+
+import static org.bigraph.model.loaders.StructureFormatConstants.*;
+
+/**
+ * <strong>BigraphStructureLoader</strong> reads a {@link Bigraph} from the
+ * format described by {@link StructureFormatConstants}.
+ * <p>This format is meant for internal use by tools, like the model
+ * checker, that only care about the structure of a bigraph. It isn't a
+ * document format: the resulting {@link Bigraph} has no layout or other
+ * extended data, and no {@link IXMLLoader.Undecorator}s are run.
+ * <p>If the input is a {@link FileInputStream}, then the file will be
+ * mapped into memory rather than being read.
+ * @see org.bigraph.model.savers.BigraphStructureSaver
+ */
+public class BigraphStructureLoader extends Loader {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	public BigraphStructureLoader() {
+	}
+	
+	public BigraphStructureLoader(Loader parent) {
+		super(parent);
+	}
+	
+	private ByteBuffer buffer;
+	private String[] strings;
+	
+	private static ByteBuffer read(InputStream is) throws IOException {
+		if (is instanceof FileInputStream) {
+			FileChannel fc = ((FileInputStream)is).getChannel();
+			return fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+		} else {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			byte[] b = new byte[8192];
+			int count;
+			while ((count = is.read(b)) != -1)
+				os.write(b, 0, count);
+			return ByteBuffer.wrap(os.toByteArray());
+		}
+	}
+	
+	@Override
+	public Bigraph importObject() throws LoadFailedException {
+		try {
+			InputStream is = getInputStream();
+			try {
+				buffer = read(is);
+			} finally {
+				is.close();
+			}
+			Bigraph b = makeObject();
+			FileData.setFile(b, getFile());
+			return b;
+		} catch (LoadFailedException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new LoadFailedException(e);
+		} finally {
+			buffer = null;
+			strings = null;
+		}
+	}
+	
+	private static void apply(Resolver r, IChangeDescriptor cd)
+			throws LoadFailedException {
+		try {
+			DescriptorExecutorManager.getInstance().tryApplyChange(r, cd);
+		} catch (ChangeCreationException e) {
+			throw new LoadFailedException(e);
+		}
+	}
+	
+	private String getString() throws LoadFailedException {
+		int index = buffer.getInt();
+		if (index == -1) {
+			return null;
+		} else if (index >= 0 && index < strings.length) {
+			return strings[index];
+		} else throw new LoadFailedException(
+				"String index " + index + " is out of range");
+	}
+	
+	private void readStrings() {
+		strings = new String[buffer.getInt()];
+		for (int i = 0; i < strings.length; i++) {
+			int length = buffer.getInt();
+			ByteBuffer b = buffer.slice();
+			b.limit(length);
+			strings[i] = UTF_8.decode(b).toString();
+			buffer.position(buffer.position() + length);
+		}
+		buffer.position((buffer.position() + 3) & ~3);
+	}
+	
+	private final Bigraph bigraph = new Bigraph();
+	private Layoutable.Identifier[] entries;
+	
+	private Bigraph makeObject() throws LoadFailedException {
+		cycleCheck();
+		if (buffer.getInt() != MAGIC)
+			throw new LoadFailedException("Not a binary bigraph");
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new LoadFailedException(
+					"Unsupported binary bigraph version " + version);
+		readStrings();
+		
+		while (buffer.hasRemaining()) {
+			int tag = buffer.getInt(), length = buffer.getInt(),
+				end = buffer.position() + length * 4;
+			if (length < 0 || end > buffer.limit())
+				throw new LoadFailedException("Section " + tag +
+						" is " + length + " ints long, which is invalid");
+			switch (tag) {
+			case SECTION_SIGNATURE:
+				readSignatureSection();
+				break;
+			case SECTION_PLACE:
+				readPlaceSection();
+				break;
+			case SECTION_LINK:
+				readLinkSection();
+				break;
+			default:
+				/* Skip sections we don't understand */
+				buffer.position(end);
+			}
+			if (buffer.position() != end)
+				throw new LoadFailedException(
+						"Section " + tag + " has the wrong length");
+		}
+		
+		if (bigraph.getSignature() == null)
+			throw new LoadFailedException(
+					"The bigraph does not define or reference a signature.");
+		return bigraph;
+	}
+	
+	private void readSignatureSection() throws LoadFailedException {
+		if (bigraph.getSignature() != null)
+			throw new LoadFailedException(
+					"The bigraph has more than one signature");
+		int type = buffer.getInt();
+		Signature s;
+		if (type == SIGNATURE_REFERENCE) {
+			s = loadRelative(getString(), Signature.class,
+					new SignatureXMLLoader(this).setShareable(true));
+			if (s == null)
+				throw new LoadFailedException(
+						"Signature reference is missing");
+		} else if (type == SIGNATURE_EMBEDDED) {
+			s = readSignature();
+		} else throw new LoadFailedException(
+				"Unknown signature type " + type);
+		bigraph.setSignature(s, getCache().isShared(s));
+	}
+	
+	private static Kind getKind(int kind) throws LoadFailedException {
+		switch (kind) {
+		case KIND_ATOMIC:
+			return Kind.ATOMIC;
+		case KIND_ACTIVE:
+			return Kind.ACTIVE;
+		case KIND_PASSIVE:
+			return Kind.PASSIVE;
+		default:
+			throw new LoadFailedException("Unknown control kind " + kind);
+		}
+	}
+	
+	private Signature readSignature() throws LoadFailedException {
+		Signature s = new Signature();
+		Signature.Identifier sid = new Signature.Identifier();
+		int controls = buffer.getInt();
+		for (int i = 0; i < controls; i++) {
+			Control.Identifier cid = new Control.Identifier(getString());
+			apply(s, new Signature.ChangeAddControlDescriptor(sid, cid));
+			apply(s, new Control.ChangeKindDescriptor(
+					null, cid.lookup(null, s), getKind(buffer.getInt())));
+			int ports = buffer.getInt();
+			for (int j = 0; j < ports; j++)
+				apply(s, new Control.ChangeAddPortSpecDescriptor(
+						new PortSpec.Identifier(getString(), cid)));
+		}
+		int signatures = buffer.getInt();
+		for (int i = 0; i < signatures; i++)
+			apply(s, new Signature.ChangeAddSignatureDescriptor(
+					sid, -1, readSignature()));
+		return s;
+	}
+	
+	private Layoutable.Identifier getEntry(int index, int limit)
+			throws LoadFailedException {
+		if (index >= 0 && index < limit) {
+			return entries[index];
+		} else throw new LoadFailedException(
+				"Entry index " + index + " is out of range");
+	}
+	
+	private static Layoutable.Identifier createIdentifier(
+			int type, String name, String control)
+			throws LoadFailedException {
+		switch (type) {
+		case TYPE_EDGE:
+			return new Edge.Identifier(name);
+		case TYPE_OUTER_NAME:
+			return new OuterName.Identifier(name);
+		case TYPE_ROOT:
+			return new Root.Identifier(name);
+		case TYPE_NODE:
+			return new Node.Identifier(name, new Control.Identifier(control));
+		case TYPE_SITE:
+			return new Site.Identifier(name);
+		case TYPE_INNER_NAME:
+			return new InnerName.Identifier(name);
+		default:
+			throw new LoadFailedException("Unknown entry type " + type);
+		}
+	}
+	
+	private void readPlaceSection() throws LoadFailedException {
+		if (bigraph.getSignature() == null)
+			throw new LoadFailedException(
+					"The bigraph does not define or reference a signature.");
+		if (entries != null)
+			throw new LoadFailedException(
+					"The bigraph has more than one place graph");
+		Bigraph.Identifier bid = new Bigraph.Identifier();
+		entries = new Layoutable.Identifier[buffer.getInt()];
+		for (int i = 0; i < entries.length; i++) {
+			int type = buffer.getInt();
+			String name = getString();
+			int parent = buffer.getInt();
+			String control = getString();
+			
+			Layoutable.Identifier lid = createIdentifier(type, name, control);
+			Layoutable.Identifier pid =
+					(parent != -1 ? getEntry(parent, i) : bid);
+			if (!(pid instanceof Container.Identifier))
+				throw new LoadFailedException(
+						"Entry " + i + " has an invalid parent");
+			apply(bigraph, new Container.ChangeAddChildDescriptor(
+					(Container.Identifier)pid, lid));
+			entries[i] = lid;
+		}
+	}
+	
+	private void readLinkSection() throws LoadFailedException {
+		if (entries == null)
+			throw new LoadFailedException(
+					"The link graph comes before the place graph");
+		int connections = buffer.getInt();
+		for (int i = 0; i < connections; i++) {
+			Layoutable.Identifier point = getEntry(
+					buffer.getInt(), entries.length);
+			String port = getString();
+			Layoutable.Identifier link = getEntry(
+					buffer.getInt(), entries.length);
+			
+			Point.Identifier pid;
+			if (port != null && point instanceof Node.Identifier) {
+				pid = new Port.Identifier(port, (Node.Identifier)point);
+			} else if (port == null && point instanceof InnerName.Identifier) {
+				pid = (InnerName.Identifier)point;
+			} else throw new LoadFailedException(
+					"Connection " + i + " has an invalid point");
+			if (!(link instanceof Link.Identifier))
+				throw new LoadFailedException(
+						"Connection " + i + " has an invalid link");
+			apply(bigraph, new Point.ChangeConnectDescriptor(
+					pid, (Link.Identifier)link));
+		}
+	}
+}
@@ -1,7 +1,15 @@
 package org.bigraph.model.loaders;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Locale;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.bigraph.model.Bigraph;
 import org.bigraph.model.Container;
 import org.bigraph.model.Control;
@@ -19,6 +27,8 @@ import org.bigraph.model.Root;
 import org.bigraph.model.Signature;
 import org.bigraph.model.Site;
 import org.bigraph.model.assistants.FileData;
+import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 import org.bigraph.model.resources.IFileWrapper;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -38,12 +48,54 @@ public class BigraphXMLLoader extends XMLLoader {
 		super(parent);
 	}
 	
+	private boolean streaming = false;
+	
+	/**
+	 * Indicates whether or not this loader is in streaming mode.
+	 * @return <code>true</code> if {@link #importObject()} will stream its
+	 * input, or <code>false</code> otherwise
+	 * @see #setStreaming(boolean)
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+	
+	/**
+	 * Switches streaming mode on or off.
+	 * <p>In streaming mode, {@link #importObject()} reads the document in a
+	 * single pass with an {@link XMLStreamReader} rather than parsing it into
+	 * a DOM first: each element is checked as soon as it has been read, and
+	 * points are connected to their links as soon as both exist. Only the
+	 * elements that are still open are kept in memory. As in the normal
+	 * mode, the resulting changes (and those added by {@link Undecorator}s)
+	 * are validated one at a time against the loader's scratchpad and
+	 * executed together once the whole document has been read.
+	 * <p>Documents aren't validated against the schema in this mode.
+	 * Instead, each element is checked to make sure that it's allowed where
+	 * it appears and that it has the attributes that it needs, and every link
+	 * named by a point must exist by the end of the document.
+	 * <p>{@link Undecorator}s are still run for every element, but only once
+	 * that element has been closed (and so after its children have been
+	 * loaded); the {@link Element} that they're given contains the element's
+	 * attributes and its foreign child elements, but none of its other
+	 * children.
+	 * @param streaming whether or not to stream the input
+	 * @return <code>this</code>, for convenience
+	 */
+	public BigraphXMLLoader setStreaming(boolean streaming) {
+		this.streaming = streaming;
+		return this;
+	}
+	
 	@Override
 	public Bigraph importObject() throws LoadFailedException {
 		try {
-			Document d = validate(parse(getInputStream()),
-					Schemas.getBigraphSchema());
-			Bigraph b = makeObject(d.getDocumentElement());
+			Bigraph b;
+			if (!streaming) {
+				Document d = validateIfUntrusted(parse(getInputStream()),
+						Schemas.getBigraphSchema());
+				b = makeObject(d.getDocumentElement());
+			} else b = stream(getInputStream());
 			FileData.setFile(b, getFile());
 			return b;
 		} catch (LoadFailedException e) {
@@ -66,16 +118,18 @@ public class BigraphXMLLoader extends XMLLoader {
 		String replacement = getAttributeNS(e, BIGRAPH, "src");
 		if (replacement != null)
 			return loadRelative(replacement, Bigraph.class,
-					new BigraphXMLLoader(this));
+					new BigraphXMLLoader(this).setShareable(isShareable()));
 		executeUndecorators(bigraph, e);
 		
+		SignatureXMLLoader sl = new SignatureXMLLoader(this);
+		sl.setShareable(true);
 		Signature s = loadSub(
 				selectFirst(
 					getNamedChildElement(e, SIGNATURE, "signature"),
 					getNamedChildElement(e, BIGRAPH, "signature")),
-				BIGRAPH, Signature.class, new SignatureXMLLoader(this));
+				BIGRAPH, Signature.class, sl);
 		if (s != null) {
-			bigraph.setSignature(s);
+			bigraph.setSignature(s, getCache().isShared(s));
 		} else throw new LoadFailedException(
 				"The bigraph does not define or reference a signature.");
 		
@@ -130,7 +184,7 @@ public class BigraphXMLLoader extends XMLLoader {
 					new Port.Identifier(name, (Node.Identifier)context));
 			/* Deliberately leave modelID unset */
 		} else modelID = BigraphXMLLoader.getNewObject(e.getLocalName(), name);
-
+		
 		if (modelID instanceof Layoutable.Identifier) {
 			Layoutable.Identifier lID = (Layoutable.Identifier)modelID;
 			addChange(new Container.ChangeAddChildDescriptor(context, lID));
@@ -142,15 +196,233 @@ public class BigraphXMLLoader extends XMLLoader {
 			} else if (modelID instanceof InnerName.Identifier) {
 				processPoint(e, (InnerName.Identifier)modelID);
 			}
+		
+		}
+	}
+	
+	private Bigraph stream(InputStream is)
+			throws LoadFailedException, XMLStreamException, IOException {
+		try {
+			XMLStreamReader r = createStreamReader(is);
+			try {
+				while (r.getEventType() != XMLStreamConstants.START_ELEMENT)
+					r.next();
+				return new Streamer(r).run();
+			} finally {
+				r.close();
+			}
+		} finally {
+			is.close();
+		}
+	}
+	
+	/**
+	 * A <strong>Frame</strong> is an element that a {@link Streamer} has
+	 * started, but not yet finished, reading.
+	 */
+	private static final class Frame {
+		private final ModelObject.Identifier identifier;
+		private final ModelObject object;
+		private final Element element;
+		
+		private Frame(ModelObject.Identifier identifier, ModelObject object,
+				Element element) {
+			this.identifier = identifier;
+			this.object = object;
+			this.element = element;
+		}
+	}
+	
+	/**
+	 * A <strong>Streamer</strong> holds the working state of a single
+	 * streaming load.
+	 * @see BigraphXMLLoader#setStreaming(boolean)
+	 */
+	private final class Streamer {
+		private final XMLStreamReader r;
+		private final Document d = getSharedDocumentBuilder().newDocument();
+		private final ArrayDeque<Frame> frames = new ArrayDeque<Frame>();
+		private boolean signed = false;
+		
+		/* Points whose links hadn't been read when the points were; the
+		 * points themselves are kept, as Undecorators might have renamed
+		 * them (or their nodes) by the time the links have been read */
+		private final ArrayList<Point> pendingPoints = new ArrayList<Point>();
+		private final ArrayList<String> pendingLinks =
+				new ArrayList<String>();
+		
+		private Streamer(XMLStreamReader r) {
+			this.r = r;
+		}
+		
+		private Bigraph run() throws LoadFailedException, XMLStreamException {
+			cycleCheck();
+			Element el = createShallowElement(r, d);
+			if (!BIGRAPH.equals(el.getNamespaceURI()) ||
+					!"bigraph".equals(el.getLocalName()))
+				throw new LoadFailedException(
+						"The document is not a bigraph.");
+			String replacement = getAttributeNS(el, BIGRAPH, "src");
+			if (replacement != null)
+				return loadRelative(replacement, Bigraph.class,
+						new BigraphXMLLoader(BigraphXMLLoader.this).
+								setStreaming(true).setShareable(isShareable()));
+			
+			frames.push(new Frame(new Bigraph.Identifier(), bigraph, el));
+			while (!frames.isEmpty()) {
+				int type = r.next();
+				if (type == XMLStreamConstants.START_ELEMENT) {
+					startElement();
+				} else if (type == XMLStreamConstants.END_ELEMENT) {
+					if (frames.size() == 1)
+						finish();
+					Frame f = frames.pop();
+					executeUndecorators(f.object, f.element);
+				}
+			}
 			
+			executeChanges();
+			return bigraph;
+		}
+		
+		private void startElement()
+				throws LoadFailedException, XMLStreamException {
+			Frame parent = frames.peek();
+			String
+				ns = r.getNamespaceURI(),
+				type = r.getLocalName();
+			if (type.equals("signature") &&
+					(BIGRAPH.equals(ns) || SIGNATURE.equals(ns)) &&
+					parent.identifier instanceof Bigraph.Identifier &&
+					!signed) {
+				readSignature();
+			} else if (!BIGRAPH.equals(ns)) {
+				/* Keep foreign elements for the Undecorators */
+				parent.element.appendChild(readElement(r, d));
+			} else if (!signed) {
+				throw new LoadFailedException(
+						"The bigraph does not define or reference a " +
+						"signature.");
+			} else frames.push(readChild(parent, createShallowElement(r, d)));
+		}
+		
+		private void readSignature()
+				throws LoadFailedException, XMLStreamException {
+			Element e = readElement(r, d);
+			if (SIGNATURE.equals(e.getNamespaceURI()))
+				validateIfUntrusted(e, Schemas.getSignatureSchema());
+			SignatureXMLLoader sl =
+					new SignatureXMLLoader(BigraphXMLLoader.this);
+			sl.setShareable(true);
+			Signature s = loadSub(e, BIGRAPH, Signature.class, sl);
+			if (s != null) {
+				bigraph.setSignature(s, getCache().isShared(s));
+				signed = true;
+			} else throw new LoadFailedException(
+					"The bigraph does not define or reference a signature.");
+		}
+		
+		private Frame readChild(Frame parent, Element e)
+				throws LoadFailedException {
+			String
+				type = e.getLocalName(),
+				name = getAttributeNS(e, BIGRAPH, "name");
+			if (!isAllowed(parent.identifier, type))
+				throw new LoadFailedException(
+						"The element \"" + type + "\" is not allowed here.");
+			if (name == null)
+				throw new LoadFailedException(
+						"The element \"" + type + "\" has no name.");
+			
+			Layoutable.Identifier lID;
+			if (type.equals("port")) {
+				Port.Identifier pID = new Port.Identifier(
+						name, (Node.Identifier)parent.identifier);
+				connect(pID, getAttributeNS(e, BIGRAPH, "link"));
+				return new Frame(pID, null, e);
+			} else if (type.equals("node")) {
+				String controlName = getAttributeNS(e, BIGRAPH, "control");
+				if (controlName == null)
+					throw new LoadFailedException(
+							"The node \"" + name + "\" has no control.");
+				lID = new Node.Identifier(name,
+						new Control.Identifier(controlName));
+			} else lID = (Layoutable.Identifier)getNewObject(type, name);
+			
+			apply(new Container.ChangeAddChildDescriptor(
+					(Container.Identifier)parent.identifier, lID));
+			if (lID instanceof InnerName.Identifier)
+				connect((InnerName.Identifier)lID,
+						getAttributeNS(e, BIGRAPH, "link"));
+			return new Frame(lID, lID.lookup(getScratch(), bigraph), e);
+		}
+		
+		private boolean isAllowed(ModelObject.Identifier parent, String type) {
+			if (parent instanceof Bigraph.Identifier) {
+				return type.equals("edge") || type.equals("outername") ||
+						type.equals("root") || type.equals("innername");
+			} else if (parent instanceof Root.Identifier) {
+				return type.equals("node") || type.equals("site");
+			} else if (parent instanceof Node.Identifier) {
+				return type.equals("port") || type.equals("node") ||
+						type.equals("site");
+			} else return false;
+		}
+		
+		private void apply(IChangeDescriptor cd) throws LoadFailedException {
+			try {
+				tryAddChange(cd);
+			} catch (ChangeCreationException e) {
+				throw new LoadFailedException(e);
+			}
+		}
+		
+		private Link.Identifier getLink(String name) {
+			Layoutable l =
+					bigraph.getNamespace(Link.class).get(getScratch(), name);
+			return (l instanceof Link ?
+					((Link)l).getIdentifier(getScratch()) : null);
+		}
+		
+		private void connect(Point.Identifier point, String linkName)
+				throws LoadFailedException {
+			if (linkName == null)
+				return;
+			Link.Identifier lID = getLink(linkName);
+			if (lID != null) {
+				apply(new Point.ChangeConnectDescriptor(point, lID));
+			} else {
+				Point p = point.lookup(getScratch(), bigraph);
+				if (p == null)
+					throw new LoadFailedException(
+							"The point " + point + " does not exist.");
+				pendingPoints.add(p);
+				pendingLinks.add(linkName);
+			}
+		}
+		
+		private void finish() throws LoadFailedException {
+			if (!signed)
+				throw new LoadFailedException(
+						"The bigraph does not define or reference a " +
+						"signature.");
+			for (int i = 0; i < pendingPoints.size(); i++) {
+				Link.Identifier lID = getLink(pendingLinks.get(i));
+				if (lID == null)
+					throw new LoadFailedException(
+							"The link \"" + pendingLinks.get(i) +
+							"\" does not exist.");
+				apply(new Point.ChangeConnectDescriptor(
+						pendingPoints.get(i).getIdentifier(getScratch()), lID));
+			}
 		}
 	}
-
+	
 	@Override
 	public BigraphXMLLoader setFile(IFileWrapper f) {
 		return (BigraphXMLLoader)super.setFile(f);
 	}
-
+	
 	static ModelObject.Identifier getNewObject(String typeName, String name) {
 		typeName = typeName.toLowerCase(Locale.ENGLISH);
 		if (typeName.equals("bigraph"))
@@ -5,6 +5,7 @@ import org.bigraph.model.changes.descriptors.ChangeCreationException;
 import org.bigraph.model.changes.descriptors.ChangeDescriptorGroup;
 import org.bigraph.model.changes.descriptors.DescriptorExecutorManager;
 import org.bigraph.model.changes.descriptors.IChangeDescriptor;
+import org.bigraph.model.changes.descriptors.ValidatedChange;
 
 public abstract class ChangeLoader extends Loader implements IChangeLoader {
 	public ChangeLoader() {
@@ -14,26 +15,46 @@ public abstract class ChangeLoader extends Loader implements IChangeLoader {
 		super(parent);
 	}
 	
-	private ChangeDescriptorGroup cdg = new ChangeDescriptorGroup();
-	private PropertyScratchpad scratch = new PropertyScratchpad();
+	private ValidatedChange vc;
+	private PropertyScratchpad scratch =
+			new PropertyScratchpad().setSharing(true);
+	
+	private ValidatedChange getValidatedChange() {
+		if (vc == null)
+			vc = DescriptorExecutorManager.getInstance().
+					createValidatedChange(getResolver());
+		return vc;
+	}
 	
 	@Override
 	public void addChange(IChangeDescriptor c) {
 		if (c == null)
 			return;
 		try {
-			DescriptorExecutorManager.getInstance().tryValidateChange(
-					getScratch(), getResolver(), c);
-			c.simulate(getScratch(), getResolver());
-			cdg.add(c);
+			tryAddChange(c);
 		} catch (ChangeCreationException e) {
 			/* do nothing */
 		}
 	}
 	
+	/**
+	 * Validates a change against the scratchpad and, if it's valid, adds it
+	 * to the changes that {@link #executeChanges()} will execute.
+	 * <p>Unlike {@link #addChange(IChangeDescriptor)}, this method reports
+	 * invalid changes rather than ignoring them.
+	 * @param c an {@link IChangeDescriptor}
+	 * @throws ChangeCreationException if <code>c</code> isn't valid
+	 */
+	protected void tryAddChange(IChangeDescriptor c)
+			throws ChangeCreationException {
+		DescriptorExecutorManager.getInstance().tryValidateChange(
+				getValidatedChange(), getScratch(), c);
+		c.simulate(getScratch(), getResolver());
+	}
+	
 	@Override
 	public ChangeDescriptorGroup getChanges() {
-		return cdg;
+		return getValidatedChange().getChange();
 	}
 	
 	@Override
@@ -43,8 +64,11 @@ public abstract class ChangeLoader extends Loader implements IChangeLoader {
 	
 	protected void executeChanges() throws LoadFailedException {
 		try {
-			DescriptorExecutorManager.getInstance().tryApplyChange(
-					getResolver(), getChanges());
+			/* Each change has already been validated by addChange, so (as
+			 * long as nothing else has changed in the meantime) there's no
+			 * need to validate them all again */
+			DescriptorExecutorManager.getInstance().commit(
+					getValidatedChange());
 		} catch (ChangeCreationException cre) {
 			throw new LoadFailedException(cre);
 		}
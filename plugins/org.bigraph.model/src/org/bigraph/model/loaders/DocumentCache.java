@@ -0,0 +1,96 @@
+package org.bigraph.model.loaders;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bigraph.model.ModelObject;
+import org.bigraph.model.resources.IFileWrapper;
+
+/**
+ * A <strong>DocumentCache</strong> remembers the objects loaded from
+ * documents referenced by <code>src</code> attributes, so that a document
+ * referenced many times &mdash; a signature used by every rule in a
+ * simulation spec, for example &mdash; is only loaded once.
+ * <p>Every {@link Loader} without a parent creates a new cache, which is
+ * then used by all of the loaders beneath it. Only objects loaded by
+ * {@link Loader#setShareable(boolean) shareable} loaders, which are used as
+ * read-only references, are cached. Objects returned by the cache are
+ * shared by everything that refers to their document, and so shouldn't be
+ * modified or disposed of independently.
+ * <p>Entries are keyed by {@link IFileWrapper}, and are ignored once that
+ * file's {@link IFileWrapper#getModificationStamp() modification stamp}
+ * changes.
+ * <p>DocumentCaches are safe for use by more than one thread at once.
+ * @see Loader#getCache()
+ */
+public final class DocumentCache {
+	private static final class Entry {
+		private final long stamp;
+		private final ModelObject object;
+		
+		private Entry(long stamp, ModelObject object) {
+			this.stamp = stamp;
+			this.object = object;
+		}
+	}
+	
+	private final ConcurrentMap<IFileWrapper, Entry> entries =
+			new ConcurrentHashMap<IFileWrapper, Entry>();
+	
+	/**
+	 * Retrieves the object previously loaded from the given file, if its
+	 * modification stamp hasn't changed since.
+	 * @param file an {@link IFileWrapper}
+	 * @param stamp the file's current modification stamp
+	 * @return a {@link ModelObject}, or <code>null</code> if there isn't an
+	 * up-to-date entry for <code>file</code>
+	 */
+	public ModelObject get(IFileWrapper file, long stamp) {
+		Entry e = entries.get(file);
+		return (e != null && e.stamp == stamp ? e.object : null);
+	}
+	
+	/**
+	 * Adds an object loaded from the given file to the cache.
+	 * <p>If another thread has already added an object loaded from the
+	 * same version of the file, then that object will be returned instead,
+	 * so that everyone ends up sharing the same one.
+	 * @param file an {@link IFileWrapper}
+	 * @param stamp the file's modification stamp before it was loaded
+	 * @param object the {@link ModelObject} loaded from <code>file</code>
+	 * @return the {@link ModelObject} which should be used
+	 */
+	public ModelObject put(IFileWrapper file, long stamp, ModelObject object) {
+		Entry n = new Entry(stamp, object);
+		while (true) {
+			Entry e = entries.putIfAbsent(file, n);
+			if (e == null) {
+				return object;
+			} else if (e.stamp == stamp) {
+				return e.object;
+			} else if (entries.replace(file, e, n))
+				return object;
+		}
+	}
+	
+	/**
+	 * Indicates whether or not the given object is in the cache (and so
+	 * might also be used by other objects).
+	 * @param object a {@link ModelObject}
+	 * @return <code>true</code> if <code>object</code> is in the cache, or
+	 * <code>false</code> otherwise
+	 */
+	public boolean isShared(ModelObject object) {
+		for (Entry e : entries.values())
+			if (e.object == object)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Removes every entry from the cache.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+}
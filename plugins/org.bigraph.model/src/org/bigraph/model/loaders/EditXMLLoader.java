@@ -33,7 +33,7 @@ public class EditXMLLoader extends XMLLoader {
 	@Override
 	public Edit importObject() throws LoadFailedException {
 		try {
-			Document d = validate(parse(getInputStream()),
+			Document d = validateIfUntrusted(parse(getInputStream()),
 					Schemas.getEditSchema());
 			Edit ed = makeObject(d.getDocumentElement());
 			FileData.setFile(ed, getFile());
@@ -90,7 +90,7 @@ public class EditXMLLoader extends XMLLoader {
 		String replacement = getAttributeNS(el, EDIT, "src");
 		if (replacement != null)
 			return loadRelative(replacement, Edit.class,
-					new EditXMLLoader(this));
+					new EditXMLLoader(this).setShareable(isShareable()));
 		executeUndecorators(edit, el);
 		
 		int index = 0;
@@ -5,9 +5,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.bigraph.model.ModelObject;
+import org.bigraph.model.Signature;
 import org.bigraph.model.process.AbstractParticipantHost;
 import org.bigraph.model.process.ParticipantManager;
 import org.bigraph.model.resources.IFileWrapper;
+import org.bigraph.model.resources.IResourceWrapper;
 
 public abstract class Loader
 		extends AbstractParticipantHost implements ILoader {
@@ -28,6 +30,8 @@ public abstract class Loader
 	
 	public Loader(Loader parent) {
 		this.parent = parent;
+		if (parent == null)
+			cache = new DocumentCache();
 		getParticipantManager().addParticipants(this);
 	}
 	
@@ -49,6 +53,111 @@ public abstract class Loader
 		}
 	}
 	
+	private DocumentCache cache;
+	
+	/**
+	 * Returns the {@link DocumentCache} used to share referenced documents
+	 * between all of the loaders taking part in this load. If this loader
+	 * doesn't have a cache of its own, then it uses its parent's.
+	 * @return a {@link DocumentCache}
+	 * @see #setCache(DocumentCache)
+	 */
+	public DocumentCache getCache() {
+		return (cache != null ? cache : getParent().getCache());
+	}
+	
+	/**
+	 * Sets the {@link DocumentCache} used by this loader and the loaders
+	 * beneath it, so that referenced documents can also be shared between
+	 * separate loads. This should be called before {@link #importObject()}.
+	 * @param cache a {@link DocumentCache} (not <code>null</code>)
+	 * @return <code>this</code>, for convenience
+	 */
+	public Loader setCache(DocumentCache cache) {
+		if (cache != null)
+			this.cache = cache;
+		return this;
+	}
+	
+	private boolean shareable = false;
+	
+	/**
+	 * Indicates whether or not the object produced by this loader will only
+	 * be used as a read-only reference (as the {@link
+	 * org.bigraph.model.Signature Signature} of a {@link
+	 * org.bigraph.model.Bigraph Bigraph} is, for example), and so can be
+	 * shared through the {@link #getCache() cache}. Objects that will become
+	 * the children of other objects must not be shared, as a {@link
+	 * ModelObject} can only have one parent.
+	 * @param shareable whether or not the loaded object can be shared
+	 * @return <code>this</code>, for convenience
+	 */
+	protected Loader setShareable(boolean shareable) {
+		this.shareable = shareable;
+		return this;
+	}
+	
+	protected boolean isShareable() {
+		return shareable;
+	}
+	
+	/**
+	 * Loads the document at the given path, relative to this loader's
+	 * file, using the given {@link Loader}. If that loader is {@link
+	 * #setShareable(boolean) shareable}, and the document has already been
+	 * loaded and hasn't changed since, then the object from the {@link
+	 * #getCache() cache} will be returned instead.
+	 * @param replacement a relative path (can be <code>null</code>)
+	 * @param klass the class of the object that the document should contain
+	 * @param loader a new {@link Loader} whose parent is this one
+	 * @return the loaded object, or <code>null</code> if
+	 * <code>replacement</code> was <code>null</code>
+	 * @throws LoadFailedException if the document couldn't be loaded, if it
+	 * didn't contain an object of the right class, or if loading it would
+	 * cause a cycle
+	 */
+	protected <T extends ModelObject> T loadRelative(String replacement,
+			Class<? extends T> klass, Loader loader)
+					throws LoadFailedException {
+		if (replacement != null) {
+			if (getFile() == null)
+				 throw new RuntimeException("BUG: relative path to resolve, " +
+							"but no IFileWrapper set on " + this);
+			IResourceWrapper rw =
+					getFile().getParent().getResource(replacement);
+			if (rw instanceof IFileWrapper) {
+				IFileWrapper fw = (IFileWrapper)rw;
+				/* Check for cycles before going anywhere near the cache, as
+				 * a cached copy of a document won't check its references */
+				loader.setFile(fw).cycleCheck();
+				ModelObject mo;
+				if (loader.isShareable()) {
+					DocumentCache cache = getCache();
+					long stamp = fw.getModificationStamp();
+					mo = cache.get(fw, stamp);
+					if (mo == null) {
+						loader.setInputStream(fw.getContents());
+						mo = loader.importObject();
+						/* Shared signatures must never be modified */
+						if (mo instanceof Signature)
+							((Signature)mo).setReadOnly(true);
+						mo = cache.put(fw, stamp, mo);
+					}
+				} else {
+					loader.setInputStream(fw.getContents());
+					mo = loader.importObject();
+				}
+				if (klass.isInstance(mo)) {
+					return klass.cast(mo);
+				} else throw new LoadFailedException(
+						"Referenced document \"" + replacement +
+						"\" is not of the correct type");
+			} else throw new LoadFailedException(
+					"Referenced document \"" + replacement +
+					"\" is not valid");
+		} else return null;
+	}
+	
 	private InputStream source = null;
 	
 	/**
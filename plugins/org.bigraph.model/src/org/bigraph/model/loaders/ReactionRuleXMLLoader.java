@@ -46,7 +46,7 @@ public class ReactionRuleXMLLoader extends XMLLoader {
 	@Override
 	public ReactionRule importObject() throws LoadFailedException {
 		try {
-			Document d = validate(parse(getInputStream()),
+			Document d = validateIfUntrusted(parse(getInputStream()),
 					Schemas.getRuleSchema());
 			ReactionRule rr = makeObject(d.getDocumentElement());
 			FileData.setFile(rr, getFile());
@@ -64,7 +64,8 @@ public class ReactionRuleXMLLoader extends XMLLoader {
 		String replacement = getAttributeNS(e, RULE, "src");
 		if (replacement != null)
 			return loadRelative(replacement, ReactionRule.class,
-					new ReactionRuleXMLLoader(this));
+					new ReactionRuleXMLLoader(this).setShareable(
+							isShareable()));
 		executeUndecorators(rr, e);
 		
 		rr.setRedex(loadSub(
@@ -1,9 +1,15 @@
 package org.bigraph.model.loaders;
 
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 import javax.xml.XMLConstants;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
 
 import org.bigraph.model.loaders.internal.SchemaResolver;
 import org.bigraph.model.resources.ResourceOpenable;
@@ -16,6 +22,9 @@ public abstract class Schemas {
 		sf.setResourceResolver(SchemaResolver.getInstance());
 	}
 	
+	private static final Map<Schema, SchemaSpec> specs =
+			new ConcurrentHashMap<Schema, SchemaSpec>();
+	
 	private static final class SchemaSpec {
 		private final String xmlns, path;
 		private ResourceOpenable file;
@@ -27,15 +36,21 @@ public abstract class Schemas {
 					xmlns, file = new ResourceOpenable(Schemas.class, path));
 		}
 		
-		private Schema schema;
+		private volatile Schema schema;
 		
 		private Schema getSchema() {
-			if (schema == null) {
-				synchronized (this) {
+			Schema s = schema;
+			if (s == null) {
+				/* SchemaFactories aren't thread-safe, so only one schema can
+				 * be compiled at a time */
+				synchronized (sf) {
 					try {
-						if (schema == null)
-							schema = sf.newSchema(
-									new StreamSource(file.open()));
+						s = schema;
+						if (s == null) {
+							s = sf.newSchema(new StreamSource(file.open()));
+							specs.put(s, this);
+							schema = s;
+						}
 					} catch (SAXException e) {
 						throw new RuntimeException(
 								"BUG: internal schema " + this +
@@ -43,7 +58,22 @@ public abstract class Schemas {
 					}
 				}
 			}
-			return schema;
+			return s;
+		}
+		
+		/* Validators aren't thread-safe, but they can be reused once they've
+		 * been reset */
+		private final Queue<Validator> validators =
+				new ConcurrentLinkedQueue<Validator>();
+		
+		private Validator acquireValidator() {
+			Validator v = validators.poll();
+			return (v != null ? v : getSchema().newValidator());
+		}
+		
+		private void releaseValidator(Validator v) {
+			v.reset();
+			validators.offer(v);
 		}
 		
 		@Override
@@ -80,6 +110,46 @@ public abstract class Schemas {
 	
 	private Schemas() {}
 	
+	/**
+	 * Returns a {@link Validator} for the given {@link Schema}. If the Schema
+	 * came from this class, then the Validator will be taken from its pool;
+	 * it should be given back with {@link #releaseValidator(Schema,
+	 * Validator)} once it's no longer needed.
+	 * @param schema a {@link Schema}
+	 * @return a {@link Validator}, which should not be passed to other
+	 * threads
+	 */
+	static Validator acquireValidator(Schema schema) {
+		SchemaSpec spec = specs.get(schema);
+		return (spec != null ?
+				spec.acquireValidator() : schema.newValidator());
+	}
+	
+	/**
+	 * Returns a {@link Validator} obtained from {@link
+	 * #acquireValidator(Schema)} to its pool.
+	 * @param schema the {@link Schema} that was passed to {@link
+	 * #acquireValidator(Schema)}
+	 * @param v the {@link Validator} that it returned
+	 */
+	static void releaseValidator(Schema schema, Validator v) {
+		SchemaSpec spec = specs.get(schema);
+		if (spec != null)
+			spec.releaseValidator(v);
+	}
+	
+	/**
+	 * Returns the namespace of the documents that the given {@link Schema}
+	 * validates.
+	 * @param schema a {@link Schema}
+	 * @return a namespace URI, or <code>null</code> if the Schema didn't come
+	 * from this class
+	 */
+	static String getNamespace(Schema schema) {
+		SchemaSpec spec = specs.get(schema);
+		return (spec != null ? spec.xmlns : null);
+	}
+	
 	/**
 	 * Returns the shared {@link Schema} suitable for validating
 	 * <code>bigraph</code> documents.
@@ -88,7 +158,7 @@ public abstract class Schemas {
 	public static Schema getBigraphSchema() {
 		return bigraph.getSchema();
 	}
-
+	
 	/**
 	 * Returns the shared {@link Schema} suitable for validating
 	 * <code>signature</code> documents.
@@ -97,7 +167,7 @@ public abstract class Schemas {
 	public static Schema getSignatureSchema() {
 		return signature.getSchema();
 	}
-
+	
 	/**
 	 * Returns the shared {@link Schema} suitable for validating
 	 * <code>rule</code> documents.
@@ -106,7 +176,7 @@ public abstract class Schemas {
 	public static Schema getRuleSchema() {
 		return rule.getSchema();
 	}
-
+	
 	/**
 	 * Returns the shared {@link Schema} suitable for validating
 	 * <code>spec</code> documents.
@@ -115,7 +185,7 @@ public abstract class Schemas {
 	public static Schema getSpecSchema() {
 		return spec.getSchema();
 	}
-
+	
 	/**
 	 * Returns the shared {@link Schema} suitable for validating
 	 * <code>edit</code> documents.
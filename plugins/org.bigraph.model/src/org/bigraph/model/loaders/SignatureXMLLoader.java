@@ -30,7 +30,7 @@ public class SignatureXMLLoader extends XMLLoader {
 	@Override
 	public Signature importObject() throws LoadFailedException {
 		try {
-			Document d = validate(parse(getInputStream()),
+			Document d = validateIfUntrusted(parse(getInputStream()),
 					Schemas.getSignatureSchema());
 			Signature s = makeObject(d.getDocumentElement());
 			FileData.setFile(s, getFile());
@@ -75,7 +75,7 @@ public class SignatureXMLLoader extends XMLLoader {
 		String replacement = getAttributeNS(e, SIGNATURE, "src");
 		if (replacement != null)
 			return loadRelative(replacement, Signature.class,
-					new SignatureXMLLoader(this));
+					new SignatureXMLLoader(this).setShareable(isShareable()));
 		executeUndecorators(sig, e);
 		
 		for (Element j : getNamedChildElements(e, SIGNATURE, "signature"))
@@ -1,5 +1,14 @@
 package org.bigraph.model.loaders;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.bigraph.model.ModelObject;
 import org.bigraph.model.Bigraph;
 import org.bigraph.model.ReactionRule;
 import org.bigraph.model.Signature;
@@ -27,7 +36,7 @@ public class SimulationSpecXMLLoader extends XMLLoader {
 	@Override
 	public SimulationSpec importObject() throws LoadFailedException {
 		try {
-			Document d = validate(parse(getInputStream()),
+			Document d = validateIfUntrusted(parse(getInputStream()),
 					Schemas.getSpecSchema());
 			SimulationSpec ss = makeObject(d.getDocumentElement());
 			FileData.setFile(ss, getFile());
@@ -41,6 +50,89 @@ public class SimulationSpecXMLLoader extends XMLLoader {
 	
 	private final SimulationSpec ss = new SimulationSpec();
 	
+	private ExecutorService executor;
+	
+	/**
+	 * Returns the {@link ExecutorService} that this loader uses to load
+	 * referenced documents.
+	 * @return an {@link ExecutorService}, or <code>null</code> if documents
+	 * are loaded one after another
+	 * @see #setExecutor(ExecutorService)
+	 */
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+	
+	/**
+	 * Sets the {@link ExecutorService} that this loader should use to load
+	 * referenced documents.
+	 * <p>When an executor has been set, the signature, rules and model that
+	 * the spec refers to with <code>src</code> attributes are all loaded at
+	 * the same time, each by a separate task. (Anything defined in the spec
+	 * document itself is still loaded by the calling thread.) Once they've
+	 * all been loaded, they're added to the spec in document order, so the
+	 * result is the same as it would have been without an executor.
+	 * @param executor an {@link ExecutorService}, or <code>null</code> to
+	 * load documents one after another
+	 * @return <code>this</code>, for convenience
+	 */
+	public SimulationSpecXMLLoader setExecutor(ExecutorService executor) {
+		this.executor = executor;
+		return this;
+	}
+	
+	/**
+	 * Starts loading the object represented by an element, using the
+	 * {@link #getExecutor() executor} if the element refers to another
+	 * document.
+	 * <p>Worker threads never see the spec document itself (DOM trees are
+	 * not thread-safe, even for reading), just the <code>src</code>
+	 * attribute read here.
+	 * @param el an {@link Element} (can be <code>null</code>)
+	 * @param klass the class of the object to load
+	 * @param loader the {@link XMLLoader} that should load it
+	 * @return a {@link Future} for the loaded object
+	 */
+	private <T extends ModelObject> Future<T> submit(final Element el,
+			final Class<T> klass, final XMLLoader loader) {
+		final String src = getSourceAttribute(el, SPEC);
+		if (executor != null && src != null) {
+			return executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws LoadFailedException {
+					return loadRelative(src, klass, loader);
+				}
+			});
+		} else {
+			FutureTask<T> f = new FutureTask<T>(new Callable<T>() {
+				@Override
+				public T call() throws LoadFailedException {
+					return loadSub(el, SPEC, klass, loader);
+				}
+			});
+			f.run();
+			return f;
+		}
+	}
+	
+	private static <T> T get(Future<T> f) throws LoadFailedException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LoadFailedException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof LoadFailedException) {
+				throw (LoadFailedException)cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			} else throw new LoadFailedException(cause);
+		}
+	}
+	
 	@Override
 	public Resolver getResolver() {
 		return ss;
@@ -52,41 +144,63 @@ public class SimulationSpecXMLLoader extends XMLLoader {
 		String replacement = getAttributeNS(e, SPEC, "src");
 		if (replacement != null)
 			return loadRelative(replacement, SimulationSpec.class,
-					new SimulationSpecXMLLoader(this));
+					new SimulationSpecXMLLoader(this).setShareable(
+							isShareable()));
 		executeUndecorators(ss, e);
 		
-		Signature s = loadSub(
-				selectFirst(
-					getNamedChildElement(e, SIGNATURE, "signature"),
-					getNamedChildElement(e, SPEC, "signature")),
-				SPEC, Signature.class, new SignatureXMLLoader(this));
-		if (s != null)
-			addChange(new SimulationSpec.ChangeSetSignatureDescriptor(
-					new SimulationSpec.Identifier(), null, s));
-		
-		int index = 0;
-		for (Element n :
-				forNodeList(e.getChildNodes()).filter(Element.class)) {
-			String ns = n.getNamespaceURI();
-			if ((SPEC.equals(ns) || RULE.equals(ns)) &&
-					"rule".equals(n.getLocalName())) {
-				ReactionRule rr = loadSub(n, SPEC, ReactionRule.class,
-						new ReactionRuleXMLLoader(this));
+		Future<Signature> fs = null;
+		List<Future<ReactionRule>> frs = new ArrayList<Future<ReactionRule>>();
+		Future<Bigraph> fb = null;
+		try {
+			fs = submit(
+					selectFirst(
+						getNamedChildElement(e, SIGNATURE, "signature"),
+						getNamedChildElement(e, SPEC, "signature")),
+					Signature.class, new SignatureXMLLoader(this));
+			
+			for (Element n :
+					forNodeList(e.getChildNodes()).filter(Element.class)) {
+				String ns = n.getNamespaceURI();
+				if ((SPEC.equals(ns) || RULE.equals(ns)) &&
+						"rule".equals(n.getLocalName()))
+					frs.add(submit(n, ReactionRule.class,
+							new ReactionRuleXMLLoader(this)));
+			}
+			
+			fb = submit(
+					selectFirst(
+						getNamedChildElement(e, BIGRAPH, "bigraph"),
+						getNamedChildElement(e, SPEC, "model")),
+					Bigraph.class, new BigraphXMLLoader(this));
+			
+			Signature s = get(fs);
+			if (s != null)
+				addChange(new SimulationSpec.ChangeSetSignatureDescriptor(
+						new SimulationSpec.Identifier(), null, s));
+			
+			int index = 0;
+			for (Future<ReactionRule> f : frs) {
+				ReactionRule rr = get(f);
 				if (rr != null)
 					addChange(new SimulationSpec.ChangeAddRuleDescriptor(
 							new SimulationSpec.Identifier(), index++, rr));
 			}
+			
+			Bigraph b = get(fb);
+			if (b != null)
+				addChange(new SimulationSpec.ChangeSetModelDescriptor(
+						new SimulationSpec.Identifier(), null, b));
+		} finally {
+			/* If anything went wrong, then don't bother waiting for the
+			 * other documents */
+			if (fs != null)
+				fs.cancel(true);
+			for (Future<ReactionRule> f : frs)
+				f.cancel(true);
+			if (fb != null)
+				fb.cancel(true);
 		}
 		
-		Bigraph b = loadSub(
-				selectFirst(
-					getNamedChildElement(e, BIGRAPH, "bigraph"),
-					getNamedChildElement(e, SPEC, "model")),
-				SPEC, Bigraph.class, new BigraphXMLLoader(this));
-		if (b != null)
-			addChange(new SimulationSpec.ChangeSetModelDescriptor(
-					new SimulationSpec.Identifier(), null, b));
-		
 		executeChanges();
 		return ss;
 	}
@@ -0,0 +1,78 @@
+package org.bigraph.model.loaders;
+
+/**
+ * Constants describing the binary bigraph structure format read by {@link
+ * BigraphStructureLoader} and written by {@link
+ * org.bigraph.model.savers.BigraphStructureSaver BigraphStructureSaver}.
+ * <p>A binary bigraph is a sequence of big-endian <code>int</code>s:
+ * <ul>
+ * <li>the {@link #MAGIC} number and the format {@link #VERSION};
+ * <li>the string table: the number of strings, followed by each string as
+ * a byte length and that many bytes of UTF-8, padded with zeroes to a
+ * multiple of four bytes; and
+ * <li>any number of sections, each of which is a tag, the number of
+ * <code>int</code>s in the section's body, and the body itself.
+ * </ul>
+ * <p>Everywhere else in the file, strings are referred to by their index in
+ * the string table, and <code>-1</code> stands for <code>null</code>.
+ * Sections with unknown tags are skipped.
+ * @see #SECTION_SIGNATURE
+ * @see #SECTION_PLACE
+ * @see #SECTION_LINK
+ */
+public abstract class StructureFormatConstants {
+	private StructureFormatConstants() {}
+	
+	/**
+	 * The first four bytes of every binary bigraph (<code>"BigB"</code>).
+	 */
+	public static final int MAGIC = 0x42696742;
+	
+	/**
+	 * The version of the binary bigraph format described by this class.
+	 */
+	public static final int VERSION = 1;
+	
+	/**
+	 * The signature section. Its body is either {@link #SIGNATURE_REFERENCE}
+	 * followed by the relative path of a signature document, or {@link
+	 * #SIGNATURE_EMBEDDED} followed by a signature: the number of controls,
+	 * then each control as its name, its kind ({@link #KIND_ATOMIC}, {@link
+	 * #KIND_ACTIVE} or {@link #KIND_PASSIVE}), the number of its ports and
+	 * their names; then the number of child signatures, and each of those in
+	 * turn.
+	 */
+	public static final int SECTION_SIGNATURE = 1;
+	
+	/**
+	 * The place graph section. Its body is the number of entries, followed
+	 * by each entry as four <code>int</code>s: its type ({@link #TYPE_EDGE},
+	 * {@link #TYPE_OUTER_NAME}, {@link #TYPE_ROOT}, {@link #TYPE_NODE},
+	 * {@link #TYPE_SITE} or {@link #TYPE_INNER_NAME}), its name, the index
+	 * of its parent entry (or <code>-1</code> for the bigraph itself), and
+	 * its control's name. Every entry comes after its parent.
+	 */
+	public static final int SECTION_PLACE = 2;
+	
+	/**
+	 * The link graph section. Its body is the number of connections,
+	 * followed by each connection as three <code>int</code>s: the index of a
+	 * node or inner name entry, the name of the port (or <code>-1</code> for
+	 * an inner name), and the index of an edge or outer name entry.
+	 */
+	public static final int SECTION_LINK = 3;
+	
+	public static final int SIGNATURE_REFERENCE = 0;
+	public static final int SIGNATURE_EMBEDDED = 1;
+	
+	public static final int KIND_ATOMIC = 0;
+	public static final int KIND_ACTIVE = 1;
+	public static final int KIND_PASSIVE = 2;
+	
+	public static final int TYPE_EDGE = 0;
+	public static final int TYPE_OUTER_NAME = 1;
+	public static final int TYPE_ROOT = 2;
+	public static final int TYPE_NODE = 3;
+	public static final int TYPE_SITE = 4;
+	public static final int TYPE_INNER_NAME = 5;
+}
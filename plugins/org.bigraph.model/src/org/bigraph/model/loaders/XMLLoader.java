@@ -6,16 +6,20 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
 
 import org.bigraph.model.ModelObject;
 import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
-import org.bigraph.model.resources.IFileWrapper;
-import org.bigraph.model.resources.IResourceWrapper;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -35,21 +39,35 @@ public abstract class XMLLoader extends ChangeLoader implements IXMLLoader {
 	}
 	
 	private static final DocumentBuilderFactory dbf;
-	private static final DocumentBuilder db;
 	static {
 		dbf = DocumentBuilderFactory.newInstance();
 		dbf.setNamespaceAware(true);
-		DocumentBuilder db_ = null;
-		try {
-			db_ = dbf.newDocumentBuilder();
-		} catch (ParserConfigurationException pce) {
-			/* do nothing */
-		}
-		db = db_;
 	}
 	
+	/* DocumentBuilders can't be used by more than one thread at once, so
+	 * each thread gets its own */
+	private static final ThreadLocal<DocumentBuilder> db =
+			new ThreadLocal<DocumentBuilder>() {
+		@Override
+		protected DocumentBuilder initialValue() {
+			synchronized (dbf) {
+				try {
+					return dbf.newDocumentBuilder();
+				} catch (ParserConfigurationException pce) {
+					return null;
+				}
+			}
+		}
+	};
+	
+	/**
+	 * Returns the namespace-aware {@link DocumentBuilder} shared by all of
+	 * the loaders running on the calling thread.
+	 * @return a {@link DocumentBuilder}, which should not be passed to
+	 * other threads
+	 */
 	public static DocumentBuilder getSharedDocumentBuilder() {
-		return db;
+		return db.get();
 	}
 	
 	public static String getAttributeNS(Element d, String nsURI, String n) {
@@ -58,19 +76,81 @@ public abstract class XMLLoader extends ChangeLoader implements IXMLLoader {
 			r = d.getAttributeNS(null, n);
 		return (r.length() != 0 ? r : null);
 	}
-
+	
 	protected static <T extends Node> T validate(T d, Schema schema)
 			throws LoadFailedException {
+		Validator v = Schemas.acquireValidator(schema);
 		try {
-			schema.newValidator().validate(new DOMSource(d));
+			v.validate(new DOMSource(d));
 			return d;
 		} catch (SAXException e) {
 			throw new LoadFailedException(e);
 		} catch (IOException e) {
 			throw new LoadFailedException(e);
+		} finally {
+			Schemas.releaseValidator(schema, v);
 		}
 	}
 	
+	private Boolean trusted;
+	
+	/**
+	 * Indicates whether or not this loader trusts its input. If this loader
+	 * hasn't been told either way, then it asks its parent.
+	 * @return <code>true</code> if input should not be validated against
+	 * its schema, or <code>false</code> otherwise
+	 * @see #setTrusted(boolean)
+	 */
+	public boolean isTrusted() {
+		Loader parent;
+		if (trusted != null) {
+			return trusted;
+		} else if ((parent = getParent()) instanceof XMLLoader) {
+			return ((XMLLoader)parent).isTrusted();
+		} else return false;
+	}
+	
+	/**
+	 * Sets whether or not this loader trusts its input &mdash; for example,
+	 * because it was produced by an {@link
+	 * org.bigraph.model.savers.XMLSaver XMLSaver} and hasn't been changed
+	 * since. Trusted input is not validated against its schema; only its
+	 * document element is checked. Loaders created by this one to read
+	 * referenced documents inherit this setting.
+	 * <p>Malformed trusted input will still usually cause a {@link
+	 * LoadFailedException}, but it may instead produce a model that doesn't
+	 * match the document.
+	 * @param trusted whether or not to trust the input
+	 * @return <code>this</code>, for convenience
+	 */
+	public XMLLoader setTrusted(boolean trusted) {
+		this.trusted = trusted;
+		return this;
+	}
+	
+	/**
+	 * Validates a {@link Node} against a {@link Schema}, unless this loader
+	 * {@link #isTrusted() trusts its input}, in which case only the
+	 * namespace of the Node's document element is checked.
+	 * @param d a {@link Node}
+	 * @param schema a {@link Schema}
+	 * @return <code>d</code>, for convenience
+	 * @throws LoadFailedException if <code>d</code> wasn't valid
+	 */
+	protected <T extends Node> T validateIfUntrusted(T d, Schema schema)
+			throws LoadFailedException {
+		if (!isTrusted())
+			return validate(d, schema);
+		String ns = Schemas.getNamespace(schema);
+		Element el = (d instanceof Document ?
+				((Document)d).getDocumentElement() :
+				d instanceof Element ? (Element)d : null);
+		if (ns != null && (el == null || !ns.equals(el.getNamespaceURI())))
+			throw new LoadFailedException(
+					"The document element is not in the namespace " + ns);
+		return d;
+	}
+	
 	/**
 	 * Attempts to parse the specified {@link InputStream} into a DOM {@link
 	 * Document}.
@@ -89,7 +169,102 @@ public abstract class XMLLoader extends ChangeLoader implements IXMLLoader {
 			is.close();
 		}
 	}
-
+	
+	private static final XMLInputFactory xif;
+	static {
+		xif = XMLInputFactory.newInstance();
+		xif.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		xif.setProperty(
+				XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+	
+	/**
+	 * Creates a new namespace-aware {@link XMLStreamReader} for the specified
+	 * {@link InputStream}.
+	 * <p>(Closing the reader does not close the InputStream.)
+	 * @param is an InputStream
+	 * @return an XMLStreamReader
+	 * @throws XMLStreamException if the reader couldn't be created
+	 */
+	protected static XMLStreamReader createStreamReader(InputStream is)
+			throws XMLStreamException {
+		synchronized (xif) {
+			return xif.createXMLStreamReader(is);
+		}
+	}
+	
+	private static String getNamespaceURI(String ns) {
+		return (ns != null && ns.length() != 0 ? ns : null);
+	}
+	
+	private static String getQualifiedName(String prefix, String localName) {
+		return (prefix != null && prefix.length() != 0 ?
+				prefix + ":" + localName : localName);
+	}
+	
+	/**
+	 * Creates a DOM {@link Element} with the same name and attributes as the
+	 * element at the current position of an {@link XMLStreamReader}, but
+	 * with no children. The position of the reader is not changed.
+	 * @param r an XMLStreamReader positioned at a start tag
+	 * @param d the {@link Document} that should own the new Element
+	 * @return a new Element
+	 */
+	protected static Element createShallowElement(
+			XMLStreamReader r, Document d) {
+		Element el = d.createElementNS(getNamespaceURI(r.getNamespaceURI()),
+				getQualifiedName(r.getPrefix(), r.getLocalName()));
+		for (int i = 0; i < r.getNamespaceCount(); i++) {
+			String prefix = r.getNamespacePrefix(i);
+			el.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+					(prefix != null && prefix.length() != 0 ?
+							XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix :
+							XMLConstants.XMLNS_ATTRIBUTE),
+					r.getNamespaceURI(i));
+		}
+		for (int i = 0; i < r.getAttributeCount(); i++)
+			el.setAttributeNS(getNamespaceURI(r.getAttributeNamespace(i)),
+					getQualifiedName(
+							r.getAttributePrefix(i), r.getAttributeLocalName(i)),
+					r.getAttributeValue(i));
+		return el;
+	}
+	
+	/**
+	 * Reads the element at the current position of an {@link
+	 * XMLStreamReader}, together with everything inside it, into a DOM
+	 * {@link Element}. When this method returns, the reader will be
+	 * positioned at that element's end tag.
+	 * @param r an XMLStreamReader positioned at a start tag
+	 * @param d the {@link Document} that should own the new Element
+	 * @return a new Element
+	 * @throws XMLStreamException if the input couldn't be read
+	 */
+	protected static Element readElement(XMLStreamReader r, Document d)
+			throws XMLStreamException {
+		Element top = createShallowElement(r, d), current = top;
+		while (current != null) {
+			switch (r.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				current = (Element)current.appendChild(
+						createShallowElement(r, d));
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				current = (current != top ?
+						(Element)current.getParentNode() : null);
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				current.appendChild(d.createTextNode(r.getText()));
+				break;
+			default:
+				/* do nothing */
+			}
+		}
+		return top;
+	}
+	
 	/**
 	 * Returns all the child {@link Node}s of the specified {@link Element}
 	 * which are themselves {@link Element}s.
@@ -106,7 +281,7 @@ public abstract class XMLLoader extends ChangeLoader implements IXMLLoader {
 		}
 		return children;
 	}
-
+	
 	/**
 	 * Gets all the children of the specified element with the given name and
 	 * namespace.
@@ -124,7 +299,7 @@ public abstract class XMLLoader extends ChangeLoader implements IXMLLoader {
 				r.add(t);
 		return r;
 	}
-
+	
 	/**
 	 * Returns the unique child of the specified Element which has the given
 	 * tag name.
@@ -142,30 +317,6 @@ public abstract class XMLLoader extends ChangeLoader implements IXMLLoader {
 		else return null;
 	}
 	
-	protected <T extends ModelObject> T loadRelative(String replacement,
-			Class<? extends T> klass, XMLLoader loader)
-					throws LoadFailedException {
-		if (replacement != null) {
-			if (getFile() == null)
-				 throw new RuntimeException("BUG: relative path to resolve, " +
-							"but no IFileWrapper set on " + this);
-			IResourceWrapper rw =
-					getFile().getParent().getResource(replacement);
-			if (rw instanceof IFileWrapper) {
-				IFileWrapper fw = (IFileWrapper)rw;
-				loader.setFile(fw).setInputStream(fw.getContents());
-				ModelObject mo = loader.importObject();
-				if (klass.isInstance(mo)) {
-					return klass.cast(mo);
-				} else throw new LoadFailedException(
-						"Referenced document \"" + replacement +
-						"\" is not of the correct type");
-			} else throw new LoadFailedException(
-					"Referenced document \"" + replacement +
-					"\" is not valid");
-		} else return null;
-	}
-	
 	protected abstract ModelObject makeObject(Element el)
 			throws LoadFailedException;
 	
@@ -176,24 +327,39 @@ public abstract class XMLLoader extends ChangeLoader implements IXMLLoader {
 		return null;
 	}
 	
+	/**
+	 * Returns the <code>src</code> attribute that {@link #loadSub(Element,
+	 * String, Class, XMLLoader)} would follow for an element, if there is
+	 * one.
+	 * @param el an {@link Element} (can be <code>null</code>)
+	 * @param myNS the namespace of the calling loader
+	 * @return the value of <code>el</code>'s <code>src</code> attribute, or
+	 * <code>null</code> if it doesn't have one or if it's foreign
+	 */
+	protected static String getSourceAttribute(Element el, String myNS) {
+		if (el == null)
+			return null;
+		String theirNS = el.getNamespaceURI();
+		if (myNS != null ? myNS.equals(theirNS) : theirNS == null) {
+			return getAttributeNS(el, myNS, "src");
+		} else return null;
+	}
+	
 	protected <T extends ModelObject> T loadSub(
 			Element el, String myNS, Class<T> klass, XMLLoader loader)
 			throws LoadFailedException {
 		if (el == null)
 			return null;
-		String
-			src = getAttributeNS(el, myNS, "src"),
-			theirNS = el.getNamespaceURI();
+		String src = getSourceAttribute(el, myNS);
 		/* If this element is foreign, or if it doesn't have a src attribute,
 		 * then let the loader do everything */
-		if (!(myNS != null ? myNS.equals(theirNS) : theirNS == null) ||
-				src == null) {
+		if (src == null) {
 			try {
 				return klass.cast(loader.makeObject(el));
 			} catch (ClassCastException cce) {
 				throw new LoadFailedException(cce);
 			}
-		/* Otherwise, interpret the src attribute (which can't be null) */
+		/* Otherwise, interpret the src attribute */
 		} else return loadRelative(src, klass, loader);
 	}
 	
@@ -203,7 +369,7 @@ public abstract class XMLLoader extends ChangeLoader implements IXMLLoader {
 				u.undecorate(mo, el);
 		return mo;
 	}
-
+	
 	@Override
 	protected void executeChanges() throws LoadFailedException {
 		for (Undecorator u : getParticipants(Undecorator.class))
@@ -0,0 +1,548 @@
+package org.bigraph.model.match;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.bigraph.model.Bigraph;
+import org.bigraph.model.Container;
+import org.bigraph.model.Control;
+import org.bigraph.model.Edge;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.Layoutable;
+import org.bigraph.model.Link;
+import org.bigraph.model.Node;
+import org.bigraph.model.OuterName;
+import org.bigraph.model.Point;
+import org.bigraph.model.Port;
+import org.bigraph.model.ReactionRule;
+import org.bigraph.model.Root;
+import org.bigraph.model.Site;
+import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.changes.descriptors.ChangeDescriptorGroup;
+import org.bigraph.model.changes.descriptors.DescriptorExecutorManager;
+import org.bigraph.model.changes.descriptors.IChangeDescriptor;
+import org.bigraph.model.names.policies.StringNamePolicy;
+
+/**
+ * A <strong>CompiledRule</strong> is a {@link ReactionRule} prepared for
+ * repeated use: it keeps a {@link Matcher} for the redex and a {@link
+ * FrozenBigraph} of the reactum, and can apply the rule to any {@link
+ * Match} found by that {@link Matcher}.
+ * <p>Applying a rule replaces the matched nodes with a copy of the reactum,
+ * in which each site is replaced by the parameter of the redex site with
+ * the same name. (As site names are unique, parameters are never copied.)
+ * Extended data is ignored, so site aliases and parameterised controls
+ * aren't taken into account.
+ * Nodes and links outside the match keep their names, new nodes and edges
+ * are given fresh ones, and edges left without any points are removed.
+ * <p>CompiledRules are immutable, and so can safely be used by several
+ * threads at once.
+ */
+public class CompiledRule {
+	private final ReactionRule rule;
+	private final Matcher matcher;
+	private final FrozenBigraph reactum;
+	private final int[] rootSources, siteSources, linkSources;
+	
+	/**
+	 * Creates a new {@link CompiledRule}.
+	 * @param rule a {@link ReactionRule}, which should not be modified
+	 * afterwards
+	 * @throws ChangeCreationException if the rule's reactum could not be
+	 * created
+	 */
+	public CompiledRule(ReactionRule rule) throws ChangeCreationException {
+		this.rule = rule;
+		FrozenBigraph redex = new FrozenBigraph(rule.getRedex());
+		matcher = new Matcher(redex);
+		reactum = createReactum(rule, redex);
+		
+		HashMap<String, Integer>
+			roots = new HashMap<String, Integer>(),
+			sites = new HashMap<String, Integer>(),
+			outerNames = new HashMap<String, Integer>();
+		for (int i = 0; i < redex.getPlaceCount(); i++) {
+			if (redex.getKind(i) == FrozenBigraph.ROOT) {
+				roots.put(redex.getPlaceName(i), i);
+			} else if (redex.getKind(i) == FrozenBigraph.SITE)
+				sites.put(redex.getPlaceName(i), i);
+		}
+		for (int i = 0; i < redex.getOuterNameCount(); i++)
+			outerNames.put(redex.getLinkName(i), i);
+		
+		rootSources = new int[reactum.getRootCount()];
+		siteSources = new int[reactum.getPlaceCount()];
+		Arrays.fill(siteSources, -1);
+		for (int i = 0; i < reactum.getPlaceCount(); i++) {
+			String name = reactum.getPlaceName(i);
+			if (reactum.getKind(i) == FrozenBigraph.ROOT) {
+				rootSources[i] = lookup(roots, name);
+			} else if (reactum.getKind(i) == FrozenBigraph.SITE)
+				siteSources[i] = lookup(sites, name);
+		}
+		linkSources = new int[reactum.getLinkCount()];
+		Arrays.fill(linkSources, -1);
+		for (int i = 0; i < reactum.getOuterNameCount(); i++)
+			linkSources[i] = lookup(outerNames, reactum.getLinkName(i));
+	}
+	
+	/**
+	 * Creates the reactum of a rule without copying its redex, by checking
+	 * the rule's edit against the redex and then applying it to a {@link
+	 * FrozenBigraph} of the redex. (The reactum is only built through
+	 * {@link ReactionRule#createReactum()} if the edit contains changes
+	 * that {@link FrozenBigraph#update(IChangeDescriptor)} doesn't
+	 * understand.)
+	 * @param rule a {@link ReactionRule}
+	 * @param redex a {@link FrozenBigraph} of <code>rule</code>'s redex
+	 * @return a {@link FrozenBigraph} of <code>rule</code>'s reactum
+	 * @throws ChangeCreationException if the edit can't be applied to the
+	 * redex
+	 */
+	private static FrozenBigraph createReactum(
+			ReactionRule rule, FrozenBigraph redex)
+			throws ChangeCreationException {
+		DescriptorExecutorManager.getInstance().tryValidateChange(
+				rule.getRedex(), rule.getEdit());
+		FrozenBigraph reactum = redex.update(rule.getEdit());
+		if (reactum == null) {
+			Bigraph r = rule.createReactum();
+			reactum = new FrozenBigraph(r);
+			r.dispose();
+		}
+		return reactum;
+	}
+	
+	private static int lookup(HashMap<String, Integer> map, String name) {
+		Integer i = map.get(name);
+		return (i != null ? i : -1);
+	}
+	
+	public ReactionRule getRule() {
+		return rule;
+	}
+	
+	public Matcher getMatcher() {
+		return matcher;
+	}
+	
+	public FrozenBigraph getReactum() {
+		return reactum;
+	}
+	
+	/**
+	 * Finds all of the places in an agent where this rule could be applied.
+	 * @param agent a {@link FrozenBigraph}
+	 * @return a list of {@link Match}es, which may be empty
+	 * @see Matcher#match(FrozenBigraph)
+	 */
+	public List<Match> match(FrozenBigraph agent) {
+		return matcher.match(agent);
+	}
+	
+	/**
+	 * Applies this rule to the agent of a {@link Match}.
+	 * @param m a {@link Match} found by this rule's {@link Matcher}
+	 * @return a new {@link FrozenBigraph}
+	 */
+	public FrozenBigraph apply(Match m) {
+		return apply(m, null);
+	}
+	
+	/**
+	 * Applies this rule to the agent of a {@link Match}, and describes the
+	 * reaction as a sequence of changes to the agent.
+	 * <p>The changes remove the matched nodes (and any parameters that
+	 * don't stay where they are), add the new nodes and edges, put the
+	 * moved parameters back, and connect everything that was added; edges
+	 * left without any points are removed. Applying them to a {@link
+	 * Bigraph} with the structure of the agent gives one with the structure
+	 * of the result.
+	 * @param m a {@link Match} found by this rule's {@link Matcher}
+	 * @param changes a {@link ChangeDescriptorGroup} to which the changes
+	 * should be added, or <code>null</code> if they aren't needed
+	 * @return a new {@link FrozenBigraph}
+	 */
+	public FrozenBigraph apply(Match m, ChangeDescriptorGroup changes) {
+		if (m.getMatcher() != matcher)
+			throw new IllegalArgumentException(
+					"" + m + " was not found by this rule's matcher");
+		return new Application(m, changes).run();
+	}
+	
+	private static Layoutable.Identifier identify(FrozenBigraph b, int place) {
+		String name = b.getPlaceName(place);
+		if (b.getKind(place) == FrozenBigraph.ROOT) {
+			return new Root.Identifier(name);
+		} else if (b.getKind(place) == FrozenBigraph.SITE) {
+			return new Site.Identifier(name);
+		} else return new Node.Identifier(name,
+				b.getControl(b.getPlaceControl(place)).getIdentifier());
+	}
+	
+	/**
+	 * A <strong>NameSource</strong> generates names that aren't already in
+	 * use.
+	 */
+	private static final class NameSource {
+		private static final StringNamePolicy policy = new StringNamePolicy();
+		private final HashSet<String> taken;
+		private int next = 0;
+		
+		private NameSource(HashSet<String> taken) {
+			this.taken = taken;
+		}
+		
+		private String get() {
+			String name;
+			do {
+				name = policy.get(next++);
+			} while (!taken.add(name));
+			return name;
+		}
+	}
+	
+	/**
+	 * An <strong>Application</strong> holds the working state of a single
+	 * call to {@link CompiledRule#apply(Match)}.
+	 */
+	private final class Application {
+		private final Match m;
+		private final FrozenBigraph agent, redex = matcher.getRedex();
+		private final FrozenBigraph.Builder b;
+		
+		private final boolean[] removed, parameters;
+		private final int[] reactumKeys;
+		private int keyCount;
+		
+		/* Connections waiting for their links to be created: the builder's
+		 * node handle (or -1 for an inner name), the port (or inner name)
+		 * and the link key. Agent links are their own keys; new edges get
+		 * keys from the agent's link count upwards */
+		private int[] pending = new int[48];
+		private int pendingCount = 0;
+		
+		private NameSource nodeNames;
+		
+		/* Only used when the reaction is being described: which agent
+		 * places are removed and put back somewhere else (the parameters
+		 * that move, and everything in them), the identifier of each of the
+		 * builder's places, the Control of each new or moved node, and the
+		 * ports of those nodes that need to be connected */
+		private final ChangeDescriptorGroup changes, additions;
+		private boolean[] moved;
+		private ArrayList<Layoutable.Identifier> identifiers;
+		private ArrayList<Control> freshControls;
+		private ArrayList<Point.Identifier> freshPoints;
+		private ArrayList<Integer> freshKeys;
+		
+		private Application(Match m, ChangeDescriptorGroup changes) {
+			this.m = m;
+			this.changes = changes;
+			agent = m.getAgent();
+			b = new FrozenBigraph.Builder(agent.getSignature());
+			
+			int placeCount = agent.getPlaceCount();
+			removed = new boolean[placeCount];
+			for (int i = redex.getRootCount(); i < redex.getPlaceCount(); i++)
+				if (redex.getKind(i) == FrozenBigraph.NODE)
+					removed[m.getPlaceImage(i)] = true;
+			
+			parameters = new boolean[placeCount];
+			for (int s = 0; s < redex.getPlaceCount(); s++)
+				if (redex.getKind(s) == FrozenBigraph.SITE)
+					for (int q : m.getParameter(s))
+						parameters[q] = true;
+			
+			reactumKeys = new int[reactum.getLinkCount()];
+			Arrays.fill(reactumKeys, -1);
+			keyCount = agent.getLinkCount();
+			
+			if (changes != null) {
+				additions = new ChangeDescriptorGroup();
+				identifiers = new ArrayList<Layoutable.Identifier>();
+				freshControls = new ArrayList<Control>();
+				freshPoints = new ArrayList<Point.Identifier>();
+				freshKeys = new ArrayList<Integer>();
+				findMovedPlaces();
+			} else additions = null;
+		}
+		
+		/**
+		 * Works out which parameters move. A parameter stays where it is
+		 * if its site is a child of a reactum root that's put back in the
+		 * parameter's old parent.
+		 */
+		private void findMovedPlaces() {
+			boolean[] kept = new boolean[agent.getPlaceCount()];
+			for (int c = 0; c < reactum.getPlaceCount(); c++) {
+				if (siteSources[c] == -1)
+					continue;
+				int p = reactum.getParent(c);
+				if (reactum.getKind(p) != FrozenBigraph.ROOT ||
+						rootSources[p] == -1)
+					continue;
+				int image = m.getPlaceImage(rootSources[p]);
+				for (int q : m.getParameter(siteSources[c]))
+					kept[q] = (agent.getParent(q) == image);
+			}
+			
+			/* Parents are numbered before their children */
+			moved = new boolean[agent.getPlaceCount()];
+			for (int i = 0; i < moved.length; i++) {
+				int p = agent.getParent(i);
+				moved[i] = (parameters[i] && !kept[i]) ||
+						(p != -1 && moved[p]);
+			}
+		}
+		
+		/**
+		 * Records the identifier of a place that's just been given to the
+		 * builder, and the change that adds it if it's new (or moved).
+		 * @param handle the builder's handle for the place
+		 * @param id the place's identifier
+		 * @param parent the builder's handle for its parent, or
+		 * <code>-1</code>
+		 * @param fresh the {@link Control} of the place, if it's a new (or
+		 * moved) node, or <code>null</code> otherwise
+		 * @param added whether the place is new (or moved)
+		 * @return <code>handle</code>, for convenience
+		 */
+		private int created(int handle, Layoutable.Identifier id, int parent,
+				Control fresh, boolean added) {
+			if (changes != null) {
+				identifiers.add(id);
+				freshControls.add(fresh);
+				if (added)
+					additions.add(new Container.ChangeAddChildDescriptor(
+							(Container.Identifier)identifiers.get(parent),
+							id));
+			}
+			return handle;
+		}
+		
+		private void connect(int node, int point, int key) {
+			if (pendingCount * 3 == pending.length)
+				pending = Arrays.copyOf(pending, pending.length * 2);
+			pending[pendingCount * 3] = node;
+			pending[pendingCount * 3 + 1] = point;
+			pending[pendingCount * 3 + 2] = key;
+			pendingCount++;
+			
+			if (changes != null && node != -1) {
+				Control c = freshControls.get(node);
+				if (c != null) {
+					freshPoints.add(new Port.Identifier(
+							c.getPorts().get(point).getName(),
+							(Node.Identifier)identifiers.get(node)));
+					freshKeys.add(key);
+				}
+			}
+		}
+		
+		private String getFreshNodeName() {
+			if (nodeNames == null) {
+				HashSet<String> taken = new HashSet<String>();
+				for (int i = 0; i < agent.getPlaceCount(); i++)
+					if (agent.getKind(i) == FrozenBigraph.NODE)
+						taken.add(agent.getPlaceName(i));
+				nodeNames = new NameSource(taken);
+			}
+			return nodeNames.get();
+		}
+		
+		private FrozenBigraph run() {
+			for (int i = 0; i < agent.getRootCount(); i++)
+				copyContext(i, created(b.addRoot(agent.getPlaceName(i)),
+						identify(agent, i), -1, null, false));
+			
+			for (int i = 0; i < agent.getInnerNameCount(); i++) {
+				int h = b.addInnerName(agent.getInnerNameName(i)),
+					l = agent.getLink(agent.getInnerName(i));
+				if (l != -1)
+					connect(-1, h, l);
+			}
+			
+			int[] counts = new int[keyCount], handles = new int[keyCount];
+			for (int i = 0; i < pendingCount; i++)
+				counts[pending[i * 3 + 2]]++;
+			for (int i = 0; i < agent.getLinkCount(); i++) {
+				if (i < agent.getOuterNameCount()) {
+					handles[i] = b.addOuterName(agent.getLinkName(i));
+				} else if (counts[i] > 0)
+					handles[i] = b.addEdge(agent.getLinkName(i));
+			}
+			
+			/* New edges need names distinct from those of every agent
+			 * link */
+			NameSource edgeNames = null;
+			String[] newEdges = new String[keyCount];
+			for (int i = agent.getLinkCount(); i < keyCount; i++) {
+				if (counts[i] == 0)
+					continue;
+				if (edgeNames == null) {
+					HashSet<String> taken = new HashSet<String>();
+					for (int j = 0; j < agent.getLinkCount(); j++)
+						taken.add(agent.getLinkName(j));
+					edgeNames = new NameSource(taken);
+				}
+				handles[i] = b.addEdge(newEdges[i] = edgeNames.get());
+			}
+			
+			for (int i = 0; i < pendingCount; i++) {
+				int node = pending[i * 3], point = pending[i * 3 + 1],
+					link = handles[pending[i * 3 + 2]];
+				if (node != -1) {
+					b.connectPort(node, point, link);
+				} else b.connectInnerName(point, link);
+			}
+			
+			if (changes != null)
+				describe(counts, newEdges);
+			return b.build();
+		}
+		
+		/**
+		 * Adds the changes that make up the reaction to {@link #changes}.
+		 * @param counts the number of points on each link key
+		 * @param newEdges the names of the new edges, indexed by link key
+		 */
+		private void describe(int[] counts, String[] newEdges) {
+			int linkCount = agent.getLinkCount();
+			Link.Identifier[] links = new Link.Identifier[keyCount];
+			for (int i = 0; i < keyCount; i++) {
+				if (i < agent.getOuterNameCount()) {
+					links[i] = new OuterName.Identifier(agent.getLinkName(i));
+				} else links[i] = new Edge.Identifier(
+						i < linkCount ? agent.getLinkName(i) : newEdges[i]);
+			}
+			
+			/* Take away the matched nodes and the moving places, children
+			 * before their parents, disconnecting each node first */
+			for (int i = agent.getPlaceCount() - 1; i >= 0; i--) {
+				if (!removed[i] && !moved[i])
+					continue;
+				Layoutable.Identifier id = identify(agent, i);
+				if (agent.getKind(i) == FrozenBigraph.NODE) {
+					Control c = agent.getControl(agent.getPlaceControl(i));
+					for (int j = 0; j < agent.getPortCount(i); j++) {
+						int l = agent.getLink(agent.getPort(i, j));
+						if (l != -1)
+							changes.add(new Point.ChangeDisconnectDescriptor(
+									new Port.Identifier(
+											c.getPorts().get(j).getName(),
+											(Node.Identifier)id),
+									links[l]));
+					}
+				}
+				changes.add(new Container.ChangeRemoveChildDescriptor(
+						(Container.Identifier)identify(
+								agent, agent.getParent(i)), id));
+			}
+			
+			Bigraph.Identifier bid = new Bigraph.Identifier();
+			for (int i = agent.getOuterNameCount(); i < linkCount; i++)
+				if (counts[i] == 0)
+					changes.add(new Container.ChangeRemoveChildDescriptor(
+							bid, links[i]));
+			for (int i = linkCount; i < keyCount; i++)
+				if (counts[i] > 0)
+					changes.add(new Container.ChangeAddChildDescriptor(
+							bid, links[i]));
+			
+			changes.addAll(additions);
+			for (int i = 0; i < freshPoints.size(); i++)
+				changes.add(new Point.ChangeConnectDescriptor(
+						freshPoints.get(i), links[freshKeys.get(i)]));
+		}
+		
+		/**
+		 * Copies the children of an agent place that lie outside the match
+		 * (and aren't parameters), and then adds the reactum's contribution
+		 * to it.
+		 * @param place an agent place outside the match
+		 * @param handle the builder's handle for the copy of
+		 * <code>place</code>
+		 */
+		private void copyContext(int place, int handle) {
+			for (int c = agent.getFirstChild(place); c != -1;
+					c = agent.getNextSibling(c)) {
+				if (removed[c] || parameters[c])
+					continue;
+				copyContext(c, copyPlace(c, handle));
+			}
+			
+			for (int i = 0; i < reactum.getRootCount(); i++) {
+				int source = rootSources[i];
+				if (source != -1 && m.getPlaceImage(source) == place)
+					instantiate(i, handle);
+			}
+		}
+		
+		/**
+		 * Adds a copy of a single agent place (but not its children).
+		 * @param place an agent place
+		 * @param parent the builder's handle for the new parent
+		 * @return the builder's handle for the copy
+		 */
+		private int copyPlace(int place, int parent) {
+			String name = agent.getPlaceName(place);
+			boolean added = (moved != null && moved[place]);
+			if (agent.getKind(place) == FrozenBigraph.SITE)
+				return created(b.addSite(parent, name),
+						identify(agent, place), parent, null, added);
+			
+			Control c = agent.getControl(agent.getPlaceControl(place));
+			int h = created(b.addNode(parent, name, c),
+					identify(agent, place), parent,
+					(added ? c : null), added);
+			for (int j = 0; j < agent.getPortCount(place); j++) {
+				int l = agent.getLink(agent.getPort(place, j));
+				if (l != -1)
+					connect(h, j, l);
+			}
+			return h;
+		}
+		
+		private int getReactumKey(int link) {
+			if (reactumKeys[link] == -1) {
+				int source = linkSources[link],
+					image = (source != -1 ? m.getLinkImage(source) : -1);
+				reactumKeys[link] = (image != -1 ? image : keyCount++);
+			}
+			return reactumKeys[link];
+		}
+		
+		/**
+		 * Adds copies of the children of a reactum place.
+		 * @param place a reactum place
+		 * @param handle the builder's handle for the new parent
+		 */
+		private void instantiate(int place, int handle) {
+			for (int c = reactum.getFirstChild(place); c != -1;
+					c = reactum.getNextSibling(c)) {
+				if (reactum.getKind(c) == FrozenBigraph.NODE) {
+					String name = getFreshNodeName();
+					Control control =
+							reactum.getControl(reactum.getPlaceControl(c));
+					int h = created(b.addNode(handle, name, control),
+							new Node.Identifier(
+									name, control.getIdentifier()),
+							handle, control, true);
+					for (int j = 0; j < reactum.getPortCount(c); j++) {
+						int l = reactum.getLink(reactum.getPort(c, j));
+						if (l != -1)
+							connect(h, j, getReactumKey(l));
+					}
+					instantiate(c, h);
+				} else if (siteSources[c] != -1) {
+					for (int q : m.getParameter(siteSources[c]))
+						copyContext(q, copyPlace(q, handle));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package org.bigraph.model.match;
+
+import java.util.Arrays;
+
+import org.bigraph.model.FrozenBigraph;
+
+/**
+ * A <strong>Match</strong> is an occurrence of a redex in an agent, as found
+ * by a {@link Matcher}.
+ * <p>Every index held by a Match refers either to the redex (as returned by
+ * {@link Matcher#getRedex()}) or to the agent (as returned by {@link
+ * #getAgent()}), both of which are {@link FrozenBigraph}s.
+ * @see Matcher#match(FrozenBigraph)
+ */
+public final class Match {
+	private final Matcher matcher;
+	private final FrozenBigraph agent;
+	private final int[] placeImages, linkImages;
+	private final int[][] parameters;
+	
+	Match(Matcher matcher, FrozenBigraph agent,
+			int[] placeImages, int[] linkImages, int[][] parameters) {
+		this.matcher = matcher;
+		this.agent = agent;
+		this.placeImages = placeImages;
+		this.linkImages = linkImages;
+		this.parameters = parameters;
+	}
+	
+	public Matcher getMatcher() {
+		return matcher;
+	}
+	
+	public FrozenBigraph getAgent() {
+		return agent;
+	}
+	
+	/**
+	 * Returns the agent place onto which a redex place has been mapped.
+	 * Redex roots are mapped onto the agent places that contain them, and
+	 * redex nodes onto agent nodes.
+	 * @param redexPlace a place index in the redex
+	 * @return a place index in the agent, or <code>-1</code> if
+	 * <code>redexPlace</code> is a site
+	 */
+	public int getPlaceImage(int redexPlace) {
+		return placeImages[redexPlace];
+	}
+	
+	/**
+	 * Returns the agent link onto which a redex link has been mapped.
+	 * @param redexLink a link index in the redex
+	 * @return a link index in the agent, or <code>-1</code> if
+	 * <code>redexLink</code> has no points
+	 */
+	public int getLinkImage(int redexLink) {
+		return linkImages[redexLink];
+	}
+	
+	/**
+	 * Returns the parameter of a redex site: the agent places that are
+	 * children of the site's image.
+	 * @param redexSite a place index for a site in the redex
+	 * @return an array of place indices in the agent (which must not be
+	 * modified)
+	 */
+	public int[] getParameter(int redexSite) {
+		return parameters[redexSite];
+	}
+	
+	/**
+	 * Indicates whether or not an agent node is part of the matched region
+	 * (that is, whether some redex node has been mapped onto it).
+	 * @param agentPlace a place index in the agent
+	 * @return <code>true</code> if <code>agentPlace</code> is a node in the
+	 * image of the redex, or <code>false</code> otherwise
+	 */
+	public boolean isMatched(int agentPlace) {
+		for (int i = matcher.getRedex().getRootCount();
+				i < placeImages.length; i++)
+			if (placeImages[i] == agentPlace)
+				return true;
+		return false;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof Match) {
+			Match m = (Match)obj;
+			return matcher == m.matcher && agent == m.agent &&
+					Arrays.equals(placeImages, m.placeImages) &&
+					Arrays.equals(linkImages, m.linkImages) &&
+					Arrays.deepEquals(parameters, m.parameters);
+		} else return false;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(placeImages) * 31 +
+				Arrays.hashCode(linkImages);
+	}
+	
+	@Override
+	public String toString() {
+		return "Match(" + Arrays.toString(placeImages) + ", " +
+				Arrays.toString(linkImages) + ")";
+	}
+}
@@ -0,0 +1,358 @@
+package org.bigraph.model.match;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.bigraph.model.Bigraph;
+import org.bigraph.model.Container;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.InnerName;
+import org.bigraph.model.Layoutable;
+import org.bigraph.model.Link;
+import org.bigraph.model.NamedModelObject;
+import org.bigraph.model.Node;
+import org.bigraph.model.Point;
+import org.bigraph.model.Port;
+import org.bigraph.model.Root;
+import org.bigraph.model.Site;
+import org.bigraph.model.assistants.ExtendedDataUtilities.ChangeExtendedDataDescriptor;
+import org.bigraph.model.changes.descriptors.BoundDescriptor;
+import org.bigraph.model.changes.descriptors.IChangeDescriptor;
+
+/**
+ * A <strong>MatchIndex</strong> keeps track of the occurrences of several
+ * redexes in a {@link Bigraph} while it changes.
+ * <p>Whenever a change has been applied to the agent, {@link
+ * #update(IChangeDescriptor)} should be called with its descriptor. The
+ * index works out which places and links were touched by the change: the
+ * {@link Match}es that don't involve any of them are kept, the others are
+ * thrown away, and the redexes are then matched again only at those roots
+ * close enough to the touched region for a new {@link Match} to reach it.
+ * The cost of the search therefore depends on the size of the change rather
+ * than on that of the agent.
+ * <p>The index also keeps a {@link FrozenBigraph} and a {@link Summary} of
+ * the agent up to date from the changes, rather than building them again
+ * from the agent (although {@link FrozenBigraph#update(IChangeDescriptor)}
+ * still copies the arrays, which takes linear time), and doesn't search at
+ * all for redexes that it doesn't {@link Summary#admits(Summary) admit}.
+ * <p>Changes that the index doesn't understand, like changes to the
+ * agent's {@link org.bigraph.model.Signature Signature}, cause every redex
+ * to be matched again from scratch.
+ * <p>The order of the {@link Match}es for each redex is unspecified.
+ * @see Matcher
+ */
+public class MatchIndex {
+	/* ROOT, NODE and SITE */
+	private static final int PLACE_KINDS = 3;
+	
+	private final Bigraph agent;
+	private final List<Matcher> matchers;
+	private final List<List<Match>> matches;
+	private FrozenBigraph frozen;
+	private Summary summary;
+	
+	/**
+	 * Creates a new {@link MatchIndex}, and finds all of the current
+	 * occurrences of each redex.
+	 * @param agent a {@link Bigraph}
+	 * @param matchers a list of {@link Matcher}s
+	 */
+	public MatchIndex(Bigraph agent, List<? extends Matcher> matchers) {
+		this.agent = agent;
+		this.matchers = new ArrayList<Matcher>(matchers);
+		matches = new ArrayList<List<Match>>(this.matchers.size());
+		rebuild();
+	}
+	
+	public Bigraph getAgent() {
+		return agent;
+	}
+	
+	/**
+	 * Returns the {@link FrozenBigraph} to which the current {@link Match}es
+	 * refer. A new one is created by every call to {@link
+	 * #update(IChangeDescriptor)} or {@link #rebuild()}.
+	 * @return a {@link FrozenBigraph} of the agent
+	 */
+	public FrozenBigraph getFrozenAgent() {
+		return frozen;
+	}
+	
+	public List<Matcher> getMatchers() {
+		return Collections.unmodifiableList(matchers);
+	}
+	
+	/**
+	 * Returns the current occurrences of one of the redexes.
+	 * @param matcher the index of a {@link Matcher} in {@link
+	 * #getMatchers()}
+	 * @return an unmodifiable list of {@link Match}es
+	 */
+	public List<Match> getMatches(int matcher) {
+		return Collections.unmodifiableList(matches.get(matcher));
+	}
+	
+	/**
+	 * Throws away all of the current {@link Match}es and finds them again
+	 * from scratch.
+	 */
+	public void rebuild() {
+		frozen = new FrozenBigraph(agent);
+		summary = new Summary(frozen);
+		matches.clear();
+		for (Matcher m : matchers)
+			matches.add(summary.admits(m.getSummary()) ?
+					m.match(frozen) : new ArrayList<Match>());
+	}
+	
+	/**
+	 * Brings the {@link Match}es up to date after a change.
+	 * @param change an {@link IChangeDescriptor} (or a group of them) that
+	 * has just been applied to the agent
+	 */
+	public void update(IChangeDescriptor change) {
+		Footprint f = new Footprint();
+		if (!f.add(change)) {
+			rebuild();
+			return;
+		}
+		
+		FrozenBigraph old = frozen;
+		frozen = old.update(change);
+		if (frozen == null)
+			frozen = new FrozenBigraph(agent);
+		if (!summary.update(change))
+			summary = new Summary(frozen);
+		
+		/* Place names are only unique within each kind of place */
+		List<HashMap<String, Integer>> places =
+				new ArrayList<HashMap<String, Integer>>();
+		for (int i = 0; i < PLACE_KINDS; i++)
+			places.add(new HashMap<String, Integer>());
+		for (int i = 0; i < frozen.getPlaceCount(); i++)
+			places.get(frozen.getKind(i)).put(frozen.getPlaceName(i), i);
+		HashMap<String, Integer> links = new HashMap<String, Integer>();
+		for (int i = 0; i < frozen.getLinkCount(); i++)
+			links.put(frozen.getLinkName(i), i);
+		
+		/* Translate the indices of every untouched place and link */
+		int[] placeMap = new int[old.getPlaceCount()];
+		for (int i = 0; i < placeMap.length; i++) {
+			byte kind = old.getKind(i);
+			String name = old.getPlaceName(i);
+			placeMap[i] = (f.places.get(kind).contains(name) ?
+					-1 : lookup(places.get(kind), name));
+		}
+		int[] linkMap = new int[old.getLinkCount()];
+		for (int i = 0; i < linkMap.length; i++) {
+			String name = old.getLinkName(i);
+			linkMap[i] = (f.links.contains(name) ?
+					-1 : lookup(links, name));
+		}
+		
+		ArrayList<Integer> dirtyPlaces = new ArrayList<Integer>();
+		for (int kind = 0; kind < PLACE_KINDS; kind++) {
+			for (String name : f.places.get(kind)) {
+				Integer i = places.get(kind).get(name);
+				if (i != null)
+					dirtyPlaces.add(i);
+			}
+		}
+		for (String name : f.links) {
+			Integer l = links.get(name);
+			if (l == null)
+				continue;
+			for (int j = 0; j < frozen.getLinkPointCount(l); j++) {
+				int point = frozen.getLinkPoint(l, j);
+				if (point < frozen.getPortCount())
+					dirtyPlaces.add(frozen.getPortPlace(point));
+			}
+		}
+		
+		for (int i = 0; i < matchers.size(); i++) {
+			Matcher matcher = matchers.get(i);
+			ArrayList<Match> current = new ArrayList<Match>();
+			if (!summary.admits(matcher.getSummary())) {
+				matches.set(i, current);
+				continue;
+			}
+			for (Match m : matches.get(i)) {
+				Match n = translate(m, placeMap, linkMap);
+				if (n != null)
+					current.add(n);
+			}
+			HashSet<Match> kept = new HashSet<Match>(current);
+			for (Match m : matcher.match(frozen,
+					getCandidates(dirtyPlaces, matcher.getHeight())))
+				if (!kept.contains(m))
+					current.add(m);
+			matches.set(i, current);
+		}
+	}
+	
+	private static int lookup(HashMap<String, Integer> map, String name) {
+		Integer i = map.get(name);
+		return (i != null ? i : -1);
+	}
+	
+	/**
+	 * Finds the places onto which a redex root must be mapped for a {@link
+	 * Match} to involve at least one of a set of places.
+	 * @param dirtyPlaces a list of place indices in the current {@link
+	 * FrozenBigraph}
+	 * @param height the value of {@link Matcher#getHeight()}
+	 * @return a sorted array of place indices
+	 */
+	private int[] getCandidates(List<Integer> dirtyPlaces, int height) {
+		HashSet<Integer> candidates = new HashSet<Integer>();
+		for (int p : dirtyPlaces)
+			for (int k = 0; p != -1 && k <= height;
+					p = frozen.getParent(p), k++)
+				candidates.add(p);
+		int[] result = new int[candidates.size()];
+		int i = 0;
+		for (int p : candidates)
+			result[i++] = p;
+		Arrays.sort(result);
+		return result;
+	}
+	
+	/**
+	 * Moves a {@link Match} over to the current {@link FrozenBigraph}.
+	 * <p>The parameters are worked out again rather than translated, as
+	 * the places in them may have been changed (or renamed) without
+	 * affecting the {@link Match} itself.
+	 * @param m a {@link Match} against the previous {@link FrozenBigraph}
+	 * @param placeMap the new index of each old place, or <code>-1</code>
+	 * @param linkMap the new index of each old link, or <code>-1</code>
+	 * @return a new {@link Match}, or <code>null</code> if <code>m</code>
+	 * involved something that was touched by the last change
+	 */
+	private Match translate(Match m, int[] placeMap, int[] linkMap) {
+		Matcher matcher = m.getMatcher();
+		FrozenBigraph redex = matcher.getRedex();
+		int placeCount = redex.getPlaceCount();
+		int[] placeImages = new int[placeCount];
+		for (int i = 0; i < placeCount; i++) {
+			if (redex.getKind(i) == FrozenBigraph.SITE) {
+				placeImages[i] = -1;
+			} else if ((placeImages[i] = placeMap[m.getPlaceImage(i)]) == -1)
+				return null;
+		}
+		
+		int[] linkImages = new int[redex.getLinkCount()];
+		for (int i = 0; i < linkImages.length; i++) {
+			int image = m.getLinkImage(i);
+			if (image == -1) {
+				linkImages[i] = -1;
+			} else if ((linkImages[i] = linkMap[image]) == -1)
+				return null;
+		}
+		
+		int[][] parameters = new int[placeCount][];
+		for (int i = 0; i < placeCount; i++) {
+			int[] sites = matcher.getSites(i);
+			if (sites == null)
+				continue;
+			ArrayList<Integer> parameter = new ArrayList<Integer>();
+			children: for (int n = frozen.getFirstChild(placeImages[i]);
+					n != -1; n = frozen.getNextSibling(n)) {
+				for (int j = redex.getRootCount(); j < placeCount; j++)
+					if (placeImages[j] == n)
+						continue children;
+				parameter.add(n);
+			}
+			parameters[sites[0]] = new int[parameter.size()];
+			for (int j = 0; j < parameter.size(); j++)
+				parameters[sites[0]][j] = parameter.get(j);
+			for (int j = 1; j < sites.length; j++)
+				parameters[sites[j]] = new int[0];
+		}
+		return new Match(
+				matcher, frozen, placeImages, linkImages, parameters);
+	}
+	
+	/**
+	 * A <strong>Footprint</strong> records the names of the places and links
+	 * touched by a change.
+	 */
+	private static final class Footprint {
+		private final List<HashSet<String>> places =
+				new ArrayList<HashSet<String>>();
+		private final HashSet<String> links = new HashSet<String>();
+		
+		private Footprint() {
+			for (int i = 0; i < PLACE_KINDS; i++)
+				places.add(new HashSet<String>());
+		}
+		
+		/**
+		 * Records the places and links touched by a change.
+		 * @param cd an {@link IChangeDescriptor}
+		 * @return <code>true</code> if the change was understood, or
+		 * <code>false</code> otherwise
+		 */
+		private boolean add(IChangeDescriptor cd) {
+			if (cd == null) {
+				return true;
+			} else if (cd instanceof IChangeDescriptor.Group) {
+				for (IChangeDescriptor i : (IChangeDescriptor.Group)cd)
+					if (!add(i))
+						return false;
+				return true;
+			} else if (cd instanceof BoundDescriptor) {
+				return add(((BoundDescriptor)cd).getDescriptor());
+			} else if (cd instanceof Container.ChangeAddChildDescriptor) {
+				Container.ChangeAddChildDescriptor co =
+						(Container.ChangeAddChildDescriptor)cd;
+				return touch(co.getParent()) && touch(co.getChild());
+			} else if (cd instanceof Container.ChangeRemoveChildDescriptor) {
+				Container.ChangeRemoveChildDescriptor co =
+						(Container.ChangeRemoveChildDescriptor)cd;
+				return touch(co.getParent()) && touch(co.getChild());
+			} else if (cd instanceof Point.ChangeConnectDescriptor) {
+				Point.ChangeConnectDescriptor co =
+						(Point.ChangeConnectDescriptor)cd;
+				return touch(co.getPoint()) && touch(co.getLink());
+			} else if (cd instanceof Point.ChangeDisconnectDescriptor) {
+				Point.ChangeDisconnectDescriptor co =
+						(Point.ChangeDisconnectDescriptor)cd;
+				return touch(co.getPoint()) && touch(co.getLink());
+			} else if (cd instanceof NamedModelObject.ChangeNameDescriptor) {
+				NamedModelObject.ChangeNameDescriptor co =
+						(NamedModelObject.ChangeNameDescriptor)cd;
+				NamedModelObject.Identifier target = co.getTarget();
+				return (target instanceof Layoutable.Identifier &&
+						touch((Layoutable.Identifier)target) &&
+						touch(((Layoutable.Identifier)target).getRenamed(
+								co.getNewName())));
+			} else return (cd instanceof ChangeExtendedDataDescriptor);
+		}
+		
+		/* Inner names never appear in Matches (as redexes with inner names
+		 * aren't supported), and connecting or disconnecting them touches
+		 * their links anyway */
+		private boolean touch(Layoutable.Identifier id) {
+			String name = id.getName();
+			if (id instanceof Root.Identifier) {
+				places.get(FrozenBigraph.ROOT).add(name);
+			} else if (id instanceof Node.Identifier) {
+				places.get(FrozenBigraph.NODE).add(name);
+			} else if (id instanceof Site.Identifier) {
+				places.get(FrozenBigraph.SITE).add(name);
+			} else if (id instanceof Port.Identifier) {
+				places.get(FrozenBigraph.NODE).add(
+						((Port.Identifier)id).getNode().getName());
+			} else if (id instanceof Link.Identifier) {
+				links.add(name);
+			} else if (!(id instanceof InnerName.Identifier ||
+					id instanceof Bigraph.Identifier))
+				return false;
+			return true;
+		}
+	}
+}
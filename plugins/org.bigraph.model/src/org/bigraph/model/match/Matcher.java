@@ -0,0 +1,480 @@
+package org.bigraph.model.match;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.bigraph.model.Bigraph;
+import org.bigraph.model.Control;
+import org.bigraph.model.Control.Kind;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.utilities.comparators.IntegerStringComparator;
+
+/**
+ * A <strong>Matcher</strong> finds the occurrences of a redex in agents.
+ * <p>Both the redex and the agent are given as {@link FrozenBigraph}s.
+ * Redex roots can be mapped onto any agent place (provided that every
+ * {@link Kind#PASSIVE passive} node above it is outside the match), redex
+ * nodes onto agent nodes with {@link org.bigraph.model.Control Control}s
+ * of the same name and arity, redex edges onto agent edges with exactly
+ * the same points, and redex outer names onto arbitrary agent links. A
+ * redex place that contains a site can be mapped onto an agent place with
+ * more children than it, and the unmatched children become the parameters
+ * of its sites; when it contains more than one site, a separate {@link
+ * Match} is found for every way of dividing the children between them.
+ * <p>Redexes with inner names are not supported, and never match anything.
+ * <p>Matchers are immutable, and so can safely be used by several threads
+ * at once.
+ * @see Match
+ */
+public class Matcher {
+	private final FrozenBigraph redex;
+	private final boolean supported;
+	private final int[] nodeChildCount;
+	private final int[][] sites;
+	private final String[] controlNames;
+	private final int[] controlArities;
+	private final int height;
+	private final Summary summary;
+	
+	public Matcher(Bigraph redex) {
+		this(new FrozenBigraph(redex));
+	}
+	
+	public Matcher(FrozenBigraph redex) {
+		this.redex = redex;
+		supported = (redex.getInnerNameCount() == 0);
+		
+		int placeCount = redex.getPlaceCount();
+		nodeChildCount = new int[placeCount];
+		sites = new int[placeCount][];
+		controlNames = new String[redex.getControlCount()];
+		controlArities = new int[controlNames.length];
+		for (int i = 0; i < controlNames.length; i++) {
+			controlNames[i] = redex.getControl(i).getName();
+			controlArities[i] = redex.getControl(i).getPorts().size();
+		}
+		
+		ArrayList<Integer> s = new ArrayList<Integer>();
+		int[] depth = new int[placeCount];
+		int maximumDepth = 0;
+		for (int i = 0; i < placeCount; i++) {
+			int parent = redex.getParent(i);
+			if (parent != -1)
+				depth[i] = depth[parent] + 1;
+			if (redex.getKind(i) == FrozenBigraph.NODE)
+				maximumDepth = Math.max(maximumDepth, depth[i]);
+			
+			s.clear();
+			for (int j = redex.getFirstChild(i); j != -1;
+					j = redex.getNextSibling(j)) {
+				if (redex.getKind(j) == FrozenBigraph.NODE) {
+					nodeChildCount[i]++;
+				} else if (redex.getKind(j) == FrozenBigraph.SITE)
+					s.add(j);
+			}
+			if (s.size() > 0) {
+				Integer[] si = s.toArray(new Integer[s.size()]);
+				Arrays.sort(si, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer a, Integer b) {
+						return IntegerStringComparator.INSTANCE.compare(
+								Matcher.this.redex.getPlaceName(a),
+								Matcher.this.redex.getPlaceName(b));
+					}
+				});
+				sites[i] = new int[si.length];
+				for (int j = 0; j < si.length; j++)
+					sites[i][j] = si[j];
+			}
+		}
+		height = maximumDepth;
+		summary = new Summary(redex);
+	}
+	
+	public FrozenBigraph getRedex() {
+		return redex;
+	}
+	
+	/**
+	 * Returns the {@link Summary} of the redex. Agents whose {@link
+	 * Summary Summaries} don't {@link Summary#admits(Summary) admit} it
+	 * can't contain any occurrences of the redex.
+	 * @return a {@link Summary}
+	 */
+	public Summary getSummary() {
+		return summary;
+	}
+	
+	/**
+	 * Returns the sites contained by a redex place, in name order.
+	 * @param redexPlace a place index in the redex
+	 * @return an array of place indices (which must not be modified), or
+	 * <code>null</code> if <code>redexPlace</code> contains no sites
+	 */
+	int[] getSites(int redexPlace) {
+		return sites[redexPlace];
+	}
+	
+	/**
+	 * Returns the depth of the deepest redex node below its root. An agent
+	 * place can only be part of a {@link Match} if one of its ancestors at
+	 * most this many levels above it (or the place itself) is the image of
+	 * a redex root.
+	 * @return a depth, or <code>0</code> if the redex has no nodes
+	 */
+	int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Finds all of the occurrences of the redex in an agent.
+	 * <p>(Symmetries in the redex will cause the same occurrence to be
+	 * found more than once, with a different mapping each time.)
+	 * @param agent a {@link FrozenBigraph}
+	 * @return a list of {@link Match}es, which may be empty
+	 */
+	public List<Match> match(FrozenBigraph agent) {
+		return match(agent, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Finds some of the occurrences of the redex in an agent.
+	 * @param agent a {@link FrozenBigraph}
+	 * @param limit the maximum number of {@link Match}es to find
+	 * @return a list of at most <code>limit</code> {@link Match}es
+	 */
+	public List<Match> match(FrozenBigraph agent, int limit) {
+		Search s = new Search(agent, limit, null);
+		if (supported && limit > 0)
+			s.search(0);
+		return s.results;
+	}
+	
+	/**
+	 * Finds the occurrences of the redex in an agent in which at least one
+	 * redex root is mapped onto one of a set of candidate places.
+	 * @param agent a {@link FrozenBigraph}
+	 * @param candidates an array of agent place indices
+	 * @return a list of {@link Match}es, which may be empty
+	 * @see MatchIndex
+	 */
+	List<Match> match(FrozenBigraph agent, int[] candidates) {
+		Search s = new Search(agent, Integer.MAX_VALUE, candidates);
+		if (supported && candidates.length > 0)
+			s.search(0);
+		return s.results;
+	}
+	
+	/**
+	 * Indicates whether or not the redex occurs in an agent.
+	 * @param agent a {@link FrozenBigraph}
+	 * @return <code>true</code> if there is at least one {@link Match}, or
+	 * <code>false</code> otherwise
+	 */
+	public boolean matches(FrozenBigraph agent) {
+		return !match(agent, 1).isEmpty();
+	}
+	
+	/**
+	 * A <strong>Search</strong> holds the working state of a single call to
+	 * {@link Matcher#match(FrozenBigraph, int)}. The redex places are
+	 * assigned in order, which (as {@link FrozenBigraph}s are numbered
+	 * breadth first) means that every place's parent has been assigned
+	 * before the place itself.
+	 */
+	private final class Search {
+		private final FrozenBigraph agent;
+		private final int limit;
+		private final List<Match> results = new ArrayList<Match>();
+		
+		/* If this search is restricted, the places onto which at least one
+		 * redex root must be mapped */
+		private final int[] candidates;
+		private final boolean[] candidate;
+		
+		private final int[] controlMap, childCount;
+		private final boolean[] active, used;
+		private final int[] placeImages, linkImages;
+		private final int[] edgeOwners, outerNameRefs;
+		private final int[] trail;
+		private int trailSize = 0;
+		
+		private Search(FrozenBigraph agent, int limit, int[] candidates) {
+			this.agent = agent;
+			this.limit = limit;
+			this.candidates = candidates;
+			
+			controlMap = new int[agent.getControlCount()];
+			for (int i = 0; i < controlMap.length; i++) {
+				controlMap[i] = -1;
+				Control c = agent.getControl(i);
+				String name = c.getName();
+				int arity = c.getPorts().size();
+				for (int j = 0; j < controlNames.length; j++)
+					if (controlNames[j].equals(name) &&
+							controlArities[j] == arity)
+						controlMap[i] = j;
+			}
+			
+			int placeCount = agent.getPlaceCount();
+			childCount = new int[placeCount];
+			active = new boolean[placeCount];
+			used = new boolean[placeCount];
+			for (int i = 0; i < placeCount; i++) {
+				int p = agent.getParent(i);
+				if (p != -1)
+					childCount[p]++;
+				if (agent.getKind(i) == FrozenBigraph.ROOT) {
+					active[i] = true;
+				} else if (agent.getKind(i) == FrozenBigraph.NODE) {
+					active[i] = active[p] && agent.getControl(
+							agent.getPlaceControl(i)).getKind() == Kind.ACTIVE;
+				}
+			}
+			
+			placeImages = new int[redex.getPlaceCount()];
+			Arrays.fill(placeImages, -1);
+			linkImages = new int[redex.getLinkCount()];
+			Arrays.fill(linkImages, -1);
+			edgeOwners = new int[agent.getLinkCount()];
+			Arrays.fill(edgeOwners, -1);
+			outerNameRefs = new int[agent.getLinkCount()];
+			trail = new int[redex.getLinkCount()];
+			
+			if (candidates != null) {
+				candidate = new boolean[placeCount];
+				for (int p : candidates)
+					candidate[p] = true;
+			} else candidate = null;
+		}
+		
+		/**
+		 * Indicates whether or not the last redex root must be mapped onto
+		 * a candidate place, because none of the others has been.
+		 * @param i the index of a redex root
+		 * @return <code>true</code> if only candidate places should be
+		 * tried for <code>i</code>, or <code>false</code> otherwise
+		 */
+		private boolean mustUseCandidate(int i) {
+			if (candidates == null || i != redex.getRootCount() - 1)
+				return false;
+			for (int j = 0; j < i; j++)
+				if (candidate[placeImages[j]])
+					return false;
+			return true;
+		}
+		
+		private void searchRoot(int i, int p) {
+			if (agent.getKind(p) == FrozenBigraph.SITE || !active[p] ||
+					childCount[p] < nodeChildCount[i])
+				return;
+			placeImages[i] = p;
+			search(i + 1);
+		}
+		
+		private void search(int i) {
+			if (results.size() >= limit) {
+				return;
+			} else if (i == placeImages.length) {
+				complete();
+				return;
+			}
+			
+			byte kind = redex.getKind(i);
+			if (kind == FrozenBigraph.SITE) {
+				search(i + 1);
+			} else if (kind == FrozenBigraph.ROOT) {
+				if (mustUseCandidate(i)) {
+					for (int p : candidates)
+						searchRoot(i, p);
+				} else {
+					for (int p = 0; p < agent.getPlaceCount(); p++)
+						searchRoot(i, p);
+				}
+				placeImages[i] = -1;
+			} else {
+				int parent = placeImages[redex.getParent(i)],
+					control = redex.getPlaceControl(i);
+				for (int n = agent.getFirstChild(parent); n != -1;
+						n = agent.getNextSibling(n)) {
+					if (agent.getKind(n) != FrozenBigraph.NODE || used[n] ||
+							controlMap[agent.getPlaceControl(n)] != control)
+						continue;
+					if (sites[i] != null ?
+							childCount[n] < nodeChildCount[i] :
+							childCount[n] != nodeChildCount[i])
+						continue;
+					int mark = trailSize;
+					if (connect(i, n)) {
+						used[n] = true;
+						placeImages[i] = n;
+						search(i + 1);
+						used[n] = false;
+					}
+					undo(mark);
+				}
+				placeImages[i] = -1;
+			}
+		}
+		
+		/**
+		 * Extends the link mapping to cover the ports of a redex node, given
+		 * the agent node onto which it's being mapped.
+		 * @param r a redex node
+		 * @param a an agent node with the same {@link
+		 * org.bigraph.model.Control Control}
+		 * @return <code>true</code> if the mapping could be extended, or
+		 * <code>false</code> otherwise (in which case the caller should
+		 * still call {@link #undo(int)})
+		 */
+		private boolean connect(int r, int a) {
+			int redexOuterNames = redex.getOuterNameCount(),
+				agentOuterNames = agent.getOuterNameCount();
+			for (int j = 0; j < redex.getPortCount(r); j++) {
+				int rl = redex.getLink(redex.getPort(r, j)),
+					al = agent.getLink(agent.getPort(a, j));
+				if (rl == -1) {
+					if (al != -1)
+						return false;
+				} else if (al == -1) {
+					return false;
+				} else if (linkImages[rl] != -1) {
+					if (linkImages[rl] != al)
+						return false;
+				} else if (rl >= redexOuterNames) {
+					if (al < agentOuterNames || edgeOwners[al] != -1 ||
+							outerNameRefs[al] != 0 ||
+							agent.getLinkPointCount(al) !=
+								redex.getLinkPointCount(rl))
+						return false;
+					edgeOwners[al] = rl;
+					linkImages[rl] = al;
+					trail[trailSize++] = rl;
+				} else {
+					if (edgeOwners[al] != -1)
+						return false;
+					outerNameRefs[al]++;
+					linkImages[rl] = al;
+					trail[trailSize++] = rl;
+				}
+			}
+			return true;
+		}
+		
+		private void undo(int mark) {
+			while (trailSize > mark) {
+				int rl = trail[--trailSize], al = linkImages[rl];
+				if (rl >= redex.getOuterNameCount()) {
+					edgeOwners[al] = -1;
+				} else outerNameRefs[al]--;
+				linkImages[rl] = -1;
+			}
+		}
+		
+		/**
+		 * Checks that the regions of a complete mapping don't overlap, and
+		 * then records a {@link Match} for every way of dividing up the
+		 * parameters.
+		 */
+		private void complete() {
+			int rootCount = redex.getRootCount();
+			for (int i = 0; i < rootCount; i++) {
+				int p = placeImages[i];
+				if (used[p])
+					return;
+				for (int j = i + 1; j < rootCount; j++)
+					if (placeImages[j] == p &&
+							(sites[i] != null || sites[j] != null))
+						return;
+				for (int q = agent.getParent(p); q != -1;
+						q = agent.getParent(q)) {
+					if (used[q])
+						return;
+					for (int j = 0; j < rootCount; j++)
+						if (placeImages[j] == q && sites[j] != null)
+							return;
+				}
+			}
+			
+			distribute(0, new int[placeImages.length][]);
+		}
+		
+		/**
+		 * Divides the unmatched children of the image of each redex place
+		 * that contains sites between those sites in every possible way,
+		 * recording a {@link Match} for each.
+		 * @param i the first redex place whose parameters haven't yet been
+		 * worked out
+		 * @param parameters the parameters of the sites of the places before
+		 * <code>i</code>
+		 */
+		private void distribute(int i, int[][] parameters) {
+			while (i < placeImages.length && sites[i] == null)
+				i++;
+			if (i == placeImages.length) {
+				results.add(new Match(Matcher.this, agent,
+						placeImages.clone(), linkImages.clone(),
+						parameters.clone()));
+				return;
+			}
+			
+			int p = placeImages[i], count = 0;
+			for (int n = agent.getFirstChild(p); n != -1;
+					n = agent.getNextSibling(n))
+				if (!used[n])
+					count++;
+			int[] children = new int[count];
+			count = 0;
+			for (int n = agent.getFirstChild(p); n != -1;
+					n = agent.getNextSibling(n))
+				if (!used[n])
+					children[count++] = n;
+			
+			int[] s = sites[i];
+			if (s.length == 1) {
+				parameters[s[0]] = children;
+				distribute(i + 1, parameters);
+				return;
+			}
+			
+			/* assignment[j] is the index into s of the site that gets
+			 * children[j]; step through every assignment in turn */
+			int[] assignment = new int[children.length],
+				sizes = new int[s.length];
+			do {
+				if (results.size() >= limit)
+					return;
+				Arrays.fill(sizes, 0);
+				for (int j : assignment)
+					sizes[j]++;
+				for (int j = 0; j < s.length; j++)
+					parameters[s[j]] = new int[sizes[j]];
+				Arrays.fill(sizes, 0);
+				for (int j = 0; j < children.length; j++) {
+					int site = s[assignment[j]];
+					parameters[site][sizes[assignment[j]]++] = children[j];
+				}
+				distribute(i + 1, parameters);
+			} while (advance(assignment, s.length));
+		}
+	}
+	
+	/**
+	 * Moves on to the next assignment of children to sites, treating
+	 * <code>assignment</code> as a number in base <code>radix</code>.
+	 * @param assignment an array of site indices, which will be modified
+	 * @param radix the number of sites
+	 * @return <code>false</code> if every assignment has been tried, or
+	 * <code>true</code> otherwise
+	 */
+	private static boolean advance(int[] assignment, int radix) {
+		for (int j = 0; j < assignment.length; j++) {
+			if (++assignment[j] < radix)
+				return true;
+			assignment[j] = 0;
+		}
+		return false;
+	}
+}
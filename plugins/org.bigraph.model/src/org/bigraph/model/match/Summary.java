@@ -0,0 +1,416 @@
+package org.bigraph.model.match;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bigraph.model.Container;
+import org.bigraph.model.Control;
+import org.bigraph.model.Edge;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.Layoutable;
+import org.bigraph.model.Link;
+import org.bigraph.model.NamedModelObject;
+import org.bigraph.model.Node;
+import org.bigraph.model.Point;
+import org.bigraph.model.Root;
+import org.bigraph.model.Signature;
+import org.bigraph.model.assistants.ExtendedDataUtilities.ChangeExtendedDataDescriptor;
+import org.bigraph.model.changes.descriptors.BoundDescriptor;
+import org.bigraph.model.changes.descriptors.IChangeDescriptor;
+
+/**
+ * A <strong>Summary</strong> records, for a bigraph, how many nodes of each
+ * {@link Control} it has and how deeply they're nested, together with how
+ * many points each of its links has.
+ * <p>A redex can only occur in an agent if the agent has at least as many
+ * nodes of each control as the redex (and at least as deep), an edge with
+ * exactly the same number of points for each of the redex's edges, and a
+ * link with at least as many points as each of the redex's outer names.
+ * {@link #admits(Summary)} checks these conditions in time proportional to
+ * the number of controls and link sizes in the redex, and so can rule out
+ * most of the redexes that can't match without searching for them.
+ * <p>Summaries can also be kept up to date with an agent as it changes, or
+ * worked out from the {@link Summary} of the agent before a change: see
+ * {@link #update(IChangeDescriptor)} and {@link #derive(FrozenBigraph,
+ * IChangeDescriptor, FrozenBigraph)}.
+ * @see Matcher#getSummary()
+ */
+public final class Summary {
+	/**
+	 * A <strong>ControlKey</strong> identifies a {@link Control} in the way
+	 * that {@link Matcher}s do, by its name and arity.
+	 */
+	private static final class ControlKey {
+		private final String name;
+		private final int arity;
+		
+		private ControlKey(Control c) {
+			this(c.getName(), c.getPorts().size());
+		}
+		
+		private ControlKey(String name, int arity) {
+			this.name = name;
+			this.arity = arity;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof ControlKey) {
+				ControlKey k = (ControlKey)obj;
+				return arity == k.arity && name.equals(k.name);
+			} else return false;
+		}
+		
+		@Override
+		public int hashCode() {
+			return name.hashCode() * 31 + arity;
+		}
+	}
+	
+	/**
+	 * A <strong>Histogram</strong> counts how many times each small
+	 * non-negative integer has been seen.
+	 */
+	private static final class Histogram {
+		private int[] counts = new int[4];
+		private int total = 0;
+		
+		private Histogram() {
+		}
+		
+		private Histogram(Histogram h) {
+			counts = h.counts.clone();
+			total = h.total;
+		}
+		
+		private void add(int value, int delta) {
+			if (value >= counts.length)
+				counts = Arrays.copyOf(counts,
+						Math.max(value + 1, counts.length * 2));
+			counts[value] += delta;
+			total += delta;
+		}
+		
+		private int get(int value) {
+			return (value < counts.length ? counts[value] : 0);
+		}
+		
+		private int getMaximum() {
+			for (int i = counts.length - 1; i >= 0; i--)
+				if (counts[i] > 0)
+					return i;
+			return -1;
+		}
+	}
+	
+	/**
+	 * A <strong>NodeRecord</strong> remembers what a node contributed to a
+	 * {@link Summary}, so that it can be taken away again.
+	 */
+	private static final class NodeRecord {
+		private final ControlKey control;
+		private final int depth;
+		
+		private NodeRecord(ControlKey control, int depth) {
+			this.control = control;
+			this.depth = depth;
+		}
+	}
+	
+	/**
+	 * A <strong>LinkRecord</strong> keeps track of the number of points on
+	 * a link.
+	 */
+	private static final class LinkRecord {
+		private final boolean outerName;
+		private int points = 0;
+		
+		private LinkRecord(boolean outerName) {
+			this.outerName = outerName;
+		}
+	}
+	
+	private final Signature signature;
+	
+	/* The depths of the nodes of each control (roots have depth zero), and
+	 * the numbers of points on each edge and outer name */
+	private final HashMap<ControlKey, Histogram> controls =
+			new HashMap<ControlKey, Histogram>();
+	private final Histogram edges, outerNames;
+	
+	/* The bigraph from which this Summary was made; the records needed to
+	 * update it are only built from that when they're first needed */
+	private FrozenBigraph source;
+	private HashMap<String, NodeRecord> nodes;
+	private HashMap<String, LinkRecord> links;
+	
+	/**
+	 * Creates a new {@link Summary}.
+	 * @param b a {@link FrozenBigraph}
+	 */
+	public Summary(FrozenBigraph b) {
+		signature = b.getSignature();
+		source = b;
+		edges = new Histogram();
+		outerNames = new Histogram();
+		
+		ControlKey[] keys = new ControlKey[b.getControlCount()];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = new ControlKey(b.getControl(i));
+		int[] depth = new int[b.getPlaceCount()];
+		for (int i = 0; i < depth.length; i++) {
+			int parent = b.getParent(i);
+			if (parent != -1)
+				depth[i] = depth[parent] + 1;
+			if (b.getKind(i) == FrozenBigraph.NODE)
+				getHistogram(keys[b.getPlaceControl(i)]).add(depth[i], 1);
+		}
+		
+		for (int i = 0; i < b.getLinkCount(); i++)
+			(i < b.getOuterNameCount() ? outerNames : edges).add(
+					b.getLinkPointCount(i), 1);
+	}
+	
+	/**
+	 * Copies the counts, but not the records, of another {@link Summary}.
+	 * @param s a {@link Summary}
+	 */
+	private Summary(Summary s) {
+		signature = s.signature;
+		for (Map.Entry<ControlKey, Histogram> e : s.controls.entrySet())
+			controls.put(e.getKey(), new Histogram(e.getValue()));
+		edges = new Histogram(s.edges);
+		outerNames = new Histogram(s.outerNames);
+	}
+	
+	private Histogram getHistogram(ControlKey key) {
+		Histogram h = controls.get(key);
+		if (h == null)
+			controls.put(key, h = new Histogram());
+		return h;
+	}
+	
+	/**
+	 * Indicates whether or not a redex might occur in the bigraph that this
+	 * {@link Summary} describes. (If this method returns <code>true</code>,
+	 * the redex still might not occur; if it returns <code>false</code>, it
+	 * certainly doesn't.)
+	 * @param redex the {@link Summary} of a redex
+	 * @return <code>false</code> if the redex can't occur, or
+	 * <code>true</code> otherwise
+	 */
+	public boolean admits(Summary redex) {
+		for (Map.Entry<ControlKey, Histogram> e : redex.controls.entrySet()) {
+			Histogram required = e.getValue();
+			if (required.total == 0)
+				continue;
+			Histogram available = controls.get(e.getKey());
+			if (available == null || available.total < required.total ||
+					available.getMaximum() < required.getMaximum())
+				return false;
+		}
+		
+		for (int i = 0; i < redex.edges.counts.length; i++)
+			if (edges.get(i) < redex.edges.counts[i])
+				return false;
+		return (redex.outerNames.getMaximum() <=
+				Math.max(edges.getMaximum(), outerNames.getMaximum()));
+	}
+	
+	private void createRecords() {
+		if (source != null) {
+			createRecords(source);
+			source = null;
+		}
+	}
+		
+	private void createRecords(FrozenBigraph b) {
+		nodes = new HashMap<String, NodeRecord>();
+		int[] depth = new int[b.getPlaceCount()];
+		for (int i = 0; i < depth.length; i++) {
+			int parent = b.getParent(i);
+			if (parent != -1)
+				depth[i] = depth[parent] + 1;
+			if (b.getKind(i) == FrozenBigraph.NODE)
+				nodes.put(b.getPlaceName(i), new NodeRecord(new ControlKey(
+						b.getControl(b.getPlaceControl(i))), depth[i]));
+		}
+		
+		links = new HashMap<String, LinkRecord>();
+		for (int i = 0; i < b.getLinkCount(); i++) {
+			LinkRecord r = new LinkRecord(i < b.getOuterNameCount());
+			r.points = b.getLinkPointCount(i);
+			links.put(b.getLinkName(i), r);
+		}
+	}
+	
+	/**
+	 * Brings this {@link Summary} up to date after a change to the bigraph
+	 * that it describes. Only structural changes to places and links are
+	 * understood; if this method returns <code>false</code>, this {@link
+	 * Summary} should no longer be used, and a new one should be made.
+	 * (This is also the case for {@link Summary Summaries} made by {@link
+	 * #derive(FrozenBigraph, IChangeDescriptor, FrozenBigraph)}, which don't
+	 * have the bigraph that they describe to hand.)
+	 * @param change an {@link IChangeDescriptor} (or a group of them) that
+	 * has just been applied to the bigraph
+	 * @return <code>true</code> if this {@link Summary} was updated, or
+	 * <code>false</code> if the change wasn't understood
+	 */
+	public boolean update(IChangeDescriptor change) {
+		createRecords();
+		return (nodes != null && apply(change, null));
+	}
+	
+	/**
+	 * Works out the {@link Summary} of the bigraph that a change turns this
+	 * {@link Summary}'s bigraph into, leaving this {@link Summary} as it
+	 * was.
+	 * <p>The new {@link Summary} is worked out by updating this one, copying
+	 * its counts and then undoing the update, which takes time proportional
+	 * to the size of the change rather than to that of the bigraph (except
+	 * for the first call, which has to build the records that updating
+	 * needs). It's only made from <code>result</code> if the change isn't
+	 * understood.
+	 * @param b the {@link FrozenBigraph} that this {@link Summary} describes
+	 * @param change an {@link IChangeDescriptor} (or a group of them) that
+	 * turns <code>b</code> into <code>result</code>, like those produced by
+	 * {@link CompiledRule#apply(Match,
+	 * org.bigraph.model.changes.descriptors.ChangeDescriptorGroup)}
+	 * @param result a {@link FrozenBigraph}
+	 * @return a new {@link Summary} of <code>result</code>
+	 */
+	public Summary derive(FrozenBigraph b,
+			IChangeDescriptor change, FrozenBigraph result) {
+		createRecords();
+		if (nodes == null)
+			createRecords(b);
+		
+		List<IChangeDescriptor> undo = new ArrayList<IChangeDescriptor>();
+		Summary s = (apply(change, undo) ? new Summary(this) : null);
+		for (int i = undo.size() - 1; i >= 0; i--)
+			apply(undo.get(i), null);
+		return (s != null ? s : new Summary(result));
+	}
+	
+	/**
+	 * Applies a change to this {@link Summary}.
+	 * @param cd an {@link IChangeDescriptor}
+	 * @param undo a list to which the inverse of every change that has
+	 * been applied should be added, or <code>null</code>
+	 * @return <code>true</code> if the change was understood, or
+	 * <code>false</code> otherwise
+	 */
+	private boolean apply(IChangeDescriptor cd, List<IChangeDescriptor> undo) {
+		if (cd == null) {
+			return true;
+		} else if (cd instanceof IChangeDescriptor.Group) {
+			for (IChangeDescriptor i : (IChangeDescriptor.Group)cd)
+				if (!apply(i, undo))
+					return false;
+			return true;
+		} else if (cd instanceof BoundDescriptor) {
+			return apply(((BoundDescriptor)cd).getDescriptor(), undo);
+		} else if (cd instanceof ChangeExtendedDataDescriptor) {
+			return true;
+		} else if (!applyStep(cd)) {
+			return false;
+		} else {
+			if (undo != null)
+				undo.add(cd.inverse());
+			return true;
+		}
+	}
+	
+	private boolean applyStep(IChangeDescriptor cd) {
+		if (cd instanceof Container.ChangeAddChildDescriptor) {
+			Container.ChangeAddChildDescriptor co =
+					(Container.ChangeAddChildDescriptor)cd;
+			Layoutable.Identifier child = co.getChild();
+			if (child instanceof Node.Identifier) {
+				Node.Identifier n = (Node.Identifier)child;
+				Control c = signature.getControl(n.getControl().getName());
+				int depth = getDepth(co.getParent());
+				if (c == null || depth == -1)
+					return false;
+				NodeRecord r = new NodeRecord(new ControlKey(c), depth + 1);
+				nodes.put(n.getName(), r);
+				getHistogram(r.control).add(r.depth, 1);
+			} else if (child instanceof Link.Identifier) {
+				LinkRecord r =
+						new LinkRecord(!(child instanceof Edge.Identifier));
+				links.put(child.getName(), r);
+				getLinkHistogram(r).add(0, 1);
+			}
+			return true;
+		} else if (cd instanceof Container.ChangeRemoveChildDescriptor) {
+			Layoutable.Identifier child =
+					((Container.ChangeRemoveChildDescriptor)cd).getChild();
+			if (child instanceof Node.Identifier) {
+				NodeRecord r = nodes.remove(child.getName());
+				if (r == null)
+					return false;
+				getHistogram(r.control).add(r.depth, -1);
+			} else if (child instanceof Link.Identifier) {
+				/* A link that still has points couldn't be put back as it
+				 * was, so removing one isn't understood */
+				LinkRecord r = links.get(child.getName());
+				if (r == null || r.points != 0)
+					return false;
+				links.remove(child.getName());
+				getLinkHistogram(r).add(0, -1);
+			}
+			return true;
+		} else if (cd instanceof Point.ChangeConnectDescriptor) {
+			return connect(((Point.ChangeConnectDescriptor)cd).getLink(), 1);
+		} else if (cd instanceof Point.ChangeDisconnectDescriptor) {
+			return connect(
+					((Point.ChangeDisconnectDescriptor)cd).getLink(), -1);
+		} else if (cd instanceof NamedModelObject.ChangeNameDescriptor) {
+			NamedModelObject.ChangeNameDescriptor co =
+					(NamedModelObject.ChangeNameDescriptor)cd;
+			NamedModelObject.Identifier target = co.getTarget();
+			if (target instanceof Node.Identifier) {
+				return rename(nodes, target.getName(), co.getNewName());
+			} else if (target instanceof Link.Identifier) {
+				return rename(links, target.getName(), co.getNewName());
+			} else return (target instanceof Layoutable.Identifier);
+		} else return false;
+	}
+	
+	private int getDepth(Container.Identifier parent) {
+		if (parent instanceof Root.Identifier) {
+			return 0;
+		} else if (parent instanceof Node.Identifier) {
+			NodeRecord r = nodes.get(parent.getName());
+			return (r != null ? r.depth : -1);
+		} else return -1;
+	}
+	
+	private Histogram getLinkHistogram(LinkRecord r) {
+		return (r.outerName ? outerNames : edges);
+	}
+	
+	private boolean connect(Link.Identifier link, int delta) {
+		LinkRecord r = links.get(link.getName());
+		if (r == null)
+			return false;
+		Histogram h = getLinkHistogram(r);
+		h.add(r.points, -1);
+		r.points += delta;
+		h.add(r.points, 1);
+		return true;
+	}
+	
+	private static <V> boolean rename(
+			HashMap<String, V> records, String name, String newName) {
+		V r = records.remove(name);
+		if (r == null)
+			return false;
+		records.put(newName, r);
+		return true;
+	}
+}
@@ -1,6 +1,9 @@
 package org.bigraph.model.names;
 
+import java.util.TreeSet;
+
 import org.bigraph.model.assistants.PropertyScratchpad;
+import org.bigraph.model.names.policies.IIndexedNamePolicy;
 import org.bigraph.model.names.policies.INamePolicy;
 import org.bigraph.model.names.policies.StringNamePolicy;
 
@@ -15,6 +18,89 @@ public abstract class Namespace<T> implements INamespace<T> {
 		this.policy = policy;
 	}
 	
+	private static final IIndexedNamePolicy DEFAULT_POLICY =
+			new StringNamePolicy();
+	
+	/**
+	 * An <strong>Allocator</strong> keeps track of which of the names
+	 * produced by an {@link IIndexedNamePolicy} are available, so that {@link
+	 * #getNextName(PropertyScratchpad)} doesn't need to try every name in
+	 * turn.
+	 * <p>Every index below {@link #high} is either in use or in {@link
+	 * #free}; indices at or above it are probed as necessary. Each {@link
+	 * PropertyScratchpad} has its own Allocator, which starts life as a copy
+	 * of its parent's.
+	 */
+	private static final class Allocator {
+		private static final String PROPERTY_ALLOCATOR = "Allocator";
+		
+		private final PropertyScratchpad context;
+		private final TreeSet<Integer> free;
+		private int high;
+		
+		private Allocator(PropertyScratchpad context, Allocator parent) {
+			this.context = context;
+			if (parent != null) {
+				free = new TreeSet<Integer>(parent.free);
+				high = parent.high;
+			} else free = new TreeSet<Integer>();
+		}
+		
+		private void taken(int index) {
+			if (index < high)
+				free.remove(index);
+		}
+		
+		private void released(int index) {
+			if (index < high)
+				free.add(index);
+		}
+	}
+	
+	private final Allocator allocator = new Allocator(null, null);
+	
+	private IIndexedNamePolicy getIndexedPolicy() {
+		INamePolicy policy = getPolicy();
+		if (policy == null) {
+			return DEFAULT_POLICY;
+		} else if (policy instanceof IIndexedNamePolicy) {
+			return (IIndexedNamePolicy)policy;
+		} else return null;
+	}
+	
+	private Allocator getAllocator(PropertyScratchpad context, boolean create) {
+		if (context == null)
+			return allocator;
+		Allocator a = (Allocator)
+				context.getProperty(allocator, Allocator.PROPERTY_ALLOCATOR);
+		if ((a == null || a.context != context) && create) {
+			a = new Allocator(context, (a != null ? a : allocator));
+			context.setProperty(allocator, Allocator.PROPERTY_ALLOCATOR, a);
+		}
+		return (a != null && a.context == context ? a : null);
+	}
+	
+	private void nameTaken(PropertyScratchpad context, String name) {
+		IIndexedNamePolicy policy = getIndexedPolicy();
+		if (policy != null) {
+			int index = policy.getIndex(name);
+			/* A scratchpad's Allocator will skip over names that are in use
+			 * anyway, so there's no need to create one just to record this */
+			Allocator a;
+			if (index != -1 && (a = getAllocator(context, false)) != null)
+				a.taken(index);
+		}
+	}
+	
+	private void nameReleased(PropertyScratchpad context, String name) {
+		IIndexedNamePolicy policy = getIndexedPolicy();
+		if (policy != null) {
+			int index = policy.getIndex(name);
+			if (index != -1)
+				getAllocator(context, true).released(index);
+		}
+	}
+	
 	@SuppressWarnings("unchecked")
 	protected T getProperty(PropertyScratchpad context, String name) {
 		if (context != null && context.hasProperty(this, name)) {
@@ -27,17 +113,21 @@ public abstract class Namespace<T> implements INamespace<T> {
 		if (context == null) {
 			putRaw(name, value);
 		} else context.setProperty(this, name, value);
+		nameTaken(context, name);
 	}
 	
 	protected boolean removeProperty(PropertyScratchpad context, String name) {
+		boolean success;
 		if (context == null) {
-			return removeRaw(name);
+			success = removeRaw(name);
 		} else {
-			boolean success = has(context, name);
+			success = has(context, name);
 			if (success)
 				context.setProperty(this, name, null);
-			return success;
 		}
+		if (success)
+			nameReleased(context, name);
+		return success;
 	}
 	
 	protected abstract T getRaw(String name);
@@ -115,10 +205,22 @@ public abstract class Namespace<T> implements INamespace<T> {
 	}
 	
 	public String getNextName(PropertyScratchpad context) {
-		INamePolicy policy = getPolicy();
-		if (policy == null)
-			policy = new StringNamePolicy();
+		IIndexedNamePolicy ip = getIndexedPolicy();
+		if (ip != null) {
+			Allocator a = getAllocator(context, true);
+			while (!a.free.isEmpty()) {
+				String name = ip.get(a.free.first());
+				if (!has(context, name)) {
+					return name;
+				} else a.free.pollFirst();
+			}
+			String name;
+			while (has(context, name = ip.get(a.high)))
+				a.high++;
+			return name;
+		}
 		
+		INamePolicy policy = getPolicy();
 		int i = 0;
 		String name;
 		do {
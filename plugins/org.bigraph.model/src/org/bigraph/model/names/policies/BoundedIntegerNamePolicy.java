@@ -1,6 +1,6 @@
 package org.bigraph.model.names.policies;
 
-public class BoundedIntegerNamePolicy implements INamePolicy {
+public class BoundedIntegerNamePolicy implements IIndexedNamePolicy {
 	private final int min, max;
 	private final long range;
 	
@@ -34,4 +34,19 @@ public class BoundedIntegerNamePolicy implements INamePolicy {
 	public String get(int value) {
 		return Long.toString(min + (Math.abs(value) % range));
 	}
+	
+	@Override
+	public int getIndex(String name) {
+		try {
+			int i = Integer.parseInt(name);
+			if (i >= min && i <= max) {
+				long index = (long)i - min;
+				if (index <= Integer.MAX_VALUE)
+					return (int)index;
+			}
+		} catch (NumberFormatException e) {
+			/* fall through */
+		}
+		return -1;
+	}
 }
@@ -0,0 +1,19 @@
+package org.bigraph.model.names.policies;
+
+/**
+ * Classes implementing <strong>IIndexedNamePolicy</strong> are {@link
+ * INamePolicy}s that can also map names back to the integers that produced
+ * them, allowing namespaces to keep track of which generated names are free.
+ * @see INamePolicy
+ */
+public interface IIndexedNamePolicy extends INamePolicy {
+	/**
+	 * Returns the integer from which {@link #get(int)} produces the given
+	 * name.
+	 * @param name a normalised name
+	 * @return a non-negative integer <code>i</code> for which
+	 * <code>get(i)</code> returns <code>name</code>, or <code>-1</code> if
+	 * there is no such integer
+	 */
+	int getIndex(String name);
+}
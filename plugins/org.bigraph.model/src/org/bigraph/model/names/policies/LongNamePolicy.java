@@ -1,6 +1,6 @@
 package org.bigraph.model.names.policies;
 
-public class LongNamePolicy implements INamePolicy {
+public class LongNamePolicy implements IIndexedNamePolicy {
 	@Override
 	public String normalise(String name) {
 		try {
@@ -14,4 +14,16 @@ public class LongNamePolicy implements INamePolicy {
 	public String get(int value) {
 		return Long.toString(Math.abs(value));
 	}
+	
+	@Override
+	public int getIndex(String name) {
+		try {
+			long l = Long.parseLong(name);
+			if (l >= 0 && l <= Integer.MAX_VALUE)
+				return (int)l;
+		} catch (NumberFormatException e) {
+			/* fall through */
+		}
+		return -1;
+	}
 }
@@ -1,6 +1,6 @@
 package org.bigraph.model.names.policies;
 
-public class StringNamePolicy implements INamePolicy {
+public class StringNamePolicy implements IIndexedNamePolicy {
 	@Override
 	public String normalise(String name) {
 		if (name != null) {
@@ -32,4 +32,20 @@ public class StringNamePolicy implements INamePolicy {
 		}
 		return s;
 	}
+	
+	@Override
+	public int getIndex(String name) {
+		int length = name.length();
+		if (length == 0 || length > 6 ||
+				(length > 1 && name.charAt(0) == alphabet.charAt(0)))
+			return -1;
+		int value = 0;
+		for (int i = 0; i < length; i++) {
+			int z = alphabet.indexOf(name.charAt(i));
+			if (z == -1)
+				return -1;
+			value = (value * 26) + z;
+		}
+		return value;
+	}
 }
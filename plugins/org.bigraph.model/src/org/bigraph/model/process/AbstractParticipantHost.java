@@ -1,17 +1,21 @@
 package org.bigraph.model.process;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.bigraph.model.utilities.FilteringIterable;
 
 /**
  * Classes extending <strong>AbstractParticipantHost</strong> inherit a
  * sensible default implementation of the {@link IParticipantHost} interface.
+ * <p>The list of participants is copy-on-write, so participants can safely be
+ * added (from static initialisers on different threads, for example) while
+ * it's being iterated over.
  * @author alec
  */
 public abstract class AbstractParticipantHost implements IParticipantHost {
-	private List<IParticipant> participants = new ArrayList<IParticipant>();
+	private List<IParticipant> participants =
+			new CopyOnWriteArrayList<IParticipant>();
 
 	@Override
 	public void addParticipant(IParticipant participant) {
@@ -27,4 +27,13 @@ public interface IFileWrapper extends IResourceWrapper, IOpenable {
 	 * @throws LoadFailedException if something goes wrong
 	 */
 	InputStream getContents() throws LoadFailedException;
+	
+	/**
+	 * Returns a value which changes whenever the contents of this file do.
+	 * <p>Modification stamps are only meaningful when compared with other
+	 * stamps from the same file.
+	 * @return a modification stamp
+	 * @see org.bigraph.model.loaders.DocumentCache
+	 */
+	long getModificationStamp();
 }
@@ -44,6 +44,11 @@ public class JavaFileWrapper extends JavaResourceWrapper
 		}
 	}
 
+	@Override
+	public long getModificationStamp() {
+		return getResource().lastModified();
+	}
+	
 	@Override
 	public InputStream open() {
 		try {
@@ -78,4 +78,27 @@ public abstract class JavaResourceWrapper implements IResourceWrapper {
 	public IContainerWrapper getParent() {
 		return new JavaContainerWrapper(getResource().getParentFile());
 	}
+	
+	@Override
+	public String toString() {
+		return getResource().toString();
+	}
+	
+	private String getKey() {
+		String path = getPath();
+		return (path != null ? path : getResource().getAbsolutePath());
+	}
+	
+	@Override
+	public boolean equals(Object obj_) {
+		if (obj_ != null && obj_.getClass().equals(getClass())) {
+			JavaResourceWrapper obj = (JavaResourceWrapper)obj_;
+			return getKey().equals(obj.getKey());
+		} else return false;
+	}
+	
+	@Override
+	public int hashCode() {
+		return 1234 + getKey().hashCode();
+	}
 }
@@ -0,0 +1,255 @@
+package org.bigraph.model.savers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bigraph.model.Bigraph;
+import org.bigraph.model.Container;
+import org.bigraph.model.Control;
+import org.bigraph.model.Edge;
+import org.bigraph.model.InnerName;
+import org.bigraph.model.Layoutable;
+import org.bigraph.model.Link;
+import org.bigraph.model.ModelObject;
+import org.bigraph.model.Node;
+import org.bigraph.model.OuterName;
+import org.bigraph.model.Point;
+import org.bigraph.model.Port;
+import org.bigraph.model.PortSpec;
+import org.bigraph.model.Root;
+import org.bigraph.model.Signature;
+import org.bigraph.model.Site;
+import org.bigraph.model.assistants.FileData;
+import org.bigraph.model.resources.IFileWrapper;
+
+import static org.bigraph.model.loaders.StructureFormatConstants.*;
+
+/**
+ * <strong>BigraphStructureSaver</strong> writes a {@link Bigraph} out in the
+ * format described by {@link
+ * org.bigraph.model.loaders.StructureFormatConstants StructureFormatConstants}.
+ * <p>This format is meant for internal use by tools, like the model
+ * checker, that only care about the structure of a bigraph; it is not a
+ * substitute for {@link BigraphXMLSaver}. No {@link IXMLSaver.Decorator}s
+ * are run, and layout and other extended data are not saved.
+ * @see org.bigraph.model.loaders.BigraphStructureLoader
+ */
+public class BigraphStructureSaver extends Saver {
+	public BigraphStructureSaver() {
+	}
+	
+	public BigraphStructureSaver(ISaver parent) {
+		super(parent);
+	}
+	
+	@Override
+	public Bigraph getModel() {
+		return (Bigraph)super.getModel();
+	}
+	
+	@Override
+	public BigraphStructureSaver setModel(ModelObject model) {
+		if (model == null || model instanceof Bigraph)
+			super.setModel(model);
+		return this;
+	}
+	
+	private final Map<String, Integer> strings =
+			new LinkedHashMap<String, Integer>();
+	
+	private int string(String s) {
+		if (s == null)
+			return -1;
+		Integer index = strings.get(s);
+		if (index == null)
+			strings.put(s, index = strings.size());
+		return index;
+	}
+	
+	/**
+	 * A growable array of <code>int</code>s, into which each section is
+	 * built before being written out.
+	 */
+	private static final class IntBuffer {
+		private int[] data = new int[64];
+		private int size = 0;
+		
+		private void add(int... values) {
+			if (size + values.length > data.length) {
+				int[] n = new int[Math.max(
+						data.length * 2, size + values.length)];
+				System.arraycopy(data, 0, n, 0, size);
+				data = n;
+			}
+			System.arraycopy(values, 0, data, size, values.length);
+			size += values.length;
+		}
+		
+		private void writeSection(DataOutputStream os, int tag)
+				throws IOException {
+			os.writeInt(tag);
+			os.writeInt(size);
+			for (int i = 0; i < size; i++)
+				os.writeInt(data[i]);
+		}
+	}
+	
+	private static int getKind(Control c) {
+		switch (c.getKind()) {
+		case ACTIVE:
+			return KIND_ACTIVE;
+		case PASSIVE:
+			return KIND_PASSIVE;
+		case ATOMIC:
+		default:
+			return KIND_ATOMIC;
+		}
+	}
+	
+	private void writeSignature(IntBuffer b, Signature s) {
+		b.add(s.getControls().size());
+		for (Control c : s.getControls()) {
+			List<? extends PortSpec> ports = c.getPorts();
+			b.add(string(c.getName()), getKind(c), ports.size());
+			for (PortSpec p : ports)
+				b.add(string(p.getName()));
+		}
+		b.add(s.getSignatures().size());
+		for (Signature t : s.getSignatures())
+			writeSignature(b, t);
+	}
+	
+	private IntBuffer makeSignatureSection(Signature s) {
+		IntBuffer b = new IntBuffer();
+		IFileWrapper f;
+		if (getFile() != null && (f = FileData.getFile(s)) != null) {
+			b.add(SIGNATURE_REFERENCE,
+					string(f.getRelativePath(getFile().getParent().getPath())));
+		} else {
+			b.add(SIGNATURE_EMBEDDED);
+			writeSignature(b, s);
+		}
+		return b;
+	}
+	
+	private final Map<Layoutable, Integer> entries =
+			new IdentityHashMap<Layoutable, Integer>();
+	private final List<Point> points = new ArrayList<Point>();
+	
+	private void addEntry(IntBuffer b, int type, Layoutable l, int parent) {
+		entries.put(l, entries.size());
+		b.add(type, string(l.getName()), parent, string(
+				l instanceof Node ? ((Node)l).getControl().getName() : null));
+	}
+	
+	private void addContents(IntBuffer b, Container c, int parent) {
+		for (Layoutable i : c.getChildren()) {
+			if (i instanceof Node) {
+				Node n = (Node)i;
+				addEntry(b, TYPE_NODE, n, parent);
+				points.addAll(n.getPorts());
+				addContents(b, n, entries.get(n));
+			} else if (i instanceof Site) {
+				addEntry(b, TYPE_SITE, i, parent);
+			}
+		}
+	}
+	
+	private IntBuffer makePlaceSection(Bigraph obj) {
+		IntBuffer b = new IntBuffer();
+		b.add(0);
+		
+		/* Links come first, so that they're available to be connected to
+		 * by the time the link section is read */
+		for (Layoutable i : obj.getChildren())
+			if (i instanceof Edge)
+				addEntry(b, TYPE_EDGE, i, -1);
+		for (Layoutable i : obj.getChildren())
+			if (i instanceof OuterName)
+				addEntry(b, TYPE_OUTER_NAME, i, -1);
+		for (Layoutable i : obj.getChildren()) {
+			if (i instanceof Root) {
+				addEntry(b, TYPE_ROOT, i, -1);
+				addContents(b, (Root)i, entries.get(i));
+			}
+		}
+		for (Layoutable i : obj.getChildren()) {
+			if (i instanceof InnerName) {
+				addEntry(b, TYPE_INNER_NAME, i, -1);
+				points.add((InnerName)i);
+			}
+		}
+		
+		/* Now that every entry's been counted, fix up the header */
+		b.data[0] = entries.size();
+		return b;
+	}
+	
+	private IntBuffer makeLinkSection() {
+		IntBuffer b = new IntBuffer();
+		int count = 0;
+		b.add(0);
+		for (Point p : points) {
+			Link l = p.getLink();
+			if (l == null)
+				continue;
+			if (p instanceof Port) {
+				b.add(entries.get(((Port)p).getParent()),
+						string(p.getName()), entries.get(l));
+			} else b.add(entries.get(p), -1, entries.get(l));
+			count++;
+		}
+		b.data[0] = count;
+		return b;
+	}
+	
+	private void writeStrings(DataOutputStream os)
+			throws IOException {
+		os.writeInt(strings.size());
+		int length = 0;
+		for (String s : strings.keySet()) {
+			byte[] b = s.getBytes("UTF-8");
+			os.writeInt(b.length);
+			os.write(b);
+			length += b.length;
+		}
+		while (length++ % 4 != 0)
+			os.write(0);
+	}
+	
+	@Override
+	public void exportObject() throws SaveFailedException {
+		Bigraph obj = getModel();
+		try {
+			IntBuffer
+				signature = makeSignatureSection(obj.getSignature()),
+				place = makePlaceSection(obj),
+				link = makeLinkSection();
+			
+			DataOutputStream os = new DataOutputStream(
+					new BufferedOutputStream(getOutputStream()));
+			try {
+				os.writeInt(MAGIC);
+				os.writeInt(VERSION);
+				writeStrings(os);
+				signature.writeSection(os, SECTION_SIGNATURE);
+				place.writeSection(os, SECTION_PLACE);
+				link.writeSection(os, SECTION_LINK);
+			} finally {
+				os.close();
+			}
+		} catch (IOException e) {
+			throw new SaveFailedException(e);
+		} finally {
+			strings.clear();
+			entries.clear();
+			points.clear();
+		}
+	}
+}
@@ -47,10 +47,41 @@ public class BigraphXMLSaver extends XMLSaver {
 		return this;
 	}
 	
+	private boolean streaming = false;
+	
+	/**
+	 * Indicates whether or not this saver will write its output as it goes.
+	 * @return <code>true</code> if output will be streamed, or
+	 * <code>false</code> otherwise
+	 * @see #setStreaming(boolean)
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+	
+	/**
+	 * Sets whether or not this saver should write its output as it goes,
+	 * instead of first building a DOM {@link org.w3c.dom.Document Document}
+	 * for the entire bigraph. The output is the same in both cases, but
+	 * streaming uses much less memory for large bigraphs.
+	 * <p>When streaming, {@link Decorator}s are executed before an element's
+	 * model children are written, and so will not see them in the
+	 * element.
+	 * @param streaming whether or not to stream the output
+	 * @return <code>this</code>, for convenience
+	 */
+	public BigraphXMLSaver setStreaming(boolean streaming) {
+		this.streaming = streaming;
+		return this;
+	}
+	
 	@Override
 	public void exportObject() throws SaveFailedException {
 		setDocument(createDocument(BIGRAPH, "bigraph:bigraph"));
-		processModel(getDocumentElement());
+		if (streaming) {
+			startStreaming();
+			writeModel(getDocumentElement());
+		} else processModel(getDocumentElement());
 		finish();
 	}
 	
@@ -93,6 +124,62 @@ public class BigraphXMLSaver extends XMLSaver {
 		return executeDecorators(obj, e);
 	}
 	
+	@Override
+	protected void writeModel(Element e) throws SaveFailedException {
+		Bigraph obj = getModel();
+		
+		startElement(executeDecorators(obj, e));
+		writeOrReference(newElement(SIGNATURE, "signature:signature"),
+				obj.getSignature(), new SignatureXMLSaver(this));
+		
+		/* Each kind of child is written in turn, in the same order that
+		 * processModel would have added them */
+		for (Layoutable i : obj.getChildren())
+			if (i instanceof Edge)
+				writeElement(applyCommonProperties(
+						newElement(BIGRAPH, "bigraph:edge"), i));
+		for (Layoutable i : obj.getChildren())
+			if (i instanceof OuterName)
+				writeElement(applyCommonProperties(
+						newElement(BIGRAPH, "bigraph:outername"), i));
+		for (Layoutable i : obj.getChildren()) {
+			if (i instanceof Root) {
+				Element f = startElement(applyCommonProperties(
+						newElement(BIGRAPH, "bigraph:root"), i));
+				writeContents((Root)i);
+				endElement(f);
+			}
+		}
+		for (Layoutable i : obj.getChildren())
+			if (i instanceof InnerName)
+				writeElement(applyCommonProperties(processPoint(
+						newElement(BIGRAPH, "bigraph:innername"), (Point)i),
+						i));
+		
+		endElement(e);
+	}
+	
+	private void writeContents(Container c) throws SaveFailedException {
+		for (Layoutable i : c.getChildren()) {
+			if (i instanceof Node) {
+				Node n = (Node)i;
+				Element f = startElement(applyCommonProperties(
+						applyAttributes(newElement(BIGRAPH, "bigraph:node"),
+								"control", n.getControl().getName(),
+								"name", n.getName()), n));
+				for (Port p : n.getPorts())
+					writeElement(processPoint(
+							newElement(BIGRAPH, "bigraph:port"), p));
+				writeContents(n);
+				endElement(f);
+			}
+		}
+		for (Layoutable i : c.getChildren())
+			if (i instanceof Site)
+				writeElement(applyCommonProperties(
+						newElement(BIGRAPH, "bigraph:site"), i));
+	}
+	
 	private static final void
 	appendChildren(Element e, List<Element> children) {
 		for (Element i : children)
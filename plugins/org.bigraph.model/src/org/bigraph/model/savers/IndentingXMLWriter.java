@@ -0,0 +1,307 @@
+package org.bigraph.model.savers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * <strong>IndentingXMLWriter</strong>s write XML to a {@link Writer} one
+ * element at a time, formatting it in exactly the same way as the indenting
+ * {@link javax.xml.transform.Transformer} used by {@link
+ * XMLSaver#finish()}: attributes in DOM order, namespaces declared where they
+ * are first used, two spaces of indentation per level, and the same escaping
+ * rules.
+ * <p>Elements are passed in as DOM {@link Element}s; {@link
+ * #startElement(Element)} writes only the start tag, and {@link
+ * #endElement(Element)} writes the element's DOM children before the end tag.
+ * @see XMLSaver#startElement(Element)
+ */
+final class IndentingXMLWriter {
+	private static final String LINE_SEPARATOR =
+			System.getProperty("line.separator");
+	
+	private static final class Frame {
+		private final String name;
+		private final int mappings;
+		private boolean open = true, children = false;
+		private StringBuilder text;
+		
+		private Frame(String name, int mappings) {
+			this.name = name;
+			this.mappings = mappings;
+		}
+	}
+	
+	private final Writer w;
+	private final Deque<Frame> frames = new ArrayDeque<Frame>();
+	
+	/* Each namespace declaration in scope is a prefix followed by a URI */
+	private final List<String> namespaces = new ArrayList<String>();
+	
+	IndentingXMLWriter(Writer w) {
+		this.w = w;
+	}
+	
+	void startDocument() throws IOException {
+		w.write("<?xml version=\"1.0\" encoding=\"UTF-8\" " +
+				"standalone=\"no\"?>");
+		w.write(LINE_SEPARATOR);
+	}
+	
+	void endDocument() throws IOException {
+		w.write(LINE_SEPARATOR);
+		w.flush();
+	}
+	
+	private void indent(int depth) throws IOException {
+		w.write(LINE_SEPARATOR);
+		for (int i = 0; i < depth; i++)
+			w.write("  ");
+	}
+	
+	/**
+	 * Prepares the current element to receive a child element or comment,
+	 * closing its start tag and writing any text that came before the child
+	 * on a line of its own.
+	 */
+	private void startChild() throws IOException {
+		Frame f = frames.peek();
+		if (f == null)
+			return;
+		if (f.open) {
+			w.write('>');
+			f.open = false;
+		}
+		if (f.text != null) {
+			indent(frames.size());
+			writeText(f.text);
+			f.text = null;
+		}
+		f.children = true;
+	}
+	
+	private String lookupNamespace(String prefix) {
+		for (int i = namespaces.size() - 2; i >= 0; i -= 2)
+			if (namespaces.get(i).equals(prefix))
+				return namespaces.get(i + 1);
+		return (prefix.length() == 0 ? "" : null);
+	}
+	
+	private void declareNamespace(String prefix, String ns)
+			throws IOException {
+		if (prefix == null)
+			prefix = "";
+		if (ns == null)
+			ns = "";
+		if (prefix.equals(XMLConstants.XML_NS_PREFIX) ||
+				ns.equals(lookupNamespace(prefix)))
+			return;
+		namespaces.add(prefix);
+		namespaces.add(ns);
+		w.write(' ');
+		w.write(prefix.length() != 0 ?
+				XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix :
+				XMLConstants.XMLNS_ATTRIBUTE);
+		w.write("=\"");
+		writeAttributeValue(ns);
+		w.write('"');
+	}
+	
+	private static boolean isNamespaceDeclaration(Attr a) {
+		return XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(
+				a.getNamespaceURI());
+	}
+	
+	/**
+	 * Writes the start tag of the given {@link Element}, along with its
+	 * attributes, but not its children.
+	 * @param e an {@link Element}
+	 * @throws IOException if the underlying {@link Writer} does
+	 */
+	void startElement(Element e) throws IOException {
+		startChild();
+		if (!frames.isEmpty())
+			indent(frames.size());
+		Frame f = new Frame(e.getNodeName(), namespaces.size());
+		w.write('<');
+		w.write(f.name);
+		
+		NamedNodeMap attrs = e.getAttributes();
+		int length = attrs.getLength();
+		for (int i = 0; i < length; i++) {
+			Attr a = (Attr)attrs.item(i);
+			if (isNamespaceDeclaration(a))
+				declareNamespace(a.getPrefix() != null ?
+						a.getLocalName() : "", a.getValue());
+		}
+		for (int i = 0; i < length; i++) {
+			Attr a = (Attr)attrs.item(i);
+			if (isNamespaceDeclaration(a))
+				continue;
+			if (a.getNamespaceURI() != null && a.getPrefix() != null)
+				declareNamespace(a.getPrefix(), a.getNamespaceURI());
+			w.write(' ');
+			w.write(a.getName());
+			w.write("=\"");
+			writeAttributeValue(a.getValue());
+			w.write('"');
+		}
+		declareNamespace(e.getPrefix(), e.getNamespaceURI());
+		
+		frames.push(f);
+	}
+	
+	/**
+	 * Writes the DOM children of the given {@link Element}, which should be
+	 * the one most recently passed to {@link #startElement(Element)} that
+	 * hasn't yet been ended, followed by its end tag.
+	 * @param e an {@link Element}
+	 * @throws IOException if the underlying {@link Writer} does
+	 */
+	void endElement(Element e) throws IOException {
+		for (Node i = e.getFirstChild(); i != null; i = i.getNextSibling()) {
+			switch (i.getNodeType()) {
+			case Node.ELEMENT_NODE:
+				startElement((Element)i);
+				endElement((Element)i);
+				break;
+			case Node.TEXT_NODE:
+				Frame f = frames.peek();
+				if (f.text == null)
+					f.text = new StringBuilder();
+				f.text.append(i.getNodeValue());
+				break;
+			case Node.COMMENT_NODE:
+				startChild();
+				indent(frames.size());
+				w.write("<!--");
+				w.write(i.getNodeValue());
+				w.write("-->");
+				break;
+			default:
+				/* do nothing */
+			}
+		}
+		
+		Frame f = frames.pop();
+		if (f.children) {
+			if (f.text != null) {
+				indent(frames.size() + 1);
+				writeText(f.text);
+			}
+			indent(frames.size());
+			w.write("</");
+			w.write(f.name);
+			w.write('>');
+		} else if (f.text != null && f.text.length() != 0) {
+			w.write('>');
+			writeText(f.text);
+			w.write("</");
+			w.write(f.name);
+			w.write('>');
+		} else w.write("/>");
+		while (namespaces.size() > f.mappings)
+			namespaces.remove(namespaces.size() - 1);
+	}
+	
+	private void writeCharacterReference(int c) throws IOException {
+		w.write("&#");
+		w.write(Integer.toString(c));
+		w.write(';');
+	}
+	
+	private void writeAttributeValue(CharSequence s) throws IOException {
+		int length = s.length();
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '&':
+				w.write("&amp;");
+				break;
+			case '<':
+				w.write("&lt;");
+				break;
+			case '>':
+				w.write("&gt;");
+				break;
+			case '"':
+				w.write("&quot;");
+				break;
+			case '\n':
+			case '\r':
+			case '\t':
+				writeCharacterReference(c);
+				break;
+			default:
+				i = writeCharacter(s, i);
+			}
+		}
+	}
+	
+	private void writeText(CharSequence s) throws IOException {
+		int length = s.length();
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '&':
+				w.write("&amp;");
+				break;
+			case '<':
+				w.write("&lt;");
+				break;
+			case '>':
+				w.write("&gt;");
+				break;
+			case '\n':
+				w.write(LINE_SEPARATOR);
+				break;
+			case '\r':
+				writeCharacterReference(c);
+				break;
+			case '\t':
+				w.write(c);
+				break;
+			default:
+				/* C1 control characters are escaped in text, but not in
+				 * attribute values */
+				if (c >= 0x7F && c <= 0x9F) {
+					writeCharacterReference(c);
+				} else i = writeCharacter(s, i);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the character at position <code>i</code> of <code>s</code>,
+	 * using a character reference if it's a control character or if it lies
+	 * outside the Basic Multilingual Plane.
+	 * @return the position of the last <code>char</code> consumed
+	 * @throws IOException if <code>s</code> contains an unpaired surrogate,
+	 * or if the underlying {@link Writer} throws one
+	 */
+	private int writeCharacter(CharSequence s, int i) throws IOException {
+		char c = s.charAt(i);
+		if (Character.isHighSurrogate(c) && i + 1 < s.length() &&
+				Character.isLowSurrogate(s.charAt(i + 1))) {
+			writeCharacterReference(
+					Character.toCodePoint(c, s.charAt(i + 1)));
+			return i + 1;
+		} else if (Character.isSurrogate(c)) {
+			throw new IOException("Invalid UTF-16 surrogate detected: " +
+					Integer.toHexString(c));
+		} else if (c < 0x20) {
+			writeCharacterReference(c);
+		} else w.write(c);
+		return i;
+	}
+}
@@ -52,6 +52,28 @@ public class SignatureXMLSaver extends XMLSaver {
 		return executeDecorators(s, e);
 	}
 	
+	@Override
+	protected void writeModel(Element e) throws SaveFailedException {
+		Signature s = getModel();
+		
+		startElement(executeDecorators(s, e));
+		for (Signature t : s.getSignatures())
+			writeOrReference(newElement(SIGNATURE, "signature:signature"),
+					t, new SignatureXMLSaver(this));
+		
+		for (Control c : s.getControls()) {
+			Element f = startElement(executeDecorators(c, applyAttributes(
+					newElement(SIGNATURE, "signature:control"),
+					"name", c.getName(),
+					"kind", c.getKind().toString())));
+			for (PortSpec p : c.getPorts())
+				writeElement(processPort(
+						newElement(SIGNATURE, "signature:port"), p));
+			endElement(f);
+		}
+		endElement(e);
+	}
+	
 	private Element processControl(Element e, Control c) {
 		applyAttributes(e,
 				"name", c.getName(),
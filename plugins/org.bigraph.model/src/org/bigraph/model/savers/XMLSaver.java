@@ -1,9 +1,14 @@
 package org.bigraph.model.savers;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.dom.DOMSource;
@@ -25,8 +30,11 @@ public abstract class XMLSaver extends Saver implements IXMLSaver {
 	
 	public XMLSaver(ISaver parent) {
 		super(parent);
-		if (parent instanceof XMLSaver)
-			setDocument(((XMLSaver)parent).getDocument());
+		if (parent instanceof XMLSaver) {
+			XMLSaver p = (XMLSaver)parent;
+			setDocument(p.getDocument());
+			writer = p.writer;
+		}
 	}
 	
 	private static final TransformerFactory tf;
@@ -86,16 +94,36 @@ public abstract class XMLSaver extends Saver implements IXMLSaver {
 		} else return getDocument().createElementNS(nsURI, qualifiedName);
 	}
 	
+	/* Transformers can't be used by more than one thread at once, but they
+	 * can be reused, so each thread gets its own */
+	private static final ThreadLocal<Transformer> transformer =
+			new ThreadLocal<Transformer>() {
+		@Override
+		protected Transformer initialValue() {
+			synchronized (tf) {
+				try {
+					Transformer t = tf.newTransformer();
+					t.setOutputProperty(OutputKeys.INDENT, "yes");
+					t.setOutputProperty(
+							"{http://xml.apache.org/xslt}indent-amount", "2");
+					return t;
+				} catch (TransformerConfigurationException e) {
+					return null;
+				}
+			}
+		}
+	};
+	
 	protected XMLSaver finish() throws SaveFailedException {
 		try {
-			Source source = new DOMSource(getDocument());
-			Result result = new StreamResult(getOutputStream());
-			
-			Transformer t = getSharedTransformerFactory().newTransformer();
-			t.setOutputProperty(OutputKeys.INDENT, "yes");
-			t.setOutputProperty(
-					"{http://xml.apache.org/xslt}indent-amount", "2");
-			t.transform(source, result);
+			if (writer == null) {
+				Source source = new DOMSource(getDocument());
+				Result result = new StreamResult(getOutputStream());
+				transformer.get().transform(source, result);
+			} else {
+				writer.endDocument();
+				writer = null;
+			}
 			getOutputStream().close();
 			
 			return this;
@@ -104,6 +132,75 @@ public abstract class XMLSaver extends Saver implements IXMLSaver {
 		}
 	}
 	
+	private IndentingXMLWriter writer;
+	
+	/**
+	 * Switches this saver into streaming mode: rather than being built up
+	 * into the {@link Document} and written out all at once by {@link
+	 * #finish()}, elements will be written to the output as they're passed
+	 * to {@link #startElement(Element)} and {@link #endElement(Element)}.
+	 * (Streamed output is identical to the output of {@link #finish()}.)
+	 * <p>The Document must already have been set; it's still used to
+	 * create elements, but they don't need to be added to it.
+	 * @throws SaveFailedException if the output couldn't be written to
+	 */
+	protected void startStreaming() throws SaveFailedException {
+		try {
+			writer = new IndentingXMLWriter(new BufferedWriter(
+					new OutputStreamWriter(getOutputStream(), "UTF-8")));
+			writer.startDocument();
+		} catch (IOException e) {
+			throw new SaveFailedException(e);
+		}
+	}
+	
+	/**
+	 * Writes the start tag of an {@link Element}, along with its attributes,
+	 * to the output. Its children, if any, are written by {@link
+	 * #endElement(Element)}.
+	 * @param e an {@link Element}
+	 * @return <code>e</code>, for convenience
+	 * @throws SaveFailedException if the output couldn't be written to
+	 */
+	protected Element startElement(Element e) throws SaveFailedException {
+		try {
+			writer.startElement(e);
+			return e;
+		} catch (IOException ex) {
+			throw new SaveFailedException(ex);
+		}
+	}
+	
+	/**
+	 * Writes the children of an {@link Element} (for example, those added by
+	 * {@link Decorator}s), followed by its end tag, to the output.
+	 * @param e the {@link Element} most recently passed to {@link
+	 * #startElement(Element)} that hasn't yet been ended
+	 * @return <code>e</code>, for convenience
+	 * @throws SaveFailedException if the output couldn't be written to
+	 */
+	protected Element endElement(Element e) throws SaveFailedException {
+		try {
+			writer.endElement(e);
+			return e;
+		} catch (IOException ex) {
+			throw new SaveFailedException(ex);
+		}
+	}
+	
+	/**
+	 * Writes an {@link Element} and all of its children to the output. Does
+	 * nothing if <code>e</code> is <code>null</code>.
+	 * @param e an {@link Element}
+	 * @return <code>e</code>, for convenience
+	 * @throws SaveFailedException if the output couldn't be written to
+	 */
+	protected Element writeElement(Element e) throws SaveFailedException {
+		if (e != null)
+			endElement(startElement(e));
+		return e;
+	}
+	
 	private String defaultNamespace = null;
 	
 	protected void setDefaultNamespace(String defaultNamespace) {
@@ -142,23 +239,60 @@ public abstract class XMLSaver extends Saver implements IXMLSaver {
 	
 	public abstract Element processModel(Element e) throws SaveFailedException;
 	
+	/**
+	 * Writes the model into the given {@link Element} and then writes that
+	 * Element to the output. {@link #startStreaming()} must already have
+	 * been called, either by this saver or by its parent.
+	 * <p>The default implementation simply calls {@link
+	 * #processModel(Element)} and then {@link #writeElement(Element)};
+	 * subclasses may override it to avoid building the Element's children.
+	 * (When they do, {@link Decorator}s will be executed before the model's
+	 * children are written, and so will not see them in the Element.)
+	 * @param e an {@link Element}, which has not yet been written
+	 * @throws SaveFailedException if the output couldn't be written to
+	 */
+	protected void writeModel(Element e) throws SaveFailedException {
+		writeElement(processModel(e));
+	}
+	
+	private boolean applyReference(Element e, ModelObject object) {
+		IFileWrapper f;
+		if (getFile() != null && (f = FileData.getFile(object)) != null) {
+			e.setAttributeNS(null,
+				"src", f.getRelativePath(getFile().getParent().getPath()));
+			/* No decoration takes place! */
+			return true;
+		} else return false;
+	}
+	
 	protected Element processOrReference(
 			Element e, ModelObject object, XMLSaver ex)
 			throws SaveFailedException {
-		IFileWrapper f;
 		if (e == null || object == null) {
 			return null;
-		} else if (getFile() != null &&
-				(f = FileData.getFile(object)) != null) {
-			e.setAttributeNS(null,
-				"src", f.getRelativePath(getFile().getParent().getPath()));
-			/* No decoration takes place! */
-		} else {
+		} else if (!applyReference(e, object)) {
 			ex.setModel(object).setFile(getFile());
 			ex.processModel(e);
 		}
 		return e;
 	}
+	
+	/**
+	 * As {@link #processOrReference(Element, ModelObject, XMLSaver)}, but
+	 * writes the resulting {@link Element} to the output instead of
+	 * returning it.
+	 * @see #writeModel(Element)
+	 */
+	protected void writeOrReference(
+			Element e, ModelObject object, XMLSaver ex)
+			throws SaveFailedException {
+		if (e == null || object == null) {
+			return;
+		} else if (!applyReference(e, object)) {
+			ex.setModel(object).setFile(getFile());
+			ex.writeModel(e);
+		} else writeElement(e);
+	}
 
 	/**
 	 * Applies the specified name-value pairs to the specified element as
@@ -0,0 +1,217 @@
+package org.bigraph.model.utilities;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A <strong>LinkedSetList</strong> is a {@link List} that can't contain
+ * duplicate elements. Elements are kept in insertion order, and testing
+ * for, appending and removing elements take constant time; positional
+ * access takes time proportional to the position.
+ * <p>A LinkedSetList can also be created as an overlay on top of another
+ * collection, in which case it behaves like a copy of that collection but
+ * records its modifications as a delta, in the manner of {@link
+ * OverlaySet}. The underlying collection should have fast {@link
+ * Collection#contains(Object) contains} checks, and must not change while
+ * the LinkedSetList is in use.
+ * @param <T> the element type
+ */
+public class LinkedSetList<T> extends AbstractList<T> {
+	private final Collection<? extends T> base;
+	private final HashSet<Object> removed;
+	private final LinkedHashSet<T> elements = new LinkedHashSet<T>();
+	private int size;
+	
+	public LinkedSetList() {
+		base = null;
+		removed = null;
+	}
+	
+	/**
+	 * Creates a new {@link LinkedSetList} overlaying the given collection.
+	 * @param base a collection, which will not be copied or modified
+	 */
+	public LinkedSetList(Collection<? extends T> base) {
+		this.base = base;
+		removed = new HashSet<Object>();
+		size = base.size();
+	}
+	
+	private boolean inBase(Object o) {
+		return (base != null && !removed.contains(o) && base.contains(o));
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return elements.contains(o) || inBase(o);
+	}
+	
+	/**
+	 * Appends an element to this {@link LinkedSetList}, if it isn't already
+	 * present.
+	 * @param e an element
+	 * @return <code>true</code> if the element was added, or
+	 * <code>false</code> if it was already present
+	 */
+	@Override
+	public boolean add(T e) {
+		if (!inBase(e) && elements.add(e)) {
+			size++;
+			modCount++;
+			return true;
+		} else return false;
+	}
+	
+	@Override
+	public void add(int index, T element) {
+		if (index == size()) {
+			add(element);
+		} else throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		if (elements.remove(o) ||
+				(inBase(o) && removed.add(o))) {
+			size--;
+			modCount++;
+			return true;
+		} else return false;
+	}
+	
+	@Override
+	public T remove(int index) {
+		T e = get(index);
+		remove(e);
+		return e;
+	}
+	
+	@Override
+	public T get(int index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("" + index);
+		Iterator<T> it = iterator();
+		while (index-- > 0)
+			it.next();
+		return it.next();
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		if (contains(o)) {
+			int i = 0;
+			for (T e : this) {
+				if (o != null ? o.equals(e) : e == null)
+					return i;
+				i++;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		return indexOf(o);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		} else if (!(o instanceof List<?>)) {
+			return false;
+		}
+		List<?> l = (List<?>)o;
+		if (l.size() != size())
+			return false;
+		Iterator<?> it = l.iterator();
+		for (T e : this) {
+			Object f = it.next();
+			if (e != null ? !e.equals(f) : f != null)
+				return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public void clear() {
+		elements.clear();
+		if (base != null)
+			removed.addAll(base);
+		size = 0;
+		modCount++;
+	}
+	
+	private final class LSLIterator implements Iterator<T> {
+		private final Iterator<? extends T>
+			baseIterator = (base != null ? base.iterator() : null);
+		private final Iterator<T> elementsIterator = elements.iterator();
+		private boolean buffered;
+		private T buffer, last;
+		private boolean haveLast, lastFromBase;
+		
+		private void prepBuffer() {
+			while (!buffered && baseIterator != null &&
+					baseIterator.hasNext()) {
+				T i = baseIterator.next();
+				if (!removed.contains(i)) {
+					buffer = i;
+					buffered = true;
+				}
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			prepBuffer();
+			return buffered || elementsIterator.hasNext();
+		}
+		
+		@Override
+		public T next() {
+			prepBuffer();
+			if (buffered) {
+				buffered = false;
+				lastFromBase = true;
+				last = buffer;
+			} else if (elementsIterator.hasNext()) {
+				lastFromBase = false;
+				last = elementsIterator.next();
+			} else throw new NoSuchElementException();
+			haveLast = true;
+			return last;
+		}
+		
+		@Override
+		public void remove() {
+			if (!haveLast) {
+				throw new IllegalStateException();
+			} else if (lastFromBase) {
+				removed.add(last);
+			} else elementsIterator.remove();
+			haveLast = false;
+			size--;
+			modCount++;
+		}
+	}
+	
+	@Override
+	public Iterator<T> iterator() {
+		return new LSLIterator();
+	}
+}
@@ -0,0 +1,197 @@
+package org.bigraph.model.utilities;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An <strong>OverlayList</strong> is a modifiable {@link List} view of
+ * another list. Appending elements and removing elements are recorded as a
+ * delta against that list, which is never modified; other modifications
+ * cause the OverlayList to fall back to making a private copy.
+ * <p>The underlying list must not change while the OverlayList is in use.
+ * @param <T> the element type
+ * @see OverlaySet
+ */
+public class OverlayList<T> extends AbstractList<T> {
+	private List<? extends T> base;
+	private BitSet removed = new BitSet();
+	private int removedCount = 0;
+	private ArrayList<T> tail = new ArrayList<T>();
+	
+	private ArrayList<T> copy = null;
+	
+	public OverlayList(List<? extends T> base) {
+		this.base = base;
+	}
+	
+	private int getBaseSize() {
+		return base.size() - removedCount;
+	}
+	
+	/**
+	 * Converts a position in this list into a position in the underlying
+	 * list.
+	 * @param index a position less than {@link #getBaseSize()}
+	 * @return a position in the underlying list
+	 */
+	private int toBaseIndex(int index) {
+		if (removedCount == 0)
+			return index;
+		int i = removed.nextClearBit(0);
+		while (index-- > 0)
+			i = removed.nextClearBit(i + 1);
+		return i;
+	}
+	
+	private ArrayList<T> materialise() {
+		if (copy == null) {
+			ArrayList<T> copy = new ArrayList<T>(size());
+			for (T i : this)
+				copy.add(i);
+			this.copy = copy;
+			base = null;
+			removed = null;
+			tail = null;
+		}
+		return copy;
+	}
+	
+	@Override
+	public T get(int index) {
+		if (copy != null)
+			return copy.get(index);
+		int baseSize = getBaseSize();
+		if (index < 0 || index >= baseSize + tail.size())
+			throw new IndexOutOfBoundsException("" + index);
+		return (index < baseSize ?
+				base.get(toBaseIndex(index)) : tail.get(index - baseSize));
+	}
+	
+	@Override
+	public int size() {
+		return (copy != null ? copy.size() : getBaseSize() + tail.size());
+	}
+	
+	@Override
+	public boolean add(T e) {
+		if (copy != null) {
+			return copy.add(e);
+		} else return tail.add(e);
+	}
+	
+	@Override
+	public void add(int index, T element) {
+		if (copy == null && index == size()) {
+			tail.add(element);
+		} else materialise().add(index, element);
+	}
+	
+	@Override
+	public T set(int index, T element) {
+		return materialise().set(index, element);
+	}
+	
+	@Override
+	public T remove(int index) {
+		if (copy != null)
+			return copy.remove(index);
+		int baseSize = getBaseSize();
+		if (index < 0 || index >= baseSize + tail.size())
+			throw new IndexOutOfBoundsException("" + index);
+		if (index < baseSize) {
+			int i = toBaseIndex(index);
+			removed.set(i);
+			removedCount++;
+			return base.get(i);
+		} else return tail.remove(index - baseSize);
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		if (copy != null)
+			return copy.remove(o);
+		int i = 0;
+		for (T p : base) {
+			if (!removed.get(i) && (o != null ? o.equals(p) : p == null)) {
+				removed.set(i);
+				removedCount++;
+				return true;
+			}
+			i++;
+		}
+		return tail.remove(o);
+	}
+	
+	private final class OverlayIterator implements Iterator<T> {
+		private final Iterator<? extends T> baseIterator = base.iterator();
+		private int baseIndex = -1, tailIndex = 0;
+		private boolean buffered;
+		private T buffer;
+		private int last = -1;
+		private boolean lastFromBase;
+		
+		private void prepBuffer() {
+			while (!buffered && baseIterator.hasNext()) {
+				T i = baseIterator.next();
+				if (!removed.get(++baseIndex)) {
+					buffer = i;
+					buffered = true;
+				}
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			prepBuffer();
+			return buffered || tailIndex < tail.size();
+		}
+		
+		@Override
+		public T next() {
+			prepBuffer();
+			if (buffered) {
+				buffered = false;
+				lastFromBase = true;
+				last = baseIndex;
+				return buffer;
+			} else if (tailIndex < tail.size()) {
+				lastFromBase = false;
+				last = tailIndex;
+				return tail.get(tailIndex++);
+			} else throw new NoSuchElementException();
+		}
+		
+		@Override
+		public void remove() {
+			if (last == -1) {
+				throw new IllegalStateException();
+			} else if (lastFromBase) {
+				removed.set(last);
+				removedCount++;
+			} else tail.remove(tailIndex = last);
+			last = -1;
+		}
+	}
+	
+	@Override
+	public Iterator<T> iterator() {
+		if (copy != null) {
+			return copy.iterator();
+		} else return new OverlayIterator();
+	}
+	
+	@Override
+	public void clear() {
+		if (copy != null) {
+			copy.clear();
+		} else {
+			removed.set(0, base.size());
+			removedCount = base.size();
+			tail.clear();
+		}
+	}
+}
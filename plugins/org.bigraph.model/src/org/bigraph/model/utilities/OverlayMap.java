@@ -0,0 +1,162 @@
+package org.bigraph.model.utilities;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An <strong>OverlayMap</strong> is a modifiable {@link Map} view of another
+ * map. Modifications are recorded as a delta against that map, which is never
+ * copied or modified.
+ * <p>The underlying map must not change while the OverlayMap is in use.
+ * @param <K> the key type
+ * @param <V> the value type
+ * @see OverlaySet
+ */
+public class OverlayMap<K, V> extends AbstractMap<K, V> {
+	private final Map<? extends K, ? extends V> base;
+	private final HashMap<K, V> puts = new HashMap<K, V>();
+	private final HashSet<Object> removed = new HashSet<Object>();
+	private int size;
+	
+	public OverlayMap(Map<? extends K, ? extends V> base) {
+		this.base = base;
+		size = base.size();
+	}
+	
+	private boolean inBase(Object key) {
+		return !removed.contains(key) && base.containsKey(key);
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return puts.containsKey(key) || inBase(key);
+	}
+	
+	@Override
+	public V get(Object key) {
+		if (puts.containsKey(key)) {
+			return puts.get(key);
+		} else if (inBase(key)) {
+			return base.get(key);
+		} else return null;
+	}
+	
+	@Override
+	public V put(K key, V value) {
+		if (puts.containsKey(key)) {
+			return puts.put(key, value);
+		} else if (inBase(key)) {
+			V oldValue = base.get(key);
+			removed.add(key);
+			puts.put(key, value);
+			return oldValue;
+		} else {
+			puts.put(key, value);
+			size++;
+			return null;
+		}
+	}
+	
+	@Override
+	public V remove(Object key) {
+		if (puts.containsKey(key)) {
+			removed.add(key);
+			size--;
+			return puts.remove(key);
+		} else if (inBase(key)) {
+			removed.add(key);
+			size--;
+			return base.get(key);
+		} else return null;
+	}
+	
+	@Override
+	public void clear() {
+		puts.clear();
+		removed.addAll(base.keySet());
+		size = 0;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+		private final Iterator<? extends Map.Entry<? extends K, ? extends V>>
+			baseIterator = base.entrySet().iterator();
+		private final Iterator<Map.Entry<K, V>>
+			putsIterator = puts.entrySet().iterator();
+		private Map.Entry<K, V> buffer;
+		private K last;
+		private boolean lastFromBase, canRemove;
+		
+		private void prepBuffer() {
+			while (buffer == null && baseIterator.hasNext()) {
+				Map.Entry<? extends K, ? extends V> i = baseIterator.next();
+				if (!removed.contains(i.getKey()))
+					buffer = new SimpleImmutableEntry<K, V>(
+							i.getKey(), i.getValue());
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			prepBuffer();
+			return (buffer != null || putsIterator.hasNext());
+		}
+		
+		@Override
+		public Map.Entry<K, V> next() {
+			prepBuffer();
+			Map.Entry<K, V> r;
+			if (buffer != null) {
+				r = buffer;
+				buffer = null;
+				lastFromBase = true;
+			} else if (putsIterator.hasNext()) {
+				r = putsIterator.next();
+				lastFromBase = false;
+			} else throw new NoSuchElementException();
+			last = r.getKey();
+			canRemove = true;
+			return r;
+		}
+		
+		@Override
+		public void remove() {
+			if (!canRemove)
+				throw new IllegalStateException();
+			canRemove = false;
+			/* Entries from puts must be removed through putsIterator, as
+			 * OverlayMap.remove would invalidate it */
+			if (!lastFromBase)
+				putsIterator.remove();
+			removed.add(last);
+			size--;
+		}
+	}
+	
+	private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator();
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+	
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new EntrySet();
+	}
+}
@@ -0,0 +1,130 @@
+package org.bigraph.model.utilities;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An <strong>OverlaySet</strong> is a modifiable {@link java.util.Set} view
+ * of another collection. Modifications are recorded as a delta against that
+ * collection, which is never copied or modified; the memory used by an
+ * OverlaySet is therefore proportional to the number of changes made to it
+ * rather than to the size of the underlying collection.
+ * <p>The underlying collection should have fast {@link
+ * Collection#contains(Object) contains} checks, and must not change while
+ * the OverlaySet is in use.
+ * @param <T> the element type
+ * @see OverlayList
+ * @see OverlayMap
+ */
+public class OverlaySet<T> extends AbstractSet<T> {
+	private final Collection<? extends T> base;
+	private final HashSet<T> added = new HashSet<T>();
+	private final HashSet<Object> removed = new HashSet<Object>();
+	private int size;
+	
+	public OverlaySet(Collection<? extends T> base) {
+		this.base = base;
+		size = base.size();
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return added.contains(o) ||
+				(!removed.contains(o) && base.contains(o));
+	}
+	
+	@Override
+	public boolean add(T e) {
+		if (removed.remove(e)) {
+			size++;
+			return true;
+		} else if (!added.contains(e) && !base.contains(e)) {
+			added.add(e);
+			size++;
+			return true;
+		} else return false;
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		if (added.remove(o)) {
+			size--;
+			return true;
+		} else if (!removed.contains(o) && base.contains(o)) {
+			removed.add(o);
+			size--;
+			return true;
+		} else return false;
+	}
+	
+	@Override
+	public void clear() {
+		added.clear();
+		removed.addAll(base);
+		size = 0;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	private final class OverlayIterator implements Iterator<T> {
+		private final Iterator<? extends T>
+			baseIterator = base.iterator(),
+			addedIterator = added.iterator();
+		private boolean buffered;
+		private T buffer, last;
+		private boolean lastFromBase, canRemove;
+		
+		private void prepBuffer() {
+			while (!buffered && baseIterator.hasNext()) {
+				T i = baseIterator.next();
+				if (!removed.contains(i)) {
+					buffer = i;
+					buffered = true;
+				}
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			prepBuffer();
+			return buffered || addedIterator.hasNext();
+		}
+		
+		@Override
+		public T next() {
+			prepBuffer();
+			if (buffered) {
+				buffered = false;
+				lastFromBase = true;
+				last = buffer;
+			} else if (addedIterator.hasNext()) {
+				lastFromBase = false;
+				last = addedIterator.next();
+			} else throw new NoSuchElementException();
+			canRemove = true;
+			return last;
+		}
+		
+		@Override
+		public void remove() {
+			if (!canRemove)
+				throw new IllegalStateException();
+			canRemove = false;
+			if (lastFromBase) {
+				removed.add(last);
+			} else addedIterator.remove();
+			size--;
+		}
+	}
+	
+	@Override
+	public Iterator<T> iterator() {
+		return new OverlayIterator();
+	}
+}
@@ -0,0 +1,49 @@
+package org.bigraph.model.utilities;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * A <strong>SnapshotCollection</strong> is an unmodifiable view of another
+ * {@link Collection} whose iterators walk over a copy of it, taken when the
+ * iterator is created.
+ * <p>Queries like {@link #size()} and {@link #contains(Object)} always see
+ * the current contents of the underlying collection, but it can safely be
+ * changed while one of its iterators is in use; the iterator will carry on
+ * returning what was there when it was created.
+ * @param <T> the type of the underlying collection's elements
+ */
+public final class SnapshotCollection<T> extends AbstractCollection<T> {
+	private final Collection<? extends T> collection;
+	
+	public SnapshotCollection(Collection<? extends T> collection) {
+		this.collection = collection;
+	}
+	
+	@Override
+	public int size() {
+		return collection.size();
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return collection.isEmpty();
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return collection.contains(o);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public Iterator<T> iterator() {
+		if (collection.isEmpty())
+			return Collections.<T>emptyList().iterator();
+		return Collections.unmodifiableList(
+				Arrays.asList((T[])collection.toArray())).iterator();
+	}
+}
@@ -0,0 +1,12 @@
+package org.bigraph.bigmc.red.tests;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+	ExplorationTests.class
+})
+public class CheckerTests {
+}
@@ -0,0 +1,131 @@
+package org.bigraph.bigmc.red.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.bigraph.bigmc.red.checker.NativeModelChecker;
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Model;
+import org.bigraph.bigmc.red.checker.NativeModelChecker.Rule;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerResult;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerResult.Outcome;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerState;
+import org.bigraph.bigmc.red.interfaces.IModelCheckerTransition;
+import org.bigraph.model.Container;
+import org.bigraph.model.Control;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.Node;
+import org.bigraph.model.ReactionRule;
+import org.bigraph.model.Root;
+import org.bigraph.model.Signature;
+import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.changes.descriptors.ChangeDescriptorGroup;
+import org.bigraph.model.changes.descriptors.DescriptorExecutorManager;
+
+public class ExplorationTests {
+	private Signature signature;
+	
+	@Before
+	public void createSignature() throws ChangeCreationException {
+		signature = new Signature();
+		
+		ChangeDescriptorGroup cdg = new ChangeDescriptorGroup();
+		for (String name : new String[] { "A", "B", "C", "D" })
+			cdg.add(new Signature.ChangeAddControlDescriptor(
+					new Signature.Identifier(), new Control.Identifier(name)));
+		DescriptorExecutorManager.getInstance().tryApplyChange(
+				signature, cdg);
+	}
+	
+	/* A | B */
+	private FrozenBigraph model() {
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		int r = fb.addRoot("0");
+		fb.addNode(r, "a", signature.getControl("A"));
+		fb.addNode(r, "b", signature.getControl("B"));
+		return fb.build();
+	}
+	
+	/* from -> to */
+	private Rule replace(String from, String to)
+			throws ChangeCreationException {
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		fb.addNode(fb.addRoot("0"), "a", signature.getControl(from));
+		
+		ReactionRule rr = new ReactionRule();
+		rr.setRedex(fb.build().toBigraph());
+		Root.Identifier rid = new Root.Identifier("0");
+		rr.getEdit().getDescriptors().add(
+				new Container.ChangeRemoveChildDescriptor(rid,
+						new Node.Identifier("a",
+								new Control.Identifier(from))));
+		rr.getEdit().getDescriptors().add(
+				new Container.ChangeAddChildDescriptor(rid,
+						new Node.Identifier("b",
+								new Control.Identifier(to))));
+		return new Rule(rr);
+	}
+	
+	private IModelCheckerResult run(File stateDirectory)
+			throws ChangeCreationException {
+		NativeModelChecker mc = new NativeModelChecker();
+		mc.setModel(new Model(model()));
+		mc.addReactionRule(replace("A", "C"));
+		mc.addReactionRule(replace("B", "D"));
+		mc.setThreadCount(2);
+		mc.setStateDirectory(stateDirectory);
+		return mc.run(null);
+	}
+	
+	private static HashSet<IModelCheckerState> reachable(
+			IModelCheckerResult result) {
+		HashSet<IModelCheckerState> seen = new HashSet<IModelCheckerState>();
+		ArrayDeque<IModelCheckerState> queue =
+				new ArrayDeque<IModelCheckerState>();
+		seen.add(result.getStartState());
+		queue.add(result.getStartState());
+		while (!queue.isEmpty())
+			for (IModelCheckerTransition t : queue.poll().getSuccessors())
+				if (seen.add(t.getPostState()))
+					queue.add(t.getPostState());
+		return seen;
+	}
+	
+	@Test
+	public void sharedStatesInMemory() throws ChangeCreationException {
+		IModelCheckerResult result = run(null);
+		try {
+			assertEquals(Outcome.COMPLETE, result.getOutcome());
+			
+			/* A | B, C | B, A | D and C | D, the last of which is reached
+			 * by applying the two rules in either order */
+			HashSet<IModelCheckerState> states = reachable(result);
+			assertEquals(4, states.size());
+			for (IModelCheckerState s : states)
+				if (s.getSuccessors().length == 0)
+					assertEquals(2, s.getPrecursors().length);
+		} finally {
+			result.dispose();
+		}
+	}
+	
+	@Test
+	public void sharedStatesOnDisk()
+			throws ChangeCreationException, IOException {
+		File directory = File.createTempFile("exploration", "");
+		assertTrue(directory.delete() && directory.mkdir());
+		IModelCheckerResult result = run(directory);
+		try {
+			assertEquals(Outcome.COMPLETE, result.getOutcome());
+			assertEquals(4, reachable(result).size());
+		} finally {
+			result.dispose();
+			directory.delete();
+		}
+	}
+}
@@ -2,14 +2,21 @@ package org.bigraph.model.tests;
 
 import org.bigraph.model.Bigraph;
 import org.bigraph.model.Container;
+import org.bigraph.model.Control;
+import org.bigraph.model.Edge;
 import org.bigraph.model.InnerName;
 import org.bigraph.model.NamedModelObject;
 import org.bigraph.model.OuterName;
 import org.bigraph.model.Point;
 import org.bigraph.model.Root;
+import org.bigraph.model.Signature;
 import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.changes.descriptors.DescriptorExecutorManager;
+import org.bigraph.model.changes.descriptors.ValidatedChange;
 import org.junit.Test;
 
+import static org.junit.Assert.*;
+
 public class BigraphDescriptorTests extends DescriptorTestRunner {
 	@Test
 	public void addInnerAndOuterNames() throws ChangeCreationException {
@@ -110,6 +117,44 @@ public class BigraphDescriptorTests extends DescriptorTestRunner {
 						new Bigraph.Identifier(), new Root.Identifier("0")));
 	}
 	
+	@Test(expected = ChangeCreationException.class)
+	public void addRootTwice() throws ChangeCreationException {
+		Bigraph.Identifier b = new Bigraph.Identifier();
+		Root.Identifier r = new Root.Identifier("0");
+		run(new Bigraph(),
+				new Container.ChangeAddChildDescriptor(b, r),
+				new Container.ChangeAddChildDescriptor(b, r));
+	}
+	
+	@Test(expected = ChangeCreationException.class)
+	public void addBadlyNamedRoot() throws ChangeCreationException {
+		run(new Bigraph(),
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), new Root.Identifier("a")));
+	}
+	
+	@Test
+	public void addInnerNameAndLinkWithSameName()
+			throws ChangeCreationException {
+		Bigraph.Identifier b = new Bigraph.Identifier();
+		run(new Bigraph(),
+				new Container.ChangeAddChildDescriptor(
+						b, new InnerName.Identifier("a")),
+				new Container.ChangeAddChildDescriptor(
+						b, new Edge.Identifier("a")));
+	}
+	
+	@Test(expected = ChangeCreationException.class)
+	public void addEdgeAndOuterNameWithSameName()
+			throws ChangeCreationException {
+		Bigraph.Identifier b = new Bigraph.Identifier();
+		run(new Bigraph(),
+				new Container.ChangeAddChildDescriptor(
+						b, new Edge.Identifier("a")),
+				new Container.ChangeAddChildDescriptor(
+						b, new OuterName.Identifier("a")));
+	}
+	
 	@Test(expected = ChangeCreationException.class)
 	public void removeAddedRootTwice() throws ChangeCreationException {
 		Bigraph.Identifier b = new Bigraph.Identifier();
@@ -167,4 +212,52 @@ public class BigraphDescriptorTests extends DescriptorTestRunner {
 						new InnerName.Identifier("b"),
 						"a"));
 	}
+	
+	@Test
+	public void commitValidatedChange() throws ChangeCreationException {
+		Bigraph b = new Bigraph();
+		InnerName.Identifier in = new InnerName.Identifier("a");
+		ValidatedChange vc = DescriptorExecutorManager.getInstance().validate(
+				b, new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), in));
+		assertNull(in.lookup(null, b));
+		DescriptorExecutorManager.getInstance().commit(vc);
+		assertNotNull(in.lookup(null, b));
+	}
+	
+	@Test(expected = ChangeCreationException.class)
+	public void commitStaleValidatedChange() throws ChangeCreationException {
+		Bigraph b = new Bigraph();
+		Container.ChangeAddChildDescriptor cd =
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(),
+						new InnerName.Identifier("a"));
+		ValidatedChange vc =
+				DescriptorExecutorManager.getInstance().validate(b, cd);
+		run(b, cd);
+		DescriptorExecutorManager.getInstance().commit(vc);
+	}
+	
+	@Test
+	public void validatedChangeStaleness() throws ChangeCreationException {
+		DescriptorExecutorManager dem = DescriptorExecutorManager.getInstance();
+		Signature s = new Signature();
+		Bigraph b1 = new Bigraph(), b2 = new Bigraph();
+		b1.setSignature(s);
+		ValidatedChange vc = dem.validate(b1,
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(),
+						new InnerName.Identifier("a")));
+		
+		/* Changes to other models don't affect vc... */
+		run(b2, new Container.ChangeAddChildDescriptor(
+				new Bigraph.Identifier(), new InnerName.Identifier("a")));
+		assertFalse(dem.isStale(vc));
+		
+		/* ... but changes to b1's signature do */
+		run(s, new Signature.ChangeAddControlDescriptor(
+				new Signature.Identifier(), new Control.Identifier("c0")));
+		assertTrue(dem.isStale(vc));
+		dem.commit(vc);
+	}
 }
@@ -1,5 +1,8 @@
 package org.bigraph.model.tests;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -8,16 +11,19 @@ import org.bigraph.model.Bigraph;
 import org.bigraph.model.Container;
 import org.bigraph.model.Control;
 import org.bigraph.model.Edge;
+import org.bigraph.model.FrozenBigraph;
 import org.bigraph.model.InnerName;
 import org.bigraph.model.Link;
 import org.bigraph.model.NamedModelObject;
 import org.bigraph.model.Node;
 import org.bigraph.model.OuterName;
 import org.bigraph.model.Point;
+import org.bigraph.model.Port;
 import org.bigraph.model.PortSpec;
 import org.bigraph.model.Root;
 import org.bigraph.model.Signature;
 import org.bigraph.model.Site;
+import org.bigraph.model.assistants.PropertyScratchpad;
 import org.bigraph.model.changes.descriptors.ChangeCreationException;
 import org.bigraph.model.changes.descriptors.ChangeDescriptorGroup;
 import org.bigraph.model.changes.descriptors.DescriptorExecutorManager;
@@ -86,6 +92,209 @@ public class BigraphTests {
 		DescriptorExecutorManager.getInstance().tryApplyChange(b, cdg);
 	}
 	
+	@Test
+	public void hierarchyDepth() throws ChangeCreationException {
+		Bigraph b = new Bigraph();
+		b.setSignature(signature);
+		
+		Root.Identifier rid = new Root.Identifier("0");
+		Node.Identifier
+			n0 = new Node.Identifier("n0", control0.getIdentifier()),
+			n1 = new Node.Identifier("n1", new Control.Identifier("c1"));
+		DescriptorExecutorManager.getInstance().tryApplyChange(b, cdg(
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), rid),
+				new Container.ChangeAddChildDescriptor(rid, n0)));
+		assertEquals(0, b.getDepth());
+		assertEquals(2, n0.lookup(null, b).getDepth());
+		assertSame(b, n0.lookup(null, b).getBigraph());
+		
+		PropertyScratchpad context = new PropertyScratchpad();
+		new Container.ChangeAddChildDescriptor(n0, n1).simulate(context, b);
+		Node n = n1.lookup(context, b);
+		assertEquals(3, n.getDepth(context));
+		assertSame(b, n.getBigraph(context));
+		assertSame(b, n.getPorts().get(0).getBigraph(context));
+		assertEquals(4, n.getPorts().get(0).getDepth(context));
+		assertNull(n.getBigraph());
+		
+		new Container.ChangeRemoveChildDescriptor(n0, n1).simulate(
+				context, b);
+		assertNull(n.getBigraph(context));
+		assertEquals(0, n.getDepth(context));
+	}
+	
+	@Test
+	public void clonedAncestry() throws ChangeCreationException {
+		Bigraph b = new Bigraph();
+		b.setSignature(signature);
+		
+		Root.Identifier rid = new Root.Identifier("0");
+		Node.Identifier
+			n0 = new Node.Identifier("n0", control0.getIdentifier()),
+			n1 = new Node.Identifier("n1", control0.getIdentifier());
+		Site.Identifier sid = new Site.Identifier("0");
+		DescriptorExecutorManager.getInstance().tryApplyChange(b, cdg(
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), rid),
+				new Container.ChangeAddChildDescriptor(rid, n0),
+				new Container.ChangeAddChildDescriptor(n0, n1),
+				new Container.ChangeAddChildDescriptor(n1, sid)));
+		
+		/* Bigraph.clone attaches each subtree only after copying it */
+		Bigraph c = b.clone();
+		Site s = sid.lookup(null, c);
+		assertSame(c, s.getBigraph());
+		assertEquals(4, s.getDepth());
+		assertSame(c, n1.lookup(null, c).getBigraph());
+		assertEquals(1, c.getSites().size());
+		assertTrue(c.getSites().contains(s));
+		
+		assertSame(b, sid.lookup(null, b).getBigraph());
+		assertEquals(1, b.getSites().size());
+		assertFalse(b.getSites().contains(s));
+	}
+	
+	@Test
+	public void liveViews() throws ChangeCreationException {
+		Bigraph b = new Bigraph();
+		b.setSignature(signature);
+		Collection<? extends Root> roots = b.getRoots();
+		Collection<? extends Site> sites = b.getSites();
+		
+		Root.Identifier rid = new Root.Identifier("0");
+		Node.Identifier nid =
+				new Node.Identifier("n0", control0.getIdentifier());
+		Site.Identifier
+			s0 = new Site.Identifier("0"),
+			s1 = new Site.Identifier("1");
+		DescriptorExecutorManager.getInstance().tryApplyChange(b, cdg(
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), rid),
+				new Container.ChangeAddChildDescriptor(rid, nid),
+				new Container.ChangeAddChildDescriptor(rid, s0),
+				new Container.ChangeAddChildDescriptor(nid, s1)));
+		assertEquals(1, roots.size());
+		assertEquals(2, sites.size());
+		assertEquals(1, rid.lookup(null, b).getSites().size());
+		assertEquals(1, nid.lookup(null, b).getSites().size());
+		
+		DescriptorExecutorManager.getInstance().tryApplyChange(b,
+				new Container.ChangeRemoveChildDescriptor(nid, s1));
+		assertEquals(1, sites.size());
+		assertTrue(sites.contains(s0.lookup(null, b)));
+		assertEquals(0, nid.lookup(null, b).getSites().size());
+		
+		try {
+			roots.clear();
+			fail("Typed views should be unmodifiable");
+		} catch (UnsupportedOperationException e) {
+			/* expected */
+		}
+		
+		/* Iterating over a view while changing the model should be safe */
+		DescriptorExecutorManager.getInstance().tryApplyChange(b,
+				new Container.ChangeAddChildDescriptor(nid, s1));
+		assertEquals(2, sites.size());
+		for (Site s : sites)
+			DescriptorExecutorManager.getInstance().tryApplyChange(b,
+					new Container.ChangeRemoveChildDescriptor(
+							s.getParent().getIdentifier(), s.getIdentifier()));
+		assertTrue(sites.isEmpty());
+	}
+	
+	@Test
+	public void cloneSharingSignature() throws ChangeCreationException {
+		Bigraph b = new Bigraph();
+		b.setSignature(signature);
+		
+		Root.Identifier rid = new Root.Identifier("0");
+		Node.Identifier nid =
+				new Node.Identifier("n0", new Control.Identifier("c1"));
+		OuterName.Identifier oid = new OuterName.Identifier("x");
+		InnerName.Identifier iid = new InnerName.Identifier("y");
+		DescriptorExecutorManager.getInstance().tryApplyChange(b, cdg(
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), rid),
+				new Container.ChangeAddChildDescriptor(rid, nid),
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), oid),
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), iid),
+				new Point.ChangeConnectDescriptor(
+						new Port.Identifier("p1", nid), oid),
+				new Point.ChangeConnectDescriptor(iid, oid)));
+		
+		Bigraph c = b.clone(signature);
+		assertSame(signature, c.getSignature());
+		Node n = nid.lookup(null, c);
+		assertNotSame(nid.lookup(null, b), n);
+		assertSame(signature.getControl("c1"), n.getControl());
+		assertEquals(2, n.getPorts().size());
+		assertEquals(Arrays.asList(n.getPort("p1"), iid.lookup(null, c)),
+				oid.lookup(null, c).getPoints());
+		
+		c.dispose();
+		assertNotNull(signature.getControl("c1"));
+	}
+	
+	@Test
+	public void freezeAndThaw() throws ChangeCreationException {
+		Bigraph b = new Bigraph();
+		b.setSignature(signature);
+		
+		Root.Identifier rid = new Root.Identifier("0");
+		Node.Identifier
+			n0 = new Node.Identifier("n0", control0.getIdentifier()),
+			n1 = new Node.Identifier("n1", new Control.Identifier("c1"));
+		Site.Identifier sid = new Site.Identifier("0");
+		OuterName.Identifier oid = new OuterName.Identifier("x");
+		Edge.Identifier eid = new Edge.Identifier("e");
+		InnerName.Identifier iid = new InnerName.Identifier("y");
+		DescriptorExecutorManager.getInstance().tryApplyChange(b, cdg(
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), rid),
+				new Container.ChangeAddChildDescriptor(rid, n0),
+				new Container.ChangeAddChildDescriptor(n0, n1),
+				new Container.ChangeAddChildDescriptor(n1, sid),
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), oid),
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), eid),
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), iid),
+				new Point.ChangeConnectDescriptor(
+						new Port.Identifier("p1", n1), oid),
+				new Point.ChangeConnectDescriptor(iid, oid),
+				new Point.ChangeConnectDescriptor(
+						new Port.Identifier("p0", n1), eid)));
+		
+		FrozenBigraph fb = new FrozenBigraph(b);
+		assertEquals(4, fb.getPlaceCount());
+		assertEquals(1, fb.getRootCount());
+		assertEquals(2, fb.getControlCount());
+		assertEquals(3, fb.getPointCount());
+		assertEquals(1, fb.getOuterNameCount());
+		assertEquals(2, fb.getLinkCount());
+		
+		int n0i = fb.getFirstChild(0), n1i = fb.getFirstChild(n0i);
+		assertEquals("n1", fb.getPlaceName(n1i));
+		assertEquals(FrozenBigraph.SITE, fb.getKind(fb.getFirstChild(n1i)));
+		assertEquals(-1, fb.getNextSibling(n1i));
+		assertEquals(n1i, fb.getPortPlace(fb.getPort(n1i, 1)));
+		assertEquals(0, fb.getLink(fb.getPort(n1i, 1)));
+		assertEquals(fb.getInnerName(0), fb.getLinkPoint(0, 1));
+		
+		Bigraph c = fb.toBigraph();
+		assertSame(signature, c.getSignature());
+		Node n = n1.lookup(null, c);
+		assertSame(n0.lookup(null, c), n.getParent());
+		assertEquals(1, n.getSites().size());
+		assertEquals(Arrays.asList(n.getPort("p1"), iid.lookup(null, c)),
+				oid.lookup(null, c).getPoints());
+		assertSame(eid.lookup(null, c), n.getPort("p0").getLink());
+	}
+	
 	@Test
 	public void removeRoot() throws ChangeCreationException {
 		Bigraph b = new Bigraph();
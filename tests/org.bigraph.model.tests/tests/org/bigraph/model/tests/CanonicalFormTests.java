@@ -0,0 +1,207 @@
+package org.bigraph.model.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.bigraph.model.Bigraph;
+import org.bigraph.model.CanonicalForm;
+import org.bigraph.model.Container;
+import org.bigraph.model.Control;
+import org.bigraph.model.Edge;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.Node;
+import org.bigraph.model.OuterName;
+import org.bigraph.model.Point;
+import org.bigraph.model.Port;
+import org.bigraph.model.PortSpec;
+import org.bigraph.model.Root;
+import org.bigraph.model.Signature;
+import org.bigraph.model.Site;
+import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.changes.descriptors.ChangeDescriptorGroup;
+import org.bigraph.model.changes.descriptors.DescriptorExecutorManager;
+
+public class CanonicalFormTests {
+	private Signature signature;
+	
+	@Before
+	public void createSignature() throws ChangeCreationException {
+		signature = new Signature();
+		
+		Control.Identifier
+			cid0 = new Control.Identifier("c0"),
+			cid1 = new Control.Identifier("c1");
+		DescriptorTestRunner.run(signature,
+				new Signature.ChangeAddControlDescriptor(
+						new Signature.Identifier(), cid0),
+				new Signature.ChangeAddControlDescriptor(
+						new Signature.Identifier(), cid1),
+				new Control.ChangeAddPortSpecDescriptor(
+						new PortSpec.Identifier("p0", cid1)),
+				new Control.ChangeAddPortSpecDescriptor(
+						new PortSpec.Identifier("p1", cid1)));
+	}
+	
+	/**
+	 * Builds a ternary tree of <code>size</code> nodes. Each pair of
+	 * adjacent nodes shares an edge, every seventh node is connected to the
+	 * outer name <code>x</code>, and every node <code>i</code> with <code>i %
+	 * 5 == 0</code> has control <code>c0</code> and contains a site.
+	 * @param prefix a prefix for the names of nodes and edges
+	 * @param reversed whether to add nodes and edges in reverse order
+	 * @param swapped unless <code>-1</code>, the node whose control should be
+	 * swapped
+	 */
+	private Bigraph build(int size, String prefix, boolean reversed,
+			int swapped) throws ChangeCreationException {
+		Bigraph b = new Bigraph();
+		b.setSignature(signature);
+		
+		Control.Identifier
+			cid0 = new Control.Identifier("c0"),
+			cid1 = new Control.Identifier("c1");
+		Root.Identifier rid = new Root.Identifier("0");
+		OuterName.Identifier oid = new OuterName.Identifier("x");
+		Node.Identifier[] nodes = new Node.Identifier[size];
+		for (int i = 0; i < size; i++) {
+			boolean c0 = (i % 5 == 0) ^ (i == swapped);
+			nodes[i] = new Node.Identifier(
+					prefix + (reversed ? size - i : i), (c0 ? cid0 : cid1));
+		}
+		
+		ChangeDescriptorGroup cdg = new ChangeDescriptorGroup();
+		cdg.add(new Container.ChangeAddChildDescriptor(
+				new Bigraph.Identifier(), rid));
+		cdg.add(new Container.ChangeAddChildDescriptor(
+				new Bigraph.Identifier(), oid));
+		cdg.add(new Container.ChangeAddChildDescriptor(rid, nodes[0]));
+		for (int p = 0; p < size; p++) {
+			for (int k = 1; k <= 3; k++) {
+				int i = 3 * p + (reversed ? 4 - k : k);
+				if (i < size)
+					cdg.add(new Container.ChangeAddChildDescriptor(
+							nodes[p], nodes[i]));
+			}
+			if (p % 5 == 0 && p != swapped)
+				cdg.add(new Container.ChangeAddChildDescriptor(
+						nodes[p], new Site.Identifier(Integer.toString(p))));
+		}
+		for (int j = 0; j < size / 2; j++) {
+			int e = (reversed ? size / 2 - 1 - j : j);
+			Edge.Identifier eid = new Edge.Identifier(prefix + "e" + j);
+			cdg.add(new Container.ChangeAddChildDescriptor(
+					new Bigraph.Identifier(), eid));
+			for (int i = 2 * e; i < 2 * e + 2; i++)
+				if (nodes[i].getControl().equals(cid1))
+					cdg.add(new Point.ChangeConnectDescriptor(
+							new Port.Identifier("p0", nodes[i]), eid));
+		}
+		for (int i = 0; i < size; i += 7)
+			if (nodes[i].getControl().equals(cid1))
+				cdg.add(new Point.ChangeConnectDescriptor(
+						new Port.Identifier("p1", nodes[i]), oid));
+		DescriptorExecutorManager.getInstance().tryApplyChange(b, cdg);
+		return b;
+	}
+	
+	/**
+	 * Builds <code>count</code> rings of <code>size</code> nodes side by
+	 * side in a single root. Each node's port <code>p1</code> shares an edge
+	 * with the next node's port <code>p0</code>.
+	 * @param seed a seed used to shuffle the names of the nodes and edges
+	 * and the order in which they're added
+	 */
+	private Bigraph buildRings(int count, int size, long seed)
+			throws ChangeCreationException {
+		Bigraph b = new Bigraph();
+		b.setSignature(signature);
+		
+		Random random = new Random(seed);
+		int total = count * size;
+		List<Integer> names = new ArrayList<Integer>(), order =
+				new ArrayList<Integer>();
+		for (int i = 0; i < total; i++) {
+			names.add(i);
+			order.add(i);
+		}
+		Collections.shuffle(names, random);
+		Collections.shuffle(order, random);
+		
+		Control.Identifier cid1 = new Control.Identifier("c1");
+		Root.Identifier rid = new Root.Identifier("0");
+		Node.Identifier[] nodes = new Node.Identifier[total];
+		for (int i = 0; i < total; i++)
+			nodes[i] = new Node.Identifier("n" + names.get(i), cid1);
+		
+		ChangeDescriptorGroup cdg = new ChangeDescriptorGroup();
+		cdg.add(new Container.ChangeAddChildDescriptor(
+				new Bigraph.Identifier(), rid));
+		for (int i : order)
+			cdg.add(new Container.ChangeAddChildDescriptor(rid, nodes[i]));
+		for (int i : order) {
+			int next = (i / size) * size + (i + 1) % size;
+			Edge.Identifier eid = new Edge.Identifier("e" + names.get(i));
+			cdg.add(new Container.ChangeAddChildDescriptor(
+					new Bigraph.Identifier(), eid));
+			cdg.add(new Point.ChangeConnectDescriptor(
+					new Port.Identifier("p1", nodes[i]), eid));
+			cdg.add(new Point.ChangeConnectDescriptor(
+					new Port.Identifier("p0", nodes[next]), eid));
+		}
+		DescriptorExecutorManager.getInstance().tryApplyChange(b, cdg);
+		return b;
+	}
+	
+	@Test
+	public void symmetricRings() throws ChangeCreationException {
+		CanonicalForm f = buildRings(1, 6, 0).getCanonicalForm();
+		for (long seed = 1; seed < 20; seed++)
+			assertEquals(f, buildRings(1, 6, seed).getCanonicalForm());
+		
+		CanonicalForm g = buildRings(2, 3, 0).getCanonicalForm();
+		for (long seed = 1; seed < 20; seed++)
+			assertEquals(g, buildRings(2, 3, seed).getCanonicalForm());
+		assertFalse(f.equals(g));
+	}
+	
+	@Test
+	public void isomorphicBigraphs() throws ChangeCreationException {
+		Bigraph
+			a = build(100, "a", false, -1),
+			b = build(100, "b", true, -1);
+		CanonicalForm fa = a.getCanonicalForm(), fb = b.getCanonicalForm();
+		assertEquals(fa, fb);
+		assertEquals(fa.getHashHigh(), fb.getHashHigh());
+		assertEquals(fa.getHashLow(), fb.getHashLow());
+		assertEquals(fa, new CanonicalForm(new FrozenBigraph(a).toBigraph()));
+	}
+	
+	@Test
+	public void differentBigraphs() throws ChangeCreationException {
+		CanonicalForm
+			fa = build(100, "a", false, -1).getCanonicalForm(),
+			fb = build(100, "a", false, 42).getCanonicalForm();
+		assertFalse(fa.equals(fb));
+		assertFalse(fa.getHashHigh() == fb.getHashHigh() &&
+				fa.getHashLow() == fb.getHashLow());
+	}
+	
+	@Test
+	public void largeBigraph() throws ChangeCreationException {
+		Bigraph
+			a = build(12000, "a", false, -1),
+			b = build(12000, "b", true, -1);
+		
+		CanonicalForm fa = a.getCanonicalForm(), fb = b.getCanonicalForm();
+		
+		assertEquals(fa, fb);
+		assertEquals(12000 + 1 + 2400, fa.getPlaceOrder().length);
+		assertEquals(0, fa.getPlaceOrder()[0]);
+	}
+}
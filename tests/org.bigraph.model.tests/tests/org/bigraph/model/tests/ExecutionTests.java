@@ -7,10 +7,12 @@ import org.bigraph.model.assistants.IObjectIdentifier;
 import org.bigraph.model.assistants.PropertyScratchpad;
 import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
 import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.changes.descriptors.ChangeDescriptorGroup;
 import org.bigraph.model.changes.descriptors.DescriptorExecutorManager;
 import org.bigraph.model.changes.descriptors.DescriptorValidatorManager;
 import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 import org.bigraph.model.changes.descriptors.IDescriptorStepExecutor;
+import org.bigraph.model.changes.descriptors.IDescriptorStepFilter;
 import org.bigraph.model.changes.descriptors.IDescriptorStepValidator;
 import org.bigraph.model.process.IParticipantHost;
 import org.junit.Test;
@@ -398,4 +400,45 @@ public class ExecutionTests {
 				makeDescriptor(null, "LOCKED"),
 				makeDescriptor("LOCKED", "value")));
 	}
+	
+	/*
+	 * Participants can also declare which classes of descriptor they're
+	 * interested in by implementing IDescriptorStepFilter. Managers keep a
+	 * table of which participants are interested in which classes, so this
+	 * participant will never even be asked about a ChangeString.
+	 */
+	private static final class FilteredHandler implements
+			IDescriptorStepValidator, IDescriptorStepExecutor,
+			IDescriptorStepFilter {
+		@Override
+		public void setHost(IParticipantHost host) {
+			/* do nothing */
+		}
+		
+		@Override
+		public Class<?>[] getDescriptorClasses() {
+			return new Class<?>[] { ChangeDescriptorGroup.class };
+		}
+		
+		@Override
+		public boolean tryValidateChange(
+				Process context, IChangeDescriptor change_) {
+			throw new AssertionError("" + change_ + " should not have " +
+					"been offered to this participant");
+		}
+		
+		@Override
+		public boolean executeChange(Resolver r, IChangeDescriptor change_) {
+			throw new AssertionError("" + change_ + " should not have " +
+					"been offered to this participant");
+		}
+	}
+	
+	@Test
+	public void filteredExecution() throws ChangeCreationException {
+		DescriptorExecutorManager em = new DescriptorExecutorManager();
+		em.addParticipant(new FilteredHandler());
+		em.addParticipant(MANAGER);
+		go(em);
+	}
 }
@@ -0,0 +1,493 @@
+package org.bigraph.model.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bigraph.model.Bigraph;
+import org.bigraph.model.Container;
+import org.bigraph.model.Control;
+import org.bigraph.model.Control.Kind;
+import org.bigraph.model.InnerName;
+import org.bigraph.model.ModelObject;
+import org.bigraph.model.NamedModelObject;
+import org.bigraph.model.Node;
+import org.bigraph.model.Port;
+import org.bigraph.model.Root;
+import org.bigraph.model.Signature;
+import org.bigraph.model.SimulationSpec;
+import org.bigraph.model.assistants.IObjectIdentifier.Resolver;
+import org.bigraph.model.assistants.PropertyScratchpad;
+import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.changes.descriptors.DescriptorExecutorManager;
+import org.bigraph.model.changes.descriptors.IChangeDescriptor;
+import org.bigraph.model.loaders.BigraphStructureLoader;
+import org.bigraph.model.loaders.BigraphXMLLoader;
+import org.bigraph.model.loaders.StructureFormatConstants;
+import org.bigraph.model.loaders.DocumentCache;
+import org.bigraph.model.loaders.IChangeLoader;
+import org.bigraph.model.loaders.IXMLLoader.Undecorator;
+import org.bigraph.model.loaders.LoadFailedException;
+import org.bigraph.model.loaders.SimulationSpecXMLLoader;
+import org.bigraph.model.process.IParticipantHost;
+import org.bigraph.model.resources.JavaFileWrapper;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+public class LoaderTests {
+	private static final String
+		HEADER =
+			"<bigraph:bigraph xmlns:bigraph=\"" +
+					"http://www.itu.dk/research/pls/xmlns/2010/bigraph\" " +
+					"xmlns:signature=\"" +
+					"http://www.itu.dk/research/pls/xmlns/2010/signature\">" +
+			"<signature:signature>" +
+			"<signature:control name=\"A\" kind=\"active\">" +
+			"<signature:port name=\"p\" />" +
+			"</signature:control>" +
+			"<signature:control name=\"B\" kind=\"passive\" />" +
+			"</signature:signature>",
+		FOOTER = "</bigraph:bigraph>",
+		BIGRAPH_NS = "http://www.itu.dk/research/pls/xmlns/2010/bigraph",
+		SIGNATURE_NS = "http://www.itu.dk/research/pls/xmlns/2010/signature",
+		RULE_NS = "http://www.itu.dk/research/pls/xmlns/2011/rule",
+		SPEC_NS =
+			"http://www.itu.dk/research/pls/xmlns/2012/simulation-spec",
+		EDIT_NS = "http://bigraph.org/xmlns/2012/edit";
+	
+	private static Bigraph load(BigraphXMLLoader l, String document)
+			throws LoadFailedException {
+		try {
+			l.setInputStream(
+					new ByteArrayInputStream(document.getBytes("UTF-8")));
+			return l.importObject();
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private static Bigraph load(boolean streaming, String body)
+			throws LoadFailedException {
+		return load(new BigraphXMLLoader().setStreaming(streaming),
+				HEADER + body + FOOTER);
+	}
+	
+	private static String getLinkName(Bigraph b, String node, String port) {
+		Node n = (Node)b.getNamespace(Node.class).get(node);
+		for (Port p : n.getPorts())
+			if (p.getName().equals(port))
+				return p.getLink().getName();
+		return null;
+	}
+	
+	@Test
+	public void streamingMatchesDOM() throws LoadFailedException {
+		String body =
+				"<bigraph:edge name=\"e\" />" +
+				"<bigraph:outername name=\"x\" />" +
+				"<bigraph:root name=\"0\">" +
+				"<bigraph:node name=\"a\" control=\"A\">" +
+				"<bigraph:port name=\"p\" link=\"e\" />" +
+				"<bigraph:node name=\"b\" control=\"B\" />" +
+				"<bigraph:site name=\"0\" />" +
+				"</bigraph:node>" +
+				"<bigraph:node name=\"c\" control=\"A\">" +
+				"<bigraph:port name=\"p\" link=\"x\" />" +
+				"</bigraph:node>" +
+				"</bigraph:root>" +
+				"<bigraph:innername name=\"y\" link=\"e\" />";
+		Bigraph
+			dom = load(false, body),
+			stream = load(true, body);
+		assertEquals(dom.getCanonicalForm(), stream.getCanonicalForm());
+		assertEquals("e", getLinkName(stream, "a", "p"));
+		assertEquals("x", getLinkName(stream, "c", "p"));
+		assertEquals("e", ((InnerName)stream.getNamespace(
+				InnerName.class).get("y")).getLink().getName());
+	}
+	
+	@Test
+	public void streamingLateLink() throws LoadFailedException {
+		Bigraph b = load(true,
+				"<bigraph:root name=\"0\">" +
+				"<bigraph:node name=\"a\" control=\"A\">" +
+				"<bigraph:port name=\"p\" link=\"e\" />" +
+				"</bigraph:node>" +
+				"</bigraph:root>" +
+				"<bigraph:edge name=\"e\" />");
+		assertNotNull(b.getNamespace(Node.class).get("a"));
+		assertEquals("e", getLinkName(b, "a", "p"));
+	}
+	
+	/**
+	 * An {@link Undecorator} that renames every node once it has been read.
+	 */
+	private static final class Renamer implements Undecorator {
+		private IChangeLoader loader;
+		
+		@Override
+		public void setHost(IParticipantHost host) {
+			if (host instanceof IChangeLoader)
+				loader = (IChangeLoader)host;
+		}
+		
+		@Override
+		public void undecorate(ModelObject object, Element el) {
+			if (object instanceof Node) {
+				PropertyScratchpad context = loader.getScratch();
+				Node n = (Node)object;
+				loader.addChange(new NamedModelObject.ChangeNameDescriptor(
+						n.getIdentifier(context), n.getName(context) + "'"));
+			}
+		}
+		
+		@Override
+		public void finish() {
+		}
+	}
+	
+	@Test
+	public void streamingUndecorators() throws LoadFailedException {
+		BigraphXMLLoader l = new BigraphXMLLoader().setStreaming(true);
+		l.addParticipant(new Renamer());
+		Bigraph b = load(l, HEADER +
+				"<bigraph:root name=\"0\">" +
+				"<bigraph:node name=\"a\" control=\"A\">" +
+				"<bigraph:port name=\"p\" link=\"e\" />" +
+				"<bigraph:node name=\"b\" control=\"B\" />" +
+				"</bigraph:node>" +
+				"</bigraph:root>" +
+				"<bigraph:edge name=\"e\" />" + FOOTER);
+		assertNull(b.getNamespace(Node.class).get("a"));
+		assertNotNull(b.getNamespace(Node.class).get("b'"));
+		assertEquals("e", getLinkName(b, "a'", "p"));
+	}
+	
+	@Test(expected = LoadFailedException.class)
+	public void streamingMissingLink() throws LoadFailedException {
+		load(true,
+				"<bigraph:root name=\"0\">" +
+				"<bigraph:node name=\"a\" control=\"A\">" +
+				"<bigraph:port name=\"p\" link=\"e\" />" +
+				"</bigraph:node>" +
+				"</bigraph:root>");
+	}
+	
+	@Test(expected = LoadFailedException.class)
+	public void streamingMisplacedElement() throws LoadFailedException {
+		load(true,
+				"<bigraph:node name=\"a\" control=\"A\" />");
+	}
+	
+	@Test(expected = LoadFailedException.class)
+	public void streamingMissingControl() throws LoadFailedException {
+		load(true,
+				"<bigraph:root name=\"0\">" +
+				"<bigraph:node name=\"a\" />" +
+				"</bigraph:root>");
+	}
+	
+	@Test
+	public void trustedMatchesValidated() throws LoadFailedException {
+		String document = HEADER +
+				"<bigraph:edge name=\"e\" />" +
+				"<bigraph:root name=\"0\">" +
+				"<bigraph:node name=\"a\" control=\"A\">" +
+				"<bigraph:port name=\"p\" link=\"e\" />" +
+				"<bigraph:node name=\"b\" control=\"B\" />" +
+				"</bigraph:node>" +
+				"</bigraph:root>" + FOOTER;
+		BigraphXMLLoader trusted = new BigraphXMLLoader();
+		trusted.setTrusted(true);
+		assertEquals(
+				load(new BigraphXMLLoader(), document).getCanonicalForm(),
+				load(trusted, document).getCanonicalForm());
+	}
+	
+	@Test(expected = LoadFailedException.class)
+	public void trustedWrongDocument() throws LoadFailedException {
+		BigraphXMLLoader l = new BigraphXMLLoader();
+		l.setTrusted(true);
+		load(l, "<signature:signature xmlns:signature=\"" +
+				SIGNATURE_NS + "\" />");
+	}
+	
+	@Test
+	public void reusedValidators() throws LoadFailedException {
+		for (int i = 0; i < 3; i++) {
+			try {
+				load(false,
+						"<bigraph:root name=\"0\">" +
+						"<bigraph:node name=\"a\" />" +
+						"</bigraph:root>");
+				fail("An invalid document was accepted");
+			} catch (LoadFailedException e) {
+				/* expected */
+			}
+			assertNotNull(load(false,
+					"<bigraph:root name=\"0\">" +
+					"<bigraph:node name=\"a\" control=\"B\" />" +
+					"</bigraph:root>").getNamespace(Node.class).get("a"));
+		}
+	}
+	
+	private static void write(File f, String content) throws IOException {
+		OutputStream os = new FileOutputStream(f);
+		try {
+			os.write(content.getBytes("UTF-8"));
+		} finally {
+			os.close();
+		}
+	}
+	
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null)
+			for (File i : children)
+				delete(i);
+		f.delete();
+	}
+	
+	private static File createTempDirectory(String prefix)
+			throws IOException {
+		File dir = File.createTempFile(prefix, "");
+		dir.delete();
+		dir.mkdir();
+		return dir;
+	}
+	
+	@Test
+	public void parallelSpec() throws IOException, LoadFailedException {
+		File dir = createTempDirectory("spec");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			write(new File(dir, "s.bigraph-signature"),
+					"<signature:signature xmlns:signature=\"" +
+							SIGNATURE_NS + "\">" +
+					"<signature:control name=\"A\" kind=\"active\" />" +
+					"</signature:signature>");
+			StringBuilder spec = new StringBuilder(
+					"<spec:spec xmlns:spec=\"" + SPEC_NS + "\" " +
+							"xmlns:rule=\"" + RULE_NS + "\">");
+			int count = 20;
+			for (int i = 0; i < count; i++) {
+				write(new File(dir, i + ".bigraph-rule"),
+						"<rule:rule xmlns:rule=\"" + RULE_NS + "\">" +
+						"<bigraph:bigraph xmlns:bigraph=\"" +
+								BIGRAPH_NS + "\">" +
+						"<signature:signature xmlns:signature=\"" +
+								SIGNATURE_NS + "\" " +
+								"src=\"s.bigraph-signature\" />" +
+						"<bigraph:root name=\"0\">" +
+						"<bigraph:node name=\"n" + i + "\" control=\"A\" />" +
+						"</bigraph:root>" +
+						"</bigraph:bigraph>" +
+						"<edit:edit xmlns:edit=\"" + EDIT_NS + "\" />" +
+						"</rule:rule>");
+				spec.append("<rule:rule src=\"" + i + ".bigraph-rule\" />");
+			}
+			spec.append("</spec:spec>");
+			File f = new File(dir, "spec.bigraph-simulation-spec");
+			write(f, spec.toString());
+			
+			JavaFileWrapper fw = new JavaFileWrapper(f);
+			SimulationSpecXMLLoader l =
+					new SimulationSpecXMLLoader().setExecutor(executor);
+			l.setFile(fw).setInputStream(fw.getContents());
+			SimulationSpec ss = l.importObject();
+			assertEquals(count, ss.getRules().size());
+			Signature s = ss.getRules().get(0).getRedex().getSignature();
+			for (int i = 0; i < count; i++) {
+				Bigraph redex = ss.getRules().get(i).getRedex();
+				assertNotNull(redex.getNamespace(Node.class).get("n" + i));
+				assertSame(s, redex.getSignature());
+			}
+		} finally {
+			executor.shutdown();
+			delete(dir);
+		}
+	}
+	
+	private static final String SIGNATURE =
+			"<signature:signature xmlns:signature=\"" + SIGNATURE_NS + "\">" +
+			"<signature:control name=\"A\" kind=\"active\" />" +
+			"</signature:signature>";
+	
+	private static final String REFERENCING_AGENT =
+			"<bigraph:bigraph xmlns:bigraph=\"" + BIGRAPH_NS + "\">" +
+			"<bigraph:signature src=\"s.bigraph-signature\" />" +
+			"<bigraph:root name=\"0\" />" +
+			"</bigraph:bigraph>";
+	
+	private static Bigraph load(File f, DocumentCache cache)
+			throws LoadFailedException {
+		JavaFileWrapper fw = new JavaFileWrapper(f);
+		BigraphXMLLoader l = new BigraphXMLLoader();
+		l.setCache(cache).setFile(fw).setInputStream(fw.getContents());
+		return l.importObject();
+	}
+	
+	@Test
+	public void cachedReference() throws IOException, LoadFailedException {
+		File dir = createTempDirectory("cache");
+		try {
+			File s = new File(dir, "s.bigraph-signature"),
+				a = new File(dir, "a.bigraph-agent");
+			write(s, SIGNATURE);
+			write(a, REFERENCING_AGENT);
+			
+			DocumentCache cache = new DocumentCache();
+			Signature first = load(a, cache).getSignature();
+			assertSame(first, load(a, cache).getSignature());
+			assertNotSame(first, load(a, new DocumentCache()).getSignature());
+			
+			/* Changing the signature should cause it to be loaded again */
+			s.setLastModified(s.lastModified() + 10000);
+			Signature second = load(a, cache).getSignature();
+			assertNotSame(first, second);
+			assertSame(second, load(a, cache).getSignature());
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	private static void assertRejected(
+			Resolver r, IChangeDescriptor cd) {
+		try {
+			DescriptorExecutorManager.getInstance().tryApplyChange(r, cd);
+			fail(cd + " should have been rejected");
+		} catch (ChangeCreationException e) {
+			/* expected */
+		}
+	}
+	
+	@Test
+	public void cachedSignatureIsReadOnly()
+			throws IOException, LoadFailedException, ChangeCreationException {
+		File dir = createTempDirectory("readonly");
+		try {
+			File a = new File(dir, "a.bigraph-agent");
+			write(new File(dir, "s.bigraph-signature"), SIGNATURE);
+			write(a, REFERENCING_AGENT);
+			
+			Bigraph b = load(a, new DocumentCache());
+			Signature s = b.getSignature();
+			assertTrue(s.isReadOnly());
+			assertTrue(s.getControl("A").isReadOnly());
+			
+			Control.Identifier c = new Control.Identifier("A");
+			assertRejected(s, new Signature.ChangeAddControlDescriptor(
+					new Signature.Identifier(), new Control.Identifier("B")));
+			assertRejected(b, new Control.ChangeKindDescriptor(
+					c, Kind.ACTIVE, Kind.PASSIVE));
+			assertRejected(b, new NamedModelObject.ChangeNameDescriptor(
+					c, "B"));
+			assertNull(s.getControl("B"));
+			assertEquals(Kind.ACTIVE, s.getControl("A").getKind());
+			
+			/* The bigraph itself can still be modified, and so can a copy of
+			 * the signature */
+			DescriptorExecutorManager.getInstance().tryApplyChange(b,
+					new Container.ChangeAddChildDescriptor(
+							new Root.Identifier("0"),
+							new Node.Identifier("n", c)));
+			Signature copy = s.clone();
+			assertFalse(copy.isReadOnly());
+			DescriptorExecutorManager.getInstance().tryApplyChange(copy,
+					new Signature.ChangeAddControlDescriptor(
+							new Signature.Identifier(),
+							new Control.Identifier("B")));
+			assertNotNull(copy.getControl("B"));
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	private static final String NESTING_AGENT =
+			"<bigraph:bigraph xmlns:bigraph=\"" + BIGRAPH_NS + "\">" +
+			"<signature:signature xmlns:signature=\"" + SIGNATURE_NS + "\">" +
+			"<signature:signature src=\"s.bigraph-signature\" />" +
+			"</signature:signature>" +
+			"<bigraph:root name=\"0\" />" +
+			"</bigraph:bigraph>";
+	
+	@Test
+	public void nestedReference() throws IOException, LoadFailedException {
+		File dir = createTempDirectory("nested");
+		try {
+			File a = new File(dir, "a.bigraph-agent"),
+				b = new File(dir, "b.bigraph-agent");
+			write(new File(dir, "s.bigraph-signature"), SIGNATURE);
+			write(a, NESTING_AGENT);
+			write(b, NESTING_AGENT);
+			
+			/* A nested signature becomes a child of its parent, so it must
+			 * never be shared, even through a shared cache */
+			DocumentCache cache = new DocumentCache();
+			Signature
+				first = load(a, cache).getSignature(),
+				second = load(b, cache).getSignature();
+			assertEquals(1, first.getSignatures().size());
+			assertEquals(1, second.getSignatures().size());
+			assertSame(first, first.getSignatures().get(0).getParent());
+			assertSame(second, second.getSignatures().get(0).getParent());
+			assertNotSame(first.getSignatures().get(0),
+					second.getSignatures().get(0));
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	@Test(expected = LoadFailedException.class)
+	public void cyclicReference() throws IOException, LoadFailedException {
+		File dir = createTempDirectory("cycle");
+		try {
+			write(new File(dir, "s.bigraph-signature"),
+					"<signature:signature xmlns:signature=\"" +
+							SIGNATURE_NS + "\" src=\"s.bigraph-signature\" />");
+			File a = new File(dir, "a.bigraph-agent");
+			write(a, REFERENCING_AGENT);
+			load(a, new DocumentCache());
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	private static void loadBinary(int... data) throws LoadFailedException {
+		byte[] b = new byte[data.length * 4];
+		for (int i = 0; i < data.length; i++)
+			for (int j = 0; j < 4; j++)
+				b[i * 4 + j] = (byte)(data[i] >>> (24 - j * 8));
+		new BigraphStructureLoader().setInputStream(
+				new ByteArrayInputStream(b)).importObject();
+	}
+	
+	@Test(expected = LoadFailedException.class)
+	public void binaryBadMagic() throws LoadFailedException {
+		loadBinary(0x3C3F786D, 1, 0);
+	}
+	
+	@Test(expected = LoadFailedException.class)
+	public void binaryTruncated() throws LoadFailedException {
+		/* A place section that's longer than the rest of the file */
+		loadBinary(
+				StructureFormatConstants.MAGIC,
+				StructureFormatConstants.VERSION, 0,
+				StructureFormatConstants.SECTION_PLACE, 9,
+				1, StructureFormatConstants.TYPE_ROOT, -1, -1, -1);
+	}
+}
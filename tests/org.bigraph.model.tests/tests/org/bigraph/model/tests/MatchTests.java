@@ -0,0 +1,517 @@
+package org.bigraph.model.tests;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.bigraph.model.Bigraph;
+import org.bigraph.model.CanonicalForm;
+import org.bigraph.model.Container;
+import org.bigraph.model.Control;
+import org.bigraph.model.Control.Kind;
+import org.bigraph.model.Edge;
+import org.bigraph.model.FrozenBigraph;
+import org.bigraph.model.Node;
+import org.bigraph.model.OuterName;
+import org.bigraph.model.Point;
+import org.bigraph.model.Port;
+import org.bigraph.model.PortSpec;
+import org.bigraph.model.ReactionRule;
+import org.bigraph.model.Root;
+import org.bigraph.model.Signature;
+import org.bigraph.model.Site;
+import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.changes.descriptors.ChangeDescriptorGroup;
+import org.bigraph.model.match.CompiledRule;
+import org.bigraph.model.match.Match;
+import org.bigraph.model.match.MatchIndex;
+import org.bigraph.model.match.Matcher;
+import org.bigraph.model.match.Summary;
+
+public class MatchTests {
+	private Signature signature;
+	private Control a, b, c, p;
+	
+	@Before
+	public void createSignature() throws ChangeCreationException {
+		signature = new Signature();
+		
+		Control.Identifier
+			aid = new Control.Identifier("A"),
+			bid = new Control.Identifier("B"),
+			cid = new Control.Identifier("C"),
+			pid = new Control.Identifier("P");
+		DescriptorTestRunner.run(signature,
+				new Signature.ChangeAddControlDescriptor(
+						new Signature.Identifier(), aid),
+				new Signature.ChangeAddControlDescriptor(
+						new Signature.Identifier(), bid),
+				new Signature.ChangeAddControlDescriptor(
+						new Signature.Identifier(), cid),
+				new Signature.ChangeAddControlDescriptor(
+						new Signature.Identifier(), pid),
+				new Control.ChangeAddPortSpecDescriptor(
+						new PortSpec.Identifier("p", aid)),
+				new Control.ChangeAddPortSpecDescriptor(
+						new PortSpec.Identifier("p", bid)),
+				new Control.ChangeKindDescriptor(
+						pid, Kind.ACTIVE, Kind.PASSIVE));
+		a = signature.getControl("A");
+		b = signature.getControl("B");
+		c = signature.getControl("C");
+		p = signature.getControl("P");
+	}
+	
+	/* A(A(C)) | C */
+	private FrozenBigraph nested() {
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		int r = fb.addRoot("0");
+		int n0 = fb.addNode(r, "a", a);
+		fb.addNode(fb.addNode(n0, "b", a), "c", c);
+		fb.addNode(r, "d", c);
+		return fb.build();
+	}
+	
+	/* A(site 0) */
+	private Bigraph wrappedSite(Control control) {
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		fb.addSite(fb.addNode(fb.addRoot("0"), "a", control), "0");
+		return fb.build().toBigraph();
+	}
+	
+	@Test
+	public void placeMatch() {
+		Matcher m = new Matcher(wrappedSite(a));
+		List<Match> matches = m.match(nested());
+		assertEquals(2, matches.size());
+		
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		fb.addNode(fb.addRoot("0"), "a", a);
+		assertFalse(new Matcher(fb.build()).matches(nested()));
+	}
+	
+	@Test
+	public void siteParameters() {
+		/* A(site 0 | site 1) */
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		int n = fb.addNode(fb.addRoot("0"), "a", a);
+		fb.addSite(n, "0");
+		fb.addSite(n, "1");
+		Matcher m = new Matcher(fb.build());
+		FrozenBigraph redex = m.getRedex();
+		int s0 = -1, s1 = -1;
+		for (int i = 0; i < redex.getPlaceCount(); i++) {
+			if (redex.getKind(i) != FrozenBigraph.SITE) {
+				continue;
+			} else if (redex.getPlaceName(i).equals("0")) {
+				s0 = i;
+			} else s1 = i;
+		}
+		
+		/* A(B | C) */
+		fb = new FrozenBigraph.Builder(signature);
+		n = fb.addNode(fb.addRoot("0"), "a", a);
+		fb.addNode(n, "b", b);
+		fb.addNode(n, "c", c);
+		
+		/* Either child can go to either site */
+		List<Match> matches = m.match(fb.build());
+		assertEquals(4, matches.size());
+		HashSet<String> divisions = new HashSet<String>();
+		for (Match i : matches) {
+			int[] p0 = i.getParameter(s0), p1 = i.getParameter(s1);
+			assertEquals(2, p0.length + p1.length);
+			divisions.add(Arrays.toString(p0) + Arrays.toString(p1));
+		}
+		assertEquals(4, divisions.size());
+		assertEquals(1, m.match(fb.build(), 1).size());
+	}
+	
+	@Test
+	public void innerNamesUnsupported() {
+		/* C | x */
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		fb.addNode(fb.addRoot("0"), "a", c);
+		fb.addInnerName("x");
+		FrozenBigraph b = fb.build();
+		
+		/* Even a bigraph with inner names doesn't match itself */
+		assertFalse(new Matcher(b).matches(b));
+		
+		fb = new FrozenBigraph.Builder(signature);
+		fb.addNode(fb.addRoot("0"), "a", c);
+		assertTrue(new Matcher(fb.build()).matches(b));
+	}
+	
+	@Test
+	public void passiveContext() {
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		fb.addNode(fb.addNode(fb.addRoot("0"), "a", p), "b", c);
+		FrozenBigraph agent = fb.build();
+		
+		fb = new FrozenBigraph.Builder(signature);
+		fb.addNode(fb.addRoot("0"), "a", c);
+		assertFalse(new Matcher(fb.build()).matches(agent));
+		
+		fb = new FrozenBigraph.Builder(signature);
+		fb.addSite(fb.addNode(fb.addRoot("0"), "a", p), "0");
+		assertTrue(new Matcher(fb.build()).matches(agent));
+	}
+	
+	@Test
+	public void arityMismatch() throws ChangeCreationException {
+		/* A signature in which A has no ports */
+		Signature other = new Signature();
+		Control.Identifier aid = new Control.Identifier("A");
+		DescriptorTestRunner.run(other,
+				new Signature.ChangeAddControlDescriptor(
+						new Signature.Identifier(), aid));
+		
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(other);
+		fb.addNode(fb.addRoot("0"), "a", other.getControl("A"));
+		FrozenBigraph agent = fb.build();
+		
+		fb = new FrozenBigraph.Builder(signature);
+		fb.addNode(fb.addRoot("0"), "a", a);
+		assertFalse(new Matcher(fb.build()).matches(agent));
+	}
+	
+	/* Three A nodes, the first two sharing a link */
+	private FrozenBigraph linked(boolean outer, boolean all) {
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		int r = fb.addRoot("0");
+		int l0 = (outer ? fb.addOuterName("x") : fb.addEdge("e")),
+			l1 = fb.addEdge("f");
+		fb.connectPort(fb.addNode(r, "a", a), 0, l0);
+		fb.connectPort(fb.addNode(r, "b", a), 0, l0);
+		fb.connectPort(fb.addNode(r, "c", a), 0, (all ? l0 : l1));
+		return fb.build();
+	}
+	
+	@Test
+	public void linkMatch() {
+		Matcher
+			byEdge = new Matcher(linked(false, false).toBigraph()),
+			byName = new Matcher(linked(true, false).toBigraph());
+		
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		int r = fb.addRoot("0"), x = fb.addOuterName("x");
+		fb.connectPort(fb.addNode(r, "a", a), 0, x);
+		fb.connectPort(fb.addNode(r, "b", a), 0, x);
+		Matcher pair = new Matcher(fb.build());
+		
+		fb = new FrozenBigraph.Builder(signature);
+		r = fb.addRoot("0");
+		int e = fb.addEdge("e");
+		fb.connectPort(fb.addNode(r, "a", a), 0, e);
+		fb.connectPort(fb.addNode(r, "b", a), 0, e);
+		Matcher closedPair = new Matcher(fb.build());
+		
+		assertTrue(byEdge.matches(linked(false, false)));
+		assertFalse(byEdge.matches(linked(true, false)));
+		assertTrue(byName.matches(linked(true, false)));
+		assertTrue(byName.matches(linked(false, false)));
+		
+		assertEquals(2, pair.match(linked(false, false)).size());
+		assertEquals(6, pair.match(linked(false, true)).size());
+		assertEquals(2, closedPair.match(linked(false, false)).size());
+		assertEquals(0, closedPair.match(linked(false, true)).size());
+	}
+	
+	@Test
+	public void compiledReactum() throws ChangeCreationException {
+		Root.Identifier rid = new Root.Identifier("0");
+		Node.Identifier
+			nid = new Node.Identifier("a", a.getIdentifier()),
+			mid = new Node.Identifier("b", b.getIdentifier());
+		Site.Identifier sid = new Site.Identifier("0");
+		
+		/* The reactum is built from the frozen redex, but must be the same
+		 * as the one built from a copy of the redex */
+		ReactionRule rr = new ReactionRule();
+		rr.setRedex(wrappedSite(a));
+		rr.getEdit().getDescriptors().addAll(DescriptorTestRunner.cdg(
+				new Container.ChangeRemoveChildDescriptor(nid, sid),
+				new Container.ChangeRemoveChildDescriptor(rid, nid),
+				new Container.ChangeAddChildDescriptor(rid, mid),
+				new Container.ChangeAddChildDescriptor(mid, sid)));
+		Bigraph reactum = rr.createReactum();
+		assertEquals(new CanonicalForm(new FrozenBigraph(reactum)),
+				new CanonicalForm(new CompiledRule(rr).getReactum()));
+		reactum.dispose();
+		
+		/* ... and an edit that can't be applied to the redex must still be
+		 * rejected */
+		rr = new ReactionRule();
+		rr.setRedex(wrappedSite(a));
+		rr.getEdit().getDescriptors().add(
+				new Container.ChangeRemoveChildDescriptor(rid, nid));
+		try {
+			new CompiledRule(rr);
+			fail("the edit removed a node that still had children");
+		} catch (ChangeCreationException e) {
+			/* expected */
+		}
+	}
+	
+	@Test
+	public void rewrite() throws ChangeCreationException {
+		ReactionRule rr = new ReactionRule();
+		rr.setRedex(wrappedSite(a));
+		Root.Identifier rid = new Root.Identifier("0");
+		Node.Identifier
+			nid = new Node.Identifier("a", a.getIdentifier()),
+			mid = new Node.Identifier("b", b.getIdentifier());
+		Site.Identifier sid = new Site.Identifier("0");
+		rr.getEdit().getDescriptors().add(
+				new Container.ChangeRemoveChildDescriptor(nid, sid));
+		rr.getEdit().getDescriptors().add(
+				new Container.ChangeRemoveChildDescriptor(rid, nid));
+		rr.getEdit().getDescriptors().add(
+				new Container.ChangeAddChildDescriptor(rid, mid));
+		rr.getEdit().getDescriptors().add(
+				new Container.ChangeAddChildDescriptor(mid, sid));
+		
+		CompiledRule cr = new CompiledRule(rr);
+		List<Match> matches = cr.match(nested());
+		assertEquals(2, matches.size());
+		
+		/* B(A(C)) | C, and A(B(C)) | C */
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		int r = fb.addRoot("0");
+		fb.addNode(fb.addNode(fb.addNode(r, "a", b), "b", a), "c", c);
+		fb.addNode(r, "d", c);
+		CanonicalForm outer = new CanonicalForm(fb.build());
+		
+		fb = new FrozenBigraph.Builder(signature);
+		r = fb.addRoot("0");
+		fb.addNode(fb.addNode(fb.addNode(r, "a", a), "b", b), "c", c);
+		fb.addNode(r, "d", c);
+		CanonicalForm inner = new CanonicalForm(fb.build());
+		
+		CanonicalForm
+			f0 = new CanonicalForm(cr.apply(matches.get(0))),
+			f1 = new CanonicalForm(cr.apply(matches.get(1)));
+		assertTrue((f0.equals(outer) && f1.equals(inner)) ||
+				(f0.equals(inner) && f1.equals(outer)));
+		
+		/* The matched node is replaced by a node with a fresh name, and
+		 * everything else keeps its name */
+		FrozenBigraph result = cr.apply(matches.get(0));
+		assertEquals(5, result.getPlaceCount());
+		int found = 0;
+		for (int i = 0; i < result.getPlaceCount(); i++) {
+			String name = result.getPlaceName(i);
+			if (result.getKind(i) != FrozenBigraph.NODE) {
+				continue;
+			} else if (result.getControl(
+					result.getPlaceControl(i)) == b) {
+				assertEquals("e", name);
+			} else assertTrue("abcd".contains(name));
+			found++;
+		}
+		assertEquals(4, found);
+	}
+	
+	/* Checks the changes that describe each application of a rule against
+	 * the result, and against the Summary worked out from them */
+	private static void assertDescribed(CompiledRule cr, FrozenBigraph agent)
+			throws ChangeCreationException {
+		Summary summary = new Summary(agent);
+		List<Match> matches = cr.match(agent);
+		assertFalse(matches.isEmpty());
+		for (Match m : matches) {
+			ChangeDescriptorGroup changes = new ChangeDescriptorGroup();
+			FrozenBigraph result = cr.apply(m, changes);
+			CanonicalForm expected = new CanonicalForm(result);
+			
+			Bigraph b = agent.toBigraph();
+			DescriptorTestRunner.run(b, changes);
+			assertEquals(expected, new CanonicalForm(new FrozenBigraph(b)));
+			assertEquals(expected, new CanonicalForm(agent.update(changes)));
+			
+			/* Summaries that admit each other have the same counts */
+			Summary derived = summary.derive(agent, changes, result),
+				fresh = new Summary(result);
+			assertTrue(derived.admits(fresh) && fresh.admits(derived));
+			Summary before = new Summary(agent);
+			assertTrue(summary.admits(before) && before.admits(summary));
+		}
+	}
+	
+	@Test
+	public void describedReactions() throws ChangeCreationException {
+		/* A | A(C(C)) | A_y | A_y | A_x, with x an edge of its own */
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		int r = fb.addRoot("0"), x = fb.addEdge("x"), y = fb.addEdge("y");
+		fb.addNode(r, "a", a);
+		fb.addNode(fb.addNode(fb.addNode(r, "d", a), "c", c), "f", c);
+		fb.connectPort(fb.addNode(r, "e", a), 0, y);
+		fb.connectPort(fb.addNode(r, "g", a), 0, y);
+		fb.connectPort(fb.addNode(r, "h", a), 0, x);
+		FrozenBigraph agent = fb.build();
+		
+		Root.Identifier rid = new Root.Identifier("0");
+		Node.Identifier
+			nid = new Node.Identifier("a", a.getIdentifier()),
+			mid = new Node.Identifier("b", b.getIdentifier()),
+			lid = new Node.Identifier("c", a.getIdentifier());
+		Site.Identifier sid = new Site.Identifier("0");
+		Edge.Identifier eid = new Edge.Identifier("e");
+		OuterName.Identifier xid = new OuterName.Identifier("x");
+		
+		/* A(site 0) -> B(site 0), which moves the parameter */
+		ReactionRule rr = new ReactionRule();
+		rr.setRedex(wrappedSite(a));
+		rr.getEdit().getDescriptors().addAll(DescriptorTestRunner.cdg(
+				new Container.ChangeRemoveChildDescriptor(nid, sid),
+				new Container.ChangeRemoveChildDescriptor(rid, nid),
+				new Container.ChangeAddChildDescriptor(rid, mid),
+				new Container.ChangeAddChildDescriptor(mid, sid)));
+		assertDescribed(new CompiledRule(rr), agent);
+		
+		/* A | site 0 -> B | site 0, which leaves the parameter alone */
+		fb = new FrozenBigraph.Builder(signature);
+		r = fb.addRoot("0");
+		fb.addNode(r, "a", a);
+		fb.addSite(r, "0");
+		rr = new ReactionRule();
+		rr.setRedex(fb.build().toBigraph());
+		rr.getEdit().getDescriptors().addAll(DescriptorTestRunner.cdg(
+				new Container.ChangeRemoveChildDescriptor(rid, nid),
+				new Container.ChangeAddChildDescriptor(rid, mid)));
+		assertDescribed(new CompiledRule(rr), agent);
+		
+		/* A_x -> B_e | A_e, which needs a new edge and can leave the
+		 * agent's link without any points */
+		fb = new FrozenBigraph.Builder(signature);
+		fb.connectPort(fb.addNode(fb.addRoot("0"), "a", a), 0,
+				fb.addOuterName("x"));
+		rr = new ReactionRule();
+		rr.setRedex(fb.build().toBigraph());
+		rr.getEdit().getDescriptors().addAll(DescriptorTestRunner.cdg(
+				new Point.ChangeDisconnectDescriptor(
+						new Port.Identifier("p", nid), xid),
+				new Container.ChangeRemoveChildDescriptor(rid, nid),
+				new Container.ChangeAddChildDescriptor(rid, mid),
+				new Container.ChangeAddChildDescriptor(rid, lid),
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), eid),
+				new Point.ChangeConnectDescriptor(
+						new Port.Identifier("p", mid), eid),
+				new Point.ChangeConnectDescriptor(
+						new Port.Identifier("p", lid), eid)));
+		assertDescribed(new CompiledRule(rr), agent);
+	}
+	
+	@Test
+	public void summary() throws ChangeCreationException {
+		Summary agent = new Summary(nested());
+		assertTrue(agent.admits(new Matcher(wrappedSite(a)).getSummary()));
+		assertFalse(agent.admits(new Matcher(wrappedSite(b)).getSummary()));
+		
+		/* A(A(A)) is too deep, and A | A | A has too many As */
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		fb.addNode(fb.addNode(fb.addNode(fb.addRoot("0"), "a", a), "b", a),
+				"c", a);
+		Summary deep = new Summary(fb.build());
+		fb = new FrozenBigraph.Builder(signature);
+		int r = fb.addRoot("0");
+		fb.addNode(r, "a", a);
+		fb.addNode(r, "b", a);
+		fb.addNode(r, "c", a);
+		Summary wide = new Summary(fb.build());
+		assertFalse(agent.admits(deep));
+		assertFalse(agent.admits(wide));
+		
+		Summary linkedAgent = new Summary(linked(false, false));
+		assertTrue(linkedAgent.admits(new Summary(linked(false, false))));
+		assertTrue(linkedAgent.admits(new Summary(linked(true, false))));
+		assertFalse(linkedAgent.admits(new Summary(linked(false, true))));
+		assertFalse(linkedAgent.admits(new Summary(linked(true, true))));
+		
+		/* Adding a third A under the existing two makes A(A(A)) possible */
+		Bigraph b = nested().toBigraph();
+		Summary tracked = new Summary(new FrozenBigraph(b));
+		Container.ChangeAddChildDescriptor add =
+				new Container.ChangeAddChildDescriptor(
+						new Node.Identifier("c", c.getIdentifier()),
+						new Node.Identifier("e", a.getIdentifier()));
+		DescriptorTestRunner.run(b, add);
+		assertTrue(tracked.update(add));
+		assertTrue(tracked.admits(deep));
+		assertTrue(tracked.admits(wide));
+	}
+	
+	private static void assertIndexed(MatchIndex index) {
+		assertEquals(new CanonicalForm(new FrozenBigraph(index.getAgent())),
+				new CanonicalForm(index.getFrozenAgent()));
+		for (int i = 0; i < index.getMatchers().size(); i++)
+			assertEquals(
+					new HashSet<Match>(index.getMatchers().get(i).match(
+							index.getFrozenAgent())),
+					new HashSet<Match>(index.getMatches(i)));
+	}
+	
+	@Test
+	public void incrementalMatch() throws ChangeCreationException {
+		FrozenBigraph.Builder fb = new FrozenBigraph.Builder(signature);
+		fb.addNode(fb.addRoot("0"), "a", a);
+		Matcher leaf = new Matcher(fb.build());
+		
+		fb = new FrozenBigraph.Builder(signature);
+		int r = fb.addRoot("0"), e = fb.addEdge("e");
+		fb.connectPort(fb.addNode(r, "a", a), 0, e);
+		fb.connectPort(fb.addNode(r, "b", a), 0, e);
+		Matcher closedPair = new Matcher(fb.build());
+		
+		Bigraph agent = nested().toBigraph();
+		MatchIndex index = new MatchIndex(agent, Arrays.asList(
+				new Matcher(wrappedSite(a)), leaf, closedPair));
+		assertEquals(2, index.getMatches(0).size());
+		assertEquals(0, index.getMatches(1).size());
+		assertIndexed(index);
+		
+		Root.Identifier rid = new Root.Identifier("0");
+		Node.Identifier
+			bid = new Node.Identifier("b", this.a.getIdentifier()),
+			cid = new Node.Identifier("c", c.getIdentifier()),
+			eid = new Node.Identifier("e", this.a.getIdentifier()),
+			fid = new Node.Identifier("f", this.a.getIdentifier());
+		Edge.Identifier xid = new Edge.Identifier("x");
+		
+		ChangeDescriptorGroup add = DescriptorTestRunner.cdg(
+				new Container.ChangeAddChildDescriptor(rid, eid),
+				new Container.ChangeAddChildDescriptor(rid, fid));
+		DescriptorTestRunner.run(agent, add);
+		index.update(add);
+		assertEquals(4, index.getMatches(0).size());
+		assertEquals(2, index.getMatches(1).size());
+		assertIndexed(index);
+		
+		Container.ChangeRemoveChildDescriptor remove =
+				new Container.ChangeRemoveChildDescriptor(bid, cid);
+		DescriptorTestRunner.run(agent, remove);
+		index.update(remove);
+		assertEquals(3, index.getMatches(1).size());
+		assertIndexed(index);
+		
+		ChangeDescriptorGroup link = DescriptorTestRunner.cdg(
+				new Container.ChangeAddChildDescriptor(
+						new Bigraph.Identifier(), xid),
+				new Point.ChangeConnectDescriptor(
+						new Port.Identifier("p", eid), xid),
+				new Point.ChangeConnectDescriptor(
+						new Port.Identifier("p", fid), xid));
+		DescriptorTestRunner.run(agent, link);
+		index.update(link);
+		assertEquals(2, index.getMatches(0).size());
+		assertEquals(1, index.getMatches(1).size());
+		assertEquals(2, index.getMatches(2).size());
+		assertIndexed(index);
+	}
+}
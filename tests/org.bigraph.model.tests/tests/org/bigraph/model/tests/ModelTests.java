@@ -9,6 +9,12 @@ import org.junit.runners.Suite.SuiteClasses;
 	BigraphTests.class,
 	SignatureTests.class,
 	ExecutionTests.class,
+	ScratchpadTests.class,
+	NamespaceTests.class,
+	CanonicalFormTests.class,
+	MatchTests.class,
+	LoaderTests.class,
+	SaverTests.class,
 	
 	EditDescriptorTests.class,
 	SpecDescriptorTests.class,
@@ -0,0 +1,76 @@
+package org.bigraph.model.tests;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.bigraph.model.assistants.PropertyScratchpad;
+import org.bigraph.model.names.HashMapNamespace;
+import org.bigraph.model.names.Namespace;
+import org.bigraph.model.names.policies.BoundedIntegerNamePolicy;
+import org.bigraph.model.names.policies.StringNamePolicy;
+
+public class NamespaceTests {
+	private static void fill(Namespace<Object> ns, int count) {
+		for (int i = 0; i < count; i++)
+			assertNotNull(ns.put(ns.getNextName(), new Object()));
+	}
+	
+	@Test
+	public void stringPolicyIndices() {
+		StringNamePolicy p = new StringNamePolicy();
+		for (int i = 0; i < 2000; i++)
+			assertEquals(i, p.getIndex(p.get(i)));
+		assertEquals(-1, p.getIndex("aa"));
+		assertEquals(-1, p.getIndex("A"));
+	}
+	
+	@Test
+	public void nextNameIsLowestFree() {
+		Namespace<Object> ns = new HashMapNamespace<Object>(
+				new BoundedIntegerNamePolicy(0));
+		fill(ns, 10);
+		assertEquals("10", ns.getNextName());
+		
+		ns.remove("7");
+		ns.remove("3");
+		assertEquals("3", ns.getNextName());
+		ns.put("3", new Object());
+		assertEquals("7", ns.getNextName());
+		ns.put("7", new Object());
+		assertEquals("10", ns.getNextName());
+	}
+	
+	@Test
+	public void nextNameSkipsManualNames() {
+		Namespace<Object> ns =
+				new HashMapNamespace<Object>(new StringNamePolicy());
+		ns.put("a", new Object());
+		ns.put("c", new Object());
+		assertEquals("b", ns.getNextName());
+		ns.put("b", new Object());
+		assertEquals("d", ns.getNextName());
+	}
+	
+	@Test
+	public void nextNameInScratchpad() {
+		Namespace<Object> ns = new HashMapNamespace<Object>(
+				new BoundedIntegerNamePolicy(0));
+		fill(ns, 5);
+		
+		PropertyScratchpad s1 = new PropertyScratchpad();
+		ns.remove(s1, "1");
+		assertEquals("1", ns.getNextName(s1));
+		ns.put(s1, ns.getNextName(s1), new Object());
+		assertEquals("5", ns.getNextName(s1));
+		ns.put(s1, ns.getNextName(s1), new Object());
+		
+		PropertyScratchpad s2 = new PropertyScratchpad(s1);
+		assertEquals("6", ns.getNextName(s2));
+		ns.remove(s2, "2");
+		assertEquals("2", ns.getNextName(s2));
+		
+		assertEquals("6", ns.getNextName(s1));
+		assertEquals("5", ns.getNextName());
+		assertTrue(ns.has("1"));
+	}
+}
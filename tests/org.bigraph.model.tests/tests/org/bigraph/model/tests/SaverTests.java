@@ -0,0 +1,207 @@
+package org.bigraph.model.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import org.bigraph.model.Bigraph;
+import org.bigraph.model.Control;
+import org.bigraph.model.ModelObject;
+import org.bigraph.model.Node;
+import org.bigraph.model.Signature;
+import org.bigraph.model.loaders.BigraphStructureLoader;
+import org.bigraph.model.loaders.BigraphXMLLoader;
+import org.bigraph.model.loaders.LoadFailedException;
+import org.bigraph.model.process.IParticipantFactory;
+import org.bigraph.model.process.IParticipantHost;
+import org.bigraph.model.savers.BigraphStructureSaver;
+import org.bigraph.model.savers.BigraphXMLSaver;
+import org.bigraph.model.savers.IXMLSaver;
+import org.bigraph.model.savers.SaveFailedException;
+import org.bigraph.model.savers.Saver;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class SaverTests {
+	private static final String DOCUMENT =
+			"<bigraph:bigraph xmlns:bigraph=\"" +
+					"http://www.itu.dk/research/pls/xmlns/2010/bigraph\" " +
+					"xmlns:signature=\"" +
+					"http://www.itu.dk/research/pls/xmlns/2010/signature\">" +
+			"<signature:signature>" +
+			"<signature:control name=\"A\" kind=\"active\">" +
+			"<signature:port name=\"p\" />" +
+			"</signature:control>" +
+			"<signature:control name=\"B\" kind=\"passive\" />" +
+			"</signature:signature>" +
+			"<bigraph:edge name=\"e\" />" +
+			"<bigraph:outername name=\"x\" />" +
+			"<bigraph:root name=\"0\">" +
+			"<bigraph:node name=\"a\" control=\"A\">" +
+			"<bigraph:port name=\"p\" link=\"e\" />" +
+			"<bigraph:node name=\"b\" control=\"B\" />" +
+			"<bigraph:site name=\"0\" />" +
+			"</bigraph:node>" +
+			"<bigraph:node name=\"c\" control=\"A\" />" +
+			"</bigraph:root>" +
+			"<bigraph:root name=\"1\" />" +
+			"<bigraph:innername name=\"y\" link=\"x\" />" +
+			"<bigraph:innername name=\"z\" />" +
+			"</bigraph:bigraph>";
+	
+	private static Bigraph load() throws LoadFailedException {
+		try {
+			BigraphXMLLoader l = new BigraphXMLLoader();
+			l.setInputStream(
+					new ByteArrayInputStream(DOCUMENT.getBytes("UTF-8")));
+			return l.importObject();
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private static String save(Bigraph b, boolean streaming)
+			throws SaveFailedException {
+		try {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			BigraphXMLSaver s = new BigraphXMLSaver().setStreaming(streaming);
+			s.setModel(b).setOutputStream(os);
+			s.exportObject();
+			return os.toString("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	@Test
+	public void streamingMatchesDOM()
+			throws LoadFailedException, SaveFailedException {
+		Bigraph b = load();
+		assertEquals(save(b, false), save(b, true));
+	}
+	
+	private static final String TEST_NS = "urn:test";
+	
+	private static final IParticipantFactory decorators =
+			new IParticipantFactory() {
+		@Override
+		public void addParticipants(IParticipantHost host) {
+			host.addParticipant(new IXMLSaver.Decorator() {
+				@Override
+				public void setHost(IParticipantHost host) {
+				}
+				
+				@Override
+				public void decorate(ModelObject object, Element el) {
+					Document d = el.getOwnerDocument();
+					if (object instanceof Control) {
+						el.setAttributeNS(TEST_NS, "test:label",
+								"<" + ((Control)object).getName() + ">");
+					} else if (object instanceof Node) {
+						Element f = d.createElementNS(TEST_NS, "test:note");
+						f.setAttributeNS(null, "quoted", "\"a\"\n&b");
+						f.appendChild(d.createTextNode("x < y"));
+						el.appendChild(f);
+					} else if (object instanceof Bigraph) {
+						Element f = d.createElementNS(TEST_NS, "test:mixed");
+						f.appendChild(d.createTextNode("before"));
+						f.appendChild(d.createElementNS(null, "inner"));
+						f.appendChild(d.createComment("after"));
+						el.appendChild(f);
+					}
+				}
+			});
+		}
+	};
+	
+	@Test
+	public void streamingDecorators()
+			throws LoadFailedException, SaveFailedException {
+		Bigraph b = load();
+		Saver.getParticipantManager().addFactory(decorators);
+		try {
+			assertEquals(save(b, false), save(b, true));
+		} finally {
+			Saver.getParticipantManager().removeFactory(decorators);
+		}
+	}
+	
+	private static byte[] saveBinary(Bigraph b) throws SaveFailedException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		new BigraphStructureSaver().setModel(b).
+				setOutputStream(os).exportObject();
+		return os.toByteArray();
+	}
+	
+	/* Signatures keep their controls in a HashSet, so two identical
+	 * signatures won't necessarily be saved in the same order */
+	private static void assertSameBigraph(Bigraph a, Bigraph b) {
+		assertEquals(a.getCanonicalForm(), b.getCanonicalForm());
+		Signature s = a.getSignature(), t = b.getSignature();
+		assertEquals(s.getControls().size(), t.getControls().size());
+		for (Control c : s.getControls()) {
+			Control d = t.getControl(c.getName());
+			assertEquals(c.getKind(), d.getKind());
+			assertEquals(c.getPorts().size(), d.getPorts().size());
+		}
+	}
+	
+	@Test
+	public void binaryRoundTrip()
+			throws LoadFailedException, SaveFailedException {
+		Bigraph b = load();
+		BigraphStructureLoader l = new BigraphStructureLoader();
+		l.setInputStream(new ByteArrayInputStream(saveBinary(b)));
+		assertSameBigraph(b, l.importObject());
+	}
+	
+	@Test
+	public void binaryFile()
+			throws IOException, LoadFailedException, SaveFailedException {
+		Bigraph b = load();
+		File f = File.createTempFile("test", ".structure");
+		try {
+			FileOutputStream os = new FileOutputStream(f);
+			try {
+				os.write(saveBinary(b));
+			} finally {
+				os.close();
+			}
+			/* A FileInputStream will be mapped into memory */
+			BigraphStructureLoader l = new BigraphStructureLoader();
+			l.setInputStream(new FileInputStream(f));
+			assertSameBigraph(b, l.importObject());
+		} finally {
+			f.delete();
+		}
+	}
+	
+	@Test
+	public void binaryDropsExtendedData()
+			throws LoadFailedException, SaveFailedException {
+		Bigraph b = load();
+		Node a = (Node)b.getNamespace(Node.class).get("a");
+		a.setExtendedData("test:Comment", "hello");
+		b.getSignature().getControl("A").setExtendedData(
+				"test:Label", "A");
+		
+		/* Only the structure survives: layout, which is stored as
+		 * extended data, and all other extended data are lost */
+		BigraphStructureLoader l = new BigraphStructureLoader();
+		l.setInputStream(new ByteArrayInputStream(saveBinary(b)));
+		Bigraph c = l.importObject();
+		assertSameBigraph(b, c);
+		assertNull(c.getNamespace(Node.class).get("a").getExtendedData(
+				"test:Comment"));
+		assertNull(c.getSignature().getControl("A").getExtendedData(
+				"test:Label"));
+	}
+}
@@ -0,0 +1,173 @@
+package org.bigraph.model.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.bigraph.model.assistants.PropertyScratchpad;
+import org.bigraph.model.utilities.LinkedSetList;
+import org.bigraph.model.utilities.OverlayMap;
+import org.bigraph.model.utilities.OverlaySet;
+
+public class ScratchpadTests {
+	private static final Object TARGET = new Object();
+	
+	@Test
+	public void sharedSetLeavesOriginalAlone() {
+		Set<String> original = new HashSet<String>(Arrays.asList("a", "b"));
+		PropertyScratchpad s = new PropertyScratchpad().setSharing(true);
+		Set<String> m = s.getModifiableSet(TARGET, "set", original);
+		m.remove("a");
+		m.add("c");
+		m.add("b");
+		
+		assertEquals(new HashSet<String>(Arrays.asList("b", "c")), m);
+		assertEquals(2, m.size());
+		assertEquals(2, original.size());
+		assertTrue(original.contains("a"));
+	}
+	
+	@Test
+	public void sharedSetNested() {
+		Set<String> original = new HashSet<String>(Arrays.asList("a", "b"));
+		PropertyScratchpad
+			s1 = new PropertyScratchpad().setSharing(true),
+			s2 = new PropertyScratchpad(s1);
+		assertTrue(s2.isSharing());
+		
+		s1.getModifiableSet(TARGET, "set", original).add("c");
+		Set<String> m2 = s2.getModifiableSet(TARGET, "set", original);
+		m2.remove("c");
+		m2.remove("a");
+		
+		assertEquals(new HashSet<String>(Arrays.asList("b")), m2);
+		assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c")),
+				s1.getProperty(TARGET, "set"));
+	}
+	
+	@Test
+	public void sharedList() {
+		List<String> original =
+				new ArrayList<String>(Arrays.asList("a", "b", "c"));
+		PropertyScratchpad s = new PropertyScratchpad().setSharing(true);
+		List<String> m = s.getModifiableList(TARGET, "list", original);
+		m.remove("b");
+		m.add("d");
+		assertEquals(Arrays.asList("a", "c", "d"), m);
+		assertEquals("c", m.get(1));
+		m.add(1, "e");
+		assertEquals(Arrays.asList("a", "e", "c", "d"), m);
+		assertEquals(Arrays.asList("a", "b", "c"), original);
+	}
+	
+	@Test
+	public void sharedMap() {
+		Map<String, Object> original = new HashMap<String, Object>();
+		original.put("a", 1);
+		original.put("b", 2);
+		PropertyScratchpad s = new PropertyScratchpad().setSharing(true);
+		Map<String, Object> m = s.getModifiableMap(TARGET, "map", original);
+		m.put("a", 3);
+		m.remove("b");
+		m.put("c", 4);
+		
+		Map<String, Object> expected = new HashMap<String, Object>();
+		expected.put("a", 3);
+		expected.put("c", 4);
+		assertEquals(expected, m);
+		assertEquals(2, original.size());
+		assertEquals(1, original.get("a"));
+	}
+	
+	@Test
+	public void linkedSetListOverlay() {
+		LinkedSetList<String> original = new LinkedSetList<String>();
+		original.addAll(Arrays.asList("a", "b", "c"));
+		assertFalse(original.add("a"));
+		
+		LinkedSetList<String> m = new LinkedSetList<String>(original);
+		m.remove("a");
+		m.add("d");
+		assertFalse(m.add("c"));
+		m.add("a");
+		assertEquals(Arrays.asList("b", "c", "d", "a"), m);
+		assertEquals(2, m.indexOf("d"));
+		assertEquals(Arrays.asList("a", "b", "c"), original);
+	}
+	
+	@Test
+	public void overlayMapIteratorRemove() {
+		Map<String, Integer> original = new HashMap<String, Integer>();
+		original.put("a", 1);
+		original.put("b", 2);
+		OverlayMap<String, Integer> m =
+				new OverlayMap<String, Integer>(original);
+		m.put("b", 3);
+		m.put("c", 4);
+		
+		Iterator<Map.Entry<String, Integer>> it = m.entrySet().iterator();
+		try {
+			it.remove();
+			fail("remove() before next() should fail");
+		} catch (IllegalStateException e) {
+			/* expected */
+		}
+		while (it.hasNext()) {
+			Map.Entry<String, Integer> e = it.next();
+			if (!e.getKey().equals("c")) {
+				it.remove();
+				try {
+					it.remove();
+					fail("remove() twice should fail");
+				} catch (IllegalStateException ex) {
+					/* expected */
+				}
+			}
+		}
+		
+		assertEquals(1, m.size());
+		assertEquals(Integer.valueOf(4), m.get("c"));
+		assertFalse(m.containsKey("a"));
+		assertFalse(m.containsKey("b"));
+		assertEquals(2, original.size());
+		assertEquals(Integer.valueOf(2), original.get("b"));
+	}
+	
+	@Test
+	public void overlaySetIteratorRemove() {
+		Set<String> original = new HashSet<String>(Arrays.asList("a", "b"));
+		OverlaySet<String> m = new OverlaySet<String>(original);
+		m.add("c");
+		
+		Iterator<String> it = m.iterator();
+		try {
+			it.remove();
+			fail("remove() before next() should fail");
+		} catch (IllegalStateException e) {
+			/* expected */
+		}
+		while (it.hasNext()) {
+			if (!it.next().equals("b")) {
+				it.remove();
+				try {
+					it.remove();
+					fail("remove() twice should fail");
+				} catch (IllegalStateException e) {
+					/* expected */
+				}
+			}
+		}
+		
+		assertEquals(1, m.size());
+		assertEquals(new HashSet<String>(Arrays.asList("b")), m);
+		assertEquals(2, original.size());
+	}
+}
@@ -1,10 +1,19 @@
 package org.bigraph.model.tests;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
 import org.bigraph.model.Bigraph;
+import org.bigraph.model.Container;
+import org.bigraph.model.Control;
+import org.bigraph.model.Node;
 import org.bigraph.model.ReactionRule;
+import org.bigraph.model.Root;
 import org.bigraph.model.Signature;
 import org.bigraph.model.SimulationSpec;
 import org.bigraph.model.changes.descriptors.ChangeCreationException;
+import org.bigraph.model.changes.descriptors.ChangeDescriptorGroup;
+import org.bigraph.model.changes.descriptors.IChangeDescriptor;
 import org.junit.Test;
 
 public class SpecDescriptorTests extends DescriptorTestRunner {
@@ -66,4 +75,62 @@ public class SpecDescriptorTests extends DescriptorTestRunner {
 				new SimulationSpec.ChangeRemoveRuleDescriptor(
 						new SimulationSpec.Identifier(), 0, null));
 	}
+	
+	private static final Control.Identifier c =
+			new Control.Identifier("C");
+	private static final Root.Identifier r = new Root.Identifier("0");
+	private static final Node.Identifier
+		a = new Node.Identifier("a", c),
+		b = new Node.Identifier("b", c),
+		d = new Node.Identifier("d", c),
+		e = new Node.Identifier("e", c);
+	
+	private static ChangeDescriptorGroup group(IChangeDescriptor... cds) {
+		ChangeDescriptorGroup cdg = new ChangeDescriptorGroup();
+		for (IChangeDescriptor cd : cds)
+			cdg.add(cd);
+		return cdg;
+	}
+	
+	private static IChangeDescriptor add(
+			Container.Identifier parent, Node.Identifier child) {
+		return new Container.ChangeAddChildDescriptor(parent, child);
+	}
+	
+	private static IChangeDescriptor remove(
+			Container.Identifier parent, Node.Identifier child) {
+		return new Container.ChangeRemoveChildDescriptor(parent, child);
+	}
+	
+	@Test
+	public void fixupsUnchanged() {
+		ChangeDescriptorGroup
+			redex = group(add(r, d)),
+			reactum = group(add(r, a), group(add(a, b)));
+		assertSame(reactum, ReactionRule.performFixups(redex, reactum));
+		assertEquals(1, redex.size());
+	}
+	
+	@Test
+	public void fixupsRemoveEqual() {
+		ChangeDescriptorGroup
+			redex = group(add(r, a), add(a, b)),
+			reactum = group(group(add(r, a)), group(add(a, b), add(b, d)));
+		assertEquals(group(group(add(b, d))),
+				ReactionRule.performFixups(redex, reactum));
+		assertEquals(0, redex.size());
+		assertEquals(2, reactum.size());
+	}
+	
+	@Test
+	public void fixupsInsertInverses() {
+		ChangeDescriptorGroup
+			redex = group(remove(r, a), remove(r, d)),
+			reactum = group(add(d, b), group(add(r, e), add(a, e)));
+		assertEquals(
+				group(add(r, d), add(d, b),
+						group(add(r, a), add(r, e), add(a, e))),
+				ReactionRule.performFixups(redex, reactum));
+		assertEquals(0, redex.size());
+	}
 }